@@ -104,6 +104,12 @@ CREATE TABLE productos(
     INDEX idx_ubicacion_predeterminada(ubicacion_predeterminada_id)
 ) ENGINE=InnoDB;
 
+-- TABLA: secuencias_codigo_producto (contador por prefijo para los códigos generados)
+CREATE TABLE secuencias_codigo_producto(
+    prefijo VARCHAR(50) PRIMARY KEY,
+    siguiente INT NOT NULL
+) ENGINE=InnoDB;
+
 -- ============================================
 -- TABLA: usuarios (depende de roles)
 -- ============================================
@@ -116,6 +122,7 @@ CREATE TABLE usuarios(
     nombre_completo VARCHAR(150) NOT NULL,
     rol_id INT NOT NULL,
     activo BOOLEAN DEFAULT TRUE,
+    version_token INT NOT NULL DEFAULT 0,
     ultimo_acceso DATETIME,
     fecha_creacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     fecha_actualizacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -196,6 +203,21 @@ CREATE TABLE movimientos(
     INDEX idx_usuario(usuario_id)
 ) ENGINE=InnoDB;
 
+-- TABLA: movimientos_diarios (resumen por día, tipo y producto para reportes)
+CREATE TABLE movimientos_diarios(
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    fecha DATE NOT NULL,
+    tipo_movimiento_id INT NOT NULL,
+    producto_id INT NOT NULL,
+    movimientos INT NOT NULL DEFAULT 0,
+    cantidad BIGINT NOT NULL DEFAULT 0,
+    valor DECIMAL(15,2) NOT NULL DEFAULT 0,
+    FOREIGN KEY(tipo_movimiento_id) REFERENCES tipos_movimiento(id) ON DELETE RESTRICT,
+    FOREIGN KEY(producto_id) REFERENCES productos(id) ON DELETE RESTRICT,
+    UNIQUE KEY uk_movimiento_diario(fecha, tipo_movimiento_id, producto_id),
+    INDEX idx_producto(producto_id)
+) ENGINE=InnoDB;
+
 -- TABLA: tipos_alerta
 CREATE TABLE tipos_alerta(
     id INT AUTO_INCREMENT PRIMARY KEY,
@@ -283,49 +305,8 @@ CREATE TABLE transferencias_ubicacion(
 
 DELIMITER $$
 
--- Trigger para actualizar stock después de un movimiento
-CREATE TRIGGER trg_actualizar_stock_movimiento
-AFTER INSERT ON movimientos
-FOR EACH ROW
-BEGIN
-    DECLARE v_afecta_stock TINYINT;
-    
-    SELECT afecta_stock INTO v_afecta_stock
-    FROM tipos_movimiento WHERE id = NEW.tipo_movimiento_id;
-    
-    IF v_afecta_stock = 1 THEN
-        -- Entrada
-        UPDATE productos SET stock_actual = stock_actual + NEW.cantidad,
-        fecha_actualizacion = CURRENT_TIMESTAMP
-        WHERE id = NEW.producto_id;
-        
-        IF NEW.lote_id IS NOT NULL THEN
-            UPDATE lotes
-            SET cantidad_actual = cantidad_actual + NEW.cantidad,
-            fecha_actualizacion = CURRENT_TIMESTAMP
-            WHERE id = NEW.lote_id;
-        END IF;
-    ELSEIF v_afecta_stock = -1 THEN
-        -- Salida
-        UPDATE productos
-        SET stock_actual = stock_actual - NEW.cantidad,
-        fecha_actualizacion = CURRENT_TIMESTAMP
-        WHERE id = NEW.producto_id;
-        
-        IF NEW.lote_id IS NOT NULL THEN
-            UPDATE lotes
-            SET cantidad_actual = cantidad_actual - NEW.cantidad,
-            fecha_actualizacion = CURRENT_TIMESTAMP
-            WHERE id = NEW.lote_id;
-        END IF;
-    ELSEIF v_afecta_stock = 0 THEN
-        -- Ajuste
-        UPDATE productos
-        SET stock_actual = NEW.cantidad,
-        fecha_actualizacion = CURRENT_TIMESTAMP
-        WHERE id = NEW.producto_id;
-    END IF;
-END$$
+-- El stock de los movimientos lo aplica la aplicación (LibroStockService, app.stock.libro.habilitado=true).
+-- Para volver al trigger trg_actualizar_stock_movimiento: migraciones/libro_stock_desactivar.sql
 
 -- Trigger para generar alertas de stock mínimo
 CREATE TRIGGER trg_alerta_stock_minimo
@@ -817,8 +798,10 @@ LEFT JOIN ubicaciones_almacen ubp ON u.ubicacion_padre_id = ubp.id;
 -- ============================================
 
 CREATE INDEX idx_productos_busqueda ON productos(nombre, codigo) USING BTREE;
-CREATE INDEX idx_movimientos_fecha_tipo ON movimientos(fecha_movimiento, tipo_movimiento_id) USING BTREE;
+CREATE INDEX idx_movimientos_analitica ON movimientos(fecha_movimiento, tipo_movimiento_id, producto_id, cantidad, precio_unitario) USING BTREE;
 CREATE INDEX idx_lotes_vencimiento_activo ON lotes(fecha_vencimiento, activo) USING BTREE;
+CREATE INDEX idx_lotes_fecha_creacion ON lotes(fecha_creacion, id) USING BTREE;
+CREATE INDEX idx_productos_fecha_creacion ON productos(fecha_creacion, id) USING BTREE;
 CREATE INDEX idx_ubicaciones_completo ON ubicaciones_almacen(codigo, tipo, ubicacion_padre_id) USING BTREE;
 CREATE INDEX idx_transferencias_producto_ubicacion ON transferencias_ubicacion(producto_id, ubicacion_origen_id, ubicacion_destino_id) USING BTREE;
 
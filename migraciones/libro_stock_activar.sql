@@ -0,0 +1,10 @@
+-- ============================================
+-- MIGRACIÓN: el stock lo aplica la aplicación (LibroStockService)
+-- Usar junto con app.stock.libro.habilitado=true en bases de datos creadas con una versión
+-- anterior de almacenes.sql. Ejecutar con todas las instancias detenidas: una instancia que
+-- todavía use el trigger dejaría de aplicar el stock en cuanto se elimine.
+-- ============================================
+
+USE inventory_system;
+
+DROP TRIGGER IF EXISTS trg_actualizar_stock_movimiento;
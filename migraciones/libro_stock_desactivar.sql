@@ -0,0 +1,57 @@
+-- ============================================
+-- MIGRACIÓN: volver a aplicar el stock con el trigger trg_actualizar_stock_movimiento
+-- Usar junto con app.stock.libro.habilitado=false. Ejecutar con todas las instancias
+-- detenidas: con el trigger creado y el libro de stock activo cada movimiento se aplicaría
+-- dos veces, y la aplicación no arranca si el trigger no coincide con el modo.
+-- ============================================
+
+USE inventory_system;
+
+DROP TRIGGER IF EXISTS trg_actualizar_stock_movimiento;
+
+DELIMITER $$
+
+CREATE TRIGGER trg_actualizar_stock_movimiento
+AFTER INSERT ON movimientos
+FOR EACH ROW
+BEGIN
+    DECLARE v_afecta_stock TINYINT;
+    
+    SELECT afecta_stock INTO v_afecta_stock
+    FROM tipos_movimiento WHERE id = NEW.tipo_movimiento_id;
+    
+    IF v_afecta_stock = 1 THEN
+        -- Entrada
+        UPDATE productos SET stock_actual = stock_actual + NEW.cantidad,
+        fecha_actualizacion = CURRENT_TIMESTAMP
+        WHERE id = NEW.producto_id;
+        
+        IF NEW.lote_id IS NOT NULL THEN
+            UPDATE lotes
+            SET cantidad_actual = cantidad_actual + NEW.cantidad,
+            fecha_actualizacion = CURRENT_TIMESTAMP
+            WHERE id = NEW.lote_id;
+        END IF;
+    ELSEIF v_afecta_stock = -1 THEN
+        -- Salida
+        UPDATE productos
+        SET stock_actual = stock_actual - NEW.cantidad,
+        fecha_actualizacion = CURRENT_TIMESTAMP
+        WHERE id = NEW.producto_id;
+        
+        IF NEW.lote_id IS NOT NULL THEN
+            UPDATE lotes
+            SET cantidad_actual = cantidad_actual - NEW.cantidad,
+            fecha_actualizacion = CURRENT_TIMESTAMP
+            WHERE id = NEW.lote_id;
+        END IF;
+    ELSEIF v_afecta_stock = 0 THEN
+        -- Ajuste
+        UPDATE productos
+        SET stock_actual = NEW.cantidad,
+        fecha_actualizacion = CURRENT_TIMESTAMP
+        WHERE id = NEW.producto_id;
+    END IF;
+END$$
+
+DELIMITER ;
@@ -0,0 +1,61 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.entity.Categoria;
+import com.salesiana.inventory_system.service.CategoriaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Costo de AuditoriaAspect: la misma alta de categoría a través del proxy (transacción + auditoría)
+ * y directamente sobre el servicio dentro de una transacción equivalente (sin auditoría).
+ * La diferencia entre ambos es lo que agrega el aspecto a cada guardar*.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuditoriaAspectBenchmark extends BenchmarkBase {
+
+    private final AtomicLong secuencia = new AtomicLong();
+
+    private CategoriaService conAuditoria;
+    private CategoriaService sinAuditoria;
+    private TransactionTemplate transaccion;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar();
+        conAuditoria = bean(CategoriaService.class);
+        sinAuditoria = AopTestUtils.getUltimateTargetObject(conAuditoria);
+        transaccion = new TransactionTemplate(bean(PlatformTransactionManager.class));
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null));
+    }
+
+    @Benchmark
+    public Categoria guardarConAuditoria() {
+        return conAuditoria.guardarCategoria(nuevaCategoria());
+    }
+
+    @Benchmark
+    public Categoria guardarSinAuditoria() {
+        return transaccion.execute(estado -> sinAuditoria.guardarCategoria(nuevaCategoria()));
+    }
+
+    private Categoria nuevaCategoria() {
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Benchmark " + secuencia.incrementAndGet());
+        categoria.setDescripcion("Categoría generada por el benchmark de auditoría");
+        return categoria;
+    }
+}
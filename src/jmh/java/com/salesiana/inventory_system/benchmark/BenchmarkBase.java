@@ -0,0 +1,51 @@
+package com.salesiana.inventory_system.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Parámetros y arranque comunes. El tamaño del conjunto sintético se elige con
+ * -p productos=... -p movimientos=... al ejecutar JMH.
+ *
+ * Cada clase concreta declara su propio @Setup(Level.Trial) y llama a arrancar() antes de
+ * preparar sus datos.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public abstract class BenchmarkBase {
+
+    @Param("2000")
+    public int productos;
+
+    @Param("200000")
+    public int movimientos;
+
+    protected ConfigurableApplicationContext contexto;
+
+    protected void arrancar(String... propiedades) throws Exception {
+        contexto = EntornoBenchmark.iniciar(productos, movimientos, propiedades);
+    }
+
+    @TearDown(Level.Trial)
+    public void detener() throws Exception {
+        EntornoBenchmark.detener();
+    }
+
+    protected <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+
+    protected JdbcTemplate jdbc() {
+        return contexto.getBean(JdbcTemplate.class);
+    }
+}
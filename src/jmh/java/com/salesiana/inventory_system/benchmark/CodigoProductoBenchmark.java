@@ -0,0 +1,71 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.entity.Categoria;
+import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.entity.UbicacionAlmacen;
+import com.salesiana.inventory_system.repository.UbicacionAlmacenRepository;
+import com.salesiana.inventory_system.service.CodigoProductoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación de código cuando ya existen codigosExistentes productos con la misma base
+ * (ubicación, categoría y nombre). Con la secuencia por prefijo el costo no depende de
+ * codigosExistentes: solo la primera reserva del prefijo los recorre.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodigoProductoBenchmark extends BenchmarkBase {
+
+    @Param({"0", "50", "500"})
+    public int codigosExistentes;
+
+    private CodigoProductoService codigoProductoService;
+    private Producto producto;
+    private UbicacionAlmacen ubicacion;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar();
+        codigoProductoService = bean(CodigoProductoService.class);
+
+        Integer ubicacionId = jdbc().queryForObject(
+                "SELECT id FROM ubicaciones_almacen WHERE ubicacion_padre_id IS NOT NULL ORDER BY id DESC LIMIT 1",
+                Integer.class);
+        ubicacion = bean(UbicacionAlmacenRepository.class).findById(ubicacionId)
+                .orElseThrow(() -> new RuntimeException("Ubicación no encontrada"));
+
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Benchmark");
+        producto = new Producto();
+        producto.setNombre("Código Benchmark");
+        producto.setCategoria(categoria);
+
+        // La ruta de la ubicación sale de un código de prueba con otro nombre, para no iniciar la
+        // secuencia de la base medida antes de insertar los códigos existentes
+        Producto sonda = new Producto();
+        sonda.setNombre("Sonda");
+        sonda.setCategoria(categoria);
+        String codigoSonda = codigoProductoService.generarCodigoUnico(sonda, ubicacion);
+        String base = codigoSonda.substring(0, codigoSonda.lastIndexOf("-BEN-SON-")) + "-BEN-CÓD";
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 1; i <= codigosExistentes; i++) {
+            filas.add(new Object[]{base + "-" + String.format("%03d", i), "Código Benchmark " + i});
+        }
+        jdbc().batchUpdate("INSERT INTO productos (codigo, nombre, unidad_medida) VALUES (?, ?, 'UNIDAD')", filas);
+    }
+
+    @Benchmark
+    public String generarCodigoUnico() {
+        return codigoProductoService.generarCodigoUnico(producto, ubicacion);
+    }
+}
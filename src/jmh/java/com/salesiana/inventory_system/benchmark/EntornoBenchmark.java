@@ -0,0 +1,180 @@
+package com.salesiana.inventory_system.benchmark;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.salesiana.inventory_system.InventorySystemApplication;
+import com.salesiana.inventory_system.entity.CambioDatosListener;
+import com.salesiana.inventory_system.service.MovimientoDiarioService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Base de datos embebida y contexto de Spring compartidos por los benchmarks.
+ *
+ * Levanta una MariaDB embebida (compatible con los triggers, el ON DUPLICATE KEY y el streaming
+ * de MySQL que usa la aplicación), carga almacenes.sql (y las migraciones que pida el modo) y agrega un conjunto sintético de productos,
+ * lotes y movimientos. Se inicia una sola vez por JVM de JMH.
+ */
+public final class EntornoBenchmark {
+
+    private static final int TAMANO_LOTE_INSERCION = 5000;
+
+    private static DB baseDatos;
+    private static ConfigurableApplicationContext contexto;
+
+    private EntornoBenchmark() {
+    }
+
+    /**
+     * @param propiedades propiedades adicionales de la aplicación ("clave=valor"), p. ej. para
+     *                    comparar modos en un @Param (JMH usa una JVM por combinación)
+     */
+    public static synchronized ConfigurableApplicationContext iniciar(int productos, int movimientos,
+                                                                      String... propiedades) throws Exception {
+        if (contexto != null) {
+            return contexto;
+        }
+
+        DBConfigurationBuilder configuracion = DBConfigurationBuilder.newBuilder();
+        configuracion.setPort(0);
+        baseDatos = DB.newEmbeddedDB(configuracion.build());
+        baseDatos.start();
+        baseDatos.source("almacenes.sql", "root", null, null);
+        // almacenes.sql deja el esquema para el libro de stock; el camino del trigger necesita su migración
+        if (Arrays.asList(propiedades).contains("app.stock.libro.habilitado=false")) {
+            baseDatos.source("migraciones/libro_stock_desactivar.sql", "root", null, null);
+        }
+
+        // Devtools reinicia el contexto en otro classloader si no se desactiva antes del arranque
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        contexto = new SpringApplicationBuilder(InventorySystemApplication.class)
+                .properties(
+                        "spring.datasource.url=" + configuracion.getURL("inventory_system")
+                                + "?useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true",
+                        "spring.datasource.username=root",
+                        "spring.datasource.password=",
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "app.reportes.cache.habilitada=false",
+                        "app.reportes.directorio-temp=" + Files.createTempDirectory("reportes-benchmark"))
+                .properties(propiedades)
+                .run();
+
+        sembrarDatos(contexto.getBean(JdbcTemplate.class), productos, movimientos);
+        contexto.getBean(MovimientoDiarioService.class).reconstruirResumen();
+        return contexto;
+    }
+
+    public static synchronized void detener() throws Exception {
+        if (contexto != null) {
+            contexto.close();
+            contexto = null;
+        }
+        if (baseDatos != null) {
+            baseDatos.stop();
+            baseDatos = null;
+        }
+    }
+
+    //============================================
+    // DATOS SINTÉTICOS
+    //============================================
+    /**
+     * Inserta productos (con un lote cada uno) y movimientos repartidos en los últimos dos años.
+     * La semilla es fija para que todas las ejecuciones trabajen sobre los mismos datos.
+     */
+    private static void sembrarDatos(JdbcTemplate jdbc, int productos, int movimientos) {
+        long inicio = System.currentTimeMillis();
+        Random aleatorio = new Random(42);
+
+        List<Integer> categorias = jdbc.queryForList("SELECT id FROM categorias", Integer.class);
+        List<Integer> usuarios = jdbc.queryForList("SELECT id FROM usuarios", Integer.class);
+        List<Integer> tipos = jdbc.queryForList("SELECT id FROM tipos_movimiento", Integer.class);
+
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 1; i <= productos; i++) {
+            BigDecimal compra = BigDecimal.valueOf(1 + aleatorio.nextInt(20000), 2);
+            filas.add(new Object[]{
+                    String.format("BEN-%06d", i),
+                    "Producto sintético " + i,
+                    categorias.get(aleatorio.nextInt(categorias.size())),
+                    "UNIDAD",
+                    compra,
+                    compra.multiply(BigDecimal.valueOf(1.3)),
+                    aleatorio.nextInt(500),
+                    20,
+                    1000,
+                    aleatorio.nextBoolean()});
+        }
+        insertarPorLotes(jdbc, "INSERT INTO productos (codigo, nombre, categoria_id, unidad_medida, precio_compra, "
+                + "precio_venta, stock_actual, stock_minimo, stock_maximo, requiere_vencimiento) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", filas);
+
+        List<Integer> productoIds = jdbc.queryForList("SELECT id FROM productos WHERE codigo LIKE 'BEN-%'", Integer.class);
+
+        filas.clear();
+        LocalDate hoy = LocalDate.now();
+        for (Integer productoId : productoIds) {
+            LocalDate fabricacion = hoy.minusDays(aleatorio.nextInt(365));
+            int cantidad = 10 + aleatorio.nextInt(300);
+            filas.add(new Object[]{
+                    productoId,
+                    "L-" + productoId,
+                    Date.valueOf(fabricacion),
+                    Date.valueOf(hoy.plusDays(aleatorio.nextInt(360) - 60)),
+                    cantidad,
+                    cantidad});
+        }
+        insertarPorLotes(jdbc, "INSERT INTO lotes (producto_id, numero_lote, fecha_fabricacion, fecha_vencimiento, "
+                + "cantidad_inicial, cantidad_actual) VALUES (?, ?, ?, ?, ?, ?)", filas);
+
+        filas.clear();
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < movimientos; i++) {
+            filas.add(new Object[]{
+                    tipos.get(aleatorio.nextInt(tipos.size())),
+                    productoIds.get(aleatorio.nextInt(productoIds.size())),
+                    1 + aleatorio.nextInt(50),
+                    BigDecimal.valueOf(1 + aleatorio.nextInt(20000), 2),
+                    usuarios.get(aleatorio.nextInt(usuarios.size())),
+                    Timestamp.valueOf(ahora.minusMinutes(aleatorio.nextInt(730 * 24 * 60)))});
+            if (filas.size() == TAMANO_LOTE_INSERCION) {
+                insertarMovimientos(jdbc, filas);
+                filas.clear();
+            }
+        }
+        insertarMovimientos(jdbc, filas);
+
+        // Escritura fuera de JPA
+        CambioDatosListener.registrarCambioExterno();
+
+        System.out.println("✅ Datos sintéticos: " + productos + " productos, " + movimientos + " movimientos en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    private static void insertarMovimientos(JdbcTemplate jdbc, List<Object[]> filas) {
+        insertarPorLotes(jdbc, "INSERT INTO movimientos (tipo_movimiento_id, producto_id, cantidad, precio_unitario, "
+                + "usuario_id, fecha_movimiento) VALUES (?, ?, ?, ?, ?, ?)", filas);
+    }
+
+    private static void insertarPorLotes(JdbcTemplate jdbc, String sql, List<Object[]> filas) {
+        for (int desde = 0; desde < filas.size(); desde += TAMANO_LOTE_INSERCION) {
+            jdbc.batchUpdate(sql, filas.subList(desde, Math.min(desde + TAMANO_LOTE_INSERCION, filas.size())));
+        }
+    }
+}
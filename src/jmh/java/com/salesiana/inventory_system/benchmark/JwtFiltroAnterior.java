@@ -0,0 +1,84 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.entity.Usuario;
+import com.salesiana.inventory_system.repository.UsuarioRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Autenticación JWT tal como la hacían JwtRequestFilter y JwtUtil antes de verificar cada token una
+ * sola vez: extractUsername, carga del usuario desde la base de datos y validateToken, que vuelve a
+ * parsear el token dos veces (username y expiración), armando el parser y la clave en cada parseo.
+ * Se conserva solo como referencia para JwtRequestFilterBenchmark; los System.out del
+ * CustomUserDetailsService de entonces no se reproducen.
+ */
+class JwtFiltroAnterior {
+
+    private final String secret;
+    private final UsuarioRepository usuarioRepository;
+    private final TransactionTemplate transaccion;
+
+    JwtFiltroAnterior(String secret, UsuarioRepository usuarioRepository, TransactionTemplate transaccion) {
+        this.secret = secret;
+        this.usuarioRepository = usuarioRepository;
+        this.transaccion = transaccion;
+        this.transaccion.setReadOnly(true);
+    }
+
+    Authentication autenticar(HttpServletRequest request) {
+        String authorizationHeader = request.getHeader("Authorization");
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        String jwt = authorizationHeader.substring(7);
+        String username = extractClaim(jwt, Claims::getSubject);
+        if (username == null) {
+            return null;
+        }
+
+        UserDetails userDetails = transaccion.execute(estado -> cargarUsuario(username));
+        if (!validateToken(jwt, userDetails)) {
+            return null;
+        }
+        UsernamePasswordAuthenticationToken authToken =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        return authToken;
+    }
+
+    private UserDetails cargarUsuario(String username) {
+        Usuario usuario = usuarioRepository.findByUsernameAndActivoTrue(username)
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
+        return new User(usuario.getUsername(), usuario.getPasswordHash(), usuario.getRol() == null
+                ? Collections.emptyList()
+                : Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + usuario.getRol().getCodigo().toUpperCase())));
+    }
+
+    private boolean validateToken(String token, UserDetails userDetails) {
+        String username = extractClaim(token, Claims::getSubject);
+        return username.equals(userDetails.getUsername()) && !extractClaim(token, Claims::getExpiration).before(new Date());
+    }
+
+    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return claimsResolver.apply(claims);
+    }
+}
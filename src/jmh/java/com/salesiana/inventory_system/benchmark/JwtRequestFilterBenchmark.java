@@ -0,0 +1,68 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.repository.UsuarioRepository;
+import com.salesiana.inventory_system.security.JwtRequestFilter;
+import com.salesiana.inventory_system.security.JwtUtil;
+import com.salesiana.inventory_system.service.CustomUserDetailsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por petición del filtro JWT con un token válido, antes y después:
+ * - anterior: el camino previo (JwtFiltroAnterior), tres parseos con parser nuevo y el usuario
+ *   leído de la base de datos en cada petición.
+ * - sin-cache: el filtro actual con jwt.cache.habilitado=false, un parseo con el parser
+ *   precompilado y la autenticación armada con los claims.
+ * - con-cache: el filtro actual con la caché de tokens; cada petición calcula el SHA-256 del token
+ *   para buscarlo y omite la verificación de la firma.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtRequestFilterBenchmark extends BenchmarkBase {
+
+    @Param({"anterior", "sin-cache", "con-cache"})
+    public String modo;
+
+    private JwtRequestFilter filtro;
+    private JwtFiltroAnterior filtroAnterior;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar("jwt.cache.habilitado=" + "con-cache".equals(modo));
+        filtro = bean(JwtRequestFilter.class);
+        filtroAnterior = new JwtFiltroAnterior(contexto.getEnvironment().getProperty("jwt.secret"),
+                bean(UsuarioRepository.class), new TransactionTemplate(bean(PlatformTransactionManager.class)));
+        UserDetails usuario = bean(CustomUserDetailsService.class).loadUserByUsername("admin");
+        token = bean(JwtUtil.class).generateToken(usuario);
+    }
+
+    @Benchmark
+    public Authentication filtrarPeticion() throws Exception {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/productos");
+        peticion.addHeader("Authorization", "Bearer " + token);
+        if ("anterior".equals(modo)) {
+            return filtroAnterior.autenticar(peticion);
+        }
+        filtro.doFilter(peticion, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return autenticacion;
+    }
+}
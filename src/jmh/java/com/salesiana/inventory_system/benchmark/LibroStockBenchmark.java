@@ -0,0 +1,87 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.entity.Movimiento;
+import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.entity.TipoMovimiento;
+import com.salesiana.inventory_system.service.MovimientoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Salidas concurrentes sobre pocos productos: libro de stock (UPDATE condicional desde la
+ * aplicación) contra el trigger trg_actualizar_stock_movimiento con la validación en Java.
+ *
+ * Con productosCalientes=1 todos los hilos compiten por la misma fila de productos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class LibroStockBenchmark extends BenchmarkBase {
+
+    @Param({"true", "false"})
+    public boolean libroStock;
+
+    @Param({"1", "16"})
+    public int productosCalientes;
+
+    private MovimientoService movimientoService;
+    private List<Integer> productoIds;
+    private Integer tipoSalidaId;
+
+    /**
+     * El servicio toma el usuario del contexto de seguridad, que es por hilo
+     */
+    @State(Scope.Thread)
+    public static class Hilo {
+        @Setup(Level.Trial)
+        public void autenticar() {
+            SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar("app.stock.libro.habilitado=" + libroStock);
+        movimientoService = bean(MovimientoService.class);
+        tipoSalidaId = jdbc().queryForObject("SELECT id FROM tipos_movimiento WHERE afecta_stock = -1 ORDER BY id LIMIT 1",
+                Integer.class);
+        productoIds = jdbc().queryForList("SELECT id FROM productos WHERE activo = TRUE ORDER BY id LIMIT ?",
+                Integer.class, productosCalientes);
+
+        // Stock suficiente para toda la medición: se mide la contención, no el rechazo
+        for (Integer productoId : productoIds) {
+            jdbc().update("UPDATE productos SET stock_actual = 1000000000 WHERE id = ?", productoId);
+        }
+    }
+
+    @Benchmark
+    public Movimiento registrarSalida(Hilo hilo) {
+        TipoMovimiento tipo = new TipoMovimiento();
+        tipo.setId(tipoSalidaId);
+        Producto producto = new Producto();
+        producto.setId(productoIds.get(ThreadLocalRandom.current().nextInt(productoIds.size())));
+
+        Movimiento movimiento = new Movimiento();
+        movimiento.setTipoMovimiento(tipo);
+        movimiento.setProducto(producto);
+        movimiento.setCantidad(1);
+        movimiento.setPrecioUnitario(BigDecimal.TEN);
+        movimiento.setMotivo("Benchmark");
+        return movimientoService.registrarMovimiento(movimiento);
+    }
+}
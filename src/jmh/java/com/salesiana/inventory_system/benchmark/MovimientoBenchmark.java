@@ -0,0 +1,59 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.entity.Movimiento;
+import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.entity.TipoMovimiento;
+import com.salesiana.inventory_system.service.MovimientoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de una entrada completa: validaciones, stock, insert, evento y resumen diario
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovimientoBenchmark extends BenchmarkBase {
+
+    private MovimientoService movimientoService;
+    private List<Integer> productoIds;
+    private Integer tipoEntradaId;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar();
+        movimientoService = bean(MovimientoService.class);
+        productoIds = jdbc().queryForList("SELECT id FROM productos WHERE activo = TRUE", Integer.class);
+        tipoEntradaId = jdbc().queryForObject("SELECT id FROM tipos_movimiento WHERE afecta_stock = 1 ORDER BY id LIMIT 1",
+                Integer.class);
+
+        // El servicio asigna el usuario autenticado al movimiento
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null));
+    }
+
+    @Benchmark
+    public Movimiento registrarMovimiento() {
+        TipoMovimiento tipo = new TipoMovimiento();
+        tipo.setId(tipoEntradaId);
+        Producto producto = new Producto();
+        producto.setId(productoIds.get(ThreadLocalRandom.current().nextInt(productoIds.size())));
+
+        Movimiento movimiento = new Movimiento();
+        movimiento.setTipoMovimiento(tipo);
+        movimiento.setProducto(producto);
+        movimiento.setCantidad(1);
+        movimiento.setPrecioUnitario(BigDecimal.TEN);
+        movimiento.setMotivo("Benchmark");
+        return movimientoService.registrarMovimiento(movimiento);
+    }
+}
@@ -0,0 +1,62 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.service.GeneradorReporte;
+import com.salesiana.inventory_system.service.ReporteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación completa de cada reporte, con la caché en disco desactivada.
+ * El contenido se descarta para medir solo consultas y armado del documento.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReporteBenchmark extends BenchmarkBase {
+
+    @Param({
+            "inventario-excel", "inventario-pdf",
+            "stock-bajo-excel", "stock-bajo-pdf",
+            "vencimientos-excel", "vencimientos-pdf",
+            "rotacion-excel", "rotacion-pdf",
+            "movimientos-semanales-excel", "movimientos-semanales-pdf",
+            "movimientos-anuales-excel", "movimientos-anuales-pdf"})
+    public String reporte;
+
+    private GeneradorReporte generador;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar();
+        ReporteService reporteService = bean(ReporteService.class);
+
+        generador = switch (reporte) {
+            case "inventario-excel" -> reporteService::generarReporteInventarioExcel;
+            case "inventario-pdf" -> reporteService::generarReporteInventarioPdf;
+            case "stock-bajo-excel" -> reporteService::generarReporteStockBajoExcel;
+            case "stock-bajo-pdf" -> reporteService::generarReporteStockBajoPdf;
+            case "vencimientos-excel" -> reporteService::generarReporteVencimientosExcelReal;
+            case "vencimientos-pdf" -> reporteService::generarReporteVencimientosPdfReal;
+            case "rotacion-excel" -> reporteService::generarReporteRotacionExcelReal;
+            case "rotacion-pdf" -> reporteService::generarReporteRotacionPdfReal;
+            case "movimientos-semanales-excel" -> reporteService::generarReporteMovimientosSemanalesExcelReal;
+            case "movimientos-semanales-pdf" -> reporteService::generarReporteMovimientosSemanalesPdfReal;
+            case "movimientos-anuales-excel" -> reporteService::generarReporteMovimientosAnualesExcelReal;
+            case "movimientos-anuales-pdf" -> reporteService::generarReporteMovimientosAnualesPdfReal;
+            default -> throw new IllegalArgumentException("Reporte no soportado: " + reporte);
+        };
+    }
+
+    @Benchmark
+    public void generar() throws IOException {
+        generador.generar(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,185 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.repository.ProductoRepository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Generador HTML del reporte de inventario tal como estaba antes de pasar a iText
+ * (ReporteService.generarReporteInventarioPdf, el navegador lo imprimía como PDF).
+ * Se conserva solo como referencia para ReportePdfHtmlBenchmark; no lo usa la aplicación.
+ */
+class ReporteInventarioHtmlAnterior {
+
+    private final ProductoRepository productoRepository;
+
+    ReporteInventarioHtmlAnterior(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    public byte[] generar() throws IOException {
+        List<Producto> productos = productoRepository.findByActivoTrue();
+        
+        StringBuilder html = new StringBuilder();
+        
+        // Encabezado HTML y estilos
+        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
+        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
+        html.append("<title>Reporte de Inventario</title>");
+        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
+        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
+        
+        html.append("<style>");
+        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
+        html.append("h1{ color:#2c3e50; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#2c3e50; padding-bottom: 10px; font-size: 2.5rem;}");
+        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#e9ecef; padding: 10px; border-radius: 8px;}");
+        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
+        html.append(".download-btn{ background: linear-gradient(135deg,#2c3e50 0%,#1a252f 100%); color: white; padding: 12px 24px;");
+        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
+        html.append("box-shadow: 0 4px 15px rgba(44, 62, 80, 0.3); transition: all 0.3s ease;");
+        html.append("display: flex; align-items: center; gap: 10px; text-decoration: none;}");
+        html.append(".download-btn:hover{ background: linear-gradient(135deg,#1a252f 0%,#0d1318 100%);");
+        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(44, 62, 80, 0.4);}");
+        html.append(".download-btn:active{ transform: translateY(0);}");
+        html.append(".download-icon{ font-size: 20px;}");
+        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
+        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
+        html.append("th, td{ border: 1px solid#bdc3c7; padding: 12px; text-align: left; font-size: 14px;}");
+        html.append("th{ background-color:#2c3e50; color: white; font-weight: bold; text-transform: uppercase;}");
+        html.append("tr:nth-child(even){ background-color:#f8f9fa;}");
+        html.append("tr:hover{ background-color:#e9ecef;}");
+        html.append(".agotado{ background-color:#e74c3c; color: white; font-weight: bold; padding: 4px 8px; border-radius: 4px;}");
+        html.append(".critico{ background-color:#e67e22; color: white; font-weight: bold; padding: 4px 8px; border-radius: 4px;}");
+        html.append(".normal{ background-color:#27ae60; color: white; padding: 4px 8px; border-radius: 4px;}");
+        html.append(".resumen{ margin-top: 30px; padding: 25px; background-color:#2c3e50; color: white; border-radius: 10px;}");
+        html.append(".resumen h3{ color: white; margin-top: 0; font-size: 1.5rem;}");
+        html.append(".resumen p{ margin: 10px 0; font-size: 1.1rem;}");
+        html.append(".resumen.valor{ font-weight: bold; font-size: 1.3rem; color:#1abc9c;}");
+        html.append(".header-section{ background: linear-gradient(135deg,#2c3e50 0%,#1a252f 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
+        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#bdc3c7;}");
+        html.append("</style></head><body>");
+        
+        // Botón de descarga
+        html.append("<div class='download-container'>");
+        html.append("<button class='download-btn' onclick='window.print()'>");
+        html.append("<span class='download-icon'>📥</span>");
+        html.append("<span>Descargar PDF</span>");
+        html.append("</button>");
+        html.append("</div>");
+        
+        // Encabezado
+        html.append("<div class='header-section'>");
+        html.append("<h1>📦 REPORTE DE INVENTARIO - DROGUERÍA INTI</h1>");
+        html.append("<p>Sistema de Gestión de Inventario - Reporte Generado en 2025</p>");
+        html.append("</div>");
+        
+        // Fecha y total
+        LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
+        html.append("<div class='info'>");
+        html.append("<strong>Fecha de Generación:</strong> ");
+        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+        html.append(" | <strong>Total de productos:</strong> ").append(productos.size());
+        html.append("</div>");
+        
+        // Tabla de productos
+        html.append("<table>");
+        html.append("<thead><tr>");
+        html.append("<th>Código</th><th>Nombre</th><th>Categoría</th><th>Stock Actual</th>");
+        html.append("<th>Stock Mínimo</th><th>Precio Compra (Bs)</th><th>Precio Venta (Bs)</th>");
+        html.append("<th>Valor Inventario (Bs)</th><th>Estado</th>");
+        html.append("</tr></thead>");
+        html.append("<tbody>");
+        
+        BigDecimal valorTotal = BigDecimal.ZERO;
+        int agotados = 0;
+        int criticos = 0;
+        int normales = 0;
+        
+        for (Producto p : productos) {
+            String estado = determinarEstadoStock(p);
+            String claseEstado = estado.equals("AGOTADO") ? "agotado" : 
+                               (estado.equals("CRÍTICO") ? "critico" : "normal");
+            
+            if (estado.equals("AGOTADO")) agotados++;
+            else if (estado.equals("CRÍTICO")) criticos++;
+            else normales++;
+            
+            BigDecimal valorInv = BigDecimal.ZERO;
+            if (p.getPrecioCompra() != null && p.getStockActual() != null) {
+                valorInv = p.getPrecioCompra().multiply(BigDecimal.valueOf(p.getStockActual()));
+            }
+            valorTotal = valorTotal.add(valorInv);
+            
+            html.append("<tr>");
+            html.append("<td>").append(escaparHtml(p.getCodigo() != null ? p.getCodigo() : "SIN CÓDIGO")).append("</td>");
+            html.append("<td>").append(escaparHtml(p.getNombre() != null ? p.getNombre() : "SIN NOMBRE")).append("</td>");
+            html.append("<td>").append(
+                p.getCategoria() != null ? escaparHtml(p.getCategoria().getNombre()) : "Sin categoría"
+            ).append("</td>");
+            html.append("<td style='text-align: center;'><strong>").append(p.getStockActual() != null ? 
+                p.getStockActual() : 0).append("</strong></td>");
+            html.append("<td style='text-align: center;'>").append(p.getStockMinimo() != null ? 
+                p.getStockMinimo() : 0).append("</td>");
+            html.append("<td style='text-align: right;'>Bs ").append(
+                p.getPrecioCompra() != null ? String.format("%.2f", p.getPrecioCompra()) : "0.00"
+            ).append("</td>");
+            html.append("<td style='text-align: right;'>Bs ").append(
+                p.getPrecioVenta() != null ? String.format("%.2f", p.getPrecioVenta()) : "0.00"
+            ).append("</td>");
+            html.append("<td style='text-align: right;'><strong>Bs ").append(String.format("%.2f", valorInv)).append("</strong></td>");
+            html.append("<td style='text-align: center;'><span class='").append(claseEstado).append("'>")
+                .append(estado).append("</span></td>");
+            html.append("</tr>");
+        }
+        
+        html.append("</tbody></table>");
+        
+        // Resumen con estilo mejorado
+        html.append("<div class='resumen'>");
+        html.append("<h3>📊 Resumen del Inventario</h3>");
+        html.append("<p><strong>Total de Productos:</strong><span class='valor'>").append(productos.size()).append("</span></p>");
+        html.append("<p><strong>Productos con Stock Bajo:</strong><span class='valor'>").append(criticos).append("</span></p>");
+        html.append("<p><strong>Productos Agotados:</strong><span class='valor'>").append(agotados).append("</span></p>");
+        html.append("<p><strong>Productos con Stock Normal:</strong><span class='valor'>").append(normales).append("</span></p>");
+        html.append("<p><strong>Valor Total del Inventario:</strong><span class='valor'>Bs ")
+            .append(String.format("%.2f", valorTotal)).append("</span></p>");
+        html.append("</div>");
+        
+        // Pie de página
+        html.append("<div class='footer'>");
+        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
+        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
+        html.append("</div>");
+        
+        html.append("</body></html>");
+        
+        return html.toString().getBytes("UTF-8");
+    }
+
+    private String determinarEstadoStock(Producto producto) {
+        if (producto.getStockActual() == null || producto.getStockActual() == 0) {
+            return "AGOTADO";
+        } else if (producto.getStockMinimo() != null && producto.getStockActual() <= producto.getStockMinimo()) {
+            return "CRÍTICO";
+        } else {
+            return "NORMAL";
+        }
+    }
+
+    private String escaparHtml(String texto) {
+        if (texto == null) {
+            return "";
+        }
+
+        return texto.replace("&", "&amp;")
+                   .replace("<", "&lt;")
+                   .replace(">", "&gt;")
+                   .replace("\"", "&quot;")
+                   .replace("'", "&#39;");
+    }
+}
@@ -0,0 +1,65 @@
+package com.salesiana.inventory_system.benchmark;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.salesiana.inventory_system.repository.ProductoRepository;
+import com.salesiana.inventory_system.service.ReporteService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporte de inventario: PDF de iText contra el HTML imprimible anterior
+ * (ReporteInventarioHtmlAnterior), con los mismos datos.
+ *
+ * Se mide en reportes por segundo; al preparar la variante pdf se imprime cuántas páginas tiene,
+ * así páginas/s = ops/s × páginas. El HTML anterior no tenía páginas hasta que el navegador lo
+ * imprimía (con Bootstrap descargado del CDN), por lo que su cifra es una cota superior.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReportePdfHtmlBenchmark extends BenchmarkBase {
+
+    @Param({"html-anterior", "pdf"})
+    public String formato;
+
+    private ReporteService reporteService;
+    private ReporteInventarioHtmlAnterior htmlAnterior;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        arrancar();
+        reporteService = bean(ReporteService.class);
+        htmlAnterior = new ReporteInventarioHtmlAnterior(bean(ProductoRepository.class));
+
+        if ("pdf".equals(formato)) {
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+            reporteService.generarReporteInventarioPdf(pdf);
+            try (PdfDocument documento = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf.toByteArray())))) {
+                System.out.println("Reporte de inventario PDF: " + documento.getNumberOfPages() + " páginas, "
+                        + pdf.size() + " bytes");
+            }
+        } else {
+            System.out.println("Reporte de inventario HTML anterior: " + htmlAnterior.generar().length + " bytes");
+        }
+    }
+
+    @Benchmark
+    public void generar() throws IOException {
+        if ("pdf".equals(formato)) {
+            reporteService.generarReporteInventarioPdf(OutputStream.nullOutputStream());
+        } else {
+            OutputStream.nullOutputStream().write(htmlAnterior.generar());
+        }
+    }
+}
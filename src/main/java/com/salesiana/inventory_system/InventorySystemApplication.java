@@ -2,10 +2,8 @@ package com.salesiana.inventory_system;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableScheduling
 public class InventorySystemApplication {
 
 	public static void main(String[] args) {
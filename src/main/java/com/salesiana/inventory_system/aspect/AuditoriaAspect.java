@@ -1,9 +1,9 @@
 package com.salesiana.inventory_system.aspect;
 
 import com.salesiana.inventory_system.entity.Auditoria;
-import com.salesiana.inventory_system.entity.Usuario;
-import com.salesiana.inventory_system.repository.AuditoriaRepository;
-import com.salesiana.inventory_system.repository.UsuarioRepository;
+import com.salesiana.inventory_system.service.AuditoriaEscritorService;
+import com.salesiana.inventory_system.service.AuditoriaEscritorService.EventoAuditoria;
+import com.salesiana.inventory_system.service.AuditoriaVersionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
@@ -17,56 +17,90 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
 
 /**
- * Aspecto AOP para auditoría automática de operaciones en el sistema
+ * Aspecto AOP para auditoría automática de operaciones en el sistema.
+ * Solo captura el evento; la escritura en la tabla la hace {@link AuditoriaEscritorService}
+ * en segundo plano.
  */
 @Aspect
 @Component
 public class AuditoriaAspect {
 
     @Autowired
-    private AuditoriaRepository auditoriaRepository;
+    private AuditoriaEscritorService auditoriaEscritorService;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private AuditoriaVersionService auditoriaVersionService;
+
+    @Autowired
+    private InstantaneasAuditoria instantaneas;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    // Copia configurada una sola vez para las clases sin instantánea propia
+    private ObjectMapper mapperRespaldo;
+
+    @PostConstruct
+    public void iniciar() {
+        mapperRespaldo = objectMapper.copy();
+        mapperRespaldo.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+        mapperRespaldo.configure(SerializationFeature.FAIL_ON_SELF_REFERENCES, false);
+        mapperRespaldo.configure(SerializationFeature.WRITE_SELF_REFERENCES_AS_NULL, true);
+        mapperRespaldo.configure(SerializationFeature.INDENT_OUTPUT, false);
+
+        // Excluir propiedades problemáticas
+        mapperRespaldo.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+        mapperRespaldo.setVisibility(PropertyAccessor.GETTER, Visibility.NONE);
+        mapperRespaldo.setVisibility(PropertyAccessor.SETTER, Visibility.NONE);
+        mapperRespaldo.setVisibility(PropertyAccessor.IS_GETTER, Visibility.NONE);
+    }
+
     /**
-     * Audita operaciones de creación (INSERT)
+     * Audita operaciones de guardado: INSERT con la instantánea completa si la entidad es nueva,
+     * UPDATE con los campos modificados si ya tenía id
      */
-    @AfterReturning(
-        pointcut = "execution(* com.salesiana.inventory_system.service.*.guardar*(..)) || " +
-                  "execution(* com.salesiana.inventory_system.service.*.crear*(..)) || " +
-                  "execution(* com.salesiana.inventory_system.service.*.registrar*(..))",
-        returning = "result"
-    )
-    public void auditorCreacion(JoinPoint joinPoint, Object result) {
+    @Around("execution(* com.salesiana.inventory_system.service.*.guardar*(..)) || " +
+            "execution(* com.salesiana.inventory_system.service.*.crear*(..)) || " +
+            "execution(* com.salesiana.inventory_system.service.*.registrar*(..))")
+    public Object auditarGuardado(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        boolean edicion = args.length > 0 && instantaneas.soporta(args[0]) && instantaneas.extraerId(args[0]) != null;
+
+        Object result = joinPoint.proceed();
+
         try {
-            if (result == null) return;
+            if (result == null) return result;
 
-            String nombreMetodo = joinPoint.getSignature().getName();
             String nombreClase = joinPoint.getTarget().getClass().getSimpleName();
             String tablaAfectada = extraerNombreTabla(nombreClase);
 
-            Auditoria auditoria = new Auditoria();
-            auditoria.setTablaAfectada(tablaAfectada);
-            auditoria.setOperacion(Auditoria.Operacion.INSERT);
-            auditoria.setRegistroId(extraerIdDeObjeto(result));
-            auditoria.setUsuario(obtenerUsuarioActual());
-            auditoria.setDatosNuevos(convertirAJson(result));
-            auditoria.setIpAddress(obtenerIpCliente());
-            auditoria.setFechaOperacion(LocalDateTime.now());
+            if (edicion) {
+                auditarCambio(tablaAfectada, result);
+                return result;
+            }
+
+            Integer registroId = extraerIdDeObjeto(result);
+            String datosNuevos = convertirAJson(result);
+            auditoriaVersionService.recordarVersion(tablaAfectada, registroId, datosNuevos);
 
-            auditoriaRepository.save(auditoria);
-            System.out.println("✅ Auditoría registrada: INSERT en " + tablaAfectada);
+            auditoriaEscritorService.encolar(new EventoAuditoria(
+                    tablaAfectada,
+                    Auditoria.Operacion.INSERT,
+                    registroId,
+                    obtenerUsuarioActual(),
+                    null,
+                    datosNuevos,
+                    obtenerIpCliente(),
+                    LocalDateTime.now()));
         } catch (Exception e) {
             System.err.println("❌ Error al registrar auditoría de creación: " + e.getMessage());
         }
+        return result;
     }
 
     /**
@@ -74,41 +108,12 @@ public class AuditoriaAspect {
      */
     @Around("execution(* com.salesiana.inventory_system.service.*.actualizar*(..))")
     public Object auditarActualizacion(ProceedingJoinPoint joinPoint) throws Throwable {
-        Object resultado = null;
-        Object valorAnterior = null;
+        Object resultado = joinPoint.proceed();
 
         try {
-            // Obtener el ID del objeto a actualizar
-            Object[] args = joinPoint.getArgs();
-            if (args.length > 0) {
-                Integer id = extraerIdDeObjeto(args[0]);
-                if (id != null) {
-                    // Cargar estado anterior desde la BD
-                    String nombreClase = joinPoint.getTarget().getClass().getSimpleName();
-                    valorAnterior = obtenerEstadoAnterior(nombreClase, id);
-                }
-            }
-
-            // Ejecutar el método
-            resultado = joinPoint.proceed();
-
-            // Registrar auditoría
             if (resultado != null) {
                 String nombreClase = joinPoint.getTarget().getClass().getSimpleName();
-                String tablaAfectada = extraerNombreTabla(nombreClase);
-
-                Auditoria auditoria = new Auditoria();
-                auditoria.setTablaAfectada(tablaAfectada);
-                auditoria.setOperacion(Auditoria.Operacion.UPDATE);
-                auditoria.setRegistroId(extraerIdDeObjeto(resultado));
-                auditoria.setUsuario(obtenerUsuarioActual());
-                auditoria.setDatosAnteriores(convertirAJson(valorAnterior));
-                auditoria.setDatosNuevos(convertirAJson(resultado));
-                auditoria.setIpAddress(obtenerIpCliente());
-                auditoria.setFechaOperacion(LocalDateTime.now());
-
-                auditoriaRepository.save(auditoria);
-                System.out.println("✅ Auditoría registrada: UPDATE en " + tablaAfectada);
+                auditarCambio(extraerNombreTabla(nombreClase), resultado);
             }
         } catch (Exception e) {
             System.err.println("❌ Error al registrar auditoría de actualización: " + e.getMessage());
@@ -117,6 +122,27 @@ public class AuditoriaAspect {
         return resultado;
     }
 
+    /**
+     * Encola un UPDATE con solo los campos que cambiaron respecto a la última versión auditada;
+     * si no cambió nada no se audita
+     */
+    private void auditarCambio(String tablaAfectada, Object entidad) throws Exception {
+        Integer registroId = extraerIdDeObjeto(entidad);
+        AuditoriaVersionService.Cambio cambio =
+                auditoriaVersionService.calcularCambio(tablaAfectada, registroId, convertirAJson(entidad));
+        if (cambio == null) return;
+
+        auditoriaEscritorService.encolar(new EventoAuditoria(
+                tablaAfectada,
+                Auditoria.Operacion.UPDATE,
+                registroId,
+                obtenerUsuarioActual(),
+                cambio.datosAnteriores(),
+                cambio.datosNuevos(),
+                obtenerIpCliente(),
+                LocalDateTime.now()));
+    }
+
     /**
      * Audita operaciones de eliminación (DELETE)
      */
@@ -133,17 +159,15 @@ public class AuditoriaAspect {
                 // Obtener estado anterior
                 Object estadoAnterior = obtenerEstadoAnterior(nombreClase, id);
 
-                Auditoria auditoria = new Auditoria();
-                auditoria.setTablaAfectada(tablaAfectada);
-                auditoria.setOperacion(Auditoria.Operacion.DELETE);
-                auditoria.setRegistroId(id);
-                auditoria.setUsuario(obtenerUsuarioActual());
-                auditoria.setDatosAnteriores(convertirAJson(estadoAnterior));
-                auditoria.setIpAddress(obtenerIpCliente());
-                auditoria.setFechaOperacion(LocalDateTime.now());
-
-                auditoriaRepository.save(auditoria);
-                System.out.println("✅ Auditoría registrada: DELETE en " + tablaAfectada);
+                auditoriaEscritorService.encolar(new EventoAuditoria(
+                        tablaAfectada,
+                        Auditoria.Operacion.DELETE,
+                        id,
+                        obtenerUsuarioActual(),
+                        convertirAJson(estadoAnterior),
+                        null,
+                        obtenerIpCliente(),
+                        LocalDateTime.now()));
             }
         } catch (Exception e) {
             System.err.println("❌ Error al registrar auditoría de eliminación: " + e.getMessage());
@@ -155,14 +179,13 @@ public class AuditoriaAspect {
     // ===============================
 
     /**
-     * Obtiene el usuario actual desde el contexto de seguridad
+     * Obtiene el username actual desde el contexto de seguridad; el id se resuelve al escribir
      */
-    private Usuario obtenerUsuarioActual() {
+    private String obtenerUsuarioActual() {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             if (auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getName())) {
-                String username = auth.getName();
-                return usuarioRepository.findByUsername(username).orElse(null);
+                return auth.getName();
             }
         } catch (Exception e) {
             System.err.println("Error al obtener usuario actual: " + e.getMessage());
@@ -209,10 +232,13 @@ public class AuditoriaAspect {
     }
 
     /**
-     * Extrae el ID de un objeto usando reflexión
+     * Extrae el ID de un objeto: de la instantánea registrada o, para otras clases, por reflexión
      */
     private Integer extraerIdDeObjeto(Object objeto) {
         if (objeto == null) return null;
+        if (instantaneas.soporta(objeto)) {
+            return instantaneas.extraerId(objeto);
+        }
         
         try {
             // Intentar obtener el método getId()
@@ -228,28 +254,21 @@ public class AuditoriaAspect {
     }
 
     /**
-     * CORRECCIÓN CRÍTICA: Convierte un objeto a JSON de forma segura
+     * Convierte un objeto a JSON: las entidades auditadas con su instantánea compacta
+     * (columnas e ids de relaciones), el resto con el ObjectMapper de respaldo
      */
     private String convertirAJson(Object objeto) {
         if (objeto == null) return null;
         
         try {
-            // Configurar ObjectMapper para evitar errores de serialización
-            objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-            objectMapper.configure(SerializationFeature.FAIL_ON_SELF_REFERENCES, false);
-            objectMapper.configure(SerializationFeature.WRITE_SELF_REFERENCES_AS_NULL, true);
-            
-            // Excluir propiedades problemáticas
-            objectMapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
-            objectMapper.setVisibility(PropertyAccessor.GETTER, Visibility.NONE);
-            objectMapper.setVisibility(PropertyAccessor.SETTER, Visibility.NONE);
-            objectMapper.setVisibility(PropertyAccessor.IS_GETTER, Visibility.NONE);
-            
-            return objectMapper.writeValueAsString(objeto);
+            if (instantaneas.soporta(objeto)) {
+                return instantaneas.serializar(objeto);
+            }
+            return mapperRespaldo.writeValueAsString(objeto);
         } catch (Exception e) {
             System.err.println("Error al convertir a JSON: " + e.getMessage());
             // En lugar de retornar toString() que puede causar recursión, retornar mensaje seguro
-            return "{\"error\": \"No se pudo serializar el objeto: " + e.getMessage().replace("\"", "'") + "\"}";
+            return "{\"error\": \"No se pudo serializar el objeto: " + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}";
         }
     }
 
@@ -0,0 +1,333 @@
+package com.salesiana.inventory_system.aspect;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.salesiana.inventory_system.entity.Alerta;
+import com.salesiana.inventory_system.entity.Auditoria;
+import com.salesiana.inventory_system.entity.Categoria;
+import com.salesiana.inventory_system.entity.ConfiguracionSistema;
+import com.salesiana.inventory_system.entity.ControlCalidad;
+import com.salesiana.inventory_system.entity.Lote;
+import com.salesiana.inventory_system.entity.Movimiento;
+import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.entity.Proveedor;
+import com.salesiana.inventory_system.entity.ReporteGenerado;
+import com.salesiana.inventory_system.entity.Rol;
+import com.salesiana.inventory_system.entity.TipoAlerta;
+import com.salesiana.inventory_system.entity.TipoMovimiento;
+import com.salesiana.inventory_system.entity.TransferenciaUbicacion;
+import com.salesiana.inventory_system.entity.UbicacionAlmacen;
+import com.salesiana.inventory_system.entity.Usuario;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Instantáneas JSON compactas de las entidades auditadas.
+ *
+ * Cada entidad tiene un escritor propio que emite solo sus columnas y, en lugar de las relaciones,
+ * el id de cada clave foránea. No hay reflexión ni se recorre el grafo: leer el id de una relación
+ * LAZY no la inicializa, así que una instantánea nunca dispara consultas. Las contraseñas y
+ * colecciones quedan fuera.
+ */
+@Component
+public class InstantaneasAuditoria {
+
+    @FunctionalInterface
+    private interface Escritor<T> {
+        void escribir(T entidad, JsonGenerator json) throws IOException;
+    }
+
+    private record Registro<T>(Function<T, Integer> id, Escritor<T> escritor) {
+
+        @SuppressWarnings("unchecked")
+        Integer idDe(Object entidad) {
+            return id.apply((T) entidad);
+        }
+
+        @SuppressWarnings("unchecked")
+        void escribir(Object entidad, JsonGenerator json) throws IOException {
+            escritor.escribir((T) entidad, json);
+        }
+    }
+
+    private final JsonFactory fabrica = new JsonFactory();
+
+    private final Map<Class<?>, Registro<?>> registros = new ConcurrentHashMap<>();
+
+    // Clases ya resueltas (incluye proxies de Hibernate y tipos sin escritor)
+    private final Map<Class<?>, Optional<Registro<?>>> resueltos = new ConcurrentHashMap<>();
+
+    public InstantaneasAuditoria() {
+        registrar(Producto.class, Producto::getId, (p, json) -> {
+            campo(json, "id", p.getId());
+            campo(json, "codigo", p.getCodigo());
+            campo(json, "nombre", p.getNombre());
+            campo(json, "descripcion", p.getDescripcion());
+            campo(json, "categoriaId", ref(p.getCategoria(), Categoria::getId));
+            campo(json, "unidadMedida", p.getUnidadMedida());
+            campo(json, "precioCompra", p.getPrecioCompra());
+            campo(json, "precioVenta", p.getPrecioVenta());
+            campo(json, "stockActual", p.getStockActual());
+            campo(json, "stockMinimo", p.getStockMinimo());
+            campo(json, "stockMaximo", p.getStockMaximo());
+            campo(json, "requiereVencimiento", p.getRequiereVencimiento());
+            campo(json, "activo", p.getActivo());
+            campo(json, "ubicacionPredeterminadaId", ref(p.getUbicacionPredeterminada(), UbicacionAlmacen::getId));
+            campo(json, "fechaCreacion", p.getFechaCreacion());
+            campo(json, "fechaActualizacion", p.getFechaActualizacion());
+        });
+        registrar(Categoria.class, Categoria::getId, (c, json) -> {
+            campo(json, "id", c.getId());
+            campo(json, "nombre", c.getNombre());
+            campo(json, "descripcion", c.getDescripcion());
+            campo(json, "activa", c.getActiva());
+            campo(json, "fechaCreacion", c.getFechaCreacion());
+            campo(json, "fechaActualizacion", c.getFechaActualizacion());
+        });
+        registrar(Proveedor.class, Proveedor::getId, (p, json) -> {
+            campo(json, "id", p.getId());
+            campo(json, "nombre", p.getNombre());
+            campo(json, "codigo", p.getCodigo());
+            campo(json, "rucNit", p.getRucNit());
+            campo(json, "telefono", p.getTelefono());
+            campo(json, "email", p.getEmail());
+            campo(json, "direccion", p.getDireccion());
+            campo(json, "contactoPrincipal", p.getContactoPrincipal());
+            campo(json, "activo", p.getActivo());
+            campo(json, "fechaCreacion", p.getFechaCreacion());
+            campo(json, "fechaActualizacion", p.getFechaActualizacion());
+        });
+        registrar(Movimiento.class, Movimiento::getId, (m, json) -> {
+            campo(json, "id", m.getId());
+            campo(json, "tipoMovimientoId", ref(m.getTipoMovimiento(), TipoMovimiento::getId));
+            campo(json, "productoId", ref(m.getProducto(), Producto::getId));
+            campo(json, "loteId", ref(m.getLote(), Lote::getId));
+            campo(json, "cantidad", m.getCantidad());
+            campo(json, "precioUnitario", m.getPrecioUnitario());
+            campo(json, "motivo", m.getMotivo());
+            campo(json, "documentoReferencia", m.getDocumentoReferencia());
+            campo(json, "usuarioId", ref(m.getUsuario(), Usuario::getId));
+            campo(json, "proveedorId", ref(m.getProveedor(), Proveedor::getId));
+            campo(json, "fechaMovimiento", m.getFechaMovimiento());
+            campo(json, "fechaRegistro", m.getFechaRegistro());
+        });
+        registrar(Lote.class, Lote::getId, (l, json) -> {
+            campo(json, "id", l.getId());
+            campo(json, "productoId", ref(l.getProducto(), Producto::getId));
+            campo(json, "numeroLote", l.getNumeroLote());
+            campo(json, "fechaFabricacion", l.getFechaFabricacion());
+            campo(json, "fechaVencimiento", l.getFechaVencimiento());
+            campo(json, "cantidadInicial", l.getCantidadInicial());
+            campo(json, "cantidadActual", l.getCantidadActual());
+            campo(json, "proveedorId", ref(l.getProveedor(), Proveedor::getId));
+            campo(json, "activo", l.getActivo());
+            campo(json, "estadoCalidad", l.getEstadoCalidad());
+            campo(json, "ubicacionId", ref(l.getUbicacion(), UbicacionAlmacen::getId));
+            campo(json, "fechaLiberacion", l.getFechaLiberacion());
+            campo(json, "fechaCreacion", l.getFechaCreacion());
+            campo(json, "fechaActualizacion", l.getFechaActualizacion());
+        });
+        registrar(UbicacionAlmacen.class, UbicacionAlmacen::getId, (u, json) -> {
+            campo(json, "id", u.getId());
+            campo(json, "codigo", u.getCodigo());
+            campo(json, "nombre", u.getNombre());
+            campo(json, "tipo", u.getTipo());
+            campo(json, "capacidadMaxima", u.getCapacidadMaxima());
+            campo(json, "capacidadActual", u.getCapacidadActual());
+            campo(json, "ubicacionPadreId", ref(u.getUbicacionPadre(), UbicacionAlmacen::getId));
+            campo(json, "activa", u.getActiva());
+            campo(json, "fechaCreacion", u.getFechaCreacion());
+            campo(json, "fechaActualizacion", u.getFechaActualizacion());
+        });
+        registrar(TransferenciaUbicacion.class, TransferenciaUbicacion::getId, (t, json) -> {
+            campo(json, "id", t.getId());
+            campo(json, "productoId", ref(t.getProducto(), Producto::getId));
+            campo(json, "loteId", ref(t.getLote(), Lote::getId));
+            campo(json, "ubicacionOrigenId", ref(t.getUbicacionOrigen(), UbicacionAlmacen::getId));
+            campo(json, "ubicacionDestinoId", ref(t.getUbicacionDestino(), UbicacionAlmacen::getId));
+            campo(json, "cantidad", t.getCantidad());
+            campo(json, "usuarioId", ref(t.getUsuario(), Usuario::getId));
+            campo(json, "motivo", t.getMotivo());
+            campo(json, "documentoReferencia", t.getDocumentoReferencia());
+            campo(json, "fechaTransferencia", t.getFechaTransferencia());
+        });
+        registrar(ControlCalidad.class, ControlCalidad::getId, (c, json) -> {
+            campo(json, "id", c.getId());
+            campo(json, "loteId", ref(c.getLote(), Lote::getId));
+            campo(json, "estadoCalidad", c.getEstadoCalidad());
+            campo(json, "usuarioInspectorId", ref(c.getUsuarioInspector(), Usuario::getId));
+            campo(json, "fechaInspeccion", c.getFechaInspeccion());
+            campo(json, "fechaLiberacion", c.getFechaLiberacion());
+            campo(json, "observaciones", c.getObservaciones());
+            campo(json, "motivoRechazo", c.getMotivoRechazo());
+            campo(json, "cumpleEspecificaciones", c.getCumpleEspecificaciones());
+            campo(json, "temperaturaRecepcion", c.getTemperaturaRecepcion());
+            campo(json, "loteProveedor", c.getLoteProveedor());
+            campo(json, "certificadoCalidad", c.getCertificadoCalidad());
+            campo(json, "fechaCreacion", c.getFechaCreacion());
+            campo(json, "fechaActualizacion", c.getFechaActualizacion());
+        });
+        registrar(Alerta.class, Alerta::getId, (a, json) -> {
+            campo(json, "id", a.getId());
+            campo(json, "tipoAlertaId", ref(a.getTipoAlerta(), TipoAlerta::getId));
+            campo(json, "productoId", ref(a.getProducto(), Producto::getId));
+            campo(json, "loteId", ref(a.getLote(), Lote::getId));
+            campo(json, "mensaje", a.getMensaje());
+            campo(json, "nivelPrioridad", a.getNivelPrioridad());
+            campo(json, "leida", a.getLeida());
+            campo(json, "fechaAlerta", a.getFechaAlerta());
+            campo(json, "fechaLectura", a.getFechaLectura());
+        });
+        registrar(Usuario.class, Usuario::getId, (u, json) -> {
+            // Sin passwordHash
+            campo(json, "id", u.getId());
+            campo(json, "username", u.getUsername());
+            campo(json, "email", u.getEmail());
+            campo(json, "nombreCompleto", u.getNombreCompleto());
+            campo(json, "rolId", ref(u.getRol(), Rol::getId));
+            campo(json, "activo", u.getActivo());
+            campo(json, "ultimoAcceso", u.getUltimoAcceso());
+            campo(json, "fechaCreacion", u.getFechaCreacion());
+            campo(json, "fechaActualizacion", u.getFechaActualizacion());
+        });
+        registrar(Rol.class, Rol::getId, (r, json) -> {
+            campo(json, "id", r.getId());
+            campo(json, "codigo", r.getCodigo());
+            campo(json, "nombre", r.getNombre());
+            campo(json, "descripcion", r.getDescripcion());
+            campo(json, "nivelAcceso", r.getNivelAcceso());
+            campo(json, "activo", r.getActivo());
+            campo(json, "fechaCreacion", r.getFechaCreacion());
+            campo(json, "fechaActualizacion", r.getFechaActualizacion());
+        });
+        registrar(TipoMovimiento.class, TipoMovimiento::getId, (t, json) -> {
+            campo(json, "id", t.getId());
+            campo(json, "codigo", t.getCodigo());
+            campo(json, "nombre", t.getNombre());
+            campo(json, "descripcion", t.getDescripcion());
+            campo(json, "afectaStock", t.getAfectaStock());
+            campo(json, "activo", t.getActivo());
+            campo(json, "fechaCreacion", t.getFechaCreacion());
+            campo(json, "fechaActualizacion", t.getFechaActualizacion());
+        });
+        registrar(TipoAlerta.class, TipoAlerta::getId, (t, json) -> {
+            campo(json, "id", t.getId());
+            campo(json, "codigo", t.getCodigo());
+            campo(json, "nombre", t.getNombre());
+            campo(json, "descripcion", t.getDescripcion());
+            campo(json, "nivelPrioridadDefault", t.getNivelPrioridadDefault());
+            campo(json, "activo", t.getActivo());
+            campo(json, "fechaCreacion", t.getFechaCreacion());
+            campo(json, "fechaActualizacion", t.getFechaActualizacion());
+        });
+        registrar(ConfiguracionSistema.class, ConfiguracionSistema::getId, (c, json) -> {
+            campo(json, "id", c.getId());
+            campo(json, "clave", c.getClave());
+            campo(json, "valor", c.getValor());
+            campo(json, "descripcion", c.getDescripcion());
+            campo(json, "tipoDato", c.getTipoDato());
+            campo(json, "fechaCreacion", c.getFechaCreacion());
+            campo(json, "fechaActualizacion", c.getFechaActualizacion());
+        });
+        registrar(ReporteGenerado.class, ReporteGenerado::getId, (r, json) -> {
+            campo(json, "id", r.getId());
+            campo(json, "tipoReporte", r.getTipoReporte());
+            campo(json, "formato", r.getFormato());
+            campo(json, "usuarioId", ref(r.getUsuario(), Usuario::getId));
+            campo(json, "parametros", r.getParametros());
+            campo(json, "nombreArchivo", r.getNombreArchivo());
+            campo(json, "estado", r.getEstado());
+            campo(json, "mensajeError", r.getMensajeError());
+            campo(json, "fechaGeneracion", r.getFechaGeneracion());
+            campo(json, "fechaFinalizacion", r.getFechaFinalizacion());
+        });
+        registrar(Auditoria.class, Auditoria::getId, (a, json) -> {
+            // Los datos JSON de la auditoría auditada no se copian
+            campo(json, "id", a.getId());
+            campo(json, "tablaAfectada", a.getTablaAfectada());
+            campo(json, "operacion", a.getOperacion());
+            campo(json, "registroId", a.getRegistroId());
+            campo(json, "usuarioId", ref(a.getUsuario(), Usuario::getId));
+            campo(json, "ipAddress", a.getIpAddress());
+            campo(json, "fechaOperacion", a.getFechaOperacion());
+        });
+    }
+
+    private <T> void registrar(Class<T> tipo, Function<T, Integer> id, Escritor<T> escritor) {
+        registros.put(tipo, new Registro<>(id, escritor));
+    }
+
+    /**
+     * @return true si la clase (o una superclase, en el caso de los proxies) tiene escritor
+     */
+    public boolean soporta(Object entidad) {
+        return entidad != null && buscar(entidad.getClass()).isPresent();
+    }
+
+    /**
+     * Id de una entidad registrada, o null si no lo es
+     */
+    public Integer extraerId(Object entidad) {
+        if (entidad == null) {
+            return null;
+        }
+        return buscar(entidad.getClass()).map(registro -> registro.idDe(entidad)).orElse(null);
+    }
+
+    /**
+     * Instantánea JSON de una entidad registrada
+     */
+    public String serializar(Object entidad) throws IOException {
+        Registro<?> registro = buscar(entidad.getClass())
+                .orElseThrow(() -> new IllegalArgumentException("Sin instantánea para " + entidad.getClass().getName()));
+
+        StringWriter salida = new StringWriter(256);
+        try (JsonGenerator json = fabrica.createGenerator(salida)) {
+            json.writeStartObject();
+            registro.escribir(entidad, json);
+            json.writeEndObject();
+        }
+        return salida.toString();
+    }
+
+    private Optional<Registro<?>> buscar(Class<?> clase) {
+        return resueltos.computeIfAbsent(clase, c -> {
+            for (Class<?> actual = c; actual != null && actual != Object.class; actual = actual.getSuperclass()) {
+                Registro<?> registro = registros.get(actual);
+                if (registro != null) {
+                    return Optional.of(registro);
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    //============================================
+    // AUXILIARES DE ESCRITURA
+    //============================================
+    private static <E> Integer ref(E relacionada, Function<E, Integer> id) {
+        return relacionada != null ? id.apply(relacionada) : null;
+    }
+
+    private static void campo(JsonGenerator json, String nombre, Object valor) throws IOException {
+        json.writeFieldName(nombre);
+        switch (valor) {
+            case null -> json.writeNull();
+            case String texto -> json.writeString(texto);
+            case Integer entero -> json.writeNumber(entero);
+            case Long largo -> json.writeNumber(largo);
+            case BigDecimal decimal -> json.writeNumber(decimal);
+            case Boolean logico -> json.writeBoolean(logico);
+            case Enum<?> enumerado -> json.writeString(enumerado.name());
+            // LocalDate / LocalDateTime en ISO-8601, igual que el ObjectMapper de la aplicación
+            default -> json.writeString(valor.toString());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.salesiana.inventory_system.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Tareas programadas (@Scheduled): relevo de eventos, alertas diarias, archivo y particiones de
+ * auditoría, recarga de configuración. Con app.tareas-programadas.habilitadas=false no se ejecuta
+ * ninguna (pruebas que cuentan sentencias de Hibernate)
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.tareas-programadas.habilitadas", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
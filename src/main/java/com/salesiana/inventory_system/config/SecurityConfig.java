@@ -67,6 +67,8 @@ public class SecurityConfig {
                 .requestMatchers("/control-calidad/**").hasAnyRole("ADMIN", "GERENTE")
                 .requestMatchers("/transferencias-ubicacion/**").hasAnyRole("ADMIN", "GERENTE", "ALMACENERO")
                 .requestMatchers("/auditoria/**").hasRole("ADMIN")
+                // Reconstruir el resumen diario reescribe la tabla entera: solo administradores
+                .requestMatchers("/reportes/resumen-diario/reconstruir").hasRole("ADMIN")
                 .requestMatchers("/reportes/**").hasAnyRole("ADMIN", "GERENTE")
                 .requestMatchers("/alertas/**").hasAnyRole("ADMIN", "GERENTE", "ALMACENERO")
                 .requestMatchers("/mapa/**").hasAnyRole("ADMIN", "GERENTE")
@@ -1,13 +1,23 @@
 package com.salesiana.inventory_system.controller;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.salesiana.inventory_system.entity.Auditoria;
+import com.salesiana.inventory_system.service.ArchivoAuditoriaService;
+import com.salesiana.inventory_system.service.AuditoriaAnaliticaService;
+import com.salesiana.inventory_system.service.AuditoriaEscritorService;
 import com.salesiana.inventory_system.service.AuditoriaService;
+import com.salesiana.inventory_system.service.AuditoriaVersionService;
+import com.salesiana.inventory_system.service.ParticionAuditoriaService;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/auditoria")
@@ -15,6 +25,21 @@ public class AuditoriaController {
     
     @Autowired
     private AuditoriaService auditoriaService;
+
+    @Autowired
+    private AuditoriaAnaliticaService auditoriaAnaliticaService;
+
+    @Autowired
+    private AuditoriaEscritorService auditoriaEscritorService;
+
+    @Autowired
+    private AuditoriaVersionService auditoriaVersionService;
+
+    @Autowired
+    private ArchivoAuditoriaService archivoAuditoriaService;
+
+    @Autowired
+    private ParticionAuditoriaService particionAuditoriaService;
     
     /**
      * Muestra todas las auditorías
@@ -22,9 +47,11 @@ public class AuditoriaController {
      * @return 
      */
     @GetMapping
-    public String listarAuditorias(Model model) {
+    public String listarAuditorias(@RequestParam(required = false) String despues, Model model) {
         try {
-            model.addAttribute("auditorias", auditoriaService.obtenerAuditoriasRecientes());
+            PaginaKeyset<Auditoria> pagina = auditoriaService.obtenerPaginaAuditorias(despues);
+            model.addAttribute("auditorias", pagina.getElementos());
+            model.addAttribute("pagina", pagina);
             model.addAttribute("totalAuditorias", auditoriaService.contarAuditoriasHoy());
             return "auditoria/lista";
         } catch (Exception e) {
@@ -75,4 +102,56 @@ public class AuditoriaController {
             return "auditoria/lista";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Conteos de auditoría por operación, tabla, usuario y día
+     */
+    @GetMapping("/estadisticas")
+    @ResponseBody
+    public Map<String, Object> estadisticas() {
+        return auditoriaAnaliticaService.obtenerEstadisticas();
+    }
+
+    /**
+     * Eventos pendientes y escritos por el escritor de auditoría en segundo plano
+     */
+    @GetMapping("/escritor/estadisticas")
+    @ResponseBody
+    public Map<String, Object> estadisticasEscritor() {
+        return auditoriaEscritorService.obtenerEstadisticas();
+    }
+
+    /**
+     * Segmentos y rango de fechas del archivo histórico en disco
+     */
+    @GetMapping("/archivo/estadisticas")
+    @ResponseBody
+    public Map<String, Object> estadisticasArchivo() {
+        return archivoAuditoriaService.obtenerEstadisticas();
+    }
+
+    /**
+     * Convierte la tabla de auditoría a particiones mensuales. Reescribe la tabla completa:
+     * hacerlo en una ventana de mantenimiento. Los errores se devuelven como 500
+     */
+    @PostMapping("/particiones/convertir")
+    @ResponseBody
+    public Map<String, Object> convertirParticiones() {
+        return particionAuditoriaService.convertirTabla();
+    }
+
+    /**
+     * Reconstruye un registro tal como estaba en la fecha indicada (por defecto, ahora)
+     * a partir de su historial de auditoría
+     */
+    @GetMapping("/version/{tabla}/{registroId}")
+    @ResponseBody
+    public ResponseEntity<ObjectNode> obtenerVersion(
+            @PathVariable String tabla,
+            @PathVariable Integer registroId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        ObjectNode version = auditoriaVersionService.reconstruirVersion(tabla, registroId,
+                fecha != null ? fecha : LocalDateTime.now());
+        return version != null ? ResponseEntity.ok(version) : ResponseEntity.notFound().build();
+    }
+}
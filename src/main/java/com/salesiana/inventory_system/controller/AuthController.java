@@ -11,6 +11,7 @@ package com.salesiana.inventory_system.controller;
 import com.salesiana.inventory_system.dto.LoginRequest;
 import com.salesiana.inventory_system.dto.JwtResponse;
 import com.salesiana.inventory_system.security.JwtUtil;
+import com.salesiana.inventory_system.security.VersionTokenUsuarios;
 import com.salesiana.inventory_system.service.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -33,6 +34,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private VersionTokenUsuarios versionTokenUsuarios;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
         try {
@@ -56,8 +60,12 @@ public class AuthController {
     public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String token) {
         try {
             String jwt = token.substring(7);
-            String username = jwtUtil.extractUsername(jwt);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            JwtUtil.TokenVerificado verificado = jwtUtil.verificarToken(jwt);
+            if (verificado == null || (verificado.usuarioId() != null && verificado.version() != null
+                    && !versionTokenUsuarios.esVigente(verificado.usuarioId(), verificado.version()))) {
+                return ResponseEntity.badRequest().body("Token inválido");
+            }
+            UserDetails userDetails = userDetailsService.loadUserByUsername(verificado.username());
             
             return ResponseEntity.ok(userDetails);
         } catch (Exception e) {
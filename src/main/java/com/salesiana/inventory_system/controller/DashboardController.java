@@ -1,14 +1,19 @@
 package com.salesiana.inventory_system.controller;
 
+import com.salesiana.inventory_system.service.CatalogoService;
+import com.salesiana.inventory_system.service.ConfiguracionSistemaService;
+import com.salesiana.inventory_system.service.IndicadoresStockService;
 import com.salesiana.inventory_system.service.ProductoService;
 import com.salesiana.inventory_system.service.MovimientoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.Map;
 
 @Controller
 public class DashboardController {
@@ -19,13 +24,22 @@ public class DashboardController {
     @Autowired
     private MovimientoService movimientoService;
     
+    @Autowired
+    private IndicadoresStockService indicadoresStockService;
+    
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private ConfiguracionSistemaService configuracionSistemaService;
+    
     @GetMapping("/")
     public String dashboard(Model model) {
         try {
             // Estadísticas de productos
             model.addAttribute("totalProductos", productoService.contarProductosActivos());
-            model.addAttribute("productosStockBajo", productoService.obtenerProductosStockBajo().size());
-            model.addAttribute("productosAgotados", productoService.obtenerProductosAgotados().size());
+            model.addAttribute("productosStockBajo", indicadoresStockService.contarStockBajo());
+            model.addAttribute("productosAgotados", indicadoresStockService.contarAgotados());
             
             // Obtener últimos movimientos (últimos 10)
             var movimientos = movimientoService.obtenerUltimosMovimientos(10);
@@ -50,4 +64,22 @@ public class DashboardController {
     public String login() {
         return "login";
     }
+    
+    /**
+     * Entradas, aciertos, fallos y recargas de los catálogos en memoria
+     */
+    @GetMapping("/catalogos/estadisticas")
+    @ResponseBody
+    public Map<String, Object> estadisticasCatalogos() {
+        return catalogoService.obtenerEstadisticas();
+    }
+
+    /**
+     * Parámetros, recargas y huella de la configuración del sistema en memoria
+     */
+    @GetMapping("/configuracion/estadisticas")
+    @ResponseBody
+    public Map<String, Object> estadisticasConfiguracion() {
+        return configuracionSistemaService.obtenerEstadisticas();
+    }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package com.salesiana.inventory_system.controller;
 
+import com.salesiana.inventory_system.entity.EstadoCalidad;
 import com.salesiana.inventory_system.entity.Lote;
 import com.salesiana.inventory_system.entity.Producto;
 import com.salesiana.inventory_system.service.LoteService;
 import com.salesiana.inventory_system.service.ProductoService;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -31,6 +33,7 @@ public class LoteController {
     public String listarLotes(
             @RequestParam(required = false) String estado,
             @RequestParam(required = false) Integer productoId,
+            @RequestParam(required = false) String despues,
             Model model) {
         try {
             System.out.println("=== CARGANDO LISTA DE LOTES ===");
@@ -38,38 +41,54 @@ public class LoteController {
             System.out.println("Filtro producto ID: " + (productoId != null ? productoId : "ninguno"));
 
             List<Lote> lotes;
+            boolean filtrarEstado = estado != null && !estado.isEmpty();
+            long lotesActivos;
+            long lotesEnCuarentena;
+            long totalLotes;
 
             // Aplicar filtros
             if (productoId != null) {
                 lotes = loteService.obtenerLotesPorProducto(productoId);
                 System.out.println("🔍 Filtro: Lotes del producto ID = " + productoId);
-            } else {
-                lotes = loteService.obtenerTodosLotes();
-                System.out.println("🔍 Cargando todos los lotes");
-            }
 
-            // Filtrar por estado si se especifica
-            if (estado != null && !estado.isEmpty() && lotes != null) {
-                final String estadoBuscar = estado;
-                lotes = lotes.stream()
-                    .filter(l -> l.getEstadoCalidad() != null && 
-                                 l.getEstadoCalidad().name().equals(estadoBuscar))
-                    .collect(Collectors.toList());
-                System.out.println("🔍 Filtrado por estado: " + estado);
+                // Filtrar por estado si se especifica
+                if (filtrarEstado && lotes != null) {
+                    final String estadoBuscar = estado;
+                    lotes = lotes.stream()
+                        .filter(l -> l.getEstadoCalidad() != null && 
+                                     l.getEstadoCalidad().name().equals(estadoBuscar))
+                        .collect(Collectors.toList());
+                    System.out.println("🔍 Filtrado por estado: " + estado);
+                }
+
+                // Estadísticas del producto filtrado
+                lotesActivos = lotes != null ? 
+                    lotes.stream().filter(l -> l.getActivo() != null && l.getActivo()).count() : 0;
+                lotesEnCuarentena = lotes != null ?
+                    lotes.stream().filter(l -> l.getEstadoCalidad() != null && 
+                                              l.getEstadoCalidad().name().equals("EN_CUARENTENA")).count() : 0;
+                totalLotes = lotes != null ? lotes.size() : 0;
+            } else {
+                // Listado general paginado; el estado se filtra en la consulta
+                PaginaKeyset<Lote> pagina = loteService.obtenerPaginaLotes(
+                        filtrarEstado ? EstadoCalidad.valueOf(estado) : null, despues);
+                lotes = pagina.getElementos();
+                model.addAttribute("pagina", pagina);
+                model.addAttribute("rutaPaginacion", filtrarEstado ? "/lotes?estado=" + estado : "/lotes");
+                System.out.println("🔍 Cargando página de lotes" + (filtrarEstado ? " con estado " + estado : ""));
+
+                // Estadísticas con COUNT en la base de datos, no sobre la página
+                lotesActivos = loteService.contarLotesActivos();
+                lotesEnCuarentena = loteService.contarLotesPorEstado(EstadoCalidad.EN_CUARENTENA);
+                totalLotes = loteService.contarLotes();
             }
-
-            // Obtener estadísticas
-            long lotesActivos = lotes != null ? 
-                lotes.stream().filter(l -> l.getActivo() != null && l.getActivo()).count() : 0;
-            long lotesPorVencer = loteService.obtenerLotesPorVencer(30).size();
-            long lotesEnCuarentena = lotes != null ?
-                lotes.stream().filter(l -> l.getEstadoCalidad() != null && 
-                                          l.getEstadoCalidad().name().equals("EN_CUARENTENA")).count() : 0;
+            long lotesPorVencer = loteService.contarLotesPorVencer(30);
 
             model.addAttribute("lotes", lotes != null ? lotes : Collections.emptyList());
             model.addAttribute("lotesActivos", lotesActivos);
             model.addAttribute("lotesPorVencer", lotesPorVencer);
             model.addAttribute("lotesEnCuarentena", lotesEnCuarentena);
+            model.addAttribute("totalLotes", totalLotes);
             model.addAttribute("estadoFilter", estado);
             model.addAttribute("productoIdFilter", productoId);
             model.addAttribute("productos", productoService.obtenerTodosProductos());
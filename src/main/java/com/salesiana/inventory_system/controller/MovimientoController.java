@@ -1,21 +1,32 @@
 package com.salesiana.inventory_system.controller;
 
+import com.salesiana.inventory_system.dto.FilaImportacionMovimiento;
 import com.salesiana.inventory_system.entity.Movimiento;
+import com.salesiana.inventory_system.service.ImportacionMovimientoService;
 import com.salesiana.inventory_system.service.MovimientoService;
 import com.salesiana.inventory_system.service.ProductoService;
 import com.salesiana.inventory_system.service.TipoMovimientoService;
 import com.salesiana.inventory_system.service.ProveedorService;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/movimientos")
@@ -33,16 +44,19 @@ public class MovimientoController {
     @Autowired
     private ProveedorService proveedorService;
     
+    @Autowired
+    private ImportacionMovimientoService importacionMovimientoService;
+    
     @GetMapping
-    public String listarMovimientos(Model model) {
+    public String listarMovimientos(@RequestParam(required = false) String despues, Model model) {
         try {
-            // 🔧 CORRECCIÓN: Siempre inicializar las listas
-            List<Movimiento> movimientos = movimientoService.obtenerTodosMovimientos();
+            PaginaKeyset<Movimiento> pagina = movimientoService.obtenerPaginaMovimientos(despues);
             
-            model.addAttribute("movimientos", movimientos != null ? movimientos : Collections.emptyList());
+            model.addAttribute("movimientos", pagina.getElementos());
+            model.addAttribute("pagina", pagina);
             model.addAttribute("productos", productoService.obtenerTodosProductos());
             
-            System.out.println("✅ Movimientos cargados: " + (movimientos != null ? movimientos.size() : 0));
+            System.out.println("✅ Movimientos cargados: " + pagina.getElementos().size());
             
         } catch (Exception e) {
             System.err.println("❌ Error al listar movimientos: " + e.getMessage());
@@ -125,6 +139,7 @@ public class MovimientoController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaFin,
             @RequestParam(required = false) Integer productoId,
+            @RequestParam(required = false) String despues,
             Model model) {
         
         try {
@@ -139,8 +154,11 @@ public class MovimientoController {
                 movimientos = movimientoService.obtenerMovimientosPorProducto(productoId);
                 System.out.println("🔍 Búsqueda por producto: " + movimientos.size() + " resultados");
             } else {
-                movimientos = movimientoService.obtenerTodosMovimientos();
-                System.out.println("🔍 Todos los movimientos: " + movimientos.size());
+                // Sin filtros se muestra el listado general paginado
+                PaginaKeyset<Movimiento> pagina = movimientoService.obtenerPaginaMovimientos(despues);
+                movimientos = pagina.getElementos();
+                model.addAttribute("pagina", pagina);
+                System.out.println("🔍 Todos los movimientos (página): " + movimientos.size());
             }
             
             model.addAttribute("movimientos", movimientos != null ? movimientos : Collections.emptyList());
@@ -156,4 +174,56 @@ public class MovimientoController {
         
         return "movimientos/lista";
     }
-}
\ No newline at end of file
+    
+    //============================================
+    // IMPORTACIÓN MASIVA
+    //============================================
+    /**
+     * Importa una lista de movimientos en JSON (todo o nada)
+     */
+    @PostMapping(value = "/importar", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importarJson(@RequestBody List<FilaImportacionMovimiento> filas) {
+        return importar(filas);
+    }
+    
+    /**
+     * Importa movimientos desde un CSV enviado como cuerpo (text/csv)
+     */
+    @PostMapping(value = "/importar", consumes = "text/csv")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importarCsv(@RequestBody String contenido) {
+        try {
+            return importar(importacionMovimientoService.convertirCsv(new StringReader(contenido)));
+        } catch (RuntimeException e) {
+            return errorImportacion(e);
+        }
+    }
+    
+    /**
+     * Importa movimientos desde un archivo CSV subido en un formulario
+     */
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> importarArchivo(@RequestParam("archivo") MultipartFile archivo) {
+        try {
+            return importar(importacionMovimientoService.convertirCsv(
+                    new InputStreamReader(archivo.getInputStream(), StandardCharsets.UTF_8)));
+        } catch (IOException | RuntimeException e) {
+            return errorImportacion(e);
+        }
+    }
+    
+    private ResponseEntity<Map<String, Object>> importar(List<FilaImportacionMovimiento> filas) {
+        try {
+            return ResponseEntity.ok(importacionMovimientoService.importarMovimientos(filas));
+        } catch (RuntimeException e) {
+            return errorImportacion(e);
+        }
+    }
+    
+    private ResponseEntity<Map<String, Object>> errorImportacion(Exception e) {
+        System.err.println("❌ Error al importar movimientos: " + e.getMessage());
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+}
@@ -1,8 +1,10 @@
 package com.salesiana.inventory_system.controller;
 
 import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.service.IndicadoresStockService;
 import com.salesiana.inventory_system.service.ProductoService;
 import com.salesiana.inventory_system.service.CategoriaService;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -22,9 +24,14 @@ public class ProductoController {
     
     @Autowired
     private CategoriaService categoriaService;
+    
+    @Autowired
+    private IndicadoresStockService indicadoresStockService;
 
     @GetMapping
-    public String listarProductos(@RequestParam(required = false) String stock, Model model) {
+    public String listarProductos(@RequestParam(required = false) String stock,
+                                  @RequestParam(required = false) String despues,
+                                  Model model) {
         try {
             System.out.println("=== CARGANDO LISTA DE PRODUCTOS ===");
             System.out.println("Filtro de stock: " + (stock != null ? stock : "ninguno"));
@@ -49,17 +56,17 @@ public class ProductoController {
                         System.out.println("🔍 Filtro: Productos agotados");
                         break;
                     default:
-                        productos = productoService.obtenerTodosProductos();
-                        System.out.println("🔍 Sin filtro específico, cargando todos los productos");
+                        productos = cargarPaginaProductos(despues, model);
+                        System.out.println("🔍 Sin filtro específico, cargando página de productos");
                 }
             } else {
-                productos = productoService.obtenerTodosProductos();
-                System.out.println("🔍 Cargando todos los productos");
+                productos = cargarPaginaProductos(despues, model);
+                System.out.println("🔍 Cargando página de productos");
             }
             
             // Obtener estadísticas
-            productosStockBajo = productoService.obtenerProductosStockBajo().size();
-            productosAgotados = productoService.obtenerProductosAgotados().size();
+            productosStockBajo = indicadoresStockService.contarStockBajo();
+            productosAgotados = indicadoresStockService.contarAgotados();
 
             model.addAttribute("productos", productos != null ? productos : Collections.emptyList());
             model.addAttribute("productosStockBajo", productosStockBajo);
@@ -89,6 +96,12 @@ public class ProductoController {
         }
     }
 
+    private List<Producto> cargarPaginaProductos(String despues, Model model) {
+        PaginaKeyset<Producto> pagina = productoService.obtenerPaginaProductos(despues);
+        model.addAttribute("pagina", pagina);
+        return pagina.getElementos();
+    }
+
     @GetMapping("/nuevo")
     public String mostrarFormularioNuevo(Model model) {
         try {
@@ -212,8 +225,8 @@ public class ProductoController {
             System.out.println("Término de búsqueda: " + q);
             
             List<Producto> productos = productoService.buscarProductos(q);
-            long productosStockBajo = productoService.obtenerProductosStockBajo().size();
-            long productosAgotados = productoService.obtenerProductosAgotados().size();
+            long productosStockBajo = indicadoresStockService.contarStockBajo();
+            long productosAgotados = indicadoresStockService.contarAgotados();
 
             model.addAttribute("productos", productos != null ? productos : Collections.emptyList());
             model.addAttribute("terminoBusqueda", q);
@@ -1,18 +1,35 @@
 package com.salesiana.inventory_system.controller;
 
+import com.salesiana.inventory_system.entity.ReporteGenerado;
+import com.salesiana.inventory_system.service.GeneradorReporte;
+import com.salesiana.inventory_system.service.MovimientoDiarioService;
+import com.salesiana.inventory_system.service.ReporteAsincronoService;
+import com.salesiana.inventory_system.service.ReporteCacheService;
 import com.salesiana.inventory_system.service.ReporteService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Controller
 @RequestMapping("/reportes")
@@ -21,219 +38,232 @@ public class ReporteController {
     @Autowired
     private ReporteService reporteService;
 
+    @Autowired
+    private ReporteAsincronoService reporteAsincronoService;
+
+    @Autowired
+    private ReporteCacheService reporteCacheService;
+
+    @Autowired
+    private MovimientoDiarioService movimientoDiarioService;
+
     //============================================
     // REPORTES DE INVENTARIO
     //============================================
     @GetMapping("/inventario/excel")
-    public ResponseEntity<ByteArrayResource> descargarReporteInventarioExcel() {
-        try {
-            byte[] excelContent = reporteService.generarReporteInventarioExcel();
-            String filename = "reporte_inventario_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(excelContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte Excel: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteInventarioExcel() {
+        return descargarExcel("inventario", reporteService::generarReporteInventarioExcel);
     }
 
     @GetMapping("/inventario/pdf")
-    public ResponseEntity<ByteArrayResource> descargarReporteInventarioPdf() {
-        try {
-            byte[] htmlContent = reporteService.generarReporteInventarioPdf();
-            String filename = "reporte_inventario_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".html";
-            
-            // INLINE para visualizar en navegador (con botón de descarga en el HTML)
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(htmlContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte PDF: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteInventarioPdf() {
+        return descargarPdf("inventario", reporteService::generarReporteInventarioPdf);
     }
 
     //============================================
     // REPORTES DE STOCK BAJO Y AGOTADOS
     //============================================
     @GetMapping("/stock-bajo/excel")
-    public ResponseEntity<ByteArrayResource> descargarReporteStockBajoExcel() {
-        try {
-            byte[] excelContent = reporteService.generarReporteStockBajoExcel();
-            String filename = "reporte_stock_bajo_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(excelContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte Excel: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteStockBajoExcel() {
+        return descargarExcel("stock-bajo", reporteService::generarReporteStockBajoExcel);
     }
 
     @GetMapping("/stock-bajo/pdf")
-    public ResponseEntity<ByteArrayResource> descargarReporteStockBajoPdf() {
-        try {
-            byte[] htmlContent = reporteService.generarReporteStockBajoPdf();
-            String filename = "reporte_stock_bajo_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".html";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(htmlContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte PDF: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteStockBajoPdf() {
+        return descargarPdf("stock-bajo", reporteService::generarReporteStockBajoPdf);
     }
 
     //============================================
     // REPORTES DE VENCIMIENTOS
     //============================================
     @GetMapping("/vencimientos/excel")
-    public ResponseEntity<ByteArrayResource> descargarReporteVencimientosExcel() {
-        try {
-            byte[] excelContent = reporteService.generarReporteVencimientosExcelReal();
-            String filename = "reporte_vencimientos_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(excelContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteVencimientosExcel() {
+        return descargarExcel("vencimientos", reporteService::generarReporteVencimientosExcelReal);
     }
 
     @GetMapping("/vencimientos/pdf")
-    public ResponseEntity<ByteArrayResource> descargarReporteVencimientosPdf() {
-        try {
-            byte[] htmlContent = reporteService.generarReporteVencimientosPdfReal();
-            String filename = "reporte_vencimientos_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".html";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(htmlContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteVencimientosPdf() {
+        return descargarPdf("vencimientos", reporteService::generarReporteVencimientosPdfReal);
     }
 
     //============================================
     // REPORTES DE ROTACIÓN
     //============================================
     @GetMapping("/rotacion/excel")
-    public ResponseEntity<ByteArrayResource> descargarReporteRotacionExcel() {
-        try {
-            byte[] excelContent = reporteService.generarReporteRotacionExcelReal();
-            String filename = "reporte_rotacion_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(excelContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteRotacionExcel() {
+        return descargarExcel("rotacion", reporteService::generarReporteRotacionExcelReal);
     }
 
     @GetMapping("/rotacion/pdf")
-    public ResponseEntity<ByteArrayResource> descargarReporteRotacionPdf() {
-        try {
-            byte[] htmlContent = reporteService.generarReporteRotacionPdfReal();
-            String filename = "reporte_rotacion_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".html";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(htmlContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteRotacionPdf() {
+        return descargarPdf("rotacion", reporteService::generarReporteRotacionPdfReal);
     }
 
     //============================================
     // REPORTES DE MOVIMIENTOS SEMANALES
     //============================================
     @GetMapping("/movimientos-semanales/excel")
-    public ResponseEntity<ByteArrayResource> descargarReporteMovimientosSemanalesExcel() {
-        try {
-            byte[] excelContent = reporteService.generarReporteMovimientosSemanalesExcelReal();
-            String filename = "reporte_movimientos_semanales_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(excelContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteMovimientosSemanalesExcel() {
+        return descargarExcel("movimientos-semanales", reporteService::generarReporteMovimientosSemanalesExcelReal);
     }
 
     @GetMapping("/movimientos-semanales/pdf")
-    public ResponseEntity<ByteArrayResource> descargarReporteMovimientosSemanalesPdf() {
-        try {
-            byte[] htmlContent = reporteService.generarReporteMovimientosSemanalesPdfReal();
-            String filename = "reporte_movimientos_semanales_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".html";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(htmlContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> descargarReporteMovimientosSemanalesPdf() {
+        return descargarPdf("movimientos-semanales", reporteService::generarReporteMovimientosSemanalesPdfReal);
     }
 
     //============================================
     // REPORTES DE MOVIMIENTOS ANUALES
     //============================================
     @GetMapping("/movimientos-anuales/excel")
-    public ResponseEntity<ByteArrayResource> descargarReporteMovimientosAnualesExcel() {
+    public ResponseEntity<StreamingResponseBody> descargarReporteMovimientosAnualesExcel() {
+        return descargarExcel("movimientos-anuales", reporteService::generarReporteMovimientosAnualesExcelReal);
+    }
+
+    @GetMapping("/movimientos-anuales/pdf")
+    public ResponseEntity<StreamingResponseBody> descargarReporteMovimientosAnualesPdf() {
+        return descargarPdf("movimientos-anuales", reporteService::generarReporteMovimientosAnualesPdfReal);
+    }
+
+    //============================================
+    // TRABAJOS DE REPORTE EN SEGUNDO PLANO
+    //============================================
+    /**
+     * Encola un reporte (tipo = inventario, stock-bajo, vencimientos, rotacion,
+     * movimientos-semanales o movimientos-anuales; formato = excel o pdf) y devuelve su id.
+     * 400 si el tipo o formato no existen, 429 si el usuario o la cola están al límite
+     */
+    @PostMapping("/trabajos")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> solicitarTrabajo(@RequestParam String tipo,
+                                                                @RequestParam String formato) {
         try {
-            byte[] excelContent = reporteService.generarReporteMovimientosAnualesExcelReal();
-            String filename = "reporte_movimientos_anuales_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(excelContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            ReporteGenerado reporte = reporteAsincronoService.solicitarReporte(
+                    tipo, ReporteGenerado.Formato.valueOf(formato), obtenerUsernameActual());
+            return ResponseEntity.accepted().body(describirTrabajo(reporte));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ReporteAsincronoService.ReportesSaturadosException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("Error encolando reporte: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
         }
     }
 
-    @GetMapping("/movimientos-anuales/pdf")
-    public ResponseEntity<ByteArrayResource> descargarReporteMovimientosAnualesPdf() {
+    @GetMapping("/trabajos/{id}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> consultarTrabajo(@PathVariable Integer id) {
+        try {
+            return ResponseEntity.ok(describirTrabajo(reporteAsincronoService.obtenerReporte(id, obtenerUsernameActual())));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/trabajos/{id}/archivo")
+    public ResponseEntity<Resource> descargarTrabajo(@PathVariable Integer id) {
         try {
-            byte[] htmlContent = reporteService.generarReporteMovimientosAnualesPdfReal();
-            String filename = "reporte_movimientos_anuales_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".html";
-            
+            String username = obtenerUsernameActual();
+            Path archivo = reporteAsincronoService.obtenerArchivo(id, username);
+            ReporteGenerado reporte = reporteAsincronoService.obtenerReporte(id, username);
+            MediaType tipo = reporte.getFormato() == ReporteGenerado.Formato.pdf
+                    ? MediaType.APPLICATION_PDF
+                    : MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
             return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(new ByteArrayResource(htmlContent));
-        } catch (IOException e) {
-            System.err.println("Error generando reporte: " + e.getMessage());
-            return ResponseEntity.internalServerError().build();
+                    .contentType(tipo)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + reporte.getNombreArchivo() + "\"")
+                    .body(new FileSystemResource(archivo));
+        } catch (RuntimeException e) {
+            System.err.println("Error descargando reporte " + id + ": " + e.getMessage());
+            return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Aciertos, fallos y ocupación de la caché de reportes
+     */
+    @GetMapping("/cache/estadisticas")
+    @ResponseBody
+    public Map<String, Object> estadisticasCache() {
+        return reporteCacheService.obtenerEstadisticas();
+    }
+
+    /**
+     * Regenera el resumen diario de movimientos desde el historial (tras cargas masivas
+     * o correcciones hechas directamente en la base de datos). Solo ADMIN (ver SecurityConfig)
+     */
+    @PostMapping("/resumen-diario/reconstruir")
+    @ResponseBody
+    public Map<String, Object> reconstruirResumenDiario() {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("filas", movimientoDiarioService.reconstruirResumen());
+        return respuesta;
+    }
+
+    private Map<String, Object> describirTrabajo(ReporteGenerado reporte) {
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("id", reporte.getId());
+        respuesta.put("tipo", reporte.getTipoReporte());
+        respuesta.put("formato", reporte.getFormato());
+        respuesta.put("estado", reporte.getEstado());
+        respuesta.put("fechaGeneracion", reporte.getFechaGeneracion());
+        respuesta.put("fechaFinalizacion", reporte.getFechaFinalizacion());
+        if (reporte.getMensajeError() != null) {
+            respuesta.put("error", reporte.getMensajeError());
+        }
+        if (reporte.getEstado() == ReporteGenerado.Estado.COMPLETADO) {
+            respuesta.put("descarga", "/reportes/trabajos/" + reporte.getId() + "/archivo");
+        }
+        return respuesta;
+    }
+
+    private String obtenerUsernameActual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            throw new RuntimeException("Usuario no autenticado");
+        }
+        return auth.getName();
+    }
+
+    //============================================
+    // DESCARGA EN STREAMING
+    //============================================
+    private ResponseEntity<StreamingResponseBody> descargarExcel(String tipoReporte, GeneradorReporte generador) {
+        return descargarEnStreaming(tipoReporte, "excel", ".xlsx",
+                MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+                "attachment", generador);
+    }
+
+    private ResponseEntity<StreamingResponseBody> descargarPdf(String tipoReporte, GeneradorReporte generador) {
+        // INLINE para visualizar en el navegador
+        return descargarEnStreaming(tipoReporte, "pdf", ".pdf", MediaType.APPLICATION_PDF, "inline", generador);
+    }
+
+    /**
+     * Envía el archivo directamente al OutputStream de la respuesta, pasando por la caché de reportes.
+     * La generación ocurre en el hilo asíncrono de MVC, sin materializar el archivo en memoria.
+     */
+    private ResponseEntity<StreamingResponseBody> descargarEnStreaming(String tipoReporte, String formato, String extension,
+                                                                       MediaType tipo, String disposicion,
+                                                                       GeneradorReporte generador) {
+        String filename = "reporte_" + tipoReporte.replace('-', '_') + "_"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + extension;
+
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposicion + "; filename=\"" + filename + "\"")
+                .body(out -> {
+                    try {
+                        reporteCacheService.escribir(tipoReporte, formato, generador, out);
+                    } catch (IOException e) {
+                        System.err.println("Error generando reporte " + filename + ": " + e.getMessage());
+                        throw e;
+                    }
+                });
+    }
+
     //============================================
     // PÁGINA PRINCIPAL DE REPORTES
     //============================================
@@ -0,0 +1,11 @@
+package com.salesiana.inventory_system.dto;
+
+/**
+ * Proyección de los conteos de auditoría agrupados por una clave (operación o tabla)
+ */
+public interface ConteoAuditoria {
+
+    String getClave();
+
+    Long getCantidad();
+}
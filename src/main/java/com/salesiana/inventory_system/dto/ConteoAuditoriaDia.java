@@ -0,0 +1,13 @@
+package com.salesiana.inventory_system.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Proyección de los conteos de auditoría por día
+ */
+public interface ConteoAuditoriaDia {
+
+    LocalDate getFecha();
+
+    Long getCantidad();
+}
@@ -0,0 +1,13 @@
+package com.salesiana.inventory_system.dto;
+
+/**
+ * Proyección de los conteos de auditoría por usuario
+ */
+public interface ConteoAuditoriaUsuario {
+
+    Integer getUsuarioId();
+
+    String getUsername();
+
+    Long getCantidad();
+}
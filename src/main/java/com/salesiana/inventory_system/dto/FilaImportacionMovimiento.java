@@ -0,0 +1,23 @@
+package com.salesiana.inventory_system.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Una fila de la importación masiva de movimientos (JSON o CSV).
+ * El producto va por código y el tipo por código o nombre; el lote, el precio y la fecha
+ * son opcionales (por defecto: sin lote, precio de compra del producto y ahora).
+ */
+@Data
+public class FilaImportacionMovimiento {
+    private String codigoProducto;
+    private String tipoMovimiento;
+    private Integer cantidad;
+    private BigDecimal precioUnitario;
+    private String numeroLote;
+    private String motivo;
+    private String documentoReferencia;
+    private LocalDateTime fechaMovimiento;
+}
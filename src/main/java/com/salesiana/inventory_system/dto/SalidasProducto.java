@@ -0,0 +1,11 @@
+package com.salesiana.inventory_system.dto;
+
+/**
+ * Proyección de la consulta agregada de salidas por producto
+ */
+public interface SalidasProducto {
+
+    Integer getProductoId();
+
+    Long getCantidad();
+}
@@ -0,0 +1,20 @@
+package com.salesiana.inventory_system.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección de la consulta agregada de movimientos por mes y sentido del tipo de movimiento
+ * (afectaStock: 1 entrada, -1 salida, 0 ajuste)
+ */
+public interface TotalesMovimientoMes {
+
+    Integer getMes();
+
+    Integer getAfectaStock();
+
+    Long getMovimientos();
+
+    Long getCantidad();
+
+    BigDecimal getValor();
+}
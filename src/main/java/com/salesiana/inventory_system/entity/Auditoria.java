@@ -13,7 +13,12 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "auditoria")
+@Table(name = "auditoria", indexes = {
+    // Orden del listado paginado (ver AuditoriaRepository.findPaginaDespuesDe)
+    @Index(name = "idx_auditoria_fecha_operacion", columnList = "fecha_operacion, id"),
+    // Historial de un registro (ver AuditoriaVersionService.reconstruirVersion)
+    @Index(name = "idx_auditoria_registro", columnList = "tabla_afectada, registro_id, fecha_operacion")
+})
 @Data
 public class Auditoria {
     @Id
@@ -30,8 +35,9 @@ public class Auditoria {
     @Column(name = "registro_id")
     private Integer registroId;
 
+    // Sin FK: la tabla está particionada por mes (ver ParticionAuditoriaService)
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "usuario_id")
+    @JoinColumn(name = "usuario_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Usuario usuario;
 
     @Column(name = "datos_anteriores", columnDefinition = "JSON")
@@ -43,7 +49,7 @@ public class Auditoria {
     @Column(name = "ip_address", length = 45)
     private String ipAddress;
 
-    @Column(name = "fecha_operacion")
+    @Column(name = "fecha_operacion", nullable = false)
     private LocalDateTime fechaOperacion;
 
     public enum Operacion {
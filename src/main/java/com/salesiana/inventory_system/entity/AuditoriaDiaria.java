@@ -0,0 +1,37 @@
+package com.salesiana.inventory_system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Conteo diario de auditorías por tabla, operación y usuario.
+ * Lo alimenta AuditoriaEscritorService con cada lote escrito y se puede regenerar
+ * completo desde la tabla auditoria (AuditoriaAnaliticaService).
+ */
+@Entity
+@Table(name = "auditoria_diaria", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_auditoria_diaria", columnNames = {"fecha", "tabla_afectada", "operacion", "usuario_id"})
+})
+@Data
+public class AuditoriaDiaria {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "tabla_afectada", nullable = false, length = 50)
+    private String tablaAfectada;
+
+    @Column(nullable = false, length = 10)
+    private String operacion;
+
+    // 0 cuando la operación no tiene usuario (la clave única no admite NULL)
+    @Column(name = "usuario_id", nullable = false)
+    private Integer usuarioId = 0;
+
+    @Column(nullable = false)
+    private Long cantidad = 0L;
+}
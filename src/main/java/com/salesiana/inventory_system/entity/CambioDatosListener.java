@@ -0,0 +1,63 @@
+package com.salesiana.inventory_system.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador de cambios sobre las entidades que alimentan los reportes.
+ *
+ * Cada alta, modificación o baja hecha por la aplicación incrementa la versión; la caché de
+ * reportes la usa como marca de agua para saber si un archivo ya generado sigue vigente
+ * sin consultar la base de datos.
+ *
+ * Dentro de una transacción la versión sube recién al confirmarse (una vez por transacción): un
+ * reporte generado antes de la confirmación lee los datos anteriores y queda guardado con la
+ * versión anterior, y una transacción revertida no invalida nada.
+ */
+public class CambioDatosListener {
+
+    private static final AtomicLong version = new AtomicLong();
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void registrarCambio(Object entidad) {
+        incrementarAlConfirmar();
+    }
+
+    /**
+     * Para escrituras que no pasan por JPA (SQL nativo o JDBC por lotes)
+     */
+    public static void registrarCambioExterno() {
+        incrementarAlConfirmar();
+    }
+
+    public static long getVersion() {
+        return version.get();
+    }
+
+    private static void incrementarAlConfirmar() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            version.incrementAndGet();
+            return;
+        }
+        for (TransactionSynchronization registrada : TransactionSynchronizationManager.getSynchronizations()) {
+            if (registrada instanceof IncrementoAlConfirmar) {
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new IncrementoAlConfirmar());
+    }
+
+    private static class IncrementoAlConfirmar implements TransactionSynchronization {
+        @Override
+        public void afterCommit() {
+            version.incrementAndGet();
+        }
+    }
+}
@@ -14,6 +14,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(CambioDatosListener.class)
 @Table(name = "categorias")
 @Data
 public class Categoria {
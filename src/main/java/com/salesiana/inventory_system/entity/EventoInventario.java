@@ -0,0 +1,68 @@
+package com.salesiana.inventory_system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Evento de cambio del inventario (bandeja de salida).
+ * Se inserta en la misma transacción que el cambio y EventoInventarioService lo entrega después,
+ * en orden de id, a los suscriptores de la aplicación. Un evento apartado queda con publicado y
+ * apartado en true y no se borra con los publicados.
+ */
+@Entity
+@Table(name = "eventos_inventario", indexes = {
+    // Pendientes en orden (ver EventoInventarioRepository.findPendientes)
+    @Index(name = "idx_eventos_pendientes", columnList = "publicado, id")
+})
+@Data
+public class EventoInventario {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 30)
+    @Enumerated(EnumType.STRING)
+    private Tipo tipo;
+
+    @Column(name = "entidad_id")
+    private Integer entidadId;
+
+    @Column(name = "producto_id")
+    private Integer productoId;
+
+    @Column(columnDefinition = "JSON")
+    private String datos;
+
+    @Column(name = "fecha_evento", nullable = false)
+    private LocalDateTime fechaEvento;
+
+    @Column(nullable = false)
+    private Boolean publicado = false;
+
+    @Column(name = "fecha_publicacion")
+    private LocalDateTime fechaPublicacion;
+
+    // El relevo lo sacó de la bandeja sin entregarlo, tras agotar sus intentos (ver errorEntrega)
+    @Column(nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private Boolean apartado = false;
+
+    @Column(name = "error_entrega", length = 500)
+    private String errorEntrega;
+
+    public enum Tipo {
+        MOVIMIENTO_REGISTRADO,
+        MOVIMIENTOS_IMPORTADOS,
+        TRANSFERENCIA_REGISTRADA,
+        TRANSFERENCIA_ELIMINADA,
+        CALIDAD_CAMBIADA,
+        PRODUCTO_MODIFICADO
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (fechaEvento == null) {
+            fechaEvento = LocalDateTime.now();
+        }
+    }
+}
@@ -15,7 +15,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "lotes")
+@EntityListeners(CambioDatosListener.class)
+@Table(name = "lotes", indexes = {
+    // Orden del listado paginado (ver LoteRepository.findPaginaDespuesDe)
+    @Index(name = "idx_lotes_fecha_creacion", columnList = "fecha_creacion, id")
+})
 @Data
 public class Lote {
     @Id
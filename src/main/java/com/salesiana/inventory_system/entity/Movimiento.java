@@ -6,7 +6,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "movimientos")
+@EntityListeners(CambioDatosListener.class)
+@Table(name = "movimientos", indexes = {
+    // Cubre los recorridos por rango de fechas y la reconstrucción de movimientos_diarios sin leer la tabla
+    @Index(name = "idx_movimientos_analitica",
+           columnList = "fecha_movimiento, tipo_movimiento_id, producto_id, cantidad, precio_unitario")
+})
 @Data
 public class Movimiento {
     @Id
@@ -0,0 +1,42 @@
+package com.salesiana.inventory_system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Resumen diario de movimientos por producto y tipo de movimiento.
+ * Se alimenta desde MovimientoService al registrar cada movimiento y se puede
+ * regenerar completo desde la tabla movimientos (MovimientoDiarioService).
+ */
+@Entity
+@Table(name = "movimientos_diarios", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_movimiento_diario", columnNames = {"fecha", "tipo_movimiento_id", "producto_id"})
+})
+@Data
+public class MovimientoDiario {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "tipo_movimiento_id", nullable = false)
+    private TipoMovimiento tipoMovimiento;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "producto_id", nullable = false)
+    private Producto producto;
+
+    @Column(nullable = false)
+    private Integer movimientos = 0;
+
+    @Column(nullable = false)
+    private Long cantidad = 0L;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal valor = BigDecimal.ZERO;
+}
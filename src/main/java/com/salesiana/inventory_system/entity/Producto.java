@@ -6,7 +6,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "productos")
+@EntityListeners(CambioDatosListener.class)
+@Table(name = "productos", indexes = {
+    // Orden del listado paginado (ver ProductoRepository.findPaginaDespuesDe)
+    @Index(name = "idx_productos_fecha_creacion", columnList = "fecha_creacion, id")
+})
 @Data
 public class Producto {
     
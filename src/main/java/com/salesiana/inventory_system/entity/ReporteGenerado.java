@@ -43,10 +43,24 @@ public class ReporteGenerado {
     @Column(name = "fecha_generacion")
     private LocalDateTime fechaGeneracion;
 
+    @Column(length = 20)
+    @Enumerated(EnumType.STRING)
+    private Estado estado = Estado.PENDIENTE;
+
+    @Column(name = "mensaje_error", length = 500)
+    private String mensajeError;
+
+    @Column(name = "fecha_finalizacion")
+    private LocalDateTime fechaFinalizacion;
+
     public enum Formato {
         pdf, excel, csv
     }
 
+    public enum Estado {
+        PENDIENTE, EN_PROCESO, COMPLETADO, ERROR, EXPIRADO
+    }
+
     @PrePersist
     protected void onCreate() {
         fechaGeneracion = LocalDateTime.now();
@@ -0,0 +1,21 @@
+package com.salesiana.inventory_system.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Contador de códigos de producto por prefijo (RUTA_UBI-CAT-NOM).
+ * CodigoProductoService reserva bloques de números avanzando "siguiente" y los reparte en memoria.
+ */
+@Entity
+@Table(name = "secuencias_codigo_producto")
+@Data
+public class SecuenciaCodigoProducto {
+    @Id
+    @Column(length = 50)
+    private String prefijo;
+
+    /** Primer número todavía no reservado */
+    @Column(nullable = false)
+    private Integer siguiente;
+}
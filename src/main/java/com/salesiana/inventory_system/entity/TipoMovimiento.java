@@ -14,6 +14,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(CambioDatosListener.class)
 @Table(name = "tipos_movimiento")
 @Data
 public class TipoMovimiento {
@@ -5,6 +5,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(CambioDatosListener.class)
 @Table(name = "usuarios")
 @Data
 public class Usuario {
@@ -31,6 +32,14 @@ public class Usuario {
     @Column(nullable = false)
     private Boolean activo = true;
     
+    /**
+     * Se incrementa al cambiar username, contraseña, rol o estado: los JWT emitidos con una versión
+     * anterior dejan de aceptarse. Solo se modifica con UsuarioRepository.incrementarVersionToken
+     */
+    @Column(name = "version_token", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer versionToken;
+    
     @Column(name = "ultimo_acceso")
     private LocalDateTime ultimoAcceso;
     
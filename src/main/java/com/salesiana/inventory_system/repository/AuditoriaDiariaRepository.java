@@ -0,0 +1,75 @@
+package com.salesiana.inventory_system.repository;
+
+import com.salesiana.inventory_system.dto.ConteoAuditoria;
+import com.salesiana.inventory_system.dto.ConteoAuditoriaDia;
+import com.salesiana.inventory_system.dto.ConteoAuditoriaUsuario;
+import com.salesiana.inventory_system.entity.AuditoriaDiaria;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AuditoriaDiariaRepository extends JpaRepository<AuditoriaDiaria, Integer> {
+
+    /**
+     * Suma una auditoría a la fila de su día, tabla, operación y usuario; la crea si es la primera
+     */
+    @Modifying
+    @Query(value = "INSERT INTO auditoria_diaria (fecha, tabla_afectada, operacion, usuario_id, cantidad) " +
+                   "VALUES (:fecha, :tabla, :operacion, :usuarioId, 1) " +
+                   "ON DUPLICATE KEY UPDATE cantidad = cantidad + 1",
+           nativeQuery = true)
+    int acumular(@Param("fecha") LocalDate fecha,
+                 @Param("tabla") String tabla,
+                 @Param("operacion") String operacion,
+                 @Param("usuarioId") Integer usuarioId);
+
+    @Modifying
+    @Query(value = "DELETE FROM auditoria_diaria WHERE fecha >= :desde", nativeQuery = true)
+    int vaciarDesde(@Param("desde") LocalDate desde);
+
+    /**
+     * Regenera las filas desde la fecha a partir de la tabla auditoria
+     */
+    @Modifying
+    @Query(value = "INSERT INTO auditoria_diaria (fecha, tabla_afectada, operacion, usuario_id, cantidad) " +
+                   "SELECT DATE(fecha_operacion), tabla_afectada, operacion, COALESCE(usuario_id, 0), COUNT(*) " +
+                   "FROM auditoria WHERE fecha_operacion >= :desde " +
+                   "GROUP BY DATE(fecha_operacion), tabla_afectada, operacion, COALESCE(usuario_id, 0)",
+           nativeQuery = true)
+    int reconstruirDesdeAuditoria(@Param("desde") LocalDateTime desde);
+
+    @Query("SELECT COALESCE(SUM(d.cantidad), 0) FROM AuditoriaDiaria d")
+    Long sumarTotal();
+
+    @Query("SELECT COALESCE(SUM(d.cantidad), 0) FROM AuditoriaDiaria d WHERE d.fecha >= :desde")
+    Long sumarDesde(@Param("desde") LocalDate desde);
+
+    @Query("SELECT COALESCE(SUM(d.cantidad), 0) FROM AuditoriaDiaria d WHERE d.operacion = :operacion")
+    Long sumarPorOperacion(@Param("operacion") String operacion);
+
+    @Query("SELECT d.operacion AS clave, SUM(d.cantidad) AS cantidad FROM AuditoriaDiaria d " +
+           "GROUP BY d.operacion ORDER BY SUM(d.cantidad) DESC")
+    List<ConteoAuditoria> contarPorOperacion();
+
+    @Query("SELECT d.tablaAfectada AS clave, SUM(d.cantidad) AS cantidad FROM AuditoriaDiaria d " +
+           "GROUP BY d.tablaAfectada ORDER BY SUM(d.cantidad) DESC")
+    List<ConteoAuditoria> contarPorTabla();
+
+    @Query("SELECT d.usuarioId AS usuarioId, u.username AS username, SUM(d.cantidad) AS cantidad " +
+           "FROM AuditoriaDiaria d LEFT JOIN Usuario u ON u.id = d.usuarioId " +
+           "GROUP BY d.usuarioId, u.username ORDER BY SUM(d.cantidad) DESC")
+    List<ConteoAuditoriaUsuario> contarPorUsuario(Pageable limite);
+
+    @Query("SELECT d.fecha AS fecha, SUM(d.cantidad) AS cantidad FROM AuditoriaDiaria d " +
+           "WHERE d.fecha >= :desde AND d.fecha <= :hasta " +
+           "GROUP BY d.fecha ORDER BY d.fecha")
+    List<ConteoAuditoriaDia> contarPorDia(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+}
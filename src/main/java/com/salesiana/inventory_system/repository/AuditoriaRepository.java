@@ -1,6 +1,7 @@
 package com.salesiana.inventory_system.repository;
 
 import com.salesiana.inventory_system.entity.Auditoria;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -38,6 +39,12 @@ public interface AuditoriaRepository extends JpaRepository<Auditoria, Integer> {
      */
     @Query("SELECT COUNT(a) FROM Auditoria a WHERE a.fechaOperacion >= :fecha")
     Long countAuditoriasDesde(@Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Fecha de la auditoría más antigua que queda en la tabla, o null si está vacía
+     */
+    @Query("SELECT MIN(a.fechaOperacion) FROM Auditoria a")
+    LocalDateTime findPrimeraFecha();
     
     /**
      * Obtiene auditorías por operación
@@ -54,4 +61,48 @@ public interface AuditoriaRepository extends JpaRepository<Auditoria, Integer> {
      */
     @Query("SELECT a FROM Auditoria a WHERE a.tablaAfectada = :tabla AND a.registroId = :registroId ORDER BY a.fechaOperacion DESC")
     List<Auditoria> findByTablaAndRegistroId(@Param("tabla") String tabla, @Param("registroId") Integer registroId);
-}
\ No newline at end of file
+    
+    /**
+     * Primera página del listado de auditoría, de la más reciente a la más antigua
+     */
+    @Query("SELECT a FROM Auditoria a LEFT JOIN FETCH a.usuario u LEFT JOIN FETCH u.rol " +
+           "ORDER BY a.fechaOperacion DESC, a.id DESC")
+    List<Auditoria> findPrimeraPagina(Pageable pagina);
+    
+    /**
+     * Página que sigue a la fila (fechaOperacion, id)
+     */
+    @Query("SELECT a FROM Auditoria a LEFT JOIN FETCH a.usuario u LEFT JOIN FETCH u.rol " +
+           "WHERE a.fechaOperacion <= :fecha AND (a.fechaOperacion < :fecha OR a.id < :id) " +
+           "ORDER BY a.fechaOperacion DESC, a.id DESC")
+    List<Auditoria> findPaginaDespuesDe(@Param("fecha") LocalDateTime fecha,
+                                        @Param("id") Integer id,
+                                        Pageable pagina);
+    
+    /**
+     * Última versión completa del registro hasta la fecha: fila con datos nuevos y sin datos anteriores
+     * (INSERT, o UPDATE guardado sin versión previa)
+     */
+    @Query("SELECT a FROM Auditoria a WHERE a.tablaAfectada = :tabla AND a.registroId = :registroId " +
+           "AND a.datosNuevos IS NOT NULL AND a.datosAnteriores IS NULL AND a.fechaOperacion <= :fecha " +
+           "ORDER BY a.fechaOperacion DESC, a.id DESC")
+    List<Auditoria> findVersionesCompletas(@Param("tabla") String tabla,
+                                           @Param("registroId") Integer registroId,
+                                           @Param("fecha") LocalDateTime fecha,
+                                           Pageable pagina);
+    
+    /**
+     * Cambios de campos (UPDATE con datos anteriores y nuevos) posteriores a la fila (desdeFecha, desdeId)
+     * y hasta la fecha, en el orden en que se aplicaron
+     */
+    @Query("SELECT a FROM Auditoria a WHERE a.tablaAfectada = :tabla AND a.registroId = :registroId " +
+           "AND a.datosNuevos IS NOT NULL AND a.datosAnteriores IS NOT NULL " +
+           "AND a.fechaOperacion >= :desdeFecha AND (a.fechaOperacion > :desdeFecha OR a.id > :desdeId) " +
+           "AND a.fechaOperacion <= :fecha " +
+           "ORDER BY a.fechaOperacion ASC, a.id ASC")
+    List<Auditoria> findCambiosPosteriores(@Param("tabla") String tabla,
+                                           @Param("registroId") Integer registroId,
+                                           @Param("desdeFecha") LocalDateTime desdeFecha,
+                                           @Param("desdeId") Integer desdeId,
+                                           @Param("fecha") LocalDateTime fecha);
+}
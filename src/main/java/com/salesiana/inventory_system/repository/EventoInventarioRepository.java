@@ -0,0 +1,55 @@
+package com.salesiana.inventory_system.repository;
+
+import com.salesiana.inventory_system.entity.EventoInventario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventoInventarioRepository extends JpaRepository<EventoInventario, Long> {
+
+    /**
+     * Eventos sin publicar, del más antiguo al más reciente (índice publicado, id)
+     */
+    @Query("SELECT e FROM EventoInventario e WHERE e.publicado = false ORDER BY e.id")
+    List<EventoInventario> findPendientes(Pageable limite);
+
+    @Query("SELECT COUNT(e) FROM EventoInventario e WHERE e.publicado = false")
+    long countPendientes();
+
+    @Modifying
+    @Query("UPDATE EventoInventario e SET e.publicado = true, e.fechaPublicacion = :fecha WHERE e.id IN :ids")
+    int marcarPublicados(@Param("ids") List<Long> ids, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Saca el evento de la bandeja sin darlo por entregado (agotó sus intentos)
+     */
+    @Modifying
+    @Query("UPDATE EventoInventario e SET e.publicado = true, e.apartado = true, e.errorEntrega = :error, "
+            + "e.fechaPublicacion = :fecha WHERE e.id = :id")
+    int marcarApartado(@Param("id") Long id, @Param("error") String error, @Param("fecha") LocalDateTime fecha);
+
+    @Query("SELECT e FROM EventoInventario e WHERE e.apartado = true ORDER BY e.id")
+    List<EventoInventario> findApartados(Pageable limite);
+
+    @Query("SELECT COUNT(e) FROM EventoInventario e WHERE e.apartado = true")
+    long countApartados();
+
+    @Modifying
+    @Query("UPDATE EventoInventario e SET e.publicado = false, e.apartado = false, e.fechaPublicacion = null "
+            + "WHERE e.apartado = true")
+    int reencolarApartados();
+
+    /**
+     * Los apartados se conservan hasta reencolarlos
+     */
+    @Modifying
+    @Query("DELETE FROM EventoInventario e WHERE e.publicado = true AND e.apartado = false AND e.fechaPublicacion < :limite")
+    int borrarPublicadosAntesDe(@Param("limite") LocalDateTime limite);
+}
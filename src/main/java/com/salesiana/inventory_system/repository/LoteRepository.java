@@ -9,21 +9,36 @@ package com.salesiana.inventory_system.repository;
  * @author Andrei
  */
 
+import com.salesiana.inventory_system.entity.EstadoCalidad;
 import com.salesiana.inventory_system.entity.Lote;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface LoteRepository extends JpaRepository<Lote, Integer> {
     
     List<Lote> findByProductoId(Integer productoId);
     
+    /**
+     * Lotes de varios productos por número, en una consulta (ver ImportacionMovimientoService)
+     */
+    @Query("SELECT l FROM Lote l WHERE l.producto.id IN :productoIds AND l.numeroLote IN :numerosLote")
+    List<Lote> findByProductoIdInAndNumeroLoteIn(@Param("productoIds") Collection<Integer> productoIds,
+                                                 @Param("numerosLote") Collection<String> numerosLote);
+    
     Optional<Lote> findByNumeroLote(String numeroLote);
     
     List<Lote> findByFechaVencimientoBetween(LocalDate startDate, LocalDate endDate);
@@ -36,4 +51,46 @@ public interface LoteRepository extends JpaRepository<Lote, Integer> {
     @Query("SELECT l FROM Lote l WHERE l.fechaVencimiento BETWEEN :startDate AND :endDate AND l.cantidadActual > 0")
     List<Lote> findLotesPorVencer(@Param("startDate") LocalDate startDate, 
                                   @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+    
+    /**
+     * Versión en streaming de filas de findByFechaVencimientoBetween para reportes (ver
+     * MovimientoRepository.streamMovimientosPorRangoFechas), con producto y categoría resueltos en la
+     * misma consulta.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT l FROM Lote l LEFT JOIN FETCH l.producto p LEFT JOIN FETCH p.categoria " +
+           "WHERE l.fechaVencimiento BETWEEN :startDate AND :endDate ORDER BY l.fechaVencimiento")
+    Stream<Lote> streamLotesPorVencimiento(@Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+    
+    Long countByActivoTrue();
+    
+    Long countByEstadoCalidad(EstadoCalidad estadoCalidad);
+    
+    Long countByFechaVencimientoBetween(LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Primera página del listado de lotes por fecha de creación descendente, con filtro opcional
+     * de estado de calidad
+     */
+    @Query("SELECT l FROM Lote l LEFT JOIN FETCH l.producto LEFT JOIN FETCH l.ubicacion " +
+           "WHERE (:estado IS NULL OR l.estadoCalidad = :estado) " +
+           "ORDER BY l.fechaCreacion DESC, l.id DESC")
+    List<Lote> findPrimeraPagina(@Param("estado") EstadoCalidad estado, Pageable pagina);
+    
+    /**
+     * Página que sigue a la fila (fechaCreacion, id)
+     */
+    @Query("SELECT l FROM Lote l LEFT JOIN FETCH l.producto LEFT JOIN FETCH l.ubicacion " +
+           "WHERE (:estado IS NULL OR l.estadoCalidad = :estado) " +
+           "AND l.fechaCreacion <= :fecha AND (l.fechaCreacion < :fecha OR l.id < :id) " +
+           "ORDER BY l.fechaCreacion DESC, l.id DESC")
+    List<Lote> findPaginaDespuesDe(@Param("estado") EstadoCalidad estado,
+                                   @Param("fecha") LocalDateTime fecha,
+                                   @Param("id") Integer id,
+                                   Pageable pagina);
+}
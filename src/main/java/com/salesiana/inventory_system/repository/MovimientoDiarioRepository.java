@@ -0,0 +1,64 @@
+package com.salesiana.inventory_system.repository;
+
+import com.salesiana.inventory_system.dto.SalidasProducto;
+import com.salesiana.inventory_system.dto.TotalesMovimientoMes;
+import com.salesiana.inventory_system.entity.MovimientoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MovimientoDiarioRepository extends JpaRepository<MovimientoDiario, Integer> {
+
+    /**
+     * Suma un movimiento a la fila de su día, producto y tipo; la crea si es el primero.
+     * El UPSERT se resuelve en una sola sentencia sobre uk_movimiento_diario, así dos
+     * registros simultáneos del mismo producto no pierden ninguna suma.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO movimientos_diarios (fecha, tipo_movimiento_id, producto_id, movimientos, cantidad, valor) " +
+                   "VALUES (:fecha, :tipoMovimientoId, :productoId, 1, :cantidad, :valor) " +
+                   "ON DUPLICATE KEY UPDATE movimientos = movimientos + 1, " +
+                   "cantidad = cantidad + VALUES(cantidad), valor = valor + VALUES(valor)",
+           nativeQuery = true)
+    int acumular(@Param("fecha") LocalDate fecha,
+                 @Param("tipoMovimientoId") Integer tipoMovimientoId,
+                 @Param("productoId") Integer productoId,
+                 @Param("cantidad") long cantidad,
+                 @Param("valor") BigDecimal valor);
+
+    @Modifying
+    @Query(value = "DELETE FROM movimientos_diarios", nativeQuery = true)
+    int vaciar();
+
+    /**
+     * Regenera todas las filas a partir del historial de movimientos
+     */
+    @Modifying
+    @Query(value = "INSERT INTO movimientos_diarios (fecha, tipo_movimiento_id, producto_id, movimientos, cantidad, valor) " +
+                   "SELECT DATE(fecha_movimiento), tipo_movimiento_id, producto_id, COUNT(*), SUM(cantidad), " +
+                   "SUM(cantidad * COALESCE(precio_unitario, 0)) " +
+                   "FROM movimientos " +
+                   "GROUP BY DATE(fecha_movimiento), tipo_movimiento_id, producto_id",
+           nativeQuery = true)
+    int reconstruirDesdeMovimientos();
+
+    @Query("SELECT d.producto.id AS productoId, SUM(d.cantidad) AS cantidad FROM MovimientoDiario d " +
+           "WHERE d.tipoMovimiento.afectaStock = -1 AND d.fecha >= :desde " +
+           "GROUP BY d.producto.id")
+    List<SalidasProducto> sumarSalidasPorProducto(@Param("desde") LocalDate desde);
+
+    @Query("SELECT EXTRACT(MONTH FROM d.fecha) AS mes, t.afectaStock AS afectaStock, " +
+           "SUM(d.movimientos) AS movimientos, SUM(d.cantidad) AS cantidad, SUM(d.valor) AS valor " +
+           "FROM MovimientoDiario d JOIN d.tipoMovimiento t " +
+           "WHERE d.fecha >= :inicio AND d.fecha < :fin " +
+           "GROUP BY EXTRACT(MONTH FROM d.fecha), t.afectaStock")
+    List<TotalesMovimientoMes> sumarMovimientosPorMes(@Param("inicio") LocalDate inicio,
+                                                      @Param("fin") LocalDate fin);
+}
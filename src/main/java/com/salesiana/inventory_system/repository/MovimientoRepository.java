@@ -10,21 +10,40 @@ package com.salesiana.inventory_system.repository;
  */
 
 import com.salesiana.inventory_system.entity.Movimiento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MovimientoRepository extends JpaRepository<Movimiento, Integer> {
     
+    /**
+     * Las consultas de listado traen producto, tipo y usuario (con su rol, que es EAGER) en el mismo
+     * JOIN; sin el grafo cada fila dispara hasta 4 SELECT adicionales al mostrarla.
+     */
+    @EntityGraph(attributePaths = {"producto", "tipoMovimiento", "usuario", "usuario.rol"})
     List<Movimiento> findByProductoIdOrderByFechaMovimientoDesc(Integer productoId);
     
+    @EntityGraph(attributePaths = {"producto", "tipoMovimiento", "usuario", "usuario.rol"})
+    Optional<Movimiento> findConRelacionesById(Integer id);
+    
+    @EntityGraph(attributePaths = {"producto", "tipoMovimiento", "usuario", "usuario.rol"})
+    List<Movimiento> findByFechaMovimientoAfterOrderByFechaMovimientoDescIdDesc(LocalDateTime desde, Pageable pagina);
+    
     List<Movimiento> findByTipoMovimientoId(Integer tipoMovimientoId);
     
+    @EntityGraph(attributePaths = {"producto", "tipoMovimiento", "usuario", "usuario.rol"})
     @Query("SELECT m FROM Movimiento m WHERE m.fechaMovimiento BETWEEN :startDate AND :endDate ORDER BY m.fechaMovimiento DESC")
     List<Movimiento> findMovimientosPorRangoFechas(@Param("startDate") LocalDateTime startDate, 
                                                   @Param("endDate") LocalDateTime endDate);
@@ -33,4 +52,47 @@ public interface MovimientoRepository extends JpaRepository<Movimiento, Integer>
     List<Movimiento> findMovimientosProductoPorFecha(@Param("productoId") Integer productoId,
                                                     @Param("startDate") LocalDateTime startDate,
                                                     @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+    
+    /**
+     * Recorre los movimientos del rango en streaming de filas en lugar de cargarlos en una lista: con
+     * fetch size Integer.MIN_VALUE, Connector/J lee el resultado de la conexión fila por fila (no es un
+     * cursor del servidor; no se usa useCursorFetch). Las relaciones que usan los reportes se traen en
+     * la misma consulta, porque mientras el resultado se está leyendo la conexión no acepta otras
+     * sentencias. Debe consumirse dentro de una transacción y cerrarse con try-with-resources.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT m FROM Movimiento m " +
+           "LEFT JOIN FETCH m.producto p LEFT JOIN FETCH p.categoria " +
+           "LEFT JOIN FETCH m.tipoMovimiento " +
+           "LEFT JOIN FETCH m.usuario u LEFT JOIN FETCH u.rol " +
+           "WHERE m.fechaMovimiento BETWEEN :startDate AND :endDate ORDER BY m.fechaMovimiento DESC")
+    Stream<Movimiento> streamMovimientosPorRangoFechas(@Param("startDate") LocalDateTime startDate,
+                                                       @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Primera página del listado, de la más reciente a la más antigua. Se pide con tamaño + 1
+     * para saber si hay página siguiente (ver PaginaKeyset).
+     */
+    @Query("SELECT m FROM Movimiento m " +
+           "LEFT JOIN FETCH m.producto LEFT JOIN FETCH m.tipoMovimiento " +
+           "LEFT JOIN FETCH m.usuario u LEFT JOIN FETCH u.rol " +
+           "ORDER BY m.fechaMovimiento DESC, m.id DESC")
+    List<Movimiento> findPrimeraPagina(Pageable pagina);
+    
+    /**
+     * Página que sigue a la fila (fecha, id): entra por idx_fecha_movimiento en ese punto
+     * en lugar de saltar filas con OFFSET
+     */
+    @Query("SELECT m FROM Movimiento m " +
+           "LEFT JOIN FETCH m.producto LEFT JOIN FETCH m.tipoMovimiento " +
+           "LEFT JOIN FETCH m.usuario u LEFT JOIN FETCH u.rol " +
+           "WHERE m.fechaMovimiento <= :fecha AND (m.fechaMovimiento < :fecha OR m.id < :id) " +
+           "ORDER BY m.fechaMovimiento DESC, m.id DESC")
+    List<Movimiento> findPaginaDespuesDe(@Param("fecha") LocalDateTime fecha,
+                                         @Param("id") Integer id,
+                                         Pageable pagina);
+}
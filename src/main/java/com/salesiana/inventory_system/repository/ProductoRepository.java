@@ -10,20 +10,29 @@ package com.salesiana.inventory_system.repository;
  */
 
 import com.salesiana.inventory_system.entity.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import java.math.BigDecimal;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Integer> {
     
     Optional<Producto> findByCodigo(String codigo);
     
+    List<Producto> findByCodigoIn(Collection<String> codigos);
+    
     List<Producto> findByActivoTrue();
     
     List<Producto> findByNombreContainingIgnoreCase(String nombre);
@@ -36,9 +45,44 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
     @Query("SELECT p FROM Producto p WHERE p.stockActual = 0 AND p.activo = true")
     List<Producto> findProductosAgotados();
     
+    // Solo ids: punto de partida de los indicadores del panel (ver IndicadoresStockService)
+    @Query("SELECT p.id FROM Producto p WHERE p.stockActual <= p.stockMinimo AND p.activo = true")
+    List<Integer> findIdsStockBajo();
+    
+    @Query("SELECT p.id FROM Producto p WHERE p.stockActual = 0 AND p.activo = true")
+    List<Integer> findIdsAgotados();
+    
     @Query("SELECT COUNT(p) FROM Producto p WHERE p.activo = true")
     Long countProductosActivos();
     
     @Query("SELECT SUM(p.stockActual * p.precioCompra) FROM Producto p WHERE p.activo = true")
     BigDecimal getValorTotalInventario();
-}
\ No newline at end of file
+    
+    /**
+     * Versión en streaming de filas de findByActivoTrue para reportes: la categoría viene en la misma
+     * fila y no se abre otra consulta mientras se está leyendo el resultado.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categoria WHERE p.activo = true ORDER BY p.id")
+    Stream<Producto> streamProductosActivos();
+    
+    /**
+     * Primera página de productos activos, del más reciente al más antiguo
+     */
+    @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Producto> findPrimeraPagina(Pageable pagina);
+    
+    /**
+     * Página que sigue a la fila (fechaCreacion, id)
+     */
+    @Query("SELECT p FROM Producto p WHERE p.activo = true " +
+           "AND p.fechaCreacion <= :fecha AND (p.fechaCreacion < :fecha OR p.id < :id) " +
+           "ORDER BY p.fechaCreacion DESC, p.id DESC")
+    List<Producto> findPaginaDespuesDe(@Param("fecha") LocalDateTime fecha,
+                                       @Param("id") Integer id,
+                                       Pageable pagina);
+}
@@ -31,4 +31,8 @@ public interface ReporteGeneradoRepository extends JpaRepository<ReporteGenerado
     
     @Query("SELECT COUNT(r) FROM ReporteGenerado r WHERE r.fechaGeneracion >= :fecha")
     Long countReportesDesde(@Param("fecha") LocalDateTime fecha);
+    
+    List<ReporteGenerado> findByEstadoIn(List<ReporteGenerado.Estado> estados);
+    
+    List<ReporteGenerado> findByEstadoInAndFechaFinalizacionBefore(List<ReporteGenerado.Estado> estados, LocalDateTime fecha);
 }
\ No newline at end of file
@@ -9,7 +9,9 @@ package com.salesiana.inventory_system.repository;
  * @author Andrei
  */
 import com.salesiana.inventory_system.entity.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -25,6 +27,12 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
     
     Optional<Usuario> findByUsernameAndActivoTrue(String username);
     
+    /**
+     * Con el rol ya cargado, para instancias que se comparten fuera de la sesión (UsuarioActualService)
+     */
+    @EntityGraph(attributePaths = "rol")
+    Optional<Usuario> findConRolByUsernameAndActivoTrue(String username);
+    
     @Query("SELECT u FROM Usuario u WHERE u.activo = true AND (u.username = :username OR u.email = :username)")
     Optional<Usuario> findByUsernameOrEmailAndActivoTrue(@Param("username") String username);
     
@@ -34,4 +42,18 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Integer> {
     
     @Query("SELECT COUNT(u) FROM Usuario u WHERE u.activo = true")
     Long countUsuariosActivos();
+    
+    /**
+     * Invalida los JWT ya emitidos para el usuario
+     */
+    @Modifying
+    @Query(value = "UPDATE usuarios SET version_token = version_token + 1 WHERE id = :id", nativeQuery = true)
+    int incrementarVersionToken(@Param("id") Integer id);
+    
+    /**
+     * Invalida los JWT de todos los usuarios del rol (cambio de código o desactivación del rol)
+     */
+    @Modifying
+    @Query(value = "UPDATE usuarios SET version_token = version_token + 1 WHERE rol_id = :rolId", nativeQuery = true)
+    int incrementarVersionTokenPorRol(@Param("rolId") Integer rolId);
 }
\ No newline at end of file
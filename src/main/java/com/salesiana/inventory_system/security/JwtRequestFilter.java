@@ -11,7 +11,9 @@ package com.salesiana.inventory_system.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -23,6 +25,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -33,24 +36,26 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private VersionTokenUsuarios versionTokenUsuarios;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain chain) throws ServletException, IOException {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
-        String username = null;
-        String jwt = null;
+        JwtUtil.TokenVerificado token = null;
         
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
+            // Firma y expiración se verifican una sola vez; un token inválido deja la petición sin autenticar
+            token = jwtUtil.verificarToken(authorizationHeader.substring(7));
         }
         
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = obtenerUsuario(token);
             
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -59,4 +64,20 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Usuario armado desde los claims del token, sin consultar la base de datos; null si el token
+     * fue revocado. Los tokens emitidos antes de llevar roles, id y versión cargan el usuario.
+     */
+    private UserDetails obtenerUsuario(JwtUtil.TokenVerificado token) {
+        if (token.roles() == null || token.usuarioId() == null || token.version() == null) {
+            return this.userDetailsService.loadUserByUsername(token.username());
+        }
+        if (!versionTokenUsuarios.esVigente(token.usuarioId(), token.version())) {
+            return null;
+        }
+        
+        List<SimpleGrantedAuthority> authorities = token.roles().stream().map(SimpleGrantedAuthority::new).toList();
+        return new User(token.username(), "", authorities);
+    }
+}
@@ -11,16 +11,36 @@ package com.salesiana.inventory_system.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 
+/**
+ * Generación y verificación de tokens JWT.
+ *
+ * La clave y el parser se construyen una sola vez (JwtParser es inmutable y seguro entre hilos).
+ * verificarToken parsea y valida firma y expiración en una sola pasada; los tokens ya verificados
+ * se recuerdan por su SHA-256 hasta que expiran, en una caché LRU de jwt.cache.max-tokens entradas,
+ * para que las peticiones siguientes con el mismo token no repitan la verificación HMAC.
+ *
+ * Los tokens llevan las autoridades del usuario (claim "roles"), su id (claim "uid") y su versión de
+ * token (claim "ver", ver VersionTokenUsuarios), para autenticar las peticiones sin cargar el usuario.
+ */
 @Component
 public class JwtUtil {
     
@@ -30,37 +50,114 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Autowired
+    private VersionTokenUsuarios versionTokenUsuarios;
+    
+    @Value("${jwt.cache.habilitado:true}")
+    private boolean cacheHabilitada;
+    
+    @Value("${jwt.cache.max-tokens:10000}")
+    private int maxTokens;
+    
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Map<String, TokenVerificado> verificados;
+    
+    /**
+     * Resultado de una verificación: usuario, autoridades, id y versión (null en tokens emitidos
+     * antes de incluirlos) y expiración en milisegundos
+     */
+    public record TokenVerificado(String username, List<String> roles, Integer usuarioId, Integer version,
+                                  long expiracion) {
     }
     
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    @PostConstruct
+    public void iniciar() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verificados = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenVerificado> eldest) {
+                return size() > maxTokens;
+            }
+        };
     }
     
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private SecretKey getSigningKey() {
+        return signingKey;
     }
     
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    /**
+     * Verifica firma y expiración del token y devuelve sus datos, o null si el token no es válido
+     */
+    public TokenVerificado verificarToken(String token) {
+        if (!cacheHabilitada) {
+            return verificarSinCache(token);
+        }
+        
+        String clave = hashToken(token);
+        long ahora = System.currentTimeMillis();
+        synchronized (verificados) {
+            TokenVerificado verificado = verificados.get(clave);
+            if (verificado != null) {
+                if (verificado.expiracion() > ahora) {
+                    return verificado;
+                }
+                verificados.remove(clave);
+                return null;
+            }
+        }
+        
+        TokenVerificado verificado = verificarSinCache(token);
+        if (verificado != null) {
+            synchronized (verificados) {
+                verificados.put(clave, verificado);
+            }
+        }
+        return verificado;
     }
     
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    @SuppressWarnings("unchecked")
+    private TokenVerificado verificarSinCache(String token) {
+        Claims claims = parsearClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        return new TokenVerificado(claims.getSubject(), claims.get("roles", List.class),
+                claims.get("uid", Integer.class), claims.get("ver", Integer.class), claims.getExpiration().getTime());
     }
     
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Un solo parseo: firma inválida, token mal formado o expirado devuelven null
+     */
+    private Claims parsearClaims(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return claims.getSubject() != null && claims.getExpiration() != null ? claims : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
     
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put("roles", userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        VersionTokenUsuarios.Acceso acceso = versionTokenUsuarios.obtenerAcceso(userDetails.getUsername());
+        if (acceso == null) {
+            // Desactivado o renombrado desde la autenticación: un token sin uid se validaría por username
+            throw new UsernameNotFoundException("Usuario no encontrado: " + userDetails.getUsername());
+        }
+        claims.put("uid", acceso.usuarioId());
+        claims.put("ver", acceso.version());
         return createToken(claims, userDetails.getUsername());
     }
     
@@ -73,9 +170,4 @@ public class JwtUtil {
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
-    
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
 }
@@ -0,0 +1,95 @@
+package com.salesiana.inventory_system.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versión vigente de los JWT de cada usuario (columna usuarios.version_token), en memoria.
+ *
+ * Los tokens llevan el id del usuario (claim "uid") y la versión con la que se emitieron;
+ * JwtRequestFilter solo los acepta si coincide con la de aquí, así que desactivar un usuario o
+ * cambiarle username, contraseña o rol revoca sus tokens sin consultar la base de datos en cada
+ * petición. Las versiones van por id y no por username: cada fila empieza en la versión 0, y un
+ * usuario nuevo que reutilice el username de uno renombrado no debe validar los tokens de aquel.
+ * La versión de un usuario se lee la primera vez que se necesita y se descarta cuando
+ * UsuarioService o RolService lo modifican.
+ */
+@Component
+public class VersionTokenUsuarios {
+
+    /** Usuario inexistente o inactivo: ningún token es vigente */
+    public static final int SIN_ACCESO = -1;
+
+    private static final String SQL_VERSION =
+            "SELECT version_token FROM usuarios WHERE id = ? AND activo = TRUE";
+
+    private static final String SQL_ACCESO =
+            "SELECT id, version_token FROM usuarios WHERE username = ? AND activo = TRUE";
+
+    /**
+     * Id y versión vigente de un usuario activo, para emitir su token
+     */
+    public record Acceso(Integer usuarioId, int version) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, Integer> versiones = new ConcurrentHashMap<>();
+
+    /**
+     * Se consulta siempre en la base de datos: solo se usa al emitir un token
+     *
+     * @return null si no hay un usuario activo con ese username
+     */
+    public Acceso obtenerAcceso(String username) {
+        List<Acceso> accesos = jdbcTemplate.query(SQL_ACCESO,
+                (rs, fila) -> new Acceso(rs.getInt("id"), rs.getInt("version_token")), username);
+        return accesos.isEmpty() ? null : accesos.get(0);
+    }
+
+    public int obtenerVersion(Integer usuarioId) {
+        return versiones.computeIfAbsent(usuarioId, id -> {
+            List<Integer> version = jdbcTemplate.queryForList(SQL_VERSION, Integer.class, id);
+            return version.isEmpty() ? SIN_ACCESO : version.get(0);
+        });
+    }
+
+    public boolean esVigente(Integer usuarioId, int version) {
+        return version != SIN_ACCESO && obtenerVersion(usuarioId) == version;
+    }
+
+    /**
+     * Descarta la versión del usuario cuando confirme la transacción en curso
+     */
+    public void descartar(Integer usuarioId) {
+        alConfirmar(() -> versiones.remove(usuarioId));
+    }
+
+    /**
+     * Descarta todas las versiones cuando confirme la transacción en curso
+     */
+    public void descartarTodas() {
+        alConfirmar(versiones::clear);
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -16,7 +16,6 @@ import com.salesiana.inventory_system.entity.TipoAlerta;
 import com.salesiana.inventory_system.repository.AlertaRepository;
 import com.salesiana.inventory_system.repository.ProductoRepository;
 import com.salesiana.inventory_system.repository.LoteRepository;
-import com.salesiana.inventory_system.repository.TipoAlertaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -38,7 +37,7 @@ public class AlertaService {
     private LoteRepository loteRepository;
     
     @Autowired
-    private TipoAlertaRepository tipoAlertaRepository;
+    private CatalogoService catalogoService;
     
     @Scheduled(cron = "0 0 8 * * ?") // Ejecutar todos los días a las 8:00 AM
     public void verificarAlertasAutomaticas() {
@@ -47,10 +46,10 @@ public class AlertaService {
     }
     
     private void verificarStockMinimo() {
-        TipoAlerta tipoStockMinimo = tipoAlertaRepository.findByCodigo("stock_minimo")
+        TipoAlerta tipoStockMinimo = catalogoService.tiposAlerta().porCodigo("stock_minimo")
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
         
-        TipoAlerta tipoStockCritico = tipoAlertaRepository.findByCodigo("stock_critico")
+        TipoAlerta tipoStockCritico = catalogoService.tiposAlerta().porCodigo("stock_critico")
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
         
         List<Producto> productosStockBajo = productoRepository.findProductosStockBajo();
@@ -84,10 +83,10 @@ public class AlertaService {
     }
     
     private void verificarVencimientos() {
-        TipoAlerta tipoVencimientoProximo = tipoAlertaRepository.findByCodigo("vencimiento_proximo")
+        TipoAlerta tipoVencimientoProximo = catalogoService.tiposAlerta().porCodigo("vencimiento_proximo")
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
         
-        TipoAlerta tipoVencido = tipoAlertaRepository.findByCodigo("producto_vencido")
+        TipoAlerta tipoVencido = catalogoService.tiposAlerta().porCodigo("producto_vencido")
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
         
         LocalDate hoy = LocalDate.now();
@@ -0,0 +1,153 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.dto.SalidasProducto;
+import com.salesiana.inventory_system.dto.TotalesMovimientoMes;
+import com.salesiana.inventory_system.repository.MovimientoDiarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cálculos de rotación y de movimientos anuales para los reportes.
+ *
+ * Todo sale de consultas agregadas sobre el resumen movimientos_diarios y tipos_movimiento
+ * (una por reporte, nunca una por producto): la base de datos agrupa filas por día en lugar
+ * de movimientos sueltos y devuelve como mucho una fila por producto o 36 filas por año.
+ */
+@Service
+public class AnaliticaMovimientosService {
+
+    public static final int DIAS_ROTACION = 90;
+
+    private static final double UMBRAL_ALTA_ROTACION = 20;
+    private static final double UMBRAL_BAJA_ROTACION = 5;
+
+    @Autowired
+    private MovimientoDiarioRepository movimientoDiarioRepository;
+
+    public enum Clasificacion {
+        ALTA("ALTA ROTACIÓN"),
+        MEDIA("ROTACIÓN MEDIA"),
+        BAJA("BAJA ROTACIÓN");
+
+        private final String etiqueta;
+
+        Clasificacion(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+
+        public String getEtiqueta() {
+            return etiqueta;
+        }
+    }
+
+    /**
+     * Rotación de un producto: salidas del período, rotación mensual y días que alcanza el stock
+     * al ritmo actual (0 si no hubo salidas)
+     */
+    public record Rotacion(long ventas, double rotacionMensual, int diasCobertura, Clasificacion clasificacion) {
+    }
+
+    /**
+     * Totales de un mes: número de movimientos por sentido y valor de entradas y salidas en Bs
+     */
+    public record ResumenMes(int mes, int diasMes, long entradas, long salidas, long ajustes,
+                             BigDecimal valorEntradas, BigDecimal valorSalidas) {
+
+        public long totalMovimientos() {
+            return entradas + salidas + ajustes;
+        }
+
+        public BigDecimal saldoNeto() {
+            return valorEntradas.subtract(valorSalidas);
+        }
+
+        public BigDecimal promedioDiario() {
+            return saldoNeto().divide(BigDecimal.valueOf(diasMes), 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    //============================================
+    // ROTACIÓN
+    //============================================
+    /**
+     * Cantidad vendida (salidas) por producto en los últimos DIAS_ROTACION días.
+     * Los productos sin salidas no aparecen en el mapa.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, Long> obtenerSalidasPorProducto() {
+        LocalDate desde = LocalDate.now().minusDays(DIAS_ROTACION);
+
+        Map<Integer, Long> salidas = new HashMap<>();
+        for (SalidasProducto fila : movimientoDiarioRepository.sumarSalidasPorProducto(desde)) {
+            salidas.put(fila.getProductoId(), fila.getCantidad());
+        }
+        return salidas;
+    }
+
+    public Rotacion calcularRotacion(int stockActual, long ventas) {
+        double rotacionMensual = ventas / (DIAS_ROTACION / 30.0);
+        int diasCobertura = ventas > 0 ? (int) (stockActual / (ventas / (double) DIAS_ROTACION)) : 0;
+
+        Clasificacion clasificacion;
+        if (rotacionMensual > UMBRAL_ALTA_ROTACION) {
+            clasificacion = Clasificacion.ALTA;
+        } else if (rotacionMensual < UMBRAL_BAJA_ROTACION) {
+            clasificacion = Clasificacion.BAJA;
+        } else {
+            clasificacion = Clasificacion.MEDIA;
+        }
+        return new Rotacion(ventas, rotacionMensual, diasCobertura, clasificacion);
+    }
+
+    //============================================
+    // MOVIMIENTOS ANUALES
+    //============================================
+    /**
+     * Resumen de los 12 meses del año; los meses sin movimientos vienen en cero
+     */
+    @Transactional(readOnly = true)
+    public List<ResumenMes> obtenerResumenAnual(int anio) {
+        long[][] conteos = new long[12][3];
+        BigDecimal[] valorEntradas = new BigDecimal[12];
+        BigDecimal[] valorSalidas = new BigDecimal[12];
+        for (int i = 0; i < 12; i++) {
+            valorEntradas[i] = BigDecimal.ZERO;
+            valorSalidas[i] = BigDecimal.ZERO;
+        }
+
+        LocalDate inicio = LocalDate.of(anio, 1, 1);
+        LocalDate fin = inicio.plusYears(1);
+
+        for (TotalesMovimientoMes fila : movimientoDiarioRepository.sumarMovimientosPorMes(inicio, fin)) {
+            int i = fila.getMes() - 1;
+            BigDecimal valor = fila.getValor() != null ? fila.getValor() : BigDecimal.ZERO;
+
+            if (fila.getAfectaStock() > 0) {
+                conteos[i][0] += fila.getMovimientos();
+                valorEntradas[i] = valorEntradas[i].add(valor);
+            } else if (fila.getAfectaStock() < 0) {
+                conteos[i][1] += fila.getMovimientos();
+                valorSalidas[i] = valorSalidas[i].add(valor);
+            } else {
+                conteos[i][2] += fila.getMovimientos();
+            }
+        }
+
+        List<ResumenMes> meses = new ArrayList<>(12);
+        for (int i = 0; i < 12; i++) {
+            meses.add(new ResumenMes(i + 1, YearMonth.of(anio, i + 1).lengthOfMonth(),
+                    conteos[i][0], conteos[i][1], conteos[i][2], valorEntradas[i], valorSalidas[i]));
+        }
+        return meses;
+    }
+}
@@ -0,0 +1,414 @@
+package com.salesiana.inventory_system.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.salesiana.inventory_system.entity.Auditoria;
+import com.salesiana.inventory_system.entity.Usuario;
+import com.salesiana.inventory_system.repository.UsuarioRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archivo histórico de auditoría en disco.
+ *
+ * Las auditorías con más de app.auditoria.archivo.dias se exportan a segmentos gzip de líneas JSON
+ * (una auditoría por línea, en orden de fecha) y se borran de la tabla caliente. Cada segmento
+ * abarca un solo mes, se escribe una vez y no se vuelve a modificar.
+ *
+ * El índice (indice.jsonl, también de solo anexar) guarda por segmento el rango de fechas, el último
+ * id y las filas de cada tabla. Se mantiene en memoria, así una búsqueda solo descomprime los
+ * segmentos cuyo rango y tablas coinciden con lo pedido.
+ *
+ * Si una ejecución se corta después de escribir un segmento pero antes de borrar sus filas, la
+ * siguiente retoma desde el último (fecha, id) del índice y no duplica nada.
+ */
+@Service
+public class ArchivoAuditoriaService {
+
+    private static final String INDICE = "indice.jsonl";
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String SQL_EXPORTAR = "SELECT id, tabla_afectada, operacion, registro_id, usuario_id, "
+            + "datos_anteriores, datos_nuevos, ip_address, fecha_operacion FROM auditoria "
+            + "WHERE fecha_operacion < ? AND (fecha_operacion > ? OR (fecha_operacion = ? AND id > ?)) "
+            + "ORDER BY fecha_operacion, id";
+
+    /**
+     * Entrada del índice: qué hay en un segmento
+     */
+    public record Segmento(String archivo, LocalDateTime desde, LocalDateTime hasta, Integer ultimoId,
+                           long filas, Map<String, Long> tablas) {
+
+        boolean coincide(LocalDateTime inicio, LocalDateTime fin, String tabla) {
+            return !desde.isAfter(fin) && !hasta.isBefore(inicio) && (tabla == null || tablas.containsKey(tabla));
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ParticionAuditoriaService particionAuditoriaService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Value("${app.auditoria.archivo.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${app.auditoria.archivo.directorio:./archivo/auditoria}")
+    private String directorio;
+
+    @Value("${app.auditoria.archivo.dias:90}")
+    private int dias;
+
+    @Value("${app.auditoria.archivo.filas-por-segmento:100000}")
+    private int filasPorSegmento;
+
+    @Value("${app.auditoria.archivo.max-resultados:5000}")
+    private int maxResultados;
+
+    private final List<Segmento> indice = new CopyOnWriteArrayList<>();
+    private ObjectWriter escritorLinea;
+    private JdbcTemplate jdbcExportacion;
+
+    @PostConstruct
+    public void cargarIndice() throws IOException {
+        // Una línea por auditoría: sin la indentación del ObjectMapper de la aplicación
+        escritorLinea = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+
+        // Exportación en streaming: MySQL entrega las filas de a una en vez de cargar el mes entero
+        jdbcExportacion = new JdbcTemplate(dataSource);
+        jdbcExportacion.setFetchSize(Integer.MIN_VALUE);
+
+        Path archivoIndice = rutaDirectorio().resolve(INDICE);
+        if (!Files.exists(archivoIndice)) {
+            return;
+        }
+        for (String linea : Files.readAllLines(archivoIndice, StandardCharsets.UTF_8)) {
+            if (!linea.isBlank()) {
+                indice.add(objectMapper.readValue(linea, Segmento.class));
+            }
+        }
+        System.out.println("✅ Archivo de auditoría: " + indice.size() + " segmentos en " + rutaDirectorio());
+    }
+
+    /**
+     * Archivado diario, antes de la retención de ParticionAuditoriaService
+     */
+    @Scheduled(cron = "${app.auditoria.archivo.cron:0 0 2 * * *}")
+    public void archivarAntiguas() {
+        if (habilitado) {
+            archivarAntesDe(LocalDateTime.now().minusDays(dias));
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    //============================================
+    // EXPORTACIÓN
+    //============================================
+    /**
+     * Pasa a segmentos las auditorías anteriores a la fecha y las borra de la tabla
+     *
+     * @return auditorías archivadas
+     */
+    public synchronized long archivarAntesDe(LocalDateTime limite) {
+        long inicio = System.currentTimeMillis();
+        Segmento ultimo = indice.isEmpty() ? null : indice.get(indice.size() - 1);
+        LocalDateTime desdeFecha = ultimo != null ? ultimo.hasta() : LocalDateTime.of(1970, 1, 1, 0, 0);
+        int desdeId = ultimo != null ? ultimo.ultimoId() : 0;
+
+        try {
+            Files.createDirectories(rutaDirectorio());
+            EscritorSegmento escritor = new EscritorSegmento();
+            try {
+                jdbcExportacion.query(SQL_EXPORTAR, rs -> escritor.agregar(rs), Timestamp.valueOf(limite),
+                        Timestamp.valueOf(desdeFecha), Timestamp.valueOf(desdeFecha), desdeId);
+                escritor.cerrar();
+            } catch (RuntimeException e) {
+                escritor.descartar();
+                throw e;
+            }
+
+            // Recién con todo escrito en disco e indexado se quitan de la tabla caliente
+            long borradas = particionAuditoriaService.descartarAntesDe(limite);
+            System.out.println("📦 Auditorías archivadas antes de " + limite + ": " + escritor.total + " en "
+                    + escritor.segmentos + " segmentos, " + borradas + " borradas de la tabla en "
+                    + (System.currentTimeMillis() - inicio) + " ms");
+            return escritor.total;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Error al archivar auditorías: " + e.getMessage());
+            throw new RuntimeException("Error al archivar auditorías", e);
+        }
+    }
+
+    /**
+     * Segmento abierto durante la exportación; se cierra al cambiar de mes o al llegar a
+     * app.auditoria.archivo.filas-por-segmento
+     */
+    private class EscritorSegmento {
+        private BufferedWriter salida;
+        private Path temporal;
+        private YearMonth mes;
+        private LocalDateTime desde;
+        private LocalDateTime hasta;
+        private Integer ultimoId;
+        private long filas;
+        private final Map<String, Long> tablas = new TreeMap<>();
+        private long total;
+        private int segmentos;
+
+        void agregar(ResultSet rs) throws SQLException {
+            LocalDateTime fecha = rs.getTimestamp("fecha_operacion").toLocalDateTime();
+            try {
+                if (salida != null && (!YearMonth.from(fecha).equals(mes) || filas >= filasPorSegmento)) {
+                    cerrar();
+                }
+                if (salida == null) {
+                    abrir(fecha);
+                }
+
+                ObjectNode linea = objectMapper.createObjectNode();
+                linea.put("id", rs.getInt("id"));
+                linea.put("tablaAfectada", rs.getString("tabla_afectada"));
+                linea.put("operacion", rs.getString("operacion"));
+                linea.put("registroId", rs.getObject("registro_id", Integer.class));
+                linea.put("usuarioId", rs.getObject("usuario_id", Integer.class));
+                linea.put("datosAnteriores", rs.getString("datos_anteriores"));
+                linea.put("datosNuevos", rs.getString("datos_nuevos"));
+                linea.put("ipAddress", rs.getString("ip_address"));
+                linea.put("fechaOperacion", fecha.toString());
+                salida.write(escritorLinea.writeValueAsString(linea));
+                salida.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            hasta = fecha;
+            ultimoId = rs.getInt("id");
+            filas++;
+            tablas.merge(rs.getString("tabla_afectada"), 1L, Long::sum);
+        }
+
+        private void abrir(LocalDateTime fecha) throws IOException {
+            mes = YearMonth.from(fecha);
+            desde = fecha;
+            filas = 0;
+            tablas.clear();
+            temporal = Files.createTempFile(rutaDirectorio(), "segmento-", ".parcial");
+            salida = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temporal), 64 * 1024), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Publica el segmento: nombre definitivo y luego su línea en el índice
+         */
+        void cerrar() {
+            if (salida == null) {
+                return;
+            }
+            try {
+                salida.close();
+                salida = null;
+                String nombre = String.format("auditoria-%s-%06d.jsonl.gz", mes.format(FORMATO_MES), indice.size() + 1);
+                Files.move(temporal, rutaDirectorio().resolve(nombre), StandardCopyOption.ATOMIC_MOVE);
+
+                Segmento segmento = new Segmento(nombre, desde, hasta, ultimoId, filas, new TreeMap<>(tablas));
+                Files.writeString(rutaDirectorio().resolve(INDICE), escritorLinea.writeValueAsString(segmento)
+                                + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+                indice.add(segmento);
+                total += filas;
+                segmentos++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void descartar() {
+            try {
+                if (salida != null) {
+                    salida.close();
+                    Files.deleteIfExists(temporal);
+                }
+            } catch (IOException e) {
+                System.err.println("No se pudo descartar el segmento parcial " + temporal + ": " + e.getMessage());
+            }
+        }
+    }
+
+    //============================================
+    // CONSULTA
+    //============================================
+    /**
+     * Fecha de la auditoría más reciente archivada, o null si no hay nada en el archivo
+     */
+    public LocalDateTime obtenerArchivadoHasta() {
+        return indice.isEmpty() ? null : indice.get(indice.size() - 1).hasta();
+    }
+
+    /**
+     * Auditorías archivadas entre las fechas (inclusive), opcionalmente de una sola tabla, en orden
+     * de fecha. Solo se leen los segmentos que el índice marca como candidatos, y la lectura se corta
+     * al juntar app.auditoria.archivo.max-resultados auditorías (las más antiguas del rango)
+     */
+    public List<Auditoria> buscar(LocalDateTime inicio, LocalDateTime fin, String tabla) {
+        List<JsonNode> lineas = recolectar(inicio, fin, tabla, linea -> true, maxResultados);
+        if (lineas.size() >= maxResultados) {
+            System.err.println("⚠️ Búsqueda en el archivo de auditoría limitada a " + maxResultados
+                    + " resultados (" + inicio + " - " + fin + ")");
+        }
+        if (lineas.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Integer> usuarioIds = new HashSet<>();
+        for (JsonNode linea : lineas) {
+            if (linea.hasNonNull("usuarioId")) {
+                usuarioIds.add(linea.get("usuarioId").asInt());
+            }
+        }
+        Map<Integer, Usuario> usuarios = usuarioRepository.findAllById(usuarioIds).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+
+        List<Auditoria> auditorias = new ArrayList<>(lineas.size());
+        for (JsonNode linea : lineas) {
+            auditorias.add(convertirLinea(linea, usuarios));
+        }
+        auditorias.sort(Comparator.comparing(Auditoria::getFechaOperacion).thenComparing(Auditoria::getId));
+        return auditorias;
+    }
+
+    /**
+     * Historial archivado de un registro hasta la fecha, en orden de fecha (sin usuario). Lo usa
+     * AuditoriaVersionService cuando la versión completa del registro ya no está en la tabla
+     */
+    public List<Auditoria> buscarHistorialRegistro(String tabla, Integer registroId, LocalDateTime fin) {
+        List<JsonNode> lineas = recolectar(LocalDateTime.of(1970, 1, 1, 0, 0), fin, tabla,
+                linea -> linea.hasNonNull("registroId") && linea.get("registroId").asInt() == registroId,
+                Integer.MAX_VALUE);
+        List<Auditoria> historial = new ArrayList<>(lineas.size());
+        for (JsonNode linea : lineas) {
+            historial.add(convertirLinea(linea, Map.of()));
+        }
+        historial.sort(Comparator.comparing(Auditoria::getFechaOperacion).thenComparing(Auditoria::getId));
+        return historial;
+    }
+
+    private List<JsonNode> recolectar(LocalDateTime inicio, LocalDateTime fin, String tabla,
+                                      Predicate<JsonNode> filtro, int limite) {
+        List<JsonNode> lineas = new ArrayList<>();
+        for (Segmento segmento : indice) {
+            if (lineas.size() >= limite) {
+                break;
+            }
+            if (segmento.coincide(inicio, fin, tabla)) {
+                leerSegmento(segmento, inicio, fin, tabla, filtro, lineas, limite);
+            }
+        }
+        return lineas;
+    }
+
+    private void leerSegmento(Segmento segmento, LocalDateTime inicio, LocalDateTime fin, String tabla,
+                              Predicate<JsonNode> filtro, List<JsonNode> lineas, int limite) {
+        Path archivo = rutaDirectorio().resolve(segmento.archivo());
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivo), 64 * 1024), StandardCharsets.UTF_8))) {
+            String texto;
+            while (lineas.size() < limite && (texto = entrada.readLine()) != null) {
+                JsonNode linea = objectMapper.readTree(texto);
+                LocalDateTime fecha = LocalDateTime.parse(linea.get("fechaOperacion").asText());
+                if (fecha.isAfter(fin)) {
+                    // El segmento está ordenado por fecha
+                    break;
+                }
+                if (!fecha.isBefore(inicio) && (tabla == null || tabla.equals(linea.get("tablaAfectada").asText()))
+                        && filtro.test(linea)) {
+                    lineas.add(linea);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error al leer el segmento de auditoría " + archivo + ": " + e.getMessage());
+            throw new RuntimeException("Error al leer el archivo de auditoría", e);
+        }
+    }
+
+    /**
+     * Auditoría de solo lectura para las vistas; no se asocia a la sesión JPA
+     */
+    private Auditoria convertirLinea(JsonNode linea, Map<Integer, Usuario> usuarios) {
+        Auditoria auditoria = new Auditoria();
+        auditoria.setId(linea.get("id").asInt());
+        auditoria.setTablaAfectada(linea.get("tablaAfectada").asText());
+        auditoria.setOperacion(Auditoria.Operacion.valueOf(linea.get("operacion").asText()));
+        auditoria.setRegistroId(linea.hasNonNull("registroId") ? linea.get("registroId").asInt() : null);
+        auditoria.setUsuario(linea.hasNonNull("usuarioId") ? usuarios.get(linea.get("usuarioId").asInt()) : null);
+        auditoria.setDatosAnteriores(linea.hasNonNull("datosAnteriores") ? linea.get("datosAnteriores").asText() : null);
+        auditoria.setDatosNuevos(linea.hasNonNull("datosNuevos") ? linea.get("datosNuevos").asText() : null);
+        auditoria.setIpAddress(linea.hasNonNull("ipAddress") ? linea.get("ipAddress").asText() : null);
+        auditoria.setFechaOperacion(LocalDateTime.parse(linea.get("fechaOperacion").asText()));
+        return auditoria;
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitado", habilitado);
+        estadisticas.put("directorio", rutaDirectorio().toAbsolutePath().toString());
+        estadisticas.put("segmentos", indice.size());
+        estadisticas.put("filas", indice.stream().mapToLong(Segmento::filas).sum());
+        estadisticas.put("desde", indice.isEmpty() ? null : indice.get(0).desde());
+        estadisticas.put("hasta", obtenerArchivadoHasta());
+        return estadisticas;
+    }
+
+    private Path rutaDirectorio() {
+        return Paths.get(directorio);
+    }
+}
@@ -0,0 +1,161 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.dto.ConteoAuditoria;
+import com.salesiana.inventory_system.dto.ConteoAuditoriaDia;
+import com.salesiana.inventory_system.dto.ConteoAuditoriaUsuario;
+import com.salesiana.inventory_system.entity.Auditoria;
+import com.salesiana.inventory_system.repository.AuditoriaDiariaRepository;
+import com.salesiana.inventory_system.repository.AuditoriaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estadísticas de auditoría.
+ *
+ * Los conteos salen de consultas GROUP BY sobre el resumen auditoria_diaria (una fila por día,
+ * tabla, operación y usuario), así que cuestan lo mismo con mil auditorías que con decenas de
+ * millones. Las últimas N auditorías se leen por el índice (fecha_operacion, id) con LIMIT.
+ */
+@Service
+public class AuditoriaAnaliticaService {
+
+    @Autowired
+    private AuditoriaDiariaRepository auditoriaDiariaRepository;
+
+    @Autowired
+    private AuditoriaRepository auditoriaRepository;
+
+    @Autowired
+    private ArchivoAuditoriaService archivoAuditoriaService;
+
+    //============================================
+    // CONTEOS
+    //============================================
+    @Transactional(readOnly = true)
+    public long contarTotal() {
+        return auditoriaDiariaRepository.sumarTotal();
+    }
+
+    @Transactional(readOnly = true)
+    public long contarDesde(LocalDate desde) {
+        return auditoriaDiariaRepository.sumarDesde(desde);
+    }
+
+    @Transactional(readOnly = true)
+    public long contarOperacion(Auditoria.Operacion operacion) {
+        return auditoriaDiariaRepository.sumarPorOperacion(operacion.name());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> contarPorOperacion() {
+        return aMapa(auditoriaDiariaRepository.contarPorOperacion());
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> contarPorTabla() {
+        return aMapa(auditoriaDiariaRepository.contarPorTabla());
+    }
+
+    /**
+     * Usuarios con más auditorías, de mayor a menor (usuarioId 0: operaciones sin usuario)
+     */
+    @Transactional(readOnly = true)
+    public List<ConteoAuditoriaUsuario> contarPorUsuario(int limite) {
+        return auditoriaDiariaRepository.contarPorUsuario(PageRequest.of(0, limite));
+    }
+
+    /**
+     * Auditorías por día entre las fechas (inclusive); los días sin auditorías no aparecen
+     */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> contarPorDia(LocalDate desde, LocalDate hasta) {
+        Map<LocalDate, Long> dias = new LinkedHashMap<>();
+        for (ConteoAuditoriaDia fila : auditoriaDiariaRepository.contarPorDia(desde, hasta)) {
+            dias.put(fila.getFecha(), fila.getCantidad());
+        }
+        return dias;
+    }
+
+    /**
+     * Últimas N auditorías, de la más reciente a la más antigua
+     */
+    @Transactional(readOnly = true)
+    public List<Auditoria> obtenerUltimas(int limite) {
+        return auditoriaRepository.findPrimeraPagina(PageRequest.of(0, limite));
+    }
+
+    /**
+     * Resumen para el panel de auditoría: totales, hoy, por operación y por tabla
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("total", contarTotal());
+        estadisticas.put("hoy", contarDesde(LocalDate.now()));
+        estadisticas.put("porOperacion", contarPorOperacion());
+        estadisticas.put("porTabla", contarPorTabla());
+        estadisticas.put("porUsuario", contarPorUsuario(10));
+        estadisticas.put("ultimos30Dias", contarPorDia(LocalDate.now().minusDays(29), LocalDate.now()));
+        return estadisticas;
+    }
+
+    private static Map<String, Long> aMapa(List<ConteoAuditoria> filas) {
+        Map<String, Long> mapa = new LinkedHashMap<>();
+        for (ConteoAuditoria fila : filas) {
+            mapa.put(fila.getClave(), fila.getCantidad());
+        }
+        return mapa;
+    }
+
+    //============================================
+    // RESUMEN DIARIO
+    //============================================
+    /**
+     * Vuelve a generar el resumen de los días que siguen completos en la tabla auditoria. Los días
+     * anteriores (ya archivados en disco o descartados por la retención) conservan sus conteos, y
+     * el día en que se cortó el archivo se deja como está porque parte de sus filas ya no están
+     *
+     * @return número de filas del resumen generado
+     */
+    @Transactional
+    public int reconstruirResumen() {
+        long inicio = System.currentTimeMillis();
+        LocalDateTime primeraFecha = auditoriaRepository.findPrimeraFecha();
+        if (primeraFecha == null) {
+            return 0;
+        }
+        LocalDate desde = primeraFecha.toLocalDate();
+        LocalDateTime archivadoHasta = archivoAuditoriaService.obtenerArchivadoHasta();
+        if (archivadoHasta != null && !desde.isAfter(archivadoHasta.toLocalDate())) {
+            desde = archivadoHasta.toLocalDate().plusDays(1);
+        }
+
+        auditoriaDiariaRepository.vaciarDesde(desde);
+        int filas = auditoriaDiariaRepository.reconstruirDesdeAuditoria(desde.atStartOfDay());
+        System.out.println("✅ Resumen diario de auditoría reconstruido desde " + desde + ": " + filas + " filas en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+        return filas;
+    }
+
+    /**
+     * En el primer arranque con el resumen vacío se genera a partir de las auditorías existentes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inicializarResumen() {
+        if (auditoriaDiariaRepository.count() == 0 && auditoriaRepository.count() > 0) {
+            System.out.println("⚠️ Resumen diario de auditoría vacío, generándolo desde el historial...");
+            reconstruirResumen();
+        }
+    }
+}
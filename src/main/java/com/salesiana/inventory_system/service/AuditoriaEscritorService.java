@@ -0,0 +1,295 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.Auditoria;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritura de auditoría en segundo plano.
+ *
+ * AuditoriaAspect deja cada evento en una cola acotada en memoria y un único hilo lo inserta en
+ * la tabla auditoria en lotes JDBC de hasta app.auditoria.lote.tamano filas, o cada
+ * app.auditoria.lote.intervalo si llegan menos. Si el evento ocurre dentro de una transacción se
+ * encola al confirmarse, así las operaciones revertidas no quedan auditadas.
+ *
+ * Cuando la cola está llena quien audita espera hasta app.auditoria.cola.espera-maxima y, si sigue
+ * llena, escribe su evento él mismo: la auditoría se frena pero no se descarta. Si un lote falla
+ * se reintenta y luego se escribe evento por evento, así solo se pierde (y cuenta como fallido) el
+ * evento que la base de datos rechaza. Al apagar la aplicación se escribe todo lo pendiente.
+ */
+@Service
+public class AuditoriaEscritorService {
+
+    private static final String SQL_INSERTAR = "INSERT INTO auditoria (tabla_afectada, operacion, registro_id, "
+            + "usuario_id, datos_anteriores, datos_nuevos, ip_address, fecha_operacion) "
+            + "VALUES (?, ?, ?, (SELECT id FROM usuarios WHERE username = ?), ?, ?, ?, ?)";
+
+    // Conteo diario para las estadísticas (ver AuditoriaAnaliticaService)
+    private static final String SQL_ACUMULAR_DIARIA = "INSERT INTO auditoria_diaria (fecha, tabla_afectada, operacion, "
+            + "usuario_id, cantidad) VALUES (?, ?, ?, COALESCE((SELECT id FROM usuarios WHERE username = ?), 0), ?) "
+            + "ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad)";
+
+    private record ClaveDiaria(LocalDate fecha, String tablaAfectada, Auditoria.Operacion operacion, String username) {
+    }
+
+    /**
+     * Operación auditada tal como se capturó en el momento de la llamada; el usuario va por
+     * username y se resuelve en el mismo INSERT
+     */
+    public record EventoAuditoria(String tablaAfectada, Auditoria.Operacion operacion, Integer registroId,
+                                  String username, String datosAnteriores, String datosNuevos,
+                                  String ipAddress, LocalDateTime fechaOperacion) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AuditoriaVersionService auditoriaVersionService;
+
+    @Value("${app.auditoria.cola.capacidad:10000}")
+    private int capacidadCola;
+
+    @Value("${app.auditoria.cola.espera-maxima:500ms}")
+    private Duration esperaMaxima;
+
+    @Value("${app.auditoria.lote.tamano:200}")
+    private int tamanoLote;
+
+    @Value("${app.auditoria.lote.intervalo:1s}")
+    private Duration intervaloLote;
+
+    private BlockingQueue<EventoAuditoria> cola;
+    private TransactionTemplate transaccion;
+    private Thread escritor;
+    private volatile boolean activo;
+
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong escritosDirectos = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+
+    @PostConstruct
+    public void iniciar() {
+        cola = new ArrayBlockingQueue<>(capacidadCola);
+        // Propia: la escritura directa puede ocurrir en el afterCommit de otra transacción
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        activo = true;
+        escritor = new Thread(this::procesarCola, "auditoria-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Deja de aceptar eventos en la cola y espera a que el hilo escriba lo pendiente
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        escritor.interrupt();
+        escritor.join(TimeUnit.SECONDS.toMillis(30));
+
+        // Lo que haya quedado si el hilo no terminó a tiempo
+        List<EventoAuditoria> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        if (!restantes.isEmpty()) {
+            escribirLote(restantes);
+        }
+        System.out.println("✅ Escritor de auditoría detenido: " + escritos.get() + " eventos escritos");
+    }
+
+    /**
+     * Encola un evento; dentro de una transacción, recién cuando se confirma. Desde ahora hasta que
+     * se escribe, la versión en memoria del registro queda retenida (ver AuditoriaVersionService)
+     */
+    public void encolar(EventoAuditoria evento) {
+        auditoriaVersionService.retenerVersion(evento.tablaAfectada(), evento.registroId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ofrecer(evento);
+                }
+
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        auditoriaVersionService.liberarVersion(evento.tablaAfectada(), evento.registroId());
+                    }
+                }
+            });
+        } else {
+            ofrecer(evento);
+        }
+    }
+
+    private void ofrecer(EventoAuditoria evento) {
+        try {
+            if (activo && cola.offer(evento, esperaMaxima.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Cola llena o aplicación apagándose: se escribe en el hilo que audita
+        escritosDirectos.incrementAndGet();
+        escribirLote(List.of(evento));
+    }
+
+    //============================================
+    // HILO ESCRITOR
+    //============================================
+    private void procesarCola() {
+        List<EventoAuditoria> lote = new ArrayList<>(tamanoLote);
+
+        while (activo || !cola.isEmpty()) {
+            try {
+                EventoAuditoria primero = cola.poll(intervaloLote.toMillis(), TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+
+                // Se junta el lote hasta llenarlo o hasta que pase el intervalo desde el primer evento
+                long limite = System.nanoTime() + intervaloLote.toNanos();
+                while (lote.size() < tamanoLote && activo) {
+                    cola.drainTo(lote, tamanoLote - lote.size());
+                    long restante = limite - System.nanoTime();
+                    if (lote.size() >= tamanoLote || restante <= 0) {
+                        break;
+                    }
+                    EventoAuditoria siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+                    if (siguiente != null) {
+                        lote.add(siguiente);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // detener(): se termina de vaciar la cola sin esperar más
+                cola.drainTo(lote, tamanoLote - lote.size());
+            }
+
+            if (!lote.isEmpty()) {
+                escribirLote(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Escribe el lote; si falla se reintenta una vez y, si vuelve a fallar, se escribe evento por
+     * evento para que solo se pierda el que no se puede insertar
+     */
+    private void escribirLote(List<EventoAuditoria> lote) {
+        try {
+            insertar(lote);
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Error al escribir lote de auditoría (" + lote.size() + " eventos), se reintenta: "
+                    + e.getMessage());
+        }
+
+        try {
+            insertar(lote);
+            return;
+        } catch (RuntimeException e) {
+            if (lote.size() == 1) {
+                descartarEvento(lote.get(0), e);
+                return;
+            }
+            System.err.println("⚠️ El lote de auditoría volvió a fallar, se escribe evento por evento: " + e.getMessage());
+        }
+
+        for (EventoAuditoria evento : lote) {
+            try {
+                insertar(List.of(evento));
+            } catch (RuntimeException e) {
+                descartarEvento(evento, e);
+            }
+        }
+    }
+
+    /**
+     * Inserta los eventos y suma sus conteos al resumen diario en una misma transacción
+     */
+    private void insertar(List<EventoAuditoria> lote) {
+        Map<ClaveDiaria, Integer> conteos = new HashMap<>();
+        for (EventoAuditoria evento : lote) {
+            conteos.merge(new ClaveDiaria(evento.fechaOperacion().toLocalDate(), evento.tablaAfectada(),
+                    evento.operacion(), evento.username()), 1, Integer::sum);
+        }
+
+        transaccion.executeWithoutResult(estado -> {
+            jdbcTemplate.batchUpdate(SQL_INSERTAR, lote, lote.size(), (ps, evento) -> {
+                ps.setString(1, evento.tablaAfectada());
+                ps.setString(2, evento.operacion().name());
+                ps.setObject(3, evento.registroId());
+                ps.setString(4, evento.username());
+                ps.setString(5, evento.datosAnteriores());
+                ps.setString(6, evento.datosNuevos());
+                ps.setString(7, evento.ipAddress());
+                ps.setTimestamp(8, Timestamp.valueOf(evento.fechaOperacion()));
+            });
+            jdbcTemplate.batchUpdate(SQL_ACUMULAR_DIARIA, conteos.entrySet(), conteos.size(), (ps, conteo) -> {
+                ps.setDate(1, Date.valueOf(conteo.getKey().fecha()));
+                ps.setString(2, conteo.getKey().tablaAfectada());
+                ps.setString(3, conteo.getKey().operacion().name());
+                ps.setString(4, conteo.getKey().username());
+                ps.setInt(5, conteo.getValue());
+            });
+        });
+        escritos.addAndGet(lote.size());
+        for (EventoAuditoria evento : lote) {
+            auditoriaVersionService.liberarVersion(evento.tablaAfectada(), evento.registroId());
+        }
+    }
+
+    /**
+     * El cambio no quedó guardado: la última versión en memoria del registro ya no coincide con lo
+     * auditado, así que se olvida y el próximo cambio se calcula contra la reconstrucción
+     */
+    private void descartarEvento(EventoAuditoria evento, RuntimeException e) {
+        fallidos.incrementAndGet();
+        auditoriaVersionService.olvidarVersion(evento.tablaAfectada(), evento.registroId());
+        auditoriaVersionService.liberarVersion(evento.tablaAfectada(), evento.registroId());
+        System.err.println("❌ Evento de auditoría descartado (" + evento.tablaAfectada() + " " + evento.operacion()
+                + " " + evento.registroId() + "): " + e.getMessage());
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("pendientes", cola.size());
+        estadisticas.put("capacidad", capacidadCola);
+        estadisticas.put("escritos", escritos.get());
+        estadisticas.put("escritosDirectos", escritosDirectos.get());
+        estadisticas.put("fallidos", fallidos.get());
+        return estadisticas;
+    }
+}
@@ -2,13 +2,20 @@ package com.salesiana.inventory_system.service;
 
 import com.salesiana.inventory_system.entity.Auditoria;
 import com.salesiana.inventory_system.entity.Usuario;
+import com.salesiana.inventory_system.repository.AuditoriaDiariaRepository;
 import com.salesiana.inventory_system.repository.AuditoriaRepository;
 import com.salesiana.inventory_system.repository.UsuarioRepository;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,16 +32,38 @@ public class AuditoriaService {
     @Autowired
     private UsuarioRepository usuarioRepository;
     
+    @Autowired
+    private ParticionAuditoriaService particionAuditoriaService;
+    
+    @Autowired
+    private AuditoriaAnaliticaService auditoriaAnaliticaService;
+    
+    @Autowired
+    private AuditoriaDiariaRepository auditoriaDiariaRepository;
+    
+    @Autowired
+    private ArchivoAuditoriaService archivoAuditoriaService;
+    
+    @Value("${app.paginacion.tamano:50}")
+    private int tamanoPagina;
+    
     /**
-     * Obtiene todas las auditorías del sistema
-     * @return Lista de todas las auditorías
+     * Obtiene una página de auditorías, de las más recientes a las más antiguas
+     * @param despues Token "siguiente" de la página anterior, o null para la primera
+     * @return Página de auditorías con el token de la siguiente
      */
     @Transactional(readOnly = true)
-    public List<Auditoria> obtenerTodasAuditorias() {
+    public PaginaKeyset<Auditoria> obtenerPaginaAuditorias(String despues) {
         try {
-            return auditoriaRepository.findAll();
+            PaginaKeyset.Cursor cursor = PaginaKeyset.decodificar(despues);
+            Pageable limite = PageRequest.of(0, tamanoPagina + 1);
+            List<Auditoria> filas = cursor == null
+                    ? auditoriaRepository.findPrimeraPagina(limite)
+                    : auditoriaRepository.findPaginaDespuesDe(cursor.fecha(), cursor.id(), limite);
+            return PaginaKeyset.desde(filas, tamanoPagina, cursor == null,
+                    Auditoria::getFechaOperacion, Auditoria::getId);
         } catch (Exception e) {
-            System.err.println("Error al obtener todas las auditorías: " + e.getMessage());
+            System.err.println("Error al obtener página de auditorías: " + e.getMessage());
             throw new RuntimeException("Error al obtener auditorías", e);
         }
     }
@@ -70,7 +99,8 @@ public class AuditoriaService {
     }
     
     /**
-     * Obtiene auditorías en un rango de fechas
+     * Obtiene auditorías en un rango de fechas. Si el rango empieza antes de lo que queda en la
+     * tabla, incluye también las auditorías ya archivadas en disco
      * @param inicio Fecha inicial del rango
      * @param fin Fecha final del rango
      * @return Lista de auditorías en el rango especificado
@@ -78,7 +108,13 @@ public class AuditoriaService {
     @Transactional(readOnly = true)
     public List<Auditoria> obtenerAuditoriasPorRangoFechas(LocalDateTime inicio, LocalDateTime fin) {
         try {
-            return auditoriaRepository.findByFechaOperacionBetween(inicio, fin);
+            LocalDateTime archivadoHasta = archivoAuditoriaService.obtenerArchivadoHasta();
+            if (archivadoHasta == null || inicio.isAfter(archivadoHasta)) {
+                return auditoriaRepository.findByFechaOperacionBetween(inicio, fin);
+            }
+            List<Auditoria> auditorias = new ArrayList<>(archivoAuditoriaService.buscar(inicio, fin, null));
+            auditorias.addAll(auditoriaRepository.findByFechaOperacionBetween(inicio, fin));
+            return auditorias;
         } catch (Exception e) {
             System.err.println("Error al obtener auditorías por rango de fechas: " + e.getMessage());
             throw new RuntimeException("Error al buscar auditorías por fechas", e);
@@ -144,6 +180,7 @@ public class AuditoriaService {
             }
             
             Auditoria auditoriaGuardada = auditoriaRepository.save(auditoria);
+            acumularEnResumen(auditoriaGuardada);
             System.out.println("✅ Auditoría guardada: " + auditoria.getOperacion() + 
                              " en " + auditoria.getTablaAfectada());
             return auditoriaGuardada;
@@ -183,6 +220,7 @@ public class AuditoriaService {
             }
             
             auditoriaRepository.save(auditoria);
+            acumularEnResumen(auditoria);
             System.out.println("✅ Auditoría registrada manualmente: " + operacion + " en " + tabla);
             
         } catch (Exception e) {
@@ -191,6 +229,17 @@ public class AuditoriaService {
         }
     }
     
+    /**
+     * Suma una auditoría guardada por JPA al resumen diario (las del aspecto las suma el escritor en lote)
+     */
+    private void acumularEnResumen(Auditoria auditoria) {
+        auditoriaDiariaRepository.acumular(
+                auditoria.getFechaOperacion().toLocalDate(),
+                auditoria.getTablaAfectada(),
+                auditoria.getOperacion().name(),
+                auditoria.getUsuario() != null ? auditoria.getUsuario().getId() : 0);
+    }
+    
     /**
      * Registra una auditoría simplificada (sin datos JSON)
      * @param tabla Nombre de la tabla afectada
@@ -211,8 +260,7 @@ public class AuditoriaService {
     @Transactional(readOnly = true)
     public Long contarAuditoriasHoy() {
         try {
-            LocalDateTime hoy = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-            return auditoriaRepository.countAuditoriasDesde(hoy);
+            return auditoriaAnaliticaService.contarDesde(LocalDate.now());
         } catch (Exception e) {
             System.err.println("Error al contar auditorías de hoy: " + e.getMessage());
             return 0L;
@@ -227,7 +275,7 @@ public class AuditoriaService {
     @Transactional(readOnly = true)
     public Long contarAuditoriasPorOperacion(Auditoria.Operacion operacion) {
         try {
-            return auditoriaRepository.findByOperacion(operacion).stream().count();
+            return auditoriaAnaliticaService.contarOperacion(operacion);
         } catch (Exception e) {
             System.err.println("Error al contar auditorías por operación: " + e.getMessage());
             return 0L;
@@ -258,7 +306,7 @@ public class AuditoriaService {
         try {
             java.util.Map<String, Long> estadisticas = new java.util.HashMap<>();
             
-            estadisticas.put("total", (long) auditoriaRepository.findAll().size());
+            estadisticas.put("total", auditoriaAnaliticaService.contarTotal());
             estadisticas.put("hoy", contarAuditoriasHoy());
             estadisticas.put("inserciones", contarAuditoriasPorOperacion(Auditoria.Operacion.INSERT));
             estadisticas.put("actualizaciones", contarAuditoriasPorOperacion(Auditoria.Operacion.UPDATE));
@@ -272,24 +320,13 @@ public class AuditoriaService {
     }
     
     /**
-     * Limpia auditorías antiguas (mayores a X días)
+     * Limpia auditorías antiguas (mayores a X días). Los meses completos se descartan por partición
      * @param dias Cantidad de días a mantener
-     * @return Cantidad de registros eliminados
+     * @return Cantidad de registros eliminados (estimada en los meses completos)
      */
-    @Transactional
-    public int limpiarAuditoriasAntiguas(int dias) {
+    public long limpiarAuditoriasAntiguas(int dias) {
         try {
-            LocalDateTime fechaLimite = LocalDateTime.now().minusDays(dias);
-            List<Auditoria> auditoriasAntiguas = auditoriaRepository.findAll().stream()
-                .filter(a -> a.getFechaOperacion().isBefore(fechaLimite))
-                .toList();
-            
-            int cantidad = auditoriasAntiguas.size();
-            auditoriaRepository.deleteAll(auditoriasAntiguas);
-            
-            System.out.println("🧹 Limpieza de auditorías: " + cantidad + " registros eliminados");
-            return cantidad;
-            
+            return particionAuditoriaService.purgarAntesDe(LocalDateTime.now().minusDays(dias));
         } catch (Exception e) {
             System.err.println("Error al limpiar auditorías antiguas: " + e.getMessage());
             return 0;
@@ -330,10 +367,7 @@ public class AuditoriaService {
     @Transactional(readOnly = true)
     public List<Auditoria> obtenerUltimasAuditorias(int limite) {
         try {
-            return auditoriaRepository.findAll().stream()
-                .sorted((a1, a2) -> a2.getFechaOperacion().compareTo(a1.getFechaOperacion()))
-                .limit(limite)
-                .toList();
+            return auditoriaAnaliticaService.obtenerUltimas(limite);
         } catch (Exception e) {
             System.err.println("Error al obtener últimas auditorías: " + e.getMessage());
             throw new RuntimeException("Error al obtener últimas auditorías", e);
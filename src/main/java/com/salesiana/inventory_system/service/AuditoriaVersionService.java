@@ -0,0 +1,288 @@
+package com.salesiana.inventory_system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.salesiana.inventory_system.entity.Auditoria;
+import com.salesiana.inventory_system.repository.AuditoriaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Versiones de los registros auditados.
+ *
+ * Un INSERT guarda la instantánea completa en datos_nuevos; un UPDATE guarda solo los campos que
+ * cambiaron: sus valores anteriores en datos_anteriores y los nuevos en datos_nuevos. Una fila con
+ * datos_nuevos y sin datos_anteriores es una versión completa (INSERT, o UPDATE sin versión previa
+ * conocida); cualquier versión histórica se reconstruye desde la última completa aplicando los
+ * cambios posteriores en orden.
+ *
+ * Para calcular el cambio sin releer el registro se conserva en memoria la última versión auditada
+ * de los registros modificados recientemente (LRU de app.auditoria.versiones.max-registros). Los
+ * registros con eventos todavía en la cola de AuditoriaEscritorService no se desalojan: la tabla
+ * aún no tiene esos cambios y una reconstrucción desde ella daría una versión atrasada. Si aun así
+ * falta la versión de un registro con eventos pendientes (porque uno se descartó), se guarda la
+ * instantánea completa en lugar de un cambio.
+ *
+ * La búsqueda, la comparación y el registro de la versión nueva se hacen bajo un bloqueo por
+ * registro, así dos cambios simultáneos del mismo registro no se comparan contra la misma base.
+ */
+@Service
+public class AuditoriaVersionService {
+
+    /**
+     * Campos modificados por un UPDATE: valores anteriores y nuevos
+     */
+    public record Cambio(String datosAnteriores, String datosNuevos) {
+    }
+
+    @Autowired
+    private AuditoriaRepository auditoriaRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ArchivoAuditoriaService archivoAuditoriaService;
+
+    @Value("${app.auditoria.versiones.max-registros:5000}")
+    private int maxRegistros;
+
+    // Última versión auditada por registro ("tabla:id"), en orden de acceso
+    private final LinkedHashMap<String, ObjectNode> ultimasVersiones = new LinkedHashMap<>(256, 0.75f, true);
+
+    // Eventos en la cola del escritor por registro
+    private final Map<String, Integer> pendientes = new HashMap<>();
+
+    // Bloqueos por registro, repartidos por hash
+    private final Object[] bloqueos = Stream.generate(Object::new).limit(64).toArray();
+
+    /**
+     * Recuerda la versión completa que acaba de auditarse (INSERT o UPDATE sin versión previa)
+     */
+    public void recordarVersion(String tabla, Integer registroId, String instantanea) {
+        if (registroId == null || instantanea == null) {
+            return;
+        }
+        String clave = clave(tabla, registroId);
+        try {
+            ObjectNode version = (ObjectNode) objectMapper.readTree(instantanea);
+            synchronized (bloqueo(clave)) {
+                recordarProvisional(clave, version);
+            }
+        } catch (JsonProcessingException | ClassCastException e) {
+            System.err.println("Instantánea de auditoría no válida para " + tabla + " " + registroId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compara la instantánea nueva con la última versión auditada del registro.
+     *
+     * @return el cambio a guardar; con datosAnteriores null si no se conoce versión previa (se guarda
+     * la instantánea completa), o null si no cambió ningún campo
+     */
+    public Cambio calcularCambio(String tabla, Integer registroId, String instantanea) throws JsonProcessingException {
+        if (registroId == null) {
+            return new Cambio(null, instantanea);
+        }
+        ObjectNode nueva = (ObjectNode) objectMapper.readTree(instantanea);
+        String clave = clave(tabla, registroId);
+
+        ObjectNode anterior;
+        synchronized (bloqueo(clave)) {
+            anterior = buscarEnMemoria(clave);
+            if (anterior == null && !tienePendientes(clave)) {
+                anterior = reconstruirDesdeTabla(tabla, registroId, LocalDateTime.now());
+            }
+            recordarProvisional(clave, nueva);
+        }
+
+        if (anterior == null) {
+            return new Cambio(null, instantanea);
+        }
+
+        ObjectNode valoresAnteriores = objectMapper.createObjectNode();
+        ObjectNode valoresNuevos = objectMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> campos = nueva.fields();
+        while (campos.hasNext()) {
+            Map.Entry<String, JsonNode> campo = campos.next();
+            JsonNode valorAnterior = anterior.path(campo.getKey());
+            if (!campo.getValue().equals(valorAnterior.isMissingNode() ? null : valorAnterior)) {
+                valoresAnteriores.set(campo.getKey(), valorAnterior.isMissingNode() ? objectMapper.nullNode() : valorAnterior);
+                valoresNuevos.set(campo.getKey(), campo.getValue());
+            }
+        }
+        if (valoresNuevos.isEmpty()) {
+            return null;
+        }
+        return new Cambio(objectMapper.writeValueAsString(valoresAnteriores), objectMapper.writeValueAsString(valoresNuevos));
+    }
+
+    /**
+     * Olvida la última versión del registro (su auditoría no se pudo escribir); el próximo cambio
+     * se calcula contra la versión reconstruida desde lo que sí quedó guardado
+     */
+    public synchronized void olvidarVersion(String tabla, Integer registroId) {
+        if (registroId != null) {
+            ultimasVersiones.remove(clave(tabla, registroId));
+        }
+    }
+
+    /**
+     * Un evento del registro entra en la cola del escritor: su versión no se desaloja hasta
+     * liberarVersion
+     */
+    public synchronized void retenerVersion(String tabla, Integer registroId) {
+        if (registroId != null) {
+            pendientes.merge(clave(tabla, registroId), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * El evento ya se escribió, se descartó o su transacción se revirtió
+     */
+    public synchronized void liberarVersion(String tabla, Integer registroId) {
+        if (registroId != null) {
+            pendientes.computeIfPresent(clave(tabla, registroId), (clave, cantidad) -> cantidad > 1 ? cantidad - 1 : null);
+        }
+    }
+
+    //============================================
+    // RECONSTRUCCIÓN
+    //============================================
+    /**
+     * Reconstruye el registro tal como estaba en la fecha indicada. Si su última versión completa
+     * ya pasó al archivo en disco, se parte del historial archivado y se siguen aplicando los
+     * cambios que quedan en la tabla
+     *
+     * @return la versión, o null si no hay auditoría completa del registro hasta esa fecha
+     */
+    @Transactional(readOnly = true)
+    public ObjectNode reconstruirVersion(String tabla, Integer registroId, LocalDateTime fecha) {
+        ObjectNode version = reconstruirDesdeTabla(tabla, registroId, fecha);
+        if (version != null || archivoAuditoriaService.obtenerArchivadoHasta() == null) {
+            return version;
+        }
+
+        try {
+            Auditoria ultima = null;
+            for (Auditoria fila : archivoAuditoriaService.buscarHistorialRegistro(tabla, registroId, fecha)) {
+                if (fila.getDatosNuevos() == null) {
+                    continue;
+                }
+                if (fila.getDatosAnteriores() == null) {
+                    version = (ObjectNode) objectMapper.readTree(fila.getDatosNuevos());
+                } else if (version != null) {
+                    version.setAll((ObjectNode) objectMapper.readTree(fila.getDatosNuevos()));
+                }
+                ultima = fila;
+            }
+            if (version == null) {
+                return null;
+            }
+            aplicarCambiosPosteriores(version, tabla, registroId, ultima, fecha);
+            return version;
+        } catch (JsonProcessingException | ClassCastException e) {
+            throw new RuntimeException("No se pudo reconstruir " + tabla + " " + registroId + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reconstrucción solo con la tabla caliente; es la que usa calcularCambio, que no debe leer el
+     * archivo en disco: sin versión completa en la tabla se guarda una nueva
+     */
+    private ObjectNode reconstruirDesdeTabla(String tabla, Integer registroId, LocalDateTime fecha) {
+        List<Auditoria> bases = auditoriaRepository.findVersionesCompletas(tabla, registroId, fecha, PageRequest.of(0, 1));
+        if (bases.isEmpty()) {
+            return null;
+        }
+        Auditoria base = bases.get(0);
+
+        try {
+            ObjectNode version = (ObjectNode) objectMapper.readTree(base.getDatosNuevos());
+            aplicarCambiosPosteriores(version, tabla, registroId, base, fecha);
+            return version;
+        } catch (JsonProcessingException | ClassCastException e) {
+            throw new RuntimeException("No se pudo reconstruir " + tabla + " " + registroId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void aplicarCambiosPosteriores(ObjectNode version, String tabla, Integer registroId, Auditoria desde,
+                                           LocalDateTime fecha) throws JsonProcessingException {
+        for (Auditoria cambio : auditoriaRepository.findCambiosPosteriores(tabla, registroId,
+                desde.getFechaOperacion(), desde.getId(), fecha)) {
+            version.setAll((ObjectNode) objectMapper.readTree(cambio.getDatosNuevos()));
+        }
+    }
+
+    //============================================
+    // VERSIONES EN MEMORIA
+    //============================================
+    private synchronized ObjectNode buscarEnMemoria(String clave) {
+        ObjectNode version = ultimasVersiones.get(clave);
+        return version != null ? version.deepCopy() : null;
+    }
+
+    /**
+     * La versión se recuerda en el momento, para que el siguiente cambio del registro se compare
+     * contra ella aunque su transacción no haya terminado. Si la transacción se revierte se olvida:
+     * el próximo cambio se calcula contra lo que sí quedó auditado
+     */
+    private void recordarProvisional(String clave, ObjectNode version) {
+        recordarEnMemoria(clave, version);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        olvidar(clave);
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized void olvidar(String clave) {
+        ultimasVersiones.remove(clave);
+    }
+
+    private synchronized boolean tienePendientes(String clave) {
+        return pendientes.containsKey(clave);
+    }
+
+    /**
+     * Desaloja las menos usadas que no tengan eventos pendientes; con muchos pendientes el mapa
+     * puede superar max-registros, como mucho en la capacidad de la cola del escritor
+     */
+    private synchronized void recordarEnMemoria(String clave, ObjectNode version) {
+        ultimasVersiones.put(clave, version);
+        Iterator<String> masAntiguas = ultimasVersiones.keySet().iterator();
+        while (ultimasVersiones.size() > maxRegistros && masAntiguas.hasNext()) {
+            if (!pendientes.containsKey(masAntiguas.next())) {
+                masAntiguas.remove();
+            }
+        }
+    }
+
+    private Object bloqueo(String clave) {
+        return bloqueos[Math.floorMod(clave.hashCode(), bloqueos.length)];
+    }
+
+    private static String clave(String tabla, Integer registroId) {
+        return tabla + ":" + registroId;
+    }
+}
@@ -0,0 +1,287 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.Categoria;
+import com.salesiana.inventory_system.entity.Rol;
+import com.salesiana.inventory_system.entity.TipoAlerta;
+import com.salesiana.inventory_system.entity.TipoMovimiento;
+import com.salesiana.inventory_system.entity.UbicacionAlmacen;
+import com.salesiana.inventory_system.repository.CategoriaRepository;
+import com.salesiana.inventory_system.repository.RolRepository;
+import com.salesiana.inventory_system.repository.TipoAlertaRepository;
+import com.salesiana.inventory_system.repository.TipoMovimientoRepository;
+import com.salesiana.inventory_system.repository.UbicacionAlmacenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Catálogos pequeños que casi no cambian (tipos de movimiento, tipos de alerta, categorías, roles
+ * y ubicaciones), en memoria.
+ *
+ * Cada catálogo se carga completo al arrancar en mapas inmutables por id y por código. Cuando el
+ * servicio que lo modifica termina su transacción se descarta, y la siguiente consulta lo vuelve a
+ * cargar entero y lo publica con una sola asignación. Cada descarte incrementa la versión del
+ * catálogo: una recarga que leyó las filas antes del descarte vuelve a leerlas en lugar de
+ * publicar datos anteriores al cambio. Si se busca un id o código que no está, se recarga el catálogo una vez (como mucho
+ * cada RECARGA_MINIMA_MS) por si la fila se insertó por fuera de la aplicación.
+ *
+ * Las instancias son compartidas entre peticiones: sirven como referencia y para mostrar, no para
+ * modificarlas. La capacidad actual de las ubicaciones cambia con cada transferencia, así que los
+ * listados que la muestran siguen leyendo de UbicacionAlmacenService.
+ */
+@Service
+public class CatalogoService {
+
+    private static final long RECARGA_MINIMA_MS = 10_000;
+
+    @Autowired
+    private TipoMovimientoRepository tipoMovimientoRepository;
+
+    @Autowired
+    private TipoAlertaRepository tipoAlertaRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private RolRepository rolRepository;
+
+    @Autowired
+    private UbicacionAlmacenRepository ubicacionAlmacenRepository;
+
+    private Catalogo<TipoMovimiento> tiposMovimiento;
+    private Catalogo<TipoAlerta> tiposAlerta;
+    private Catalogo<Categoria> categorias;
+    private Catalogo<Rol> roles;
+    private Catalogo<UbicacionAlmacen> ubicaciones;
+
+    @PostConstruct
+    public void iniciar() {
+        Sort porId = Sort.by("id");
+        tiposMovimiento = new Catalogo<>("tiposMovimiento", () -> tipoMovimientoRepository.findAll(porId),
+                TipoMovimiento::getId, TipoMovimiento::getCodigo);
+        tiposAlerta = new Catalogo<>("tiposAlerta", () -> tipoAlertaRepository.findAll(porId),
+                TipoAlerta::getId, TipoAlerta::getCodigo);
+        categorias = new Catalogo<>("categorias", () -> categoriaRepository.findAll(porId),
+                Categoria::getId, Categoria::getNombre);
+        roles = new Catalogo<>("roles", () -> rolRepository.findAll(porId),
+                Rol::getId, Rol::getCodigo);
+        ubicaciones = new Catalogo<>("ubicaciones", () -> ubicacionAlmacenRepository.findAll(porId),
+                UbicacionAlmacen::getId, UbicacionAlmacen::getCodigo);
+    }
+
+    /**
+     * Carga inicial, después de DataInitializer
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarCatalogos() {
+        for (Catalogo<?> catalogo : todos()) {
+            catalogo.recargar();
+        }
+        System.out.println("📚 Catálogos en memoria: " + tiposMovimiento.todos().size() + " tipos de movimiento, "
+                + tiposAlerta.todos().size() + " tipos de alerta, " + categorias.todos().size() + " categorías, "
+                + roles.todos().size() + " roles, " + ubicaciones.todos().size() + " ubicaciones");
+    }
+
+    public Catalogo<TipoMovimiento> tiposMovimiento() {
+        return tiposMovimiento;
+    }
+
+    public Catalogo<TipoAlerta> tiposAlerta() {
+        return tiposAlerta;
+    }
+
+    /**
+     * Categorías por id y por nombre
+     */
+    public Catalogo<Categoria> categorias() {
+        return categorias;
+    }
+
+    public Catalogo<Rol> roles() {
+        return roles;
+    }
+
+    public Catalogo<UbicacionAlmacen> ubicaciones() {
+        return ubicaciones;
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        for (Catalogo<?> catalogo : todos()) {
+            estadisticas.put(catalogo.nombre, catalogo.obtenerEstadisticas());
+        }
+        return estadisticas;
+    }
+
+    private List<Catalogo<?>> todos() {
+        return List.of(tiposMovimiento, tiposAlerta, categorias, roles, ubicaciones);
+    }
+
+    //============================================
+    // CATÁLOGO
+    //============================================
+    /**
+     * Un catálogo en memoria. Las consultas leen la instantánea vigente sin bloquear
+     */
+    public static final class Catalogo<T> {
+
+        private record Instantanea<T>(List<T> todos, Map<Integer, T> porId, Map<String, T> porCodigo,
+                                      long cargadoEn) {
+        }
+
+        private final String nombre;
+        private final Supplier<List<T>> cargador;
+        private final Function<T, Integer> id;
+        private final Function<T, String> codigo;
+
+        private volatile Instantanea<T> instantanea;
+
+        // Se incrementa en cada descarte, antes de vaciar la instantánea
+        private final AtomicLong version = new AtomicLong();
+
+        private final AtomicLong aciertos = new AtomicLong();
+        private final AtomicLong fallos = new AtomicLong();
+        private final AtomicLong recargas = new AtomicLong();
+
+        private Catalogo(String nombre, Supplier<List<T>> cargador, Function<T, Integer> id,
+                         Function<T, String> codigo) {
+            this.nombre = nombre;
+            this.cargador = cargador;
+            this.id = id;
+            this.codigo = codigo;
+        }
+
+        public Optional<T> porId(Integer clave) {
+            return buscar(clave, Instantanea::porId);
+        }
+
+        public Optional<T> porCodigo(String clave) {
+            return buscar(clave, Instantanea::porCodigo);
+        }
+
+        /**
+         * Todas las filas (activas e inactivas) en orden de id, lista inmutable
+         */
+        public List<T> todos() {
+            return obtenerInstantanea().todos();
+        }
+
+        /**
+         * Descarta el catálogo al terminar la transacción en curso (confirmada o no, para no
+         * conservar instancias modificadas), o ya si no hay transacción
+         */
+        public void descartarAlTerminar() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        descartar();
+                    }
+                });
+            } else {
+                descartar();
+            }
+        }
+
+        private void descartar() {
+            version.incrementAndGet();
+            instantanea = null;
+        }
+
+        private <K> Optional<T> buscar(K clave, Function<Instantanea<T>, Map<K, T>> mapa) {
+            if (clave == null) {
+                return Optional.empty();
+            }
+            Instantanea<T> actual = obtenerInstantanea();
+            T valor = mapa.apply(actual).get(clave);
+            if (valor != null) {
+                aciertos.incrementAndGet();
+                return Optional.of(valor);
+            }
+
+            fallos.incrementAndGet();
+            if (System.currentTimeMillis() - actual.cargadoEn() >= RECARGA_MINIMA_MS) {
+                valor = mapa.apply(recargar()).get(clave);
+            }
+            return Optional.ofNullable(valor);
+        }
+
+        private Instantanea<T> obtenerInstantanea() {
+            Instantanea<T> actual = instantanea;
+            return actual != null ? actual : cargarSiFalta();
+        }
+
+        private synchronized Instantanea<T> cargarSiFalta() {
+            Instantanea<T> actual = instantanea;
+            return actual != null ? actual : recargar();
+        }
+
+        /**
+         * Publica la instantánea y comprueba después que no hubo un descarte desde que empezó la
+         * lectura; si lo hubo, vuelve a leer. Un descarte posterior a la comprobación vacía lo
+         * publicado, así que nunca queda vigente una lectura anterior al cambio
+         */
+        private synchronized Instantanea<T> recargar() {
+            while (true) {
+                long versionLeida = version.get();
+                Instantanea<T> nueva = leer();
+                instantanea = nueva;
+                recargas.incrementAndGet();
+                if (version.get() == versionLeida) {
+                    return nueva;
+                }
+            }
+        }
+
+        private Instantanea<T> leer() {
+            List<T> filas = new ArrayList<>(cargador.get());
+            Map<Integer, T> porId = new LinkedHashMap<>();
+            Map<String, T> porCodigo = new LinkedHashMap<>();
+            for (T fila : filas) {
+                porId.put(id.apply(fila), fila);
+                if (codigo.apply(fila) != null) {
+                    porCodigo.put(codigo.apply(fila), fila);
+                }
+            }
+            return new Instantanea<>(Collections.unmodifiableList(filas),
+                    Collections.unmodifiableMap(porId), Collections.unmodifiableMap(porCodigo),
+                    System.currentTimeMillis());
+        }
+
+        private Map<String, Object> obtenerEstadisticas() {
+            Instantanea<T> actual = instantanea;
+            long totalAciertos = aciertos.get();
+            long totalFallos = fallos.get();
+            long consultas = totalAciertos + totalFallos;
+
+            Map<String, Object> estadisticas = new LinkedHashMap<>();
+            estadisticas.put("entradas", actual != null ? actual.todos().size() : 0);
+            estadisticas.put("aciertos", totalAciertos);
+            estadisticas.put("fallos", totalFallos);
+            estadisticas.put("tasaAciertos", consultas > 0 ? (double) totalAciertos / consultas : 0.0);
+            estadisticas.put("recargas", recargas.get());
+            estadisticas.put("cargadoEn", actual != null
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(actual.cargadoEn()), ZoneId.systemDefault()) : null);
+            return estadisticas;
+        }
+    }
+}
@@ -16,14 +16,18 @@ public class CategoriaService {
     @Autowired
     private CategoriaRepository categoriaRepository;
 
-    @Transactional(readOnly = true)
+    @Autowired
+    private CatalogoService catalogoService;
+
+    // Listados para formularios y filtros: catálogo en memoria (para editar, obtenerCategoriaPorId)
     public List<Categoria> obtenerTodasCategorias() {
-        return categoriaRepository.findAll();
+        return catalogoService.categorias().todos();
     }
 
-    @Transactional(readOnly = true)
     public List<Categoria> obtenerCategoriasActivas() {
-        return categoriaRepository.findByActivaTrue();
+        return catalogoService.categorias().todos().stream()
+                .filter(categoria -> Boolean.TRUE.equals(categoria.getActiva()))
+                .toList();
     }
 
     @Transactional
@@ -55,7 +59,9 @@ public class CategoriaService {
                 categoria.setActiva(true);
             }
 
-            return categoriaRepository.save(categoria);
+            Categoria guardada = categoriaRepository.save(categoria);
+            catalogoService.categorias().descartarAlTerminar();
+            return guardada;
             
         } catch (RuntimeException e) {
             // Re-lanzar RuntimeException para que el controller lo capture
@@ -74,6 +80,7 @@ public class CategoriaService {
     @Transactional
     public void eliminarCategoria(Integer id) {
         categoriaRepository.deleteById(id);
+        catalogoService.categorias().descartarAlTerminar();
     }
 
     // ✅ NUEVO: Método específico para desactivar sin validaciones
@@ -85,6 +92,7 @@ public class CategoriaService {
         categoria.setFechaActualizacion(LocalDateTime.now());
         // Guardar directamente sin pasar por validaciones
         categoriaRepository.save(categoria);
+        catalogoService.categorias().descartarAlTerminar();
     }
 
     // ✅ NUEVO: Método específico para activar sin validaciones
@@ -96,6 +104,7 @@ public class CategoriaService {
         categoria.setFechaActualizacion(LocalDateTime.now());
         // Guardar directamente sin pasar por validaciones
         categoriaRepository.save(categoria);
+        catalogoService.categorias().descartarAlTerminar();
     }
 
     // ✅ NUEVO: Método para cambiar estado (toggle)
@@ -107,5 +116,6 @@ public class CategoriaService {
         categoria.setFechaActualizacion(LocalDateTime.now());
         // Guardar directamente sin pasar por validaciones
         categoriaRepository.save(categoria);
+        catalogoService.categorias().descartarAlTerminar();
     }
 }
\ No newline at end of file
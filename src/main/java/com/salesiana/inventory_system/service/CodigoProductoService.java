@@ -2,45 +2,180 @@ package com.salesiana.inventory_system.service;
 
 import com.salesiana.inventory_system.entity.Producto;
 import com.salesiana.inventory_system.entity.UbicacionAlmacen;
-import com.salesiana.inventory_system.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Genera los códigos de producto RUTA_UBI-CAT-NOM-SEQ.
+ *
+ * El número de secuencia sale de la tabla secuencias_codigo_producto, que guarda por prefijo el
+ * siguiente número libre. Cada instancia reserva bloques de app.productos.codigo.bloque números
+ * (hi-lo) en una transacción propia y los reparte desde memoria, así que generar un código no
+ * consulta la base de datos salvo al agotar el bloque, y dos altas concurrentes nunca reciben el
+ * mismo número. Los números de un bloque no usado (reinicio, alta revertida) quedan como huecos.
+ *
+ * Las rutas de ubicación se arman con una sola consulta sobre ubicaciones_almacen y se guardan
+ * en memoria hasta que UbicacionAlmacenService modifica una ubicación.
+ */
 @Service
 public class CodigoProductoService {
 
+    private static final String SQL_SIGUIENTE =
+            "SELECT siguiente FROM secuencias_codigo_producto WHERE prefijo = ? FOR UPDATE";
+
+    private static final String SQL_CREAR =
+            "INSERT IGNORE INTO secuencias_codigo_producto (prefijo, siguiente) VALUES (?, ?)";
+
+    private static final String SQL_AVANZAR =
+            "UPDATE secuencias_codigo_producto SET siguiente = siguiente + ? WHERE prefijo = ?";
+
     @Autowired
-    private ProductoRepository productoRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.productos.codigo.bloque:10}")
+    private int tamanoBloque;
+
+    private TransactionTemplate transaccion;
+
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
+    private volatile Map<Integer, String> rutas;
+
+    /**
+     * Números reservados para un prefijo: de siguiente (incluido) a limite (excluido)
+     */
+    private static class Bloque {
+        private int siguiente;
+        private int limite;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        // La reserva confirma enseguida: no retiene el contador durante el alta del producto
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
 
     public String generarCodigoUnico(Producto producto, UbicacionAlmacen ubicacion) {
         // Obtener la ruta completa de la ubicación
         String rutaUbicacion = obtenerRutaUbicacion(ubicacion);
-        
+
         // Obtener las primeras 3 letras de la categoría
         String categoriaCode = producto.getCategoria().getNombre().replaceAll("\\s+", "")
                 .substring(0, Math.min(3, producto.getCategoria().getNombre().replaceAll("\\s+", "").length())).toUpperCase();
-        
+
         // Obtener las primeras 3 letras del nombre del producto
         String nombreCode = producto.getNombre().replaceAll("\\s+", "")
                 .substring(0, Math.min(3, producto.getNombre().replaceAll("\\s+", "").length())).toUpperCase();
-        
+
         // Formato: RUTA_UBI-CAT-NOM-SEQ
         String codigoBase = rutaUbicacion + "-" + categoriaCode + "-" + nombreCode;
-        
-        // Buscar secuencia
-        int secuencia = 1;
-        while (productoRepository.findByCodigo(codigoBase + "-" + String.format("%03d", secuencia)).isPresent()) {
-            secuencia++;
+
+        return codigoBase + "-" + String.format("%03d", siguienteSecuencia(codigoBase));
+    }
+
+    /**
+     * Descarta las rutas en memoria (se llama al crear, modificar o eliminar ubicaciones)
+     */
+    public void invalidarRutas() {
+        rutas = null;
+    }
+
+    //============================================
+    // SECUENCIAS
+    //============================================
+    private int siguienteSecuencia(String prefijo) {
+        Bloque bloque = bloques.computeIfAbsent(prefijo, p -> new Bloque());
+        synchronized (bloque) {
+            if (bloque.siguiente >= bloque.limite) {
+                bloque.siguiente = reservarBloque(prefijo);
+                bloque.limite = bloque.siguiente + tamanoBloque;
+            }
+            return bloque.siguiente++;
         }
-        
-        return codigoBase + "-" + String.format("%03d", secuencia);
     }
-    
+
+    /**
+     * Avanza el contador del prefijo en un bloque y devuelve el primer número reservado
+     */
+    private int reservarBloque(String prefijo) {
+        return transaccion.execute(estado -> {
+            List<Integer> actual = jdbcTemplate.queryForList(SQL_SIGUIENTE, Integer.class, prefijo);
+            if (actual.isEmpty()) {
+                // Primer uso del prefijo: continuar después de los códigos que ya existan
+                jdbcTemplate.update(SQL_CREAR, prefijo, buscarMayorSecuencia(prefijo) + 1);
+                actual = jdbcTemplate.queryForList(SQL_SIGUIENTE, Integer.class, prefijo);
+            }
+            jdbcTemplate.update(SQL_AVANZAR, tamanoBloque, prefijo);
+            return actual.get(0);
+        });
+    }
+
+    /**
+     * Mayor número ya usado con el prefijo (productos creados antes de existir el contador)
+     */
+    private int buscarMayorSecuencia(String prefijo) {
+        String patron = prefijo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "-%";
+        int mayor = 0;
+        for (String codigo : jdbcTemplate.queryForList("SELECT codigo FROM productos WHERE codigo LIKE ?",
+                String.class, patron)) {
+            String sufijo = codigo.substring(prefijo.length() + 1);
+            if (!sufijo.isEmpty() && sufijo.length() <= 9 && sufijo.chars().allMatch(Character::isDigit)) {
+                mayor = Math.max(mayor, Integer.parseInt(sufijo));
+            }
+        }
+        return mayor;
+    }
+
+    //============================================
+    // RUTAS DE UBICACIÓN
+    //============================================
     private String obtenerRutaUbicacion(UbicacionAlmacen ubicacion) {
-        if (ubicacion.getUbicacionPadre() == null) {
-            return ubicacion.getCodigo();
-        } else {
-            return obtenerRutaUbicacion(ubicacion.getUbicacionPadre()) + "_" + ubicacion.getCodigo();
+        Map<Integer, String> cache = rutas;
+        String ruta = cache != null ? cache.get(ubicacion.getId()) : null;
+        if (ruta == null) {
+            cache = cargarRutas();
+            rutas = cache;
+            ruta = cache.get(ubicacion.getId());
+        }
+        return ruta != null ? ruta : ubicacion.getCodigo();
+    }
+
+    /**
+     * Rutas (CODIGO_PADRE_..._CODIGO) de todas las ubicaciones con una consulta
+     */
+    private Map<Integer, String> cargarRutas() {
+        Map<Integer, String> codigos = new HashMap<>();
+        Map<Integer, Integer> padres = new HashMap<>();
+        jdbcTemplate.query("SELECT id, codigo, ubicacion_padre_id FROM ubicaciones_almacen", rs -> {
+            codigos.put(rs.getInt("id"), rs.getString("codigo"));
+            padres.put(rs.getInt("id"), (Integer) rs.getObject("ubicacion_padre_id"));
+        });
+
+        Map<Integer, String> resultado = new ConcurrentHashMap<>();
+        for (Integer id : codigos.keySet()) {
+            StringBuilder ruta = new StringBuilder(codigos.get(id));
+            Integer padre = padres.get(id);
+            // El límite evita un ciclo infinito si los datos tuvieran una referencia circular
+            for (int nivel = 0; padre != null && codigos.containsKey(padre) && nivel < codigos.size(); nivel++) {
+                ruta.insert(0, codigos.get(padre) + "_");
+                padre = padres.get(padre);
+            }
+            resultado.put(id, ruta.toString());
         }
+        return resultado;
     }
-}
\ No newline at end of file
+}
@@ -11,59 +11,250 @@ package com.salesiana.inventory_system.service;
 import com.salesiana.inventory_system.entity.ConfiguracionSistema;
 import com.salesiana.inventory_system.repository.ConfiguracionSistemaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Parámetros de configuracion_sistema.
+ *
+ * La tabla se carga completa en una instantánea inmutable con los valores ya convertidos (entero,
+ * booleano, duración), publicada con una sola asignación: las lecturas no consultan la base de
+ * datos, no bloquean y no vuelven a convertir el texto. Se recarga al confirmar guardarConfiguracion
+ * y cada app.configuracion.recarga.intervalo si cambia la huella de la tabla (filas, última
+ * actualización y CRC de clave/valor/tipo), para recoger cambios hechos por fuera de la aplicación.
+ */
 @Service
 public class ConfiguracionSistemaService {
-    
+
+    private static final String SQL_VALORES =
+            "SELECT clave, valor, tipo_dato FROM configuracion_sistema";
+
+    private static final String SQL_HUELLA =
+            "SELECT CONCAT(COUNT(*), '/', COALESCE(MAX(fecha_actualizacion), ''), '/', "
+            + "COALESCE(SUM(CRC32(CONCAT_WS('|', clave, valor, tipo_dato))), 0)) FROM configuracion_sistema";
+
     @Autowired
     private ConfiguracionSistemaRepository configuracionSistemaRepository;
-    
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Instantanea instantanea;
+
+    private final AtomicLong recargas = new AtomicLong();
+
+    /**
+     * Valor de un parámetro convertido al cargar. entero y booleano solo se rellenan si el tipo de
+     * dato lo indica; duracion admite ISO-8601 (PT30S), sufijos (30s, 5m, 2h) o milisegundos
+     */
+    private record Valor(String texto, ConfiguracionSistema.TipoDato tipo, Integer entero, Long largo,
+                         Boolean booleano, Duration duracion) {
+    }
+
+    private record Instantanea(Map<String, Valor> valores, String huella, long cargadoEn) {
+    }
+
+    /**
+     * Carga inicial, después de DataInitializer
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarConfiguracion() {
+        Instantanea nueva = recargar();
+        System.out.println("⚙️ Configuración del sistema en memoria: " + nueva.valores().size() + " parámetros");
+    }
+
+    /**
+     * Entidad completa para editarla (consulta la base de datos)
+     */
     public Optional<ConfiguracionSistema> obtenerConfiguracion(String clave) {
         return configuracionSistemaRepository.findByClave(clave);
     }
-    
+
+    //============================================
+    // LECTURAS TIPADAS
+    //============================================
+    public String obtenerTexto(String clave, String valorPorDefecto) {
+        Valor valor = buscar(clave);
+        return valor != null && valor.texto() != null ? valor.texto() : valorPorDefecto;
+    }
+
+    public int obtenerEntero(String clave, int valorPorDefecto) {
+        Valor valor = buscar(clave);
+        return valor != null && valor.entero() != null ? valor.entero() : valorPorDefecto;
+    }
+
+    public long obtenerLargo(String clave, long valorPorDefecto) {
+        Valor valor = buscar(clave);
+        return valor != null && valor.largo() != null ? valor.largo() : valorPorDefecto;
+    }
+
+    public boolean obtenerBooleano(String clave, boolean valorPorDefecto) {
+        Valor valor = buscar(clave);
+        return valor != null && valor.booleano() != null ? valor.booleano() : valorPorDefecto;
+    }
+
+    public Duration obtenerDuracion(String clave, Duration valorPorDefecto) {
+        Valor valor = buscar(clave);
+        return valor != null && valor.duracion() != null ? valor.duracion() : valorPorDefecto;
+    }
+
     public String obtenerValorConfiguracion(String clave, String valorPorDefecto) {
-        return configuracionSistemaRepository.findByClave(clave)
-                .map(ConfiguracionSistema::getValor)
-                .orElse(valorPorDefecto);
+        return obtenerTexto(clave, valorPorDefecto);
     }
-    
+
     public Integer obtenerValorConfiguracionEntero(String clave, Integer valorPorDefecto) {
-        try {
-            return configuracionSistemaRepository.findByClave(clave)
-                    .map(config -> {
-                        // Verificar el tipo de dato
-                        if (config.getTipoDato() == ConfiguracionSistema.TipoDato.INTEGER) {
-                            return Integer.parseInt(config.getValor());
-                        }
-                        return valorPorDefecto;
-                    })
-                    .orElse(valorPorDefecto);
-        } catch (NumberFormatException e) {
-            return valorPorDefecto;
-        }
+        Valor valor = buscar(clave);
+        return valor != null && valor.entero() != null ? valor.entero() : valorPorDefecto;
     }
-    
+
     public Boolean obtenerValorConfiguracionBooleano(String clave, Boolean valorPorDefecto) {
-        return configuracionSistemaRepository.findByClave(clave)
-                .map(config -> {
-                    // Verificar el tipo de dato
-                    if (config.getTipoDato() == ConfiguracionSistema.TipoDato.BOOLEAN) {
-                        return Boolean.parseBoolean(config.getValor());
-                    }
-                    return valorPorDefecto;
-                })
-                .orElse(valorPorDefecto);
+        Valor valor = buscar(clave);
+        return valor != null && valor.booleano() != null ? valor.booleano() : valorPorDefecto;
     }
-    
+
+    public boolean existeConfiguracion(String clave) {
+        return buscar(clave) != null;
+    }
+
+    //============================================
+    // ESCRITURA Y RECARGA
+    //============================================
     public ConfiguracionSistema guardarConfiguracion(ConfiguracionSistema configuracion) {
-        return configuracionSistemaRepository.save(configuracion);
+        ConfiguracionSistema guardada = configuracionSistemaRepository.save(configuracion);
+        recargarAlConfirmar();
+        return guardada;
     }
-    
-    public boolean existeConfiguracion(String clave) {
-        return configuracionSistemaRepository.existsByClave(clave);
+
+    /**
+     * Recarga la instantánea si la tabla cambió desde la última carga
+     */
+    @Scheduled(initialDelayString = "${app.configuracion.recarga.intervalo:PT30S}",
+            fixedDelayString = "${app.configuracion.recarga.intervalo:PT30S}")
+    public void detectarCambios() {
+        try {
+            Instantanea actual = instantanea;
+            if (actual == null || !actual.huella().equals(calcularHuella())) {
+                recargar();
+                System.out.println("🔄 Configuración del sistema recargada por cambios en la tabla");
+            }
+        } catch (RuntimeException e) {
+            // Se conserva la instantánea anterior hasta la siguiente comprobación
+            System.err.println("❌ Error al comprobar cambios en la configuración del sistema: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        Instantanea actual = instantanea;
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("parametros", actual != null ? actual.valores().size() : 0);
+        estadisticas.put("recargas", recargas.get());
+        estadisticas.put("huella", actual != null ? actual.huella() : null);
+        estadisticas.put("cargadoEn", actual != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(actual.cargadoEn()), ZoneId.systemDefault()) : null);
+        return estadisticas;
+    }
+
+    private Valor buscar(String clave) {
+        Instantanea actual = instantanea;
+        if (actual == null) {
+            actual = cargarSiFalta();
+        }
+        return clave != null ? actual.valores().get(clave) : null;
+    }
+
+    private void recargarAlConfirmar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recargar();
+                }
+            });
+        } else {
+            recargar();
+        }
+    }
+
+    private synchronized Instantanea cargarSiFalta() {
+        Instantanea actual = instantanea;
+        return actual != null ? actual : recargar();
+    }
+
+    /**
+     * La huella se lee antes que los valores: si la tabla cambia entre ambas consultas, la
+     * siguiente comprobación verá una huella distinta y volverá a cargar
+     */
+    private synchronized Instantanea recargar() {
+        String huella = calcularHuella();
+        Map<String, Valor> valores = new HashMap<>();
+        jdbcTemplate.query(SQL_VALORES, rs -> {
+            valores.put(rs.getString("clave"), convertir(rs.getString("valor"), tipoDato(rs.getString("tipo_dato"))));
+        });
+
+        Instantanea nueva = new Instantanea(Collections.unmodifiableMap(valores), huella, System.currentTimeMillis());
+        instantanea = nueva;
+        recargas.incrementAndGet();
+        return nueva;
+    }
+
+    private String calcularHuella() {
+        return jdbcTemplate.queryForObject(SQL_HUELLA, String.class);
+    }
+
+    private static ConfiguracionSistema.TipoDato tipoDato(String tipo) {
+        try {
+            return tipo != null ? ConfiguracionSistema.TipoDato.valueOf(tipo) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Valor convertir(String texto, ConfiguracionSistema.TipoDato tipo) {
+        String limpio = texto != null ? texto.trim() : null;
+        Integer entero = null;
+        Long largo = null;
+        Boolean booleano = null;
+        Duration duracion = null;
+
+        if (limpio != null && !limpio.isEmpty()) {
+            if (tipo == ConfiguracionSistema.TipoDato.INTEGER) {
+                try {
+                    largo = Long.parseLong(limpio);
+                    if (largo >= Integer.MIN_VALUE && largo <= Integer.MAX_VALUE) {
+                        entero = largo.intValue();
+                    }
+                } catch (NumberFormatException e) {
+                    // Valor no numérico: las lecturas devuelven el valor por defecto
+                }
+            } else if (tipo == ConfiguracionSistema.TipoDato.BOOLEAN) {
+                booleano = Boolean.parseBoolean(limpio);
+            }
+
+            if (tipo != ConfiguracionSistema.TipoDato.BOOLEAN && tipo != ConfiguracionSistema.TipoDato.JSON) {
+                try {
+                    duracion = DurationStyle.detectAndParse(limpio);
+                } catch (IllegalArgumentException e) {
+                    // No es una duración
+                }
+            }
+        }
+        return new Valor(texto, tipo, entero, largo, booleano, duracion);
     }
-}
\ No newline at end of file
+}
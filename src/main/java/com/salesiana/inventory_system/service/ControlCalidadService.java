@@ -3,16 +3,14 @@ package com.salesiana.inventory_system.service;
 import com.salesiana.inventory_system.entity.*;
 import com.salesiana.inventory_system.repository.ControlCalidadRepository;
 import com.salesiana.inventory_system.repository.LoteRepository;
-import com.salesiana.inventory_system.repository.UsuarioRepository;
-import com.salesiana.inventory_system.repository.UbicacionAlmacenRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -26,10 +24,10 @@ public class ControlCalidadService {
     private LoteRepository loteRepository;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private UsuarioActualService usuarioActualService;
 
     @Autowired
-    private UbicacionAlmacenRepository ubicacionAlmacenRepository;
+    private CatalogoService catalogoService;
 
     @Autowired
     private MovimientoService movimientoService;
@@ -37,6 +35,9 @@ public class ControlCalidadService {
     @Autowired
     private ProveedorService proveedorService;
 
+    @Autowired
+    private EventoInventarioService eventoInventarioService;
+
     public List<ControlCalidad> obtenerPendientesDeInspeccion() {
         return controlCalidadRepository.findPendientesDeInspeccion();
     }
@@ -57,8 +58,8 @@ public class ControlCalidadService {
         return controlCalidadRepository.findById(controlCalidadId).map(control -> {
             control.setEstadoCalidad(EstadoCalidad.EN_REVISION);
             control.setFechaInspeccion(LocalDateTime.now());
-            control.setUsuarioInspector(obtenerUsuarioActual());
-            return controlCalidadRepository.save(control);
+            control.setUsuarioInspector(usuarioActualService.obtenerUsuarioActual().orElse(null));
+            return emitirCambio(controlCalidadRepository.save(control));
         }).orElseThrow(() -> new RuntimeException("Control de calidad no encontrado"));
     }
 
@@ -80,7 +81,7 @@ public class ControlCalidadService {
             }
 
             loteRepository.save(lote);
-            return controlCalidadRepository.save(control);
+            return emitirCambio(controlCalidadRepository.save(control));
         }).orElseThrow(() -> new RuntimeException("Control de calidad no encontrado"));
     }
 
@@ -112,7 +113,7 @@ public class ControlCalidadService {
             }
 
             loteRepository.save(lote);
-            return controlCalidadRepository.save(control);
+            return emitirCambio(controlCalidadRepository.save(control));
         }).orElseThrow(() -> new RuntimeException("Control de calidad no encontrado"));
     }
 
@@ -122,7 +123,7 @@ public class ControlCalidadService {
             control.setObservaciones(observaciones);
 
             // Obtener ubicación de cuarentena (ZONA-Q-E1)
-            UbicacionAlmacen zonaCuarentena = ubicacionAlmacenRepository.findByCodigo("ZONA-Q-E1")
+            UbicacionAlmacen zonaCuarentena = catalogoService.ubicaciones().porCodigo("ZONA-Q-E1")
                 .orElseThrow(() -> new RuntimeException("Ubicación de cuarentena no encontrada"));
 
             // Mover el lote a cuarentena
@@ -131,12 +132,12 @@ public class ControlCalidadService {
             lote.setEstadoCalidad(EstadoCalidad.EN_CUARENTENA);
 
             loteRepository.save(lote);
-            return controlCalidadRepository.save(control);
+            return emitirCambio(controlCalidadRepository.save(control));
         }).orElseThrow(() -> new RuntimeException("Control de calidad no encontrado"));
     }
 
     public ControlCalidad actualizarControl(ControlCalidad controlCalidad) {
-        return controlCalidadRepository.save(controlCalidad);
+        return emitirCambio(controlCalidadRepository.save(controlCalidad));
     }
 
     public Long contarPorEstado(EstadoCalidad estado) {
@@ -160,12 +161,18 @@ public class ControlCalidadService {
         return List.of();
     }
 
-    private Usuario obtenerUsuarioActual() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth != null && auth.isAuthenticated()) {
-            return usuarioRepository.findByUsername(auth.getName()).orElse(null);
-        }
-        return null;
+    /**
+     * Evento de inventario con el nuevo estado de calidad del lote
+     */
+    private ControlCalidad emitirCambio(ControlCalidad control) {
+        Lote lote = control.getLote();
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("estadoCalidad", control.getEstadoCalidad() != null ? control.getEstadoCalidad().name() : null);
+        datos.put("loteId", lote != null ? lote.getId() : null);
+        datos.put("cumpleEspecificaciones", control.getCumpleEspecificaciones());
+        eventoInventarioService.emitir(EventoInventario.Tipo.CALIDAD_CAMBIADA, control.getId(),
+                lote != null && lote.getProducto() != null ? lote.getProducto().getId() : null, datos);
+        return control;
     }
 
     private void registrarDevolucionProveedor(Lote lote, String motivo) {
@@ -184,7 +191,7 @@ public class ControlCalidadService {
             movimiento.setPrecioUnitario(lote.getProducto().getPrecioCompra());
             movimiento.setMotivo("Devolución por calidad: " + motivo);
             movimiento.setDocumentoReferencia("DEV-CAL-" + lote.getId());
-            movimiento.setUsuario(obtenerUsuarioActual());
+            movimiento.setUsuario(usuarioActualService.obtenerUsuarioActual().orElse(null));
 
             // ✅ CORRECCIÓN: Validar y guardar proveedor si es transitorio
             if (lote.getProveedor() != null) {
@@ -217,7 +224,7 @@ public class ControlCalidadService {
             movimiento.setPrecioUnitario(lote.getProducto().getPrecioCompra());
             movimiento.setMotivo("Merma por calidad: " + motivo);
             movimiento.setDocumentoReferencia("MER-CAL-" + lote.getId());
-            movimiento.setUsuario(obtenerUsuarioActual());
+            movimiento.setUsuario(usuarioActualService.obtenerUsuarioActual().orElse(null));
 
             movimientoService.registrarMovimiento(movimiento);
         } catch (Exception e) {
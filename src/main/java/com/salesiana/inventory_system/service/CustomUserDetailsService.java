@@ -18,6 +18,8 @@ import java.util.Collections;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     
+    // Consulta directa, sin la caché de UsuarioActualService: la contraseña y el estado activo
+    // deben ser los confirmados en la base de datos en el momento del login
     @Autowired
     private UsuarioRepository usuarioRepository;
     
@@ -33,7 +35,6 @@ public class CustomUserDetailsService implements UserDetailsService {
                 });
         
         System.out.println("Usuario encontrado: " + usuario.getUsername());
-        System.out.println("Contraseña en BD: " + usuario.getPasswordHash());
         
         // Forzar la carga del rol dentro de la transacción
         if (usuario.getRol() != null) {
@@ -0,0 +1,286 @@
+package com.salesiana.inventory_system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.salesiana.inventory_system.entity.EventoInventario;
+import com.salesiana.inventory_system.repository.EventoInventarioRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bandeja de salida de cambios del inventario.
+ *
+ * Los servicios que registran movimientos, transferencias, controles de calidad y cambios de
+ * producto insertan un EventoInventario en su misma transacción: si se revierte, el evento tampoco
+ * existe. Los eventos de movimiento llevan el stock resultante (del libro de stock o del trigger),
+ * leído en la misma transacción después del INSERT.
+ *
+ * Un relevo programado lee los pendientes en orden de id, en lotes de app.eventos.relevo.lote, los
+ * entrega a cada SuscriptorEventosInventario y los marca como publicados. Un evento de una
+ * transacción que confirma tarde puede llegar después de otros con id mayor, pero nunca se pierde.
+ * La entrega es al menos una vez y sin seguimiento por suscriptor: si un lote falla se vuelve a
+ * entregar evento por evento a los suscriptores que todavía no lo procesaron, pero en las pasadas
+ * siguientes el lote llega otra vez a todos, así que los suscriptores deben ser idempotentes (ver
+ * SuscriptorEventosInventario). Un evento que falla app.eventos.relevo.max-intentos veces se
+ * aparta para no bloquear la bandeja: queda marcado como apartado, con el error, y se conserva
+ * hasta reencolarlo con reencolarApartados.
+ */
+@Service
+public class EventoInventarioService {
+
+    private static final String SQL_INSERTAR = "INSERT INTO eventos_inventario (tipo, entidad_id, producto_id, "
+            + "datos, fecha_evento, publicado) VALUES (?, ?, ?, ?, ?, FALSE)";
+
+    private static final String SQL_STOCK_PRODUCTO =
+            "SELECT stock_actual, stock_minimo, activo FROM productos WHERE id = ?";
+
+    @Autowired
+    private EventoInventarioRepository eventoInventarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private List<SuscriptorEventosInventario> suscriptores = List.of();
+
+    @Value("${app.eventos.relevo.lote:500}")
+    private int tamanoLote;
+
+    @Value("${app.eventos.retencion-dias:7}")
+    private int retencionDias;
+
+    @Value("${app.eventos.relevo.max-intentos:5}")
+    private int maxIntentos;
+
+    private ObjectWriter escritorDatos;
+    private TransactionTemplate transaccion;
+
+    private final AtomicLong publicados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private final AtomicLong apartados = new AtomicLong();
+
+    // Intentos fallidos por evento (solo el relevo los toca, dentro de publicarPendientes)
+    private final Map<Long, Integer> intentosFallidos = new HashMap<>();
+
+    @PostConstruct
+    public void iniciar() {
+        escritorDatos = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    //============================================
+    // EMISIÓN (dentro de la transacción del cambio)
+    //============================================
+    /**
+     * Agrega el evento a la bandeja en la transacción en curso
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public EventoInventario emitir(EventoInventario.Tipo tipo, Integer entidadId, Integer productoId,
+                                   Map<String, Object> datos) {
+        EventoInventario evento = new EventoInventario();
+        evento.setTipo(tipo);
+        evento.setEntidadId(entidadId);
+        evento.setProductoId(productoId);
+        evento.setDatos(convertirDatos(datos));
+        return eventoInventarioRepository.save(evento);
+    }
+
+    /**
+     * Igual que emitir, agregando el stock actual, el mínimo y el estado del producto tal como
+     * están en la base de datos (con el movimiento ya aplicado)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public EventoInventario emitirConStock(EventoInventario.Tipo tipo, Integer entidadId, Integer productoId,
+                                           Map<String, Object> datos) {
+        Map<String, Object> conStock = new LinkedHashMap<>(datos);
+        jdbcTemplate.query(SQL_STOCK_PRODUCTO, rs -> {
+            conStock.put("stockActual", rs.getInt("stock_actual"));
+            conStock.put("stockMinimo", rs.getInt("stock_minimo"));
+            conStock.put("activo", rs.getBoolean("activo"));
+        }, productoId);
+        return emitir(tipo, entidadId, productoId, conStock);
+    }
+
+    /**
+     * Agrega varios eventos con un INSERT por lotes (importaciones masivas)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void emitirLote(List<EventoInventario> eventos) {
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, eventos, tamanoLote, (ps, evento) -> {
+            ps.setString(1, evento.getTipo().name());
+            ps.setObject(2, evento.getEntidadId());
+            ps.setObject(3, evento.getProductoId());
+            ps.setString(4, evento.getDatos());
+            ps.setTimestamp(5, Timestamp.valueOf(evento.getFechaEvento() != null ? evento.getFechaEvento() : ahora));
+        });
+    }
+
+    /**
+     * Datos del evento en JSON compacto, para armar eventos que se emiten con emitirLote
+     */
+    public String convertirDatos(Map<String, Object> datos) {
+        try {
+            return escritorDatos.writeValueAsString(datos);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudieron serializar los datos del evento: " + e.getMessage(), e);
+        }
+    }
+
+    //============================================
+    // RELEVO
+    //============================================
+    /**
+     * Entrega los eventos pendientes a los suscriptores, lote por lote, hasta vaciar la bandeja
+     */
+    @Scheduled(fixedDelayString = "${app.eventos.relevo.intervalo:PT1S}")
+    public synchronized void publicarPendientes() {
+        while (true) {
+            List<EventoInventario> lote = eventoInventarioRepository.findPendientes(PageRequest.of(0, tamanoLote));
+            if (lote.isEmpty()) {
+                return;
+            }
+
+            int suscriptor = 0;
+            try {
+                for (; suscriptor < suscriptores.size(); suscriptor++) {
+                    suscriptores.get(suscriptor).procesarEventos(lote);
+                }
+                marcarPublicados(lote);
+            } catch (RuntimeException e) {
+                System.err.println("❌ Error al entregar " + lote.size() + " eventos de inventario, se entregan de a uno: "
+                        + e.getMessage());
+                // Los suscriptores anteriores al que falló ya procesaron el lote
+                if (!entregarDeAUno(lote, suscriptores.subList(suscriptor, suscriptores.size()))) {
+                    // Un evento sigue fallando sin agotar sus intentos: se reintenta en la siguiente pasada
+                    return;
+                }
+            }
+
+            if (lote.size() < tamanoLote) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Entrega los eventos en orden, cada uno por separado, a los suscriptores indicados. El que
+     * falla se reintenta en las siguientes pasadas (sin adelantar a los posteriores, para conservar
+     * el orden) y, al llegar a app.eventos.relevo.max-intentos, se aparta para que el relevo siga
+     * con los demás
+     *
+     * @return false si hay que detener la pasada en un evento que todavía tiene intentos
+     */
+    private boolean entregarDeAUno(List<EventoInventario> lote, List<SuscriptorEventosInventario> destinatarios) {
+        for (EventoInventario evento : lote) {
+            try {
+                for (SuscriptorEventosInventario suscriptor : destinatarios) {
+                    suscriptor.procesarEventos(List.of(evento));
+                }
+                intentosFallidos.remove(evento.getId());
+            } catch (RuntimeException e) {
+                fallidos.incrementAndGet();
+                int intentos = intentosFallidos.merge(evento.getId(), 1, Integer::sum);
+                if (intentos < maxIntentos) {
+                    System.err.println("❌ Evento de inventario " + evento.getId() + " falló (intento " + intentos
+                            + " de " + maxIntentos + "): " + e.getMessage());
+                    return false;
+                }
+                intentosFallidos.remove(evento.getId());
+                apartar(evento, e, intentos);
+                continue;
+            }
+            marcarPublicados(List.of(evento));
+        }
+        return true;
+    }
+
+    private void apartar(EventoInventario evento, RuntimeException e, int intentos) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        String errorGuardado = error.length() > 500 ? error.substring(0, 500) : error;
+        transaccion.executeWithoutResult(estado ->
+                eventoInventarioRepository.marcarApartado(evento.getId(), errorGuardado, LocalDateTime.now()));
+        apartados.incrementAndGet();
+        System.err.println("❌ Evento de inventario " + evento.getId() + " apartado tras " + intentos
+                + " intentos: " + evento.getTipo() + " producto " + evento.getProductoId() + " - " + error);
+    }
+
+    private void marcarPublicados(List<EventoInventario> eventos) {
+        List<Long> ids = new ArrayList<>(eventos.size());
+        for (EventoInventario evento : eventos) {
+            ids.add(evento.getId());
+        }
+        transaccion.executeWithoutResult(estado ->
+                eventoInventarioRepository.marcarPublicados(ids, LocalDateTime.now()));
+        publicados.addAndGet(eventos.size());
+    }
+
+    /**
+     * Borra los eventos ya publicados con más de app.eventos.retencion-dias
+     */
+    @Scheduled(cron = "${app.eventos.limpieza.cron:0 15 3 * * *}")
+    @Transactional
+    public void purgarPublicados() {
+        int borrados = eventoInventarioRepository.borrarPublicadosAntesDe(LocalDateTime.now().minusDays(retencionDias));
+        System.out.println("🧹 Eventos de inventario publicados eliminados: " + borrados);
+    }
+
+    /**
+     * Eventos apartados por el relevo, del más antiguo al más reciente
+     */
+    @Transactional(readOnly = true)
+    public List<EventoInventario> obtenerApartados(int limite) {
+        return eventoInventarioRepository.findApartados(PageRequest.of(0, limite));
+    }
+
+    /**
+     * Devuelve los eventos apartados a la bandeja (una vez corregida la causa). Se entregan en la
+     * siguiente pasada por su id, es decir antes que eventos más recientes ya entregados
+     *
+     * @return eventos reencolados
+     */
+    @Transactional
+    public int reencolarApartados() {
+        int reencolados = eventoInventarioRepository.reencolarApartados();
+        System.out.println("🔁 Eventos de inventario apartados reencolados: " + reencolados);
+        return reencolados;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("pendientes", eventoInventarioRepository.countPendientes());
+        estadisticas.put("publicados", publicados.get());
+        estadisticas.put("fallidos", fallidos.get());
+        estadisticas.put("apartados", apartados.get());
+        estadisticas.put("apartadosSinReencolar", eventoInventarioRepository.countApartados());
+        estadisticas.put("suscriptores", suscriptores.size());
+        return estadisticas;
+    }
+}
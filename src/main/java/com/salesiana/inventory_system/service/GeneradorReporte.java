@@ -0,0 +1,13 @@
+package com.salesiana.inventory_system.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Genera un reporte escribiéndolo en el stream recibido
+ */
+@FunctionalInterface
+public interface GeneradorReporte {
+
+    void generar(OutputStream out) throws IOException;
+}
@@ -0,0 +1,442 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.dto.FilaImportacionMovimiento;
+import com.salesiana.inventory_system.entity.Auditoria;
+import com.salesiana.inventory_system.entity.CambioDatosListener;
+import com.salesiana.inventory_system.entity.EventoInventario;
+import com.salesiana.inventory_system.entity.Lote;
+import com.salesiana.inventory_system.entity.Movimiento;
+import com.salesiana.inventory_system.entity.Producto;
+import com.salesiana.inventory_system.entity.TipoMovimiento;
+import com.salesiana.inventory_system.entity.Usuario;
+import com.salesiana.inventory_system.repository.LoteRepository;
+import com.salesiana.inventory_system.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importación masiva de movimientos (entregas de proveedores, inventarios iniciales).
+ *
+ * A diferencia de /movimientos/guardar, que resuelve producto, tipo y usuario y hace un INSERT por
+ * movimiento, aquí cada bloque de app.movimientos.importacion.lote filas resuelve sus productos y
+ * lotes con una consulta, el stock se valida para el archivo completo antes de escribir nada, y los
+ * movimientos, el resumen diario, el stock y los eventos se escriben con lotes JDBC.
+ *
+ * La importación es todo o nada: si alguna fila no es válida o una salida no tiene stock, se
+ * informan los errores y no se guarda ninguna fila.
+ */
+@Service
+public class ImportacionMovimientoService {
+
+    private static final int MAX_ERRORES = 20;
+
+    private static final String SQL_INSERTAR = "INSERT INTO movimientos (tipo_movimiento_id, producto_id, lote_id, "
+            + "cantidad, precio_unitario, motivo, documento_referencia, usuario_id, fecha_movimiento, fecha_registro) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] COLUMNAS_CSV = {"codigoProducto", "tipoMovimiento", "cantidad", "precioUnitario",
+            "numeroLote", "motivo", "documentoReferencia", "fechaMovimiento"};
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private LoteRepository loteRepository;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private UsuarioActualService usuarioActualService;
+
+    @Autowired
+    private LibroStockService libroStockService;
+
+    @Autowired
+    private MovimientoDiarioService movimientoDiarioService;
+
+    @Autowired
+    private EventoInventarioService eventoInventarioService;
+
+    @Autowired
+    private AuditoriaEscritorService auditoriaEscritorService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.movimientos.importacion.lote:1000}")
+    private int tamanoLote;
+
+    @Value("${app.movimientos.importacion.max-filas:50000}")
+    private int maxFilas;
+
+    /**
+     * Importa las filas en una sola transacción
+     *
+     * @return resumen: filas, productos y lotes afectados, milisegundos
+     * @throws RuntimeException con los errores encontrados si alguna fila no se puede importar
+     */
+    @Transactional
+    public Map<String, Object> importarMovimientos(List<FilaImportacionMovimiento> filas) {
+        long inicio = System.currentTimeMillis();
+        if (filas == null || filas.isEmpty()) {
+            throw new RuntimeException("No hay movimientos para importar");
+        }
+        if (filas.size() > maxFilas) {
+            throw new RuntimeException("La importación supera el máximo de " + maxFilas + " movimientos");
+        }
+        System.out.println("=== IMPORTANDO " + filas.size() + " MOVIMIENTOS ===");
+
+        Usuario usuario = usuarioActualService.obtenerUsuarioActual()
+                .orElseThrow(() -> new RuntimeException("No hay usuario autenticado"));
+        List<String> errores = new ArrayList<>();
+
+        // 1. Tipos (catálogo en memoria) y productos y lotes (una consulta por bloque)
+        Map<String, TipoMovimiento> tipos = new HashMap<>();
+        for (TipoMovimiento tipo : catalogoService.tiposMovimiento().todos()) {
+            tipos.put(tipo.getCodigo().toLowerCase(Locale.ROOT), tipo);
+            tipos.putIfAbsent(tipo.getNombre().toLowerCase(Locale.ROOT), tipo);
+        }
+
+        Map<String, Producto> productos = new HashMap<>();
+        Map<String, Lote> lotes = new HashMap<>();
+        for (int desde = 0; desde < filas.size(); desde += tamanoLote) {
+            List<FilaImportacionMovimiento> bloque = filas.subList(desde, Math.min(desde + tamanoLote, filas.size()));
+            Set<String> codigos = new HashSet<>();
+            for (FilaImportacionMovimiento fila : bloque) {
+                if (fila.getCodigoProducto() != null && !productos.containsKey(fila.getCodigoProducto().trim())) {
+                    codigos.add(fila.getCodigoProducto().trim());
+                }
+            }
+            if (!codigos.isEmpty()) {
+                for (Producto producto : productoRepository.findByCodigoIn(codigos)) {
+                    productos.put(producto.getCodigo(), producto);
+                }
+            }
+
+            Set<Integer> productoIds = new HashSet<>();
+            Set<String> numerosLote = new HashSet<>();
+            for (FilaImportacionMovimiento fila : bloque) {
+                Producto producto = fila.getCodigoProducto() != null ? productos.get(fila.getCodigoProducto().trim()) : null;
+                if (producto != null && tieneTexto(fila.getNumeroLote())) {
+                    productoIds.add(producto.getId());
+                    numerosLote.add(fila.getNumeroLote().trim());
+                }
+            }
+            if (!numerosLote.isEmpty()) {
+                for (Lote lote : loteRepository.findByProductoIdInAndNumeroLoteIn(productoIds, numerosLote)) {
+                    lotes.put(claveLote(lote.getProducto().getId(), lote.getNumeroLote()), lote);
+                }
+            }
+        }
+
+        // 2. Validación de cada fila y armado de los movimientos
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Movimiento> movimientos = new ArrayList<>(filas.size());
+        for (int i = 0; i < filas.size(); i++) {
+            FilaImportacionMovimiento fila = filas.get(i);
+            int numero = i + 1;
+
+            Producto producto = fila.getCodigoProducto() != null ? productos.get(fila.getCodigoProducto().trim()) : null;
+            TipoMovimiento tipo = fila.getTipoMovimiento() != null
+                    ? tipos.get(fila.getTipoMovimiento().trim().toLowerCase(Locale.ROOT)) : null;
+            Lote lote = producto != null && tieneTexto(fila.getNumeroLote())
+                    ? lotes.get(claveLote(producto.getId(), fila.getNumeroLote().trim())) : null;
+
+            if (producto == null) {
+                errores.add("Fila " + numero + ": producto no encontrado (" + fila.getCodigoProducto() + ")");
+            } else if (!Boolean.TRUE.equals(producto.getActivo())) {
+                errores.add("Fila " + numero + ": el producto " + producto.getCodigo() + " está inactivo");
+            }
+            if (tipo == null) {
+                errores.add("Fila " + numero + ": tipo de movimiento no encontrado (" + fila.getTipoMovimiento() + ")");
+            }
+            if (fila.getCantidad() == null || fila.getCantidad() <= 0) {
+                errores.add("Fila " + numero + ": la cantidad debe ser mayor a 0");
+            }
+            if (producto != null && tieneTexto(fila.getNumeroLote()) && lote == null) {
+                errores.add("Fila " + numero + ": el lote " + fila.getNumeroLote() + " no existe para " + producto.getCodigo());
+            }
+            if (errores.size() >= MAX_ERRORES) {
+                break;
+            }
+
+            Movimiento movimiento = new Movimiento();
+            movimiento.setProducto(producto);
+            movimiento.setTipoMovimiento(tipo);
+            movimiento.setLote(lote);
+            movimiento.setCantidad(fila.getCantidad());
+            movimiento.setPrecioUnitario(fila.getPrecioUnitario() != null ? fila.getPrecioUnitario()
+                    : producto != null ? producto.getPrecioCompra() : null);
+            movimiento.setMotivo(fila.getMotivo());
+            movimiento.setDocumentoReferencia(fila.getDocumentoReferencia());
+            movimiento.setUsuario(usuario);
+            movimiento.setFechaMovimiento(fila.getFechaMovimiento() != null ? fila.getFechaMovimiento() : ahora);
+            movimiento.setFechaRegistro(ahora);
+            movimientos.add(movimiento);
+        }
+        lanzarSiHayErrores(errores);
+
+        // 3. Stock: se bloquean las filas afectadas y se recorre el archivo en orden
+        Set<Integer> productoIds = new HashSet<>();
+        Set<Integer> loteIds = new HashSet<>();
+        for (Movimiento movimiento : movimientos) {
+            productoIds.add(movimiento.getProducto().getId());
+            if (movimiento.getLote() != null) {
+                loteIds.add(movimiento.getLote().getId());
+            }
+        }
+        Map<Integer, Integer> stockProductos = libroStockService.bloquearProductos(productoIds);
+        Map<Integer, Integer> stockLotes = loteIds.isEmpty() ? new HashMap<>() : libroStockService.bloquearLotes(loteIds);
+
+        for (int i = 0; i < movimientos.size() && errores.size() < MAX_ERRORES; i++) {
+            Movimiento movimiento = movimientos.get(i);
+            Integer productoId = movimiento.getProducto().getId();
+            Integer loteId = movimiento.getLote() != null ? movimiento.getLote().getId() : null;
+            int cantidad = movimiento.getCantidad();
+            int afectaStock = movimiento.getTipoMovimiento().getAfectaStock();
+
+            if (afectaStock == 1) {
+                stockProductos.merge(productoId, cantidad, Integer::sum);
+                if (loteId != null) {
+                    stockLotes.merge(loteId, cantidad, Integer::sum);
+                }
+            } else if (afectaStock == -1) {
+                int disponible = stockProductos.get(productoId);
+                if (disponible < cantidad) {
+                    errores.add("Fila " + (i + 1) + ": stock insuficiente para " + movimiento.getProducto().getCodigo()
+                            + " (disponible " + disponible + ", solicitado " + cantidad + ")");
+                    continue;
+                }
+                stockProductos.put(productoId, disponible - cantidad);
+                if (loteId != null) {
+                    int disponibleLote = stockLotes.get(loteId);
+                    if (disponibleLote < cantidad) {
+                        errores.add("Fila " + (i + 1) + ": cantidad insuficiente en el lote "
+                                + movimiento.getLote().getNumeroLote() + " (disponible " + disponibleLote
+                                + ", solicitado " + cantidad + ")");
+                        continue;
+                    }
+                    stockLotes.put(loteId, disponibleLote - cantidad);
+                }
+            } else {
+                stockProductos.put(productoId, cantidad);
+            }
+        }
+        lanzarSiHayErrores(errores);
+
+        // 4. Escritura: movimientos, stock, resumen diario y eventos
+        jdbcTemplate.batchUpdate(SQL_INSERTAR, movimientos, tamanoLote, (ps, movimiento) -> {
+            ps.setInt(1, movimiento.getTipoMovimiento().getId());
+            ps.setInt(2, movimiento.getProducto().getId());
+            ps.setObject(3, movimiento.getLote() != null ? movimiento.getLote().getId() : null);
+            ps.setInt(4, movimiento.getCantidad());
+            ps.setBigDecimal(5, movimiento.getPrecioUnitario());
+            ps.setString(6, movimiento.getMotivo());
+            ps.setString(7, movimiento.getDocumentoReferencia());
+            ps.setInt(8, movimiento.getUsuario().getId());
+            ps.setTimestamp(9, Timestamp.valueOf(movimiento.getFechaMovimiento()));
+            ps.setTimestamp(10, Timestamp.valueOf(movimiento.getFechaRegistro()));
+        });
+
+        // Sin libro de stock el trigger ya aplicó cada INSERT, con el mismo resultado que se validó
+        if (libroStockService.isHabilitado()) {
+            libroStockService.fijarStock(stockProductos, stockLotes);
+        }
+
+        movimientoDiarioService.acumularMovimientos(movimientos);
+        emitirEventos(movimientos, stockProductos);
+
+        // Escritura fuera de JPA
+        CambioDatosListener.registrarCambioExterno();
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("movimientos", movimientos.size());
+        resumen.put("productos", productoIds.size());
+        resumen.put("lotes", loteIds.size());
+        resumen.put("milisegundos", System.currentTimeMillis() - inicio);
+        auditarImportacion(usuario, resumen);
+
+        System.out.println("✅ Importación completada: " + movimientos.size() + " movimientos de "
+                + productoIds.size() + " productos en " + resumen.get("milisegundos") + " ms");
+        return resumen;
+    }
+
+    /**
+     * Un evento por producto con el stock final, en vez de uno por movimiento
+     */
+    private void emitirEventos(List<Movimiento> movimientos, Map<Integer, Integer> stockProductos) {
+        Map<Integer, Producto> productos = new LinkedHashMap<>();
+        Map<Integer, Integer> cantidadMovimientos = new HashMap<>();
+        for (Movimiento movimiento : movimientos) {
+            productos.putIfAbsent(movimiento.getProducto().getId(), movimiento.getProducto());
+            cantidadMovimientos.merge(movimiento.getProducto().getId(), 1, Integer::sum);
+        }
+
+        List<EventoInventario> eventos = new ArrayList<>(productos.size());
+        for (Producto producto : productos.values()) {
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("movimientos", cantidadMovimientos.get(producto.getId()));
+            datos.put("stockActual", stockProductos.get(producto.getId()));
+            datos.put("stockMinimo", producto.getStockMinimo());
+            datos.put("activo", producto.getActivo());
+
+            EventoInventario evento = new EventoInventario();
+            evento.setTipo(EventoInventario.Tipo.MOVIMIENTOS_IMPORTADOS);
+            evento.setProductoId(producto.getId());
+            evento.setDatos(eventoInventarioService.convertirDatos(datos));
+            eventos.add(evento);
+        }
+        eventoInventarioService.emitirLote(eventos);
+    }
+
+    /**
+     * Una sola auditoría con el resumen: los movimientos importados no pasan por AuditoriaAspect
+     */
+    private void auditarImportacion(Usuario usuario, Map<String, Object> resumen) {
+        auditoriaEscritorService.encolar(new AuditoriaEscritorService.EventoAuditoria("movimientos",
+                Auditoria.Operacion.INSERT, null, usuario.getUsername(), null,
+                eventoInventarioService.convertirDatos(resumen), null, LocalDateTime.now()));
+    }
+
+    private static void lanzarSiHayErrores(List<String> errores) {
+        if (!errores.isEmpty()) {
+            throw new RuntimeException("No se importó ningún movimiento. " + String.join("; ", errores)
+                    + (errores.size() >= MAX_ERRORES ? "; ..." : ""));
+        }
+    }
+
+    //============================================
+    // CSV
+    //============================================
+    /**
+     * Lee un CSV con encabezado (separado por comas o punto y coma). Las columnas se reconocen por
+     * nombre: codigoProducto, tipoMovimiento, cantidad, precioUnitario, numeroLote, motivo,
+     * documentoReferencia y fechaMovimiento (yyyy-MM-dd o yyyy-MM-ddTHH:mm:ss)
+     */
+    public List<FilaImportacionMovimiento> convertirCsv(Reader contenido) {
+        List<FilaImportacionMovimiento> filas = new ArrayList<>();
+        try (BufferedReader lector = new BufferedReader(contenido)) {
+            String encabezado = lector.readLine();
+            if (encabezado == null) {
+                return filas;
+            }
+            encabezado = encabezado.replace("\uFEFF", "");
+            char separador = encabezado.indexOf(';') >= 0 && encabezado.indexOf(',') < 0 ? ';' : ',';
+
+            Map<String, Integer> columnas = new HashMap<>();
+            List<String> nombres = separarCsv(encabezado, separador);
+            for (int i = 0; i < nombres.size(); i++) {
+                columnas.put(nombres.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String requerida : new String[]{"codigoProducto", "tipoMovimiento", "cantidad"}) {
+                if (!columnas.containsKey(requerida.toLowerCase(Locale.ROOT))) {
+                    throw new RuntimeException("Falta la columna " + requerida + " en el CSV");
+                }
+            }
+
+            String linea;
+            int numero = 1;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                List<String> valores = separarCsv(linea, separador);
+                try {
+                    filas.add(convertirFila(valores, columnas));
+                } catch (RuntimeException e) {
+                    throw new RuntimeException("Línea " + numero + " del CSV no válida: " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el CSV: " + e.getMessage(), e);
+        }
+        return filas;
+    }
+
+    private static FilaImportacionMovimiento convertirFila(List<String> valores, Map<String, Integer> columnas) {
+        Map<String, String> campos = new HashMap<>();
+        for (String columna : COLUMNAS_CSV) {
+            Integer indice = columnas.get(columna.toLowerCase(Locale.ROOT));
+            if (indice != null && indice < valores.size() && tieneTexto(valores.get(indice))) {
+                campos.put(columna, valores.get(indice).trim());
+            }
+        }
+
+        FilaImportacionMovimiento fila = new FilaImportacionMovimiento();
+        fila.setCodigoProducto(campos.get("codigoProducto"));
+        fila.setTipoMovimiento(campos.get("tipoMovimiento"));
+        fila.setCantidad(campos.containsKey("cantidad") ? Integer.valueOf(campos.get("cantidad")) : null);
+        fila.setPrecioUnitario(campos.containsKey("precioUnitario") ? new BigDecimal(campos.get("precioUnitario")) : null);
+        fila.setNumeroLote(campos.get("numeroLote"));
+        fila.setMotivo(campos.get("motivo"));
+        fila.setDocumentoReferencia(campos.get("documentoReferencia"));
+        String fecha = campos.get("fechaMovimiento");
+        if (fecha != null) {
+            fila.setFechaMovimiento(fecha.length() <= 10 ? LocalDate.parse(fecha).atStartOfDay() : LocalDateTime.parse(fecha));
+        }
+        return fila;
+    }
+
+    /**
+     * Separa una línea respetando campos entre comillas ("" dentro de comillas es una comilla)
+     */
+    private static List<String> separarCsv(String linea, char separador) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                valores.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        valores.add(actual.toString());
+        return valores;
+    }
+
+    //============================================
+    // AUXILIARES
+    //============================================
+    private static String claveLote(Integer productoId, String numeroLote) {
+        return productoId + ":" + numeroLote;
+    }
+
+    private static boolean tieneTexto(String valor) {
+        return valor != null && !valor.trim().isEmpty();
+    }
+}
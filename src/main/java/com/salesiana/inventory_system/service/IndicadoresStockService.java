@@ -0,0 +1,98 @@
+package com.salesiana.inventory_system.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesiana.inventory_system.entity.EventoInventario;
+import com.salesiana.inventory_system.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Productos con stock bajo y agotados para el panel principal.
+ *
+ * Al arrancar se leen los ids con dos consultas; desde ahí cada evento de inventario que trae el
+ * stock de un producto (movimientos y cambios de producto) lo agrega o lo quita de cada conjunto,
+ * así el panel no vuelve a cargar la tabla de productos en cada visita.
+ *
+ * Después de la carga se aplican todos los eventos que entrega el relevo, aunque sean anteriores:
+ * uno de una transacción que no había confirmado al cargar tiene un id menor que los ya publicados
+ * y su cambio no está en la carga. Los eventos traen el stock absoluto y llegan en orden de id, así
+ * que aplicar uno ya reflejado no cambia nada.
+ */
+@Service
+public class IndicadoresStockService implements SuscriptorEventosInventario {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Set<Integer> stockBajo = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> agotados = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean cargado;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public synchronized void cargarIndicadores() {
+        stockBajo.clear();
+        stockBajo.addAll(productoRepository.findIdsStockBajo());
+        agotados.clear();
+        agotados.addAll(productoRepository.findIdsAgotados());
+        cargado = true;
+        System.out.println("✅ Indicadores de stock cargados: " + stockBajo.size() + " con stock bajo, "
+                + agotados.size() + " agotados");
+    }
+
+    @Override
+    public synchronized void procesarEventos(List<EventoInventario> eventos) {
+        if (!cargado) {
+            // Todavía no se cargó: la carga inicial ya incluirá estos cambios
+            return;
+        }
+        for (EventoInventario evento : eventos) {
+            if (evento.getProductoId() == null || evento.getDatos() == null) {
+                continue;
+            }
+            try {
+                JsonNode datos = objectMapper.readTree(evento.getDatos());
+                if (datos.hasNonNull("stockActual")) {
+                    ubicarProducto(evento.getProductoId(), datos.get("stockActual").asInt(),
+                            datos.path("stockMinimo").asInt(0), datos.path("activo").asBoolean(true));
+                }
+            } catch (JsonProcessingException e) {
+                System.err.println("Evento de inventario " + evento.getId() + " con datos no válidos: " + e.getMessage());
+            }
+        }
+    }
+
+    private void ubicarProducto(Integer productoId, int stockActual, int stockMinimo, boolean activo) {
+        if (activo && stockActual <= stockMinimo) {
+            stockBajo.add(productoId);
+        } else {
+            stockBajo.remove(productoId);
+        }
+        if (activo && stockActual == 0) {
+            agotados.add(productoId);
+        } else {
+            agotados.remove(productoId);
+        }
+    }
+
+    public long contarStockBajo() {
+        return !cargado ? productoRepository.findIdsStockBajo().size() : stockBajo.size();
+    }
+
+    public long contarAgotados() {
+        return !cargado ? productoRepository.findIdsAgotados().size() : agotados.size();
+    }
+}
@@ -0,0 +1,181 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.CambioDatosListener;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Libro de stock: aplica en la aplicación lo que antes hacía el trigger trg_actualizar_stock_movimiento.
+ *
+ * Cada salida descuenta con un UPDATE condicional (stock_actual >= cantidad) en la misma transacción
+ * que el INSERT del movimiento y antes de él. Si no alcanza, el UPDATE no toca ninguna fila y el
+ * movimiento se rechaza: dos salidas concurrentes ya no pueden dejar el stock en negativo, porque
+ * la segunda espera el bloqueo de la fila y evalúa la condición sobre el stock ya descontado.
+ *
+ * Con app.stock.libro.habilitado=true el trigger no debe existir (el stock se aplicaría dos veces);
+ * con false debe existir y MovimientoService usa el camino anterior. El trigger se quita o se
+ * restaura con migraciones/libro_stock_activar.sql y libro_stock_desactivar.sql; al arrancar solo
+ * se comprueba que coincida con el modo.
+ * El trigger de alertas (trg_alerta_stock_minimo) sigue disparándose con estos UPDATE.
+ */
+@Service
+public class LibroStockService {
+
+    private static final String TRIGGER = "trg_actualizar_stock_movimiento";
+    private static final int TAMANO_BLOQUE = 1000;
+
+    private static final String SQL_ENTRADA_PRODUCTO = "UPDATE productos SET stock_actual = stock_actual + ?, "
+            + "fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String SQL_SALIDA_PRODUCTO = "UPDATE productos SET stock_actual = stock_actual - ?, "
+            + "fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ? AND stock_actual >= ?";
+    private static final String SQL_AJUSTE_PRODUCTO = "UPDATE productos SET stock_actual = ?, "
+            + "fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String SQL_ENTRADA_LOTE = "UPDATE lotes SET cantidad_actual = cantidad_actual + ?, "
+            + "fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String SQL_SALIDA_LOTE = "UPDATE lotes SET cantidad_actual = cantidad_actual - ?, "
+            + "fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ? AND cantidad_actual >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.stock.libro.habilitado:true}")
+    private boolean habilitado;
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Comprueba al crear el contexto, antes de atender peticiones, que el trigger de stock coincide
+     * con el modo. La aplicación no crea ni elimina el trigger: se cambia con los scripts de
+     * migraciones/ y las instancias detenidas
+     *
+     * @throws IllegalStateException si el stock se aplicaría dos veces o ninguna
+     */
+    @PostConstruct
+    public void verificarTrigger() {
+        boolean existe = existeTrigger();
+        if (habilitado && existe) {
+            throw new IllegalStateException("Libro de stock activo pero el trigger " + TRIGGER
+                    + " existe: cada movimiento se aplicaría dos veces. Ejecute migraciones/libro_stock_activar.sql "
+                    + "o arranque con app.stock.libro.habilitado=false");
+        }
+        if (!habilitado && !existe) {
+            throw new IllegalStateException("Libro de stock desactivado pero el trigger " + TRIGGER
+                    + " no existe: los movimientos no aplicarían stock. Ejecute migraciones/libro_stock_desactivar.sql "
+                    + "o arranque con app.stock.libro.habilitado=true");
+        }
+        System.out.println(habilitado
+                ? "✅ Libro de stock activo (sin trigger " + TRIGGER + ")"
+                : "⚠️ Libro de stock desactivado: el stock lo aplica el trigger " + TRIGGER);
+    }
+
+    private boolean existeTrigger() {
+        Integer triggers = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.TRIGGERS WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME = ?",
+                Integer.class, TRIGGER);
+        return triggers != null && triggers > 0;
+    }
+
+    //============================================
+    // APLICACIÓN DE MOVIMIENTOS
+    //============================================
+    /**
+     * Aplica al producto (y al lote, si hay) el efecto de un movimiento. Se llama antes de insertar
+     * el movimiento, dentro de su transacción.
+     *
+     * @param afectaStock 1 entrada, -1 salida, 0 ajuste (fija el stock del producto en la cantidad)
+     * @throws RuntimeException si una salida supera el stock del producto o la cantidad del lote
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void aplicarMovimiento(Integer productoId, Integer loteId, int afectaStock, int cantidad) {
+        if (afectaStock == 1) {
+            jdbcTemplate.update(SQL_ENTRADA_PRODUCTO, cantidad, productoId);
+            if (loteId != null) {
+                jdbcTemplate.update(SQL_ENTRADA_LOTE, cantidad, loteId);
+            }
+        } else if (afectaStock == -1) {
+            if (jdbcTemplate.update(SQL_SALIDA_PRODUCTO, cantidad, productoId, cantidad) == 0) {
+                Integer stockActual = jdbcTemplate.queryForObject(
+                        "SELECT stock_actual FROM productos WHERE id = ?", Integer.class, productoId);
+                throw new RuntimeException("Stock insuficiente. Stock actual: " + stockActual
+                        + ", Cantidad solicitada: " + cantidad);
+            }
+            if (loteId != null && jdbcTemplate.update(SQL_SALIDA_LOTE, cantidad, loteId, cantidad) == 0) {
+                Integer cantidadLote = jdbcTemplate.queryForObject(
+                        "SELECT cantidad_actual FROM lotes WHERE id = ?", Integer.class, loteId);
+                throw new RuntimeException("Cantidad insuficiente en el lote. Cantidad actual: " + cantidadLote
+                        + ", Cantidad solicitada: " + cantidad);
+            }
+        } else if (afectaStock == 0) {
+            jdbcTemplate.update(SQL_AJUSTE_PRODUCTO, cantidad, productoId);
+        } else {
+            throw new RuntimeException("Tipo de movimiento con afecta_stock no válido: " + afectaStock);
+        }
+
+        // Escritura fuera de JPA sobre productos y lotes
+        CambioDatosListener.registrarCambioExterno();
+    }
+
+    //============================================
+    // OPERACIONES POR LOTE
+    //============================================
+    /**
+     * Bloquea las filas de los productos hasta el fin de la transacción y devuelve su stock.
+     * Las filas se bloquean en orden de id para no cruzarse con otra importación.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, Integer> bloquearProductos(Collection<Integer> productoIds) {
+        return bloquear("SELECT id, stock_actual FROM productos WHERE id IN (%s) ORDER BY id FOR UPDATE", productoIds);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Integer, Integer> bloquearLotes(Collection<Integer> loteIds) {
+        return bloquear("SELECT id, cantidad_actual FROM lotes WHERE id IN (%s) ORDER BY id FOR UPDATE", loteIds);
+    }
+
+    private Map<Integer, Integer> bloquear(String sql, Collection<Integer> ids) {
+        Map<Integer, Integer> cantidades = new HashMap<>();
+        List<Integer> ordenados = new ArrayList<>(ids);
+        Collections.sort(ordenados);
+        for (int desde = 0; desde < ordenados.size(); desde += TAMANO_BLOQUE) {
+            List<Integer> bloque = ordenados.subList(desde, Math.min(desde + TAMANO_BLOQUE, ordenados.size()));
+            jdbcTemplate.query(String.format(sql, String.join(", ", Collections.nCopies(bloque.size(), "?"))),
+                    rs -> {
+                        cantidades.put(rs.getInt(1), rs.getInt(2));
+                    }, bloque.toArray());
+        }
+        return cantidades;
+    }
+
+    /**
+     * Escribe el stock final calculado para productos y lotes ya bloqueados con bloquearProductos
+     * y bloquearLotes, en dos UPDATE por lotes
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void fijarStock(Map<Integer, Integer> productos, Map<Integer, Integer> lotes) {
+        jdbcTemplate.batchUpdate("UPDATE productos SET stock_actual = ?, fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ?",
+                productos.entrySet(), TAMANO_BLOQUE, (ps, producto) -> {
+                    ps.setInt(1, producto.getValue());
+                    ps.setInt(2, producto.getKey());
+                });
+        jdbcTemplate.batchUpdate("UPDATE lotes SET cantidad_actual = ?, fecha_actualizacion = CURRENT_TIMESTAMP WHERE id = ?",
+                lotes.entrySet(), TAMANO_BLOQUE, (ps, lote) -> {
+                    ps.setInt(1, lote.getValue());
+                    ps.setInt(2, lote.getKey());
+                });
+        CambioDatosListener.registrarCambioExterno();
+    }
+}
@@ -9,9 +9,14 @@ package com.salesiana.inventory_system.service;
  * @author Andrei
  */
 
+import com.salesiana.inventory_system.entity.EstadoCalidad;
 import com.salesiana.inventory_system.entity.Lote;
 import com.salesiana.inventory_system.repository.LoteRepository;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -24,8 +29,38 @@ public class LoteService {
     @Autowired
     private LoteRepository loteRepository;
     
-    public List<Lote> obtenerTodosLotes() {
-        return loteRepository.findAll();
+    @Value("${app.paginacion.tamano:50}")
+    private int tamanoPagina;
+    
+    /**
+     * Página del listado de lotes, de los creados más recientemente a los más antiguos
+     * @param estado filtro de estado de calidad, o null para todos
+     * @param despues token "siguiente" de la página anterior, o null para la primera
+     */
+    public PaginaKeyset<Lote> obtenerPaginaLotes(EstadoCalidad estado, String despues) {
+        PaginaKeyset.Cursor cursor = PaginaKeyset.decodificar(despues);
+        Pageable limite = PageRequest.of(0, tamanoPagina + 1);
+        List<Lote> filas = cursor == null
+                ? loteRepository.findPrimeraPagina(estado, limite)
+                : loteRepository.findPaginaDespuesDe(estado, cursor.fecha(), cursor.id(), limite);
+        return PaginaKeyset.desde(filas, tamanoPagina, cursor == null, Lote::getFechaCreacion, Lote::getId);
+    }
+    
+    public long contarLotes() {
+        return loteRepository.count();
+    }
+    
+    public long contarLotesActivos() {
+        return loteRepository.countByActivoTrue();
+    }
+    
+    public long contarLotesPorEstado(EstadoCalidad estado) {
+        return loteRepository.countByEstadoCalidad(estado);
+    }
+    
+    public long contarLotesPorVencer(Integer dias) {
+        LocalDate hoy = LocalDate.now();
+        return loteRepository.countByFechaVencimientoBetween(hoy, hoy.plusDays(dias));
     }
     
     public Optional<Lote> obtenerLotePorId(Integer id) {
@@ -0,0 +1,124 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.CambioDatosListener;
+import com.salesiana.inventory_system.entity.Movimiento;
+import com.salesiana.inventory_system.repository.MovimientoDiarioRepository;
+import com.salesiana.inventory_system.repository.MovimientoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mantenimiento de la tabla movimientos_diarios.
+ *
+ * Cada movimiento registrado suma su cantidad y valor a la fila de (día, tipo, producto) dentro de la
+ * misma transacción que lo guarda, así el resumen nunca queda adelantado ni atrasado respecto a
+ * movimientos. Los reportes leen este resumen (unas pocas filas por producto y día) en lugar de
+ * recorrer la tabla de movimientos.
+ */
+@Service
+public class MovimientoDiarioService {
+
+    private static final String SQL_ACUMULAR = "INSERT INTO movimientos_diarios (fecha, tipo_movimiento_id, producto_id, "
+            + "movimientos, cantidad, valor) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE movimientos = movimientos + VALUES(movimientos), "
+            + "cantidad = cantidad + VALUES(cantidad), valor = valor + VALUES(valor)";
+
+    private record ClaveDiaria(LocalDate fecha, Integer tipoMovimientoId, Integer productoId) {
+    }
+
+    @Autowired
+    private MovimientoDiarioRepository movimientoDiarioRepository;
+
+    @Autowired
+    private MovimientoRepository movimientoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Suma un movimiento recién guardado a su fila del resumen. Debe llamarse dentro de la
+     * transacción que inserta el movimiento.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acumularMovimiento(Movimiento movimiento) {
+        BigDecimal precio = movimiento.getPrecioUnitario() != null ? movimiento.getPrecioUnitario() : BigDecimal.ZERO;
+        movimientoDiarioRepository.acumular(
+                movimiento.getFechaMovimiento().toLocalDate(),
+                movimiento.getTipoMovimiento().getId(),
+                movimiento.getProducto().getId(),
+                movimiento.getCantidad(),
+                precio.multiply(BigDecimal.valueOf(movimiento.getCantidad())));
+    }
+
+    /**
+     * Suma varios movimientos recién insertados (importación masiva): se agrupan por día, tipo y
+     * producto y cada grupo se suma con un UPSERT, todos en un mismo lote JDBC
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void acumularMovimientos(List<Movimiento> movimientos) {
+        Map<ClaveDiaria, long[]> cantidades = new HashMap<>();
+        Map<ClaveDiaria, BigDecimal> valores = new HashMap<>();
+        for (Movimiento movimiento : movimientos) {
+            ClaveDiaria clave = new ClaveDiaria(movimiento.getFechaMovimiento().toLocalDate(),
+                    movimiento.getTipoMovimiento().getId(), movimiento.getProducto().getId());
+            long[] acumulado = cantidades.computeIfAbsent(clave, c -> new long[2]);
+            acumulado[0]++;
+            acumulado[1] += movimiento.getCantidad();
+            BigDecimal precio = movimiento.getPrecioUnitario() != null ? movimiento.getPrecioUnitario() : BigDecimal.ZERO;
+            valores.merge(clave, precio.multiply(BigDecimal.valueOf(movimiento.getCantidad())), BigDecimal::add);
+        }
+
+        jdbcTemplate.batchUpdate(SQL_ACUMULAR, cantidades.entrySet(), 1000, (ps, grupo) -> {
+            ps.setDate(1, Date.valueOf(grupo.getKey().fecha()));
+            ps.setInt(2, grupo.getKey().tipoMovimientoId());
+            ps.setInt(3, grupo.getKey().productoId());
+            ps.setLong(4, grupo.getValue()[0]);
+            ps.setLong(5, grupo.getValue()[1]);
+            ps.setBigDecimal(6, valores.get(grupo.getKey()));
+        });
+    }
+
+    /**
+     * Vuelve a generar el resumen completo desde el historial de movimientos.
+     * Mientras dura, los registros de movimientos nuevos esperan a que termine.
+     *
+     * @return número de filas del resumen generado
+     */
+    @Transactional
+    public int reconstruirResumen() {
+        long inicio = System.currentTimeMillis();
+        movimientoDiarioRepository.vaciar();
+        int filas = movimientoDiarioRepository.reconstruirDesdeMovimientos();
+
+        // Escritura fuera de JPA: los reportes en caché ya no son válidos
+        CambioDatosListener.registrarCambioExterno();
+
+        System.out.println("✅ Resumen diario de movimientos reconstruido: " + filas + " filas en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+        return filas;
+    }
+
+    /**
+     * En el primer arranque con la tabla vacía se genera el resumen a partir de los movimientos existentes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void inicializarResumen() {
+        if (movimientoDiarioRepository.count() == 0 && movimientoRepository.count() > 0) {
+            System.out.println("⚠️ Resumen diario de movimientos vacío, generándolo desde el historial...");
+            reconstruirResumen();
+        }
+    }
+}
@@ -1,20 +1,24 @@
 package com.salesiana.inventory_system.service;
 
+import com.salesiana.inventory_system.entity.EventoInventario;
 import com.salesiana.inventory_system.entity.Movimiento;
 import com.salesiana.inventory_system.entity.Producto;
 import com.salesiana.inventory_system.entity.Usuario;
 import com.salesiana.inventory_system.entity.TipoMovimiento;
 import com.salesiana.inventory_system.repository.MovimientoRepository;
 import com.salesiana.inventory_system.repository.ProductoRepository;
-import com.salesiana.inventory_system.repository.TipoMovimientoRepository;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -27,50 +31,45 @@ public class MovimientoService {
     private ProductoRepository productoRepository;
 
     @Autowired
-    private TipoMovimientoRepository tipoMovimientoRepository;
+    private CatalogoService catalogoService;
 
     @Autowired
-    private UsuarioService usuarioService;
+    private UsuarioActualService usuarioActualService;
 
     @Autowired
     private ProveedorService proveedorService;
 
+    @Autowired
+    private MovimientoDiarioService movimientoDiarioService;
+
+    @Autowired
+    private EventoInventarioService eventoInventarioService;
+
+    @Autowired
+    private LibroStockService libroStockService;
+
+    @Value("${app.paginacion.tamano:50}")
+    private int tamanoPagina;
+
+    /**
+     * Página del listado general de movimientos, de los más recientes a los más antiguos
+     * @param despues token "siguiente" de la página anterior, o null para la primera
+     */
     @Transactional(readOnly = true)
-    public List<Movimiento> obtenerTodosMovimientos() {
-        try {
-            List<Movimiento> movimientos = movimientoRepository.findAll();
-            for (Movimiento movimiento : movimientos) {
-                if (movimiento.getProducto() != null) {
-                    movimiento.getProducto().getNombre();
-                }
-                if (movimiento.getUsuario() != null) {
-                    movimiento.getUsuario().getNombreCompleto();
-                }
-                if (movimiento.getTipoMovimiento() != null) {
-                    movimiento.getTipoMovimiento().getNombre();
-                }
-            }
-            return movimientos;
-        } catch (Exception e) {
-            System.err.println("Error al obtener movimientos: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
-        }
+    public PaginaKeyset<Movimiento> obtenerPaginaMovimientos(String despues) {
+        PaginaKeyset.Cursor cursor = PaginaKeyset.decodificar(despues);
+        Pageable limite = PageRequest.of(0, tamanoPagina + 1);
+        List<Movimiento> filas = cursor == null
+                ? movimientoRepository.findPrimeraPagina(limite)
+                : movimientoRepository.findPaginaDespuesDe(cursor.fecha(), cursor.id(), limite);
+        return PaginaKeyset.desde(filas, tamanoPagina, cursor == null,
+                Movimiento::getFechaMovimiento, Movimiento::getId);
     }
 
     @Transactional(readOnly = true)
     public List<Movimiento> obtenerMovimientosPorProducto(Integer productoId) {
         try {
-            List<Movimiento> movimientos = movimientoRepository.findByProductoIdOrderByFechaMovimientoDesc(productoId);
-            for (Movimiento movimiento : movimientos) {
-                if (movimiento.getUsuario() != null) {
-                    movimiento.getUsuario().getNombreCompleto();
-                }
-                if (movimiento.getTipoMovimiento() != null) {
-                    movimiento.getTipoMovimiento().getNombre();
-                }
-            }
-            return movimientos;
+            return movimientoRepository.findByProductoIdOrderByFechaMovimientoDesc(productoId);
         } catch (Exception e) {
             System.err.println("Error al obtener movimientos por producto: " + e.getMessage());
             throw e;
@@ -80,19 +79,7 @@ public class MovimientoService {
     @Transactional(readOnly = true)
     public List<Movimiento> obtenerMovimientosPorRangoFechas(LocalDateTime inicio, LocalDateTime fin) {
         try {
-            List<Movimiento> movimientos = movimientoRepository.findMovimientosPorRangoFechas(inicio, fin);
-            for (Movimiento movimiento : movimientos) {
-                if (movimiento.getProducto() != null) {
-                    movimiento.getProducto().getNombre();
-                }
-                if (movimiento.getUsuario() != null) {
-                    movimiento.getUsuario().getNombreCompleto();
-                }
-                if (movimiento.getTipoMovimiento() != null) {
-                    movimiento.getTipoMovimiento().getNombre();
-                }
-            }
-            return movimientos;
+            return movimientoRepository.findMovimientosPorRangoFechas(inicio, fin);
         } catch (Exception e) {
             System.err.println("Error al obtener movimientos por rango de fechas: " + e.getMessage());
             throw e;
@@ -109,7 +96,7 @@ public class MovimientoService {
                 throw new RuntimeException("Debe seleccionar un tipo de movimiento");
             }
 
-            TipoMovimiento tipoMovimiento = tipoMovimientoRepository.findById(movimiento.getTipoMovimiento().getId())
+            TipoMovimiento tipoMovimiento = catalogoService.tiposMovimiento().porId(movimiento.getTipoMovimiento().getId())
                 .orElseThrow(() -> new RuntimeException("Tipo de movimiento no encontrado"));
             movimiento.setTipoMovimiento(tipoMovimiento);
 
@@ -148,18 +135,10 @@ public class MovimientoService {
 
             // Asignar usuario actual si no está asignado
             if (movimiento.getUsuario() == null || movimiento.getUsuario().getId() == null) {
-                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-                if (auth != null && auth.isAuthenticated()) {
-                    String username = auth.getName();
-                    System.out.println("Usuario autenticado: " + username);
-
-                    Usuario usuario = usuarioService.obtenerUsuarioPorUsername(username)
-                        .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username));
-                    movimiento.setUsuario(usuario);
-                    System.out.println("Usuario asignado: " + usuario.getNombreCompleto());
-                } else {
-                    throw new RuntimeException("No hay usuario autenticado");
-                }
+                Usuario usuario = usuarioActualService.obtenerUsuarioActual()
+                    .orElseThrow(() -> new RuntimeException("No hay usuario autenticado"));
+                movimiento.setUsuario(usuario);
+                System.out.println("Usuario asignado: " + usuario.getNombreCompleto());
             }
 
             // Asignar fecha si no está asignada
@@ -167,12 +146,16 @@ public class MovimientoService {
                 movimiento.setFechaMovimiento(LocalDateTime.now());
             }
 
-            // ✅ CORRECCIÓN: Validar stock ANTES de guardar
             Integer afectaStock = tipoMovimiento.getAfectaStock();
-            System.out.println("Validando stock - Afecta: " + afectaStock);
-
-            if (afectaStock == -1) {
-                // Es una salida, verificar stock
+            System.out.println("Aplicando stock - Afecta: " + afectaStock);
+
+            if (libroStockService.isHabilitado()) {
+                // UPDATE condicional antes del INSERT: la salida se rechaza si el stock no alcanza
+                libroStockService.aplicarMovimiento(producto.getId(),
+                        movimiento.getLote() != null ? movimiento.getLote().getId() : null,
+                        afectaStock, movimiento.getCantidad());
+            } else if (afectaStock == -1) {
+                // Sin libro de stock: validación en Java y el trigger actualiza el stock al insertar
                 if (producto.getStockActual() < movimiento.getCantidad()) {
                     throw new RuntimeException("Stock insuficiente. Stock actual: " + 
                         producto.getStockActual() + ", Cantidad solicitada: " + movimiento.getCantidad());
@@ -180,10 +163,21 @@ public class MovimientoService {
                 System.out.println("✅ Stock suficiente para salida");
             }
 
-            // Guardar el movimiento (el trigger actualizará el stock)
             Movimiento movimientoGuardado = movimientoRepository.save(movimiento);
             System.out.println("✅ Movimiento registrado exitosamente - ID: " + movimientoGuardado.getId());
 
+            // Resumen diario para reportes, en la misma transacción
+            movimientoDiarioService.acumularMovimiento(movimientoGuardado);
+
+            // Evento para los suscriptores, con el stock ya actualizado
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("tipoMovimiento", tipoMovimiento.getNombre());
+            datos.put("afectaStock", afectaStock);
+            datos.put("cantidad", movimientoGuardado.getCantidad());
+            datos.put("loteId", movimientoGuardado.getLote() != null ? movimientoGuardado.getLote().getId() : null);
+            eventoInventarioService.emitirConStock(EventoInventario.Tipo.MOVIMIENTO_REGISTRADO,
+                    movimientoGuardado.getId(), producto.getId(), datos);
+
             return movimientoGuardado;
 
         } catch (Exception e) {
@@ -196,14 +190,7 @@ public class MovimientoService {
     @Transactional(readOnly = true)
     public Optional<Movimiento> obtenerMovimientoPorId(Integer id) {
         try {
-            Optional<Movimiento> movimientoOpt = movimientoRepository.findById(id);
-            if (movimientoOpt.isPresent()) {
-                Movimiento movimiento = movimientoOpt.get();
-                if (movimiento.getProducto() != null) movimiento.getProducto().getNombre();
-                if (movimiento.getUsuario() != null) movimiento.getUsuario().getNombreCompleto();
-                if (movimiento.getTipoMovimiento() != null) movimiento.getTipoMovimiento().getNombre();
-            }
-            return movimientoOpt;
+            return movimientoRepository.findConRelacionesById(id);
         } catch (Exception e) {
             System.err.println("Error al obtener movimiento por ID: " + e.getMessage());
             throw e;
@@ -213,19 +200,13 @@ public class MovimientoService {
     @Transactional(readOnly = true)
     public List<Movimiento> obtenerUltimosMovimientos(int limite) {
         try {
+            // El límite va a la consulta: antes se cargaba la semana completa y se cortaba en memoria
             LocalDateTime hace7Dias = LocalDateTime.now().minusDays(7);
-            List<Movimiento> movimientos = movimientoRepository.findMovimientosPorRangoFechas(hace7Dias, LocalDateTime.now());
-
-            for (Movimiento movimiento : movimientos) {
-                if (movimiento.getProducto() != null) movimiento.getProducto().getNombre();
-                if (movimiento.getUsuario() != null) movimiento.getUsuario().getNombreCompleto();
-                if (movimiento.getTipoMovimiento() != null) movimiento.getTipoMovimiento().getNombre();
-            }
-
-            return movimientos.stream().limit(limite).toList();
+            return movimientoRepository.findByFechaMovimientoAfterOrderByFechaMovimientoDescIdDesc(
+                    hace7Dias, PageRequest.of(0, limite));
         } catch (Exception e) {
             System.err.println("Error al obtener últimos movimientos: " + e.getMessage());
             throw e;
         }
     }
-}
\ No newline at end of file
+}
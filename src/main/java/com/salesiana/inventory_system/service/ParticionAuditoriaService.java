@@ -0,0 +1,263 @@
+package com.salesiana.inventory_system.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Particiones mensuales de la tabla auditoria.
+ *
+ * La tabla se particiona por RANGE sobre TO_DAYS(fecha_operacion), una partición pYYYYMM por mes
+ * más pfuturo para lo que quede fuera. Las búsquedas por rango de fechas solo leen los meses
+ * involucrados, y la retención borra meses completos con DROP PARTITION, que tarda lo mismo con
+ * mil filas que con millones.
+ *
+ * MySQL no admite claves foráneas en tablas particionadas y exige que la fecha forme parte de la
+ * clave primaria: al convertir la tabla se quita la FK de usuario_id y la PK pasa a ser
+ * (id, fecha_operacion). La conversión no se hace al arrancar: la pide un administrador.
+ */
+@Service
+public class ParticionAuditoriaService {
+
+    private static final String TABLA = "auditoria";
+    private static final String PARTICION_FUTURO = "pfuturo";
+    private static final DateTimeFormatter FORMATO_PARTICION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.auditoria.particiones.habilitadas:true}")
+    private boolean habilitadas;
+
+    @Value("${app.auditoria.particiones.meses-adelante:3}")
+    private int mesesAdelante;
+
+    @Value("${app.auditoria.retencion-meses:12}")
+    private int retencionMeses;
+
+    @Value("${app.auditoria.archivo.habilitado:true}")
+    private boolean archivoHabilitado;
+
+    /**
+     * Al arrancar solo se comprueba el esquema: la conversión es una operación explícita
+     * (convertirTabla, POST /auditoria/particiones/convertir) y las particiones de los próximos
+     * meses las crea el mantenimiento diario
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verificarParticiones() {
+        if (!habilitadas) {
+            return;
+        }
+        if (!estaParticionada()) {
+            System.err.println("⚠️ La tabla de auditoría no está particionada: la retención borra fila a fila. "
+                    + "Convierta la tabla con POST /auditoria/particiones/convertir (ADMIN) en una ventana de mantenimiento");
+            return;
+        }
+        TreeMap<YearMonth, Long> particiones = obtenerParticionesMensuales();
+        if (particiones.isEmpty() || particiones.lastKey().isBefore(YearMonth.now())) {
+            System.err.println("⚠️ Auditoría particionada sin partición para " + YearMonth.now()
+                    + ": las filas nuevas van a " + PARTICION_FUTURO + " hasta el mantenimiento diario");
+        } else {
+            System.out.println("✅ Auditoría particionada: " + particiones.size() + " meses, hasta " + particiones.lastKey());
+        }
+    }
+
+    /**
+     * Mantenimiento diario: particiones de los próximos meses y retención
+     */
+    @Scheduled(cron = "${app.auditoria.particiones.cron:0 30 2 * * *}")
+    public void mantenerParticiones() {
+        if (!habilitadas || !estaParticionada()) {
+            return;
+        }
+        asegurarParticionesFuturas();
+        // Con el archivo activo lo antiguo ya pasó a disco (ver ArchivoAuditoriaService) y se conserva
+        if (!archivoHabilitado) {
+            purgarAntesDe(YearMonth.now().minusMonths(retencionMeses).atDay(1).atStartOfDay());
+        }
+    }
+
+    //============================================
+    // RETENCIÓN
+    //============================================
+    /**
+     * Borra las auditorías anteriores a la fecha junto con sus conteos del resumen diario
+     *
+     * @return filas borradas; en los meses completos es la estimación de information_schema
+     */
+    public long purgarAntesDe(LocalDateTime limite) {
+        long inicio = System.currentTimeMillis();
+        long borradas = descartarAntesDe(limite);
+
+        // Conteos de los días completos que ya no están en la tabla
+        jdbcTemplate.update("DELETE FROM auditoria_diaria WHERE fecha < ?", Date.valueOf(limite.toLocalDate()));
+
+        System.out.println("🧹 Limpieza de auditorías anteriores a " + limite + ": " + borradas + " registros en "
+                + (System.currentTimeMillis() - inicio) + " ms");
+        return borradas;
+    }
+
+    /**
+     * Quita de la tabla las auditorías anteriores a la fecha: los meses completos con DROP PARTITION
+     * y, si la fecha cae a mitad de mes, el resto con un DELETE que solo recorre esa partición. El
+     * resumen diario no se toca (las archivadas siguen contando en las estadísticas)
+     *
+     * @return filas borradas; en los meses completos es la estimación de information_schema
+     */
+    public long descartarAntesDe(LocalDateTime limite) {
+        long borradas = 0;
+
+        if (estaParticionada()) {
+            List<String> completas = new ArrayList<>();
+            for (Map.Entry<YearMonth, Long> particion : obtenerParticionesMensuales().entrySet()) {
+                if (!particion.getKey().plusMonths(1).atDay(1).atStartOfDay().isAfter(limite)) {
+                    completas.add(nombreParticion(particion.getKey()));
+                    borradas += particion.getValue();
+                }
+            }
+            if (!completas.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE " + TABLA + " DROP PARTITION " + String.join(", ", completas));
+            }
+        }
+
+        return borradas + jdbcTemplate.update("DELETE FROM " + TABLA + " WHERE fecha_operacion < ?",
+                Timestamp.valueOf(limite));
+    }
+
+    //============================================
+    // PARTICIONES
+    //============================================
+    public boolean estaParticionada() {
+        Integer particiones = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL",
+                Integer.class, TABLA);
+        return particiones != null && particiones > 0;
+    }
+
+    /**
+     * Particiones pYYYYMM existentes con su número estimado de filas, en orden
+     */
+    private TreeMap<YearMonth, Long> obtenerParticionesMensuales() {
+        TreeMap<YearMonth, Long> particiones = new TreeMap<>();
+        jdbcTemplate.query(
+                "SELECT PARTITION_NAME, TABLE_ROWS FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME <> ?",
+                rs -> {
+                    String nombre = rs.getString("PARTITION_NAME");
+                    particiones.put(YearMonth.parse(nombre.substring(1), DateTimeFormatter.ofPattern("yyyyMM")),
+                            rs.getLong("TABLE_ROWS"));
+                },
+                TABLA, PARTICION_FUTURO);
+        return particiones;
+    }
+
+    /**
+     * Separa de pfuturo (vacía) las particiones del mes actual y los meses-adelante siguientes
+     */
+    private void asegurarParticionesFuturas() {
+        TreeMap<YearMonth, Long> existentes = obtenerParticionesMensuales();
+        YearMonth desde = existentes.isEmpty() ? YearMonth.now() : existentes.lastKey().plusMonths(1);
+        YearMonth hasta = YearMonth.now().plusMonths(mesesAdelante);
+        if (desde.isAfter(hasta)) {
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLA + " REORGANIZE PARTITION " + PARTICION_FUTURO + " INTO ("
+                + definirParticiones(desde, hasta) + ")");
+        System.out.println("✅ Particiones de auditoría creadas hasta " + hasta);
+    }
+
+    /**
+     * Conversión inicial, a pedido de un administrador: quita las FK, amplía la clave primaria y
+     * reparte las filas existentes por mes.
+     *
+     * Reescribe la tabla completa y bloquea las escrituras del escritor de auditoría mientras dura
+     * (sus lotes esperan y se reintentan). Se hace en dos ALTER: si el segundo falla la tabla queda
+     * sin FK y con la clave nueva pero sin particionar, un estado válido desde el que se puede
+     * volver a llamar. Cualquier error se propaga.
+     *
+     * @return meses particionados y duración
+     * @throws RuntimeException si la tabla ya está particionada o falla alguno de los pasos
+     */
+    public synchronized Map<String, Object> convertirTabla() {
+        if (estaParticionada()) {
+            throw new RuntimeException("La tabla de auditoría ya está particionada");
+        }
+        long inicio = System.currentTimeMillis();
+        System.out.println("⚠️ Convirtiendo la tabla de auditoría a particiones mensuales...");
+
+        List<String> cambios = new ArrayList<>();
+        for (String clave : jdbcTemplate.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS "
+                        + "WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                String.class, TABLA)) {
+            cambios.add("DROP FOREIGN KEY " + clave);
+        }
+        cambios.add("MODIFY fecha_operacion DATETIME(6) NOT NULL");
+        cambios.add("DROP PRIMARY KEY");
+        cambios.add("ADD PRIMARY KEY (id, fecha_operacion)");
+
+        try {
+            jdbcTemplate.update("UPDATE " + TABLA + " SET fecha_operacion = CURRENT_TIMESTAMP WHERE fecha_operacion IS NULL");
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " " + String.join(", ", cambios));
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo preparar la clave de auditoría para particionar "
+                    + "(la tabla no se particionó): " + e.getMessage(), e);
+        }
+
+        LocalDateTime masAntigua = jdbcTemplate.queryForObject(
+                "SELECT MIN(fecha_operacion) FROM " + TABLA, LocalDateTime.class);
+        YearMonth desde = masAntigua != null ? YearMonth.from(masAntigua) : YearMonth.now();
+        YearMonth hasta = YearMonth.now().plusMonths(mesesAdelante);
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + TABLA + " PARTITION BY RANGE (TO_DAYS(fecha_operacion)) ("
+                    + definirParticiones(desde, hasta) + ")");
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo particionar la tabla de auditoría (ya no tiene FK y su clave es "
+                    + "(id, fecha_operacion); se puede volver a intentar): " + e.getMessage(), e);
+        }
+
+        long duracion = System.currentTimeMillis() - inicio;
+        System.out.println("✅ Tabla de auditoría particionada en " + duracion + " ms");
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("desde", desde.toString());
+        resultado.put("hasta", hasta.toString());
+        resultado.put("milisegundos", duracion);
+        return resultado;
+    }
+
+    /**
+     * Definición de una partición por mes entre desde y hasta (inclusive), cerrando con pfuturo
+     */
+    private String definirParticiones(YearMonth desde, YearMonth hasta) {
+        StringBuilder sql = new StringBuilder();
+        for (YearMonth mes = desde; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            LocalDate limite = mes.plusMonths(1).atDay(1);
+            sql.append("PARTITION ").append(nombreParticion(mes))
+                    .append(" VALUES LESS THAN (TO_DAYS('").append(limite).append("')), ");
+        }
+        return sql.append("PARTITION ").append(PARTICION_FUTURO).append(" VALUES LESS THAN MAXVALUE").toString();
+    }
+
+    private static String nombreParticion(YearMonth mes) {
+        return mes.format(FORMATO_PARTICION);
+    }
+}
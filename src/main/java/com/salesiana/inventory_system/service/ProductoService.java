@@ -1,15 +1,21 @@
 package com.salesiana.inventory_system.service;
 
+import com.salesiana.inventory_system.entity.EventoInventario;
 import com.salesiana.inventory_system.entity.Producto;
 import com.salesiana.inventory_system.entity.UbicacionAlmacen;
 import com.salesiana.inventory_system.repository.ProductoRepository;
-import com.salesiana.inventory_system.repository.UbicacionAlmacenRepository;
 import com.salesiana.inventory_system.service.CodigoProductoService;
+import com.salesiana.inventory_system.util.PaginaKeyset;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -19,10 +25,16 @@ public class ProductoService {
     private ProductoRepository productoRepository;
     
     @Autowired
-    private UbicacionAlmacenRepository ubicacionAlmacenRepository;
+    private CatalogoService catalogoService;
     
     @Autowired
     private CodigoProductoService codigoProductoService;
+    
+    @Autowired
+    private EventoInventarioService eventoInventarioService;
+
+    @Value("${app.paginacion.tamano:50}")
+    private int tamanoPagina;
 
     public List<Producto> obtenerTodosProductos() {
         try {
@@ -36,6 +48,19 @@ public class ProductoService {
         }
     }
 
+    /**
+     * Página del listado de productos activos, de los creados más recientemente a los más antiguos
+     * @param despues token "siguiente" de la página anterior, o null para la primera
+     */
+    public PaginaKeyset<Producto> obtenerPaginaProductos(String despues) {
+        PaginaKeyset.Cursor cursor = PaginaKeyset.decodificar(despues);
+        Pageable limite = PageRequest.of(0, tamanoPagina + 1);
+        List<Producto> filas = cursor == null
+                ? productoRepository.findPrimeraPagina(limite)
+                : productoRepository.findPaginaDespuesDe(cursor.fecha(), cursor.id(), limite);
+        return PaginaKeyset.desde(filas, tamanoPagina, cursor == null, Producto::getFechaCreacion, Producto::getId);
+    }
+
     public Optional<Producto> obtenerProductoPorId(Integer id) {
         try {
             return productoRepository.findById(id);
@@ -109,7 +134,9 @@ public class ProductoService {
                 }
             }
             
-            return productoRepository.save(producto);
+            Producto productoGuardado = productoRepository.save(producto);
+            emitirCambio(productoGuardado);
+            return productoGuardado;
         } catch (Exception e) {
             System.err.println("Error al guardar producto: " + e.getMessage());
             e.printStackTrace();
@@ -117,11 +144,12 @@ public class ProductoService {
         }
     }
 
+    @Transactional
     public void eliminarProducto(Integer id) {
         try {
             productoRepository.findById(id).ifPresent(producto -> {
                 producto.setActivo(false);
-                productoRepository.save(producto);
+                emitirCambio(productoRepository.save(producto));
                 System.out.println("Producto eliminado (desactivado): " + id);
             });
         } catch (Exception e) {
@@ -139,6 +167,18 @@ public class ProductoService {
         }
     }
     
+    /**
+     * Evento de inventario con el stock y el estado del producto tal como quedaron guardados
+     */
+    private void emitirCambio(Producto producto) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("codigo", producto.getCodigo());
+        datos.put("stockActual", producto.getStockActual());
+        datos.put("stockMinimo", producto.getStockMinimo());
+        datos.put("activo", producto.getActivo());
+        eventoInventarioService.emitir(EventoInventario.Tipo.PRODUCTO_MODIFICADO, producto.getId(), producto.getId(), datos);
+    }
+    
     // Nuevo método para asignar ubicación por categoría
     private UbicacionAlmacen asignarUbicacionPorCategoria(com.salesiana.inventory_system.entity.Categoria categoria) {
         // Lógica para asignar ubicación según categoría
@@ -147,25 +187,35 @@ public class ProductoService {
             if (categoria.getNombre().toLowerCase().contains("medicamento") || 
                 categoria.getNombre().toLowerCase().contains("analgésico") || 
                 categoria.getNombre().toLowerCase().contains("antibiótico")) {
-                return ubicacionAlmacenRepository.findByCodigo("ZONA-A-E1-R1")
-                        .orElseGet(() -> ubicacionAlmacenRepository.findUbicacionesPrincipales().get(0));
+                return catalogoService.ubicaciones().porCodigo("ZONA-A-E1-R1")
+                        .orElseGet(() -> obtenerUbicacionPrincipal(0));
             } else if (categoria.getNombre().toLowerCase().contains("material") || 
                        categoria.getNombre().toLowerCase().contains("curación")) {
-                return ubicacionAlmacenRepository.findByCodigo("ZONA-C-E1")
-                        .orElseGet(() -> ubicacionAlmacenRepository.findUbicacionesPrincipales().get(1));
+                return catalogoService.ubicaciones().porCodigo("ZONA-C-E1")
+                        .orElseGet(() -> obtenerUbicacionPrincipal(1));
             } else if (categoria.getNombre().toLowerCase().contains("vitamina") || 
                        categoria.getNombre().toLowerCase().contains("suplemento")) {
-                return ubicacionAlmacenRepository.findByCodigo("ZONA-B-E1")
-                        .orElseGet(() -> ubicacionAlmacenRepository.findUbicacionesPrincipales().get(2));
+                return catalogoService.ubicaciones().porCodigo("ZONA-B-E1")
+                        .orElseGet(() -> obtenerUbicacionPrincipal(2));
             } else {
                 // Por defecto, asignar a una zona general
-                return ubicacionAlmacenRepository.findByCodigo("ZONA-B-E1")
-                        .orElseGet(() -> ubicacionAlmacenRepository.findUbicacionesPrincipales().get(0));
+                return catalogoService.ubicaciones().porCodigo("ZONA-B-E1")
+                        .orElseGet(() -> obtenerUbicacionPrincipal(0));
             }
         } catch (Exception e) {
             System.err.println("Error al asignar ubicación por categoría: " + e.getMessage());
             // Si hay error, devolver la primera ubicación disponible
-            return ubicacionAlmacenRepository.findUbicacionesPrincipales().get(0);
+            return obtenerUbicacionPrincipal(0);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Ubicación de primer nivel activa, en orden de id, desde el catálogo en memoria
+     */
+    private UbicacionAlmacen obtenerUbicacionPrincipal(int indice) {
+        return catalogoService.ubicaciones().todos().stream()
+                .filter(u -> u.getUbicacionPadre() == null && Boolean.TRUE.equals(u.getActiva()))
+                .toList()
+                .get(indice);
+    }
+}
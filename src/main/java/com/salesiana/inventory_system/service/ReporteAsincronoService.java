@@ -0,0 +1,291 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.ReporteGenerado;
+import com.salesiana.inventory_system.entity.Usuario;
+import com.salesiana.inventory_system.repository.ReporteGeneradoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Cola de generación de reportes en segundo plano.
+ *
+ * El usuario solicita un reporte y recibe el id del {@link ReporteGenerado}; un pool acotado de hilos
+ * lo genera en un archivo dentro de app.reportes.directorio-temp y el usuario consulta el estado
+ * hasta poder descargarlo. Los archivos se eliminan pasado app.reportes.tiempo-vida desde que el
+ * trabajo terminó.
+ */
+@Service
+public class ReporteAsincronoService {
+
+    @Autowired
+    private ReporteService reporteService;
+
+    @Autowired
+    private ReporteGeneradoService reporteGeneradoService;
+
+    @Autowired
+    private ReporteCacheService reporteCacheService;
+
+    @Autowired
+    private ReporteGeneradoRepository reporteGeneradoRepository;
+
+    @Autowired
+    private UsuarioActualService usuarioActualService;
+
+    @Value("${app.reportes.directorio-temp:/tmp/reportes}")
+    private String directorioTemp;
+
+    @Value("${app.reportes.tiempo-vida:1h}")
+    private Duration tiempoVida;
+
+    @Value("${app.reportes.async.hilos:2}")
+    private int hilos;
+
+    @Value("${app.reportes.async.capacidad-cola:20}")
+    private int capacidadCola;
+
+    @Value("${app.reportes.async.max-por-usuario:2}")
+    private int maxPorUsuario;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, GeneradorReporte> generadores = new HashMap<>();
+
+    // Trabajos pendientes o en proceso por id de usuario
+    private final Map<Integer, AtomicInteger> trabajosPorUsuario = new ConcurrentHashMap<>();
+
+    /**
+     * El usuario ya tiene max-por-usuario trabajos en curso o la cola del pool está llena: la
+     * solicitud se puede repetir más tarde (ReporteController responde 429)
+     */
+    public static class ReportesSaturadosException extends RuntimeException {
+        public ReportesSaturadosException(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Files.createDirectories(Paths.get(directorioTemp));
+
+        AtomicInteger contadorHilos = new AtomicInteger();
+        executor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                tarea -> new Thread(tarea, "reporte-async-" + contadorHilos.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        generadores.put(clave("inventario", ReporteGenerado.Formato.excel), reporteService::generarReporteInventarioExcel);
+        generadores.put(clave("inventario", ReporteGenerado.Formato.pdf), reporteService::generarReporteInventarioPdf);
+        generadores.put(clave("stock-bajo", ReporteGenerado.Formato.excel), reporteService::generarReporteStockBajoExcel);
+        generadores.put(clave("stock-bajo", ReporteGenerado.Formato.pdf), reporteService::generarReporteStockBajoPdf);
+        generadores.put(clave("vencimientos", ReporteGenerado.Formato.excel), reporteService::generarReporteVencimientosExcelReal);
+        generadores.put(clave("vencimientos", ReporteGenerado.Formato.pdf), reporteService::generarReporteVencimientosPdfReal);
+        generadores.put(clave("rotacion", ReporteGenerado.Formato.excel), reporteService::generarReporteRotacionExcelReal);
+        generadores.put(clave("rotacion", ReporteGenerado.Formato.pdf), reporteService::generarReporteRotacionPdfReal);
+        generadores.put(clave("movimientos-semanales", ReporteGenerado.Formato.excel), reporteService::generarReporteMovimientosSemanalesExcelReal);
+        generadores.put(clave("movimientos-semanales", ReporteGenerado.Formato.pdf), reporteService::generarReporteMovimientosSemanalesPdfReal);
+        generadores.put(clave("movimientos-anuales", ReporteGenerado.Formato.excel), reporteService::generarReporteMovimientosAnualesExcelReal);
+        generadores.put(clave("movimientos-anuales", ReporteGenerado.Formato.pdf), reporteService::generarReporteMovimientosAnualesPdfReal);
+
+        // Los trabajos que quedaron a medias en un reinicio ya no tienen hilo que los termine
+        List<ReporteGenerado> huerfanos = reporteGeneradoRepository.findByEstadoIn(
+                List.of(ReporteGenerado.Estado.PENDIENTE, ReporteGenerado.Estado.EN_PROCESO));
+        for (ReporteGenerado reporte : huerfanos) {
+            reporte.setEstado(ReporteGenerado.Estado.ERROR);
+            reporte.setMensajeError("Interrumpido por reinicio del servidor");
+            reporte.setFechaFinalizacion(LocalDateTime.now());
+            reporteGeneradoRepository.save(reporte);
+        }
+
+        System.out.println("✅ Cola de reportes iniciada: " + hilos + " hilos, capacidad " + capacidadCola
+                + ", directorio " + directorioTemp);
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encola la generación de un reporte y devuelve el registro con su id y estado PENDIENTE
+     */
+    public ReporteGenerado solicitarReporte(String tipo, ReporteGenerado.Formato formato, String username) {
+        GeneradorReporte generador = generadores.get(clave(tipo, formato));
+        if (generador == null) {
+            throw new IllegalArgumentException("Tipo de reporte no soportado: " + tipo + " (" + formato + ")");
+        }
+
+        Usuario usuario = usuarioActualService.obtenerPorUsername(username)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado: " + username));
+
+        AtomicInteger activos = trabajosPorUsuario.computeIfAbsent(usuario.getId(), id -> new AtomicInteger());
+        if (activos.incrementAndGet() > maxPorUsuario) {
+            activos.decrementAndGet();
+            throw new ReportesSaturadosException("Ya tiene " + maxPorUsuario + " reportes en proceso, espere a que terminen");
+        }
+
+        ReporteGenerado reporte;
+        try {
+            String extension = formato == ReporteGenerado.Formato.pdf ? ".pdf" : ".xlsx";
+            String nombreArchivo = "reporte_" + tipo.replace('-', '_') + "_"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + extension;
+            String parametros = "{\"tipo\": \"" + tipo + "\", \"formato\": \"" + formato + "\"}";
+
+            reporte = reporteGeneradoService.registrarReporte(tipo, formato, usuario.getId(), parametros, nombreArchivo, null);
+            reporte.setRutaArchivo(Paths.get(directorioTemp, reporte.getId() + "_" + nombreArchivo).toString());
+            reporte = reporteGeneradoRepository.save(reporte);
+        } catch (RuntimeException e) {
+            activos.decrementAndGet();
+            throw e;
+        }
+
+        Integer reporteId = reporte.getId();
+        Path ruta = Paths.get(reporte.getRutaArchivo());
+        try {
+            executor.execute(() -> ejecutar(reporteId, tipo, formato, ruta, generador, activos));
+        } catch (RejectedExecutionException e) {
+            activos.decrementAndGet();
+            marcarEstado(reporteId, ReporteGenerado.Estado.ERROR, "Cola de reportes llena");
+            throw new ReportesSaturadosException("La cola de reportes está llena, intente más tarde");
+        }
+
+        System.out.println("📥 Reporte " + reporteId + " (" + tipo + "/" + formato + ") encolado para " + username);
+        return reporte;
+    }
+
+    private void ejecutar(Integer reporteId, String tipo, ReporteGenerado.Formato formato, Path ruta,
+                          GeneradorReporte generador, AtomicInteger activos) {
+        long inicio = System.currentTimeMillis();
+        try {
+            marcarEstado(reporteId, ReporteGenerado.Estado.EN_PROCESO, null);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(ruta))) {
+                reporteCacheService.escribir(tipo, formato.name(), generador, out);
+            }
+            marcarEstado(reporteId, ReporteGenerado.Estado.COMPLETADO, null);
+            System.out.println("✅ Reporte " + reporteId + " generado en " + (System.currentTimeMillis() - inicio) + " ms");
+        } catch (Exception e) {
+            System.err.println("❌ Error generando reporte " + reporteId + ": " + e.getMessage());
+            e.printStackTrace();
+            eliminarArchivo(ruta);
+            String mensaje = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            marcarEstado(reporteId, ReporteGenerado.Estado.ERROR, mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje);
+        } finally {
+            activos.decrementAndGet();
+        }
+    }
+
+    private void marcarEstado(Integer reporteId, ReporteGenerado.Estado estado, String mensajeError) {
+        reporteGeneradoRepository.findById(reporteId).ifPresent(reporte -> {
+            reporte.setEstado(estado);
+            reporte.setMensajeError(mensajeError);
+            if (estado != ReporteGenerado.Estado.EN_PROCESO) {
+                reporte.setFechaFinalizacion(LocalDateTime.now());
+            }
+            reporteGeneradoRepository.save(reporte);
+        });
+    }
+
+    /**
+     * Devuelve el reporte solo si pertenece al usuario indicado
+     */
+    public ReporteGenerado obtenerReporte(Integer id, String username) {
+        ReporteGenerado reporte = reporteGeneradoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reporte no encontrado con ID: " + id));
+        if (reporte.getUsuario() == null || !username.equals(reporte.getUsuario().getUsername())) {
+            throw new RuntimeException("Reporte no encontrado con ID: " + id);
+        }
+        return reporte;
+    }
+
+    /**
+     * Ruta del archivo de un reporte terminado
+     */
+    public Path obtenerArchivo(Integer id, String username) {
+        ReporteGenerado reporte = obtenerReporte(id, username);
+        if (reporte.getEstado() != ReporteGenerado.Estado.COMPLETADO) {
+            throw new RuntimeException("El reporte " + id + " no está disponible (estado: " + reporte.getEstado() + ")");
+        }
+        Path ruta = Paths.get(reporte.getRutaArchivo());
+        if (!Files.isRegularFile(ruta)) {
+            throw new RuntimeException("El archivo del reporte " + id + " ya no existe");
+        }
+        return ruta;
+    }
+
+    /**
+     * Elimina los archivos cuya vida útil terminó y marca sus registros como EXPIRADO. La vida útil
+     * se cuenta desde que el trabajo terminó, no desde que se solicitó: un reporte que esperó en
+     * la cola o tardó en generarse sigue disponible app.reportes.tiempo-vida completo
+     */
+    @Scheduled(fixedDelayString = "${app.reportes.limpieza-intervalo:PT10M}")
+    public void limpiarReportesExpirados() {
+        LocalDateTime limite = LocalDateTime.now().minus(tiempoVida);
+        List<ReporteGenerado> expirados = reporteGeneradoRepository.findByEstadoInAndFechaFinalizacionBefore(
+                List.of(ReporteGenerado.Estado.COMPLETADO, ReporteGenerado.Estado.ERROR), limite);
+
+        for (ReporteGenerado reporte : expirados) {
+            if (reporte.getRutaArchivo() != null) {
+                eliminarArchivo(Paths.get(reporte.getRutaArchivo()));
+            }
+            reporte.setEstado(ReporteGenerado.Estado.EXPIRADO);
+            reporteGeneradoRepository.save(reporte);
+        }
+
+        // Archivos sueltos en el directorio (por ejemplo, de un reinicio a mitad de generación)
+        Instant limiteArchivos = Instant.now().minus(tiempoVida);
+        try (Stream<Path> archivos = Files.list(Paths.get(directorioTemp))) {
+            archivos.filter(Files::isRegularFile)
+                    .filter(archivo -> {
+                        try {
+                            return Files.getLastModifiedTime(archivo).toInstant().isBefore(limiteArchivos);
+                        } catch (IOException e) {
+                            return false;
+                        }
+                    })
+                    .forEach(this::eliminarArchivo);
+        } catch (IOException e) {
+            System.err.println("Error al limpiar directorio de reportes: " + e.getMessage());
+        }
+
+        if (!expirados.isEmpty()) {
+            System.out.println("🧹 Reportes expirados eliminados: " + expirados.size());
+        }
+    }
+
+    private void eliminarArchivo(Path ruta) {
+        try {
+            Files.deleteIfExists(ruta);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar " + ruta + ": " + e.getMessage());
+        }
+    }
+
+    private static String clave(String tipo, ReporteGenerado.Formato formato) {
+        return tipo + ":" + formato;
+    }
+}
@@ -0,0 +1,221 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.CambioDatosListener;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco de reportes generados.
+ *
+ * La clave combina tipo, formato, fecha del día y la versión de datos de {@link CambioDatosListener};
+ * mientras nadie modifique productos, lotes o movimientos, una descarga repetida se sirve desde el
+ * archivo sin tocar la base de datos. Las entradas se expulsan por LRU cuando el total en disco
+ * supera app.reportes.cache.max-bytes, y caducan pasado app.reportes.tiempo-vida para cubrir
+ * cambios hechos fuera de la aplicación.
+ */
+@Service
+public class ReporteCacheService {
+
+    @Value("${app.reportes.directorio-temp:/tmp/reportes}")
+    private String directorioTemp;
+
+    @Value("${app.reportes.tiempo-vida:1h}")
+    private Duration tiempoVida;
+
+    @Value("${app.reportes.cache.habilitada:true}")
+    private boolean habilitada;
+
+    @Value("${app.reportes.cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    private Path directorioCache;
+
+    // Orden de acceso: la primera entrada es la usada hace más tiempo
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesEnCache;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+
+    private record Entrada(Path archivo, long tamano, long creadaEn) {
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        directorioCache = Paths.get(directorioTemp, "cache");
+        Files.createDirectories(directorioCache);
+
+        // El índice vive en memoria: lo que quedó de una ejecución anterior no se puede reutilizar
+        try (Stream<Path> archivos = Files.list(directorioCache)) {
+            archivos.forEach(this::eliminarArchivo);
+        }
+    }
+
+    /**
+     * Escribe el reporte en out, desde la caché si hay una copia vigente o generándolo
+     * (y guardando la copia) si no la hay
+     */
+    public void escribir(String tipo, String formato, GeneradorReporte generador, OutputStream out) throws IOException {
+        if (!habilitada) {
+            generador.generar(out);
+            return;
+        }
+
+        String clave = calcularClave(tipo, formato);
+        InputStream copia = abrir(clave);
+        if (copia != null) {
+            aciertos.incrementAndGet();
+            try (copia) {
+                copia.transferTo(out);
+            }
+            return;
+        }
+
+        fallos.incrementAndGet();
+        Path parcial = directorioCache.resolve(clave + ".parcial-" + UUID.randomUUID());
+        try (OutputStream archivo = new BufferedOutputStream(Files.newOutputStream(parcial))) {
+            // Se envía al cliente y a disco a la vez para no retrasar la descarga
+            generador.generar(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    archivo.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    archivo.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            eliminarArchivo(parcial);
+            throw e;
+        }
+
+        Path destino = directorioCache.resolve(clave);
+        Files.move(parcial, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        agregar(clave, new Entrada(destino, Files.size(destino), System.currentTimeMillis()));
+    }
+
+    /**
+     * Abre la copia vigente con el bloqueo tomado: una expulsión posterior puede borrar el archivo,
+     * pero lo ya abierto se sigue leyendo completo. Si el archivo ya no está se trata como fallo
+     */
+    private synchronized InputStream abrir(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entrada.creadaEn() > tiempoVida.toMillis()) {
+            quitar(clave);
+            return null;
+        }
+        try {
+            return Files.newInputStream(entrada.archivo());
+        } catch (IOException e) {
+            quitar(clave);
+            return null;
+        }
+    }
+
+    private synchronized void agregar(String clave, Entrada entrada) {
+        Entrada anterior = entradas.put(clave, entrada);
+        if (anterior != null) {
+            bytesEnCache -= anterior.tamano();
+        }
+        bytesEnCache += entrada.tamano();
+
+        Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+        while (bytesEnCache > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entrada> masAntigua = it.next();
+            if (masAntigua.getKey().equals(clave)) {
+                continue;
+            }
+            it.remove();
+            bytesEnCache -= masAntigua.getValue().tamano();
+            eliminarArchivo(masAntigua.getValue().archivo());
+        }
+    }
+
+    private synchronized void quitar(String clave) {
+        Entrada entrada = entradas.remove(clave);
+        if (entrada != null) {
+            bytesEnCache -= entrada.tamano();
+            eliminarArchivo(entrada.archivo());
+        }
+    }
+
+    /**
+     * Vacía la caché completa
+     */
+    public synchronized void limpiar() {
+        for (Entrada entrada : entradas.values()) {
+            eliminarArchivo(entrada.archivo());
+        }
+        entradas.clear();
+        bytesEnCache = 0;
+    }
+
+    public synchronized Map<String, Object> obtenerEstadisticas() {
+        long totalAciertos = aciertos.get();
+        long totalFallos = fallos.get();
+        long total = totalAciertos + totalFallos;
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitada", habilitada);
+        estadisticas.put("aciertos", totalAciertos);
+        estadisticas.put("fallos", totalFallos);
+        estadisticas.put("tasaAciertos", total > 0 ? (double) totalAciertos / total : 0.0);
+        estadisticas.put("entradas", entradas.size());
+        estadisticas.put("bytes", bytesEnCache);
+        estadisticas.put("maxBytes", maxBytes);
+        estadisticas.put("versionDatos", CambioDatosListener.getVersion());
+        return estadisticas;
+    }
+
+    private String calcularClave(String tipo, String formato) {
+        String base = tipo + "|" + formato + "|" + LocalDate.now() + "|" + CambioDatosListener.getVersion();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(base.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private void eliminarArchivo(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar " + archivo + ": " + e.getMessage());
+        }
+    }
+}
@@ -11,6 +11,7 @@ package com.salesiana.inventory_system.service;
 
 import com.salesiana.inventory_system.entity.ReporteGenerado;
 import com.salesiana.inventory_system.repository.ReporteGeneradoRepository;
+import com.salesiana.inventory_system.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -23,6 +24,9 @@ public class ReporteGeneradoService {
     @Autowired
     private ReporteGeneradoRepository reporteGeneradoRepository;
     
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    
     public List<ReporteGenerado> obtenerReportesPorUsuario(Integer usuarioId) {
         return reporteGeneradoRepository.findByUsuarioIdOrderByFechaGeneracionDesc(usuarioId);
     }
@@ -42,7 +46,8 @@ public class ReporteGeneradoService {
         ReporteGenerado reporte = new ReporteGenerado();
         reporte.setTipoReporte(tipoReporte);
         reporte.setFormato(formato);
-        // usuario se setearía si se tiene el objeto completo
+        reporte.setUsuario(usuarioRepository.findById(usuarioId)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + usuarioId)));
         reporte.setParametros(parametros);
         reporte.setNombreArchivo(nombreArchivo);
         reporte.setRutaArchivo(rutaArchivo);
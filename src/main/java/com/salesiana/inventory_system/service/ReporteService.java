@@ -2,21 +2,29 @@ package com.salesiana.inventory_system.service;
 
 import com.salesiana.inventory_system.entity.*;
 import com.salesiana.inventory_system.repository.*;
+import com.salesiana.inventory_system.util.PdfReporteWriter;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ReporteService {
@@ -44,6 +52,23 @@ public class ReporteService {
     
     @Autowired
     private UbicacionAlmacenService ubicacionService;
+    
+    @Autowired
+    private AnaliticaMovimientosService analiticaService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Filas que SXSSF mantiene en memoria; el resto se vuelca a un temporal en disco
+    @Value("${app.reportes.excel.ventana-filas:500}")
+    private int ventanaFilasExcel;
+
+    // Fuentes TTF locales que se incrustan en los PDF
+    @Value("${app.reportes.pdf.fuente:/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf}")
+    private String fuentePdf;
+
+    @Value("${app.reportes.pdf.fuente-negrita:/usr/share/fonts/truetype/dejavu/DejaVuSans-Bold.ttf}")
+    private String fuentePdfNegrita;
 
     //============================================
     // REPORTES DE INVENTARIO - EXCEL
@@ -51,14 +76,10 @@ public class ReporteService {
     /**
      * Genera reporte de inventario completo en formato Excel CON FORMATO PROFESIONAL
      */
-    public byte[] generarReporteInventarioExcel() throws IOException {
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        Workbook workbook = null;
-        ByteArrayOutputStream out = null;
+    @Transactional(readOnly = true)
+    public void generarReporteInventarioExcel(OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = crearLibroStreaming();
         try {
-            workbook = new XSSFWorkbook();
-            out = new ByteArrayOutputStream();
-            
             Sheet sheet = workbook.createSheet("Inventario");
             
             // 🎨 ESTILOS PROFESIONALES
@@ -106,80 +127,89 @@ public class ReporteService {
             
             // 📊 DATOS DE PRODUCTOS
             BigDecimal valorTotalInventario = BigDecimal.ZERO;
+            int totalProductos = 0;
             int totalAgotados = 0;
             int totalStockBajo = 0;
             
-            for (Producto producto : productos) {
-                Row row = sheet.createRow(rowNum++);
+            try (Stream<Producto> productos = productoRepository.streamProductosActivos()) {
+                Iterator<Producto> cursor = productos.iterator();
+                while (cursor.hasNext()) {
+                    Producto producto = cursor.next();
+                    totalProductos++;
+                    Row row = sheet.createRow(rowNum++);
                 
-                // Código
-                Cell cellCodigo = row.createCell(0);
-                cellCodigo.setCellValue(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO");
-                cellCodigo.setCellStyle(datosStyle);
+                    // Código
+                    Cell cellCodigo = row.createCell(0);
+                    cellCodigo.setCellValue(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO");
+                    cellCodigo.setCellStyle(datosStyle);
                 
-                // Nombre
-                Cell cellNombre = row.createCell(1);
-                cellNombre.setCellValue(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE");
-                cellNombre.setCellStyle(datosStyle);
+                    // Nombre
+                    Cell cellNombre = row.createCell(1);
+                    cellNombre.setCellValue(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE");
+                    cellNombre.setCellStyle(datosStyle);
                 
-                // Categoría
-                Cell cellCategoria = row.createCell(2);
-                cellCategoria.setCellValue(
-                    producto.getCategoria() != null ? 
-                    producto.getCategoria().getNombre() : "Sin categoría"
-                );
-                cellCategoria.setCellStyle(datosStyle);
+                    // Categoría
+                    Cell cellCategoria = row.createCell(2);
+                    cellCategoria.setCellValue(
+                        producto.getCategoria() != null ? 
+                        producto.getCategoria().getNombre() : "Sin categoría"
+                    );
+                    cellCategoria.setCellStyle(datosStyle);
                 
-                // Stock Actual
-                Cell cellStock = row.createCell(3);
-                cellStock.setCellValue(producto.getStockActual() != null ? producto.getStockActual() : 0);
-                cellStock.setCellStyle(datosStyle);
+                    // Stock Actual
+                    Cell cellStock = row.createCell(3);
+                    cellStock.setCellValue(producto.getStockActual() != null ? producto.getStockActual() : 0);
+                    cellStock.setCellStyle(datosStyle);
                 
-                // Stock Mínimo
-                Cell cellStockMin = row.createCell(4);
-                cellStockMin.setCellValue(producto.getStockMinimo() != null ? producto.getStockMinimo() : 0);
-                cellStockMin.setCellStyle(datosStyle);
+                    // Stock Mínimo
+                    Cell cellStockMin = row.createCell(4);
+                    cellStockMin.setCellValue(producto.getStockMinimo() != null ? producto.getStockMinimo() : 0);
+                    cellStockMin.setCellStyle(datosStyle);
                 
-                // Precio Compra (en Bs)
-                Cell cellPrecioCompra = row.createCell(5);
-                if (producto.getPrecioCompra() != null) {
-                    cellPrecioCompra.setCellValue(producto.getPrecioCompra().doubleValue());
-                } else {
-                    cellPrecioCompra.setCellValue(0);
-                }
-                cellPrecioCompra.setCellStyle(monedaStyle);
+                    // Precio Compra (en Bs)
+                    Cell cellPrecioCompra = row.createCell(5);
+                    if (producto.getPrecioCompra() != null) {
+                        cellPrecioCompra.setCellValue(producto.getPrecioCompra().doubleValue());
+                    } else {
+                        cellPrecioCompra.setCellValue(0);
+                    }
+                    cellPrecioCompra.setCellStyle(monedaStyle);
                 
-                // Precio Venta (en Bs)
-                Cell cellPrecioVenta = row.createCell(6);
-                if (producto.getPrecioVenta() != null) {
-                    cellPrecioVenta.setCellValue(producto.getPrecioVenta().doubleValue());
-                } else {
-                    cellPrecioVenta.setCellValue(0);
-                }
-                cellPrecioVenta.setCellStyle(monedaStyle);
+                    // Precio Venta (en Bs)
+                    Cell cellPrecioVenta = row.createCell(6);
+                    if (producto.getPrecioVenta() != null) {
+                        cellPrecioVenta.setCellValue(producto.getPrecioVenta().doubleValue());
+                    } else {
+                        cellPrecioVenta.setCellValue(0);
+                    }
+                    cellPrecioVenta.setCellStyle(monedaStyle);
                 
-                // Valor Inventario (en Bs)
-                BigDecimal valorInventario = BigDecimal.ZERO;
-                if (producto.getPrecioCompra() != null && producto.getStockActual() != null) {
-                    valorInventario = producto.getPrecioCompra().multiply(BigDecimal.valueOf(producto.getStockActual()));
-                }
-                Cell cellValor = row.createCell(7);
-                cellValor.setCellValue(valorInventario.doubleValue());
-                cellValor.setCellStyle(monedaStyle);
-                valorTotalInventario = valorTotalInventario.add(valorInventario);
+                    // Valor Inventario (en Bs)
+                    BigDecimal valorInventario = BigDecimal.ZERO;
+                    if (producto.getPrecioCompra() != null && producto.getStockActual() != null) {
+                        valorInventario = producto.getPrecioCompra().multiply(BigDecimal.valueOf(producto.getStockActual()));
+                    }
+                    Cell cellValor = row.createCell(7);
+                    cellValor.setCellValue(valorInventario.doubleValue());
+                    cellValor.setCellStyle(monedaStyle);
+                    valorTotalInventario = valorTotalInventario.add(valorInventario);
                 
-                // Estado con COLORES
-                String estado = determinarEstadoStock(producto);
-                Cell cellEstado = row.createCell(8);
-                cellEstado.setCellValue(estado);
-                if (estado.equals("AGOTADO")) {
-                    cellEstado.setCellStyle(estadoAgotadoStyle);
-                    totalAgotados++;
-                } else if (estado.equals("CRÍTICO")) {
-                    cellEstado.setCellStyle(estadoCriticoStyle);
-                    totalStockBajo++;
-                } else {
-                    cellEstado.setCellStyle(estadoNormalStyle);
+                    // Estado con COLORES
+                    String estado = determinarEstadoStock(producto);
+                    Cell cellEstado = row.createCell(8);
+                    cellEstado.setCellValue(estado);
+                    if (estado.equals("AGOTADO")) {
+                        cellEstado.setCellStyle(estadoAgotadoStyle);
+                        totalAgotados++;
+                    } else if (estado.equals("CRÍTICO")) {
+                        cellEstado.setCellStyle(estadoCriticoStyle);
+                        totalStockBajo++;
+                    } else {
+                        cellEstado.setCellStyle(estadoNormalStyle);
+                    }
+                    
+                    // La fila ya está escrita: se libera del contexto para que no crezca con el cursor
+                    entityManager.detach(producto);
                 }
             }
             
@@ -196,7 +226,7 @@ public class ReporteService {
             Row totalProductosRow = sheet.createRow(rowNum++);
             totalProductosRow.createCell(0).setCellValue("Total de Productos:");
             totalProductosRow.getCell(0).setCellStyle(resumenStyle);
-            totalProductosRow.createCell(1).setCellValue(productos.size());
+            totalProductosRow.createCell(1).setCellValue(totalProductos);
             totalProductosRow.getCell(1).setCellStyle(datosStyle);
             
             // Stock bajo
@@ -221,43 +251,24 @@ public class ReporteService {
             valorTotalCell.setCellValue(valorTotalInventario.doubleValue());
             valorTotalCell.setCellStyle(monedaStyle);
             
-            // Autoajustar columnas
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 1000);
-            }
+            // Ancho fijo por columna: el autoajuste no ve las filas ya volcadas a disco
+            aplicarAnchoColumnas(sheet, 28, 40, 24, 14, 14, 20, 20, 24, 14);
             
-            // CRÍTICO: Escribir al stream ANTES de cerrar
             workbook.write(out);
             
             System.out.println("✅ Reporte de inventario generado exitosamente con formato Bs y año 2025");
-            return out.toByteArray();
         } finally {
-            // Cerrar recursos en orden inverso
-            if (workbook != null) {
-                try { workbook.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar workbook: " + e.getMessage());
-                }
-            }
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar output stream: " + e.getMessage());
-                }
-            }
+            cerrarLibroStreaming(workbook);
         }
     }
 
     /**
      * Genera reporte de stock bajo en formato Excel con formato profesional
      */
-    public byte[] generarReporteStockBajoExcel() throws IOException {
+    public void generarReporteStockBajoExcel(OutputStream out) throws IOException {
         List<Producto> productos = productoService.obtenerProductosStockBajo();
-        Workbook workbook = null;
-        ByteArrayOutputStream out = null;
+        SXSSFWorkbook workbook = crearLibroStreaming();
         try {
-            workbook = new XSSFWorkbook();
-            out = new ByteArrayOutputStream();
-            
             Sheet sheet = workbook.createSheet("Stock Bajo");
             
             // Estilos
@@ -338,27 +349,14 @@ public class ReporteService {
                 }
             }
             
-            // Autoajustar columnas
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 500);
-            }
+            // Ancho fijo por columna: el autoajuste no ve las filas ya volcadas a disco
+            aplicarAnchoColumnas(sheet, 22, 40, 24, 14, 14, 12, 20);
             
             workbook.write(out);
             
             System.out.println("✅ Reporte de stock bajo generado exitosamente con formato Bs");
-            return out.toByteArray();
         } finally {
-            if (workbook != null) {
-                try { workbook.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar workbook: " + e.getMessage());
-                }
-            }
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar output stream: " + e.getMessage());
-                }
-            }
+            cerrarLibroStreaming(workbook);
         }
     }
 
@@ -368,17 +366,13 @@ public class ReporteService {
     /**
      * Genera reporte de vencimientos en formato Excel
      */
-    public byte[] generarReporteVencimientosExcelReal() throws IOException {
+    @Transactional(readOnly = true)
+    public void generarReporteVencimientosExcelReal(OutputStream out) throws IOException {
         LocalDate hoy = LocalDate.now();
         LocalDate limite = hoy.plusDays(30);
         
-        List<Lote> lotesPorVencer = loteRepository.findByFechaVencimientoBetween(hoy, limite);
-        Workbook workbook = null;
-        ByteArrayOutputStream out = null;
+        SXSSFWorkbook workbook = crearLibroStreaming();
         try {
-            workbook = new XSSFWorkbook();
-            out = new ByteArrayOutputStream();
-            
             Sheet sheet = workbook.createSheet("Vencimientos");
             
             // Estilos
@@ -429,206 +423,131 @@ public class ReporteService {
             headerRow.setHeight((short) 400);
             
             // Datos
-            for (Lote lote : lotesPorVencer) {
-                Row row = sheet.createRow(rowNum++);
+            try (Stream<Lote> lotesPorVencer = loteRepository.streamLotesPorVencimiento(hoy, limite)) {
+                Iterator<Lote> cursor = lotesPorVencer.iterator();
+                while (cursor.hasNext()) {
+                    Lote lote = cursor.next();
+                    Row row = sheet.createRow(rowNum++);
                 
-                // Código producto
-                row.createCell(0).setCellValue(lote.getProducto().getCodigo() != null ? lote.getProducto().getCodigo() : "SIN CÓDIGO");
+                    // Código producto
+                    row.createCell(0).setCellValue(lote.getProducto().getCodigo() != null ? lote.getProducto().getCodigo() : "SIN CÓDIGO");
                 
-                // Nombre producto
-                row.createCell(1).setCellValue(lote.getProducto().getNombre() != null ? lote.getProducto().getNombre() : "SIN NOMBRE");
+                    // Nombre producto
+                    row.createCell(1).setCellValue(lote.getProducto().getNombre() != null ? lote.getProducto().getNombre() : "SIN NOMBRE");
                 
-                // Categoría
-                row.createCell(2).setCellValue(
-                    lote.getProducto().getCategoria() != null ? 
-                    lote.getProducto().getCategoria().getNombre() : "Sin categoría"
-                );
+                    // Categoría
+                    row.createCell(2).setCellValue(
+                        lote.getProducto().getCategoria() != null ? 
+                        lote.getProducto().getCategoria().getNombre() : "Sin categoría"
+                    );
                 
-                // Número de lote
-                row.createCell(3).setCellValue(lote.getNumeroLote() != null ? lote.getNumeroLote() : "SIN LOTE");
+                    // Número de lote
+                    row.createCell(3).setCellValue(lote.getNumeroLote() != null ? lote.getNumeroLote() : "SIN LOTE");
                 
-                // Fecha de vencimiento
-                row.createCell(4).setCellValue(lote.getFechaVencimiento().toString());
+                    // Fecha de vencimiento
+                    row.createCell(4).setCellValue(lote.getFechaVencimiento().toString());
                 
-                // Días restantes
-                long diasRestantes = java.time.temporal.ChronoUnit.DAYS.between(hoy, lote.getFechaVencimiento());
-                Cell diasCell = row.createCell(5);
-                diasCell.setCellValue(diasRestantes);
-                if (diasRestantes <= 7) {
-                    diasCell.setCellStyle(vencidoStyle);
-                } else if (diasRestantes <= 15) {
-                    diasCell.setCellStyle(proximoVencerStyle);
-                }
+                    // Días restantes
+                    long diasRestantes = java.time.temporal.ChronoUnit.DAYS.between(hoy, lote.getFechaVencimiento());
+                    Cell diasCell = row.createCell(5);
+                    diasCell.setCellValue(diasRestantes);
+                    if (diasRestantes <= 7) {
+                        diasCell.setCellStyle(vencidoStyle);
+                    } else if (diasRestantes <= 15) {
+                        diasCell.setCellStyle(proximoVencerStyle);
+                    }
                 
-                // Cantidad actual
-                row.createCell(6).setCellValue(lote.getCantidadActual() != null ? lote.getCantidadActual() : 0);
+                    // Cantidad actual
+                    row.createCell(6).setCellValue(lote.getCantidadActual() != null ? lote.getCantidadActual() : 0);
                 
-                // Precio Compra (en Bs)
-                if (lote.getProducto().getPrecioCompra() != null) {
-                    row.createCell(7).setCellValue(lote.getProducto().getPrecioCompra().doubleValue());
-                } else {
-                    row.createCell(7).setCellValue(0);
-                }
-                row.getCell(7).setCellStyle(monedaStyle);
+                    // Precio Compra (en Bs)
+                    if (lote.getProducto().getPrecioCompra() != null) {
+                        row.createCell(7).setCellValue(lote.getProducto().getPrecioCompra().doubleValue());
+                    } else {
+                        row.createCell(7).setCellValue(0);
+                    }
+                    row.getCell(7).setCellStyle(monedaStyle);
                 
-                // Estilos
-                for (int i = 0; i < 7; i++) {
-                    row.getCell(i).setCellStyle(datosStyle);
+                    // Estilos
+                    for (int i = 0; i < 7; i++) {
+                        row.getCell(i).setCellStyle(datosStyle);
+                    }
+                    
+                    // La fila ya está escrita: se libera del contexto para que no crezca con el cursor
+                    entityManager.detach(lote);
                 }
             }
             
-            // Autoajustar columnas
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 500);
-            }
+            // Ancho fijo por columna: el autoajuste no ve las filas ya volcadas a disco
+            aplicarAnchoColumnas(sheet, 22, 40, 24, 18, 18, 16, 10, 20);
             
             workbook.write(out);
             
             System.out.println("✅ Reporte de vencimientos generado exitosamente con formato Bs y año 2025");
-            return out.toByteArray();
         } finally {
-            if (workbook != null) {
-                try { workbook.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar workbook: " + e.getMessage());
-                }
-            }
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar output stream: " + e.getMessage());
-                }
-            }
+            cerrarLibroStreaming(workbook);
         }
     }
 
     /**
-     * Genera reporte de vencimientos en formato PDF (HTML)
+     * Genera reporte de vencimientos en formato PDF
      */
-    public byte[] generarReporteVencimientosPdfReal() throws IOException {
+    @Transactional(readOnly = true)
+    public void generarReporteVencimientosPdfReal(OutputStream out) throws IOException {
         LocalDate hoy = LocalDate.now();
         LocalDate limite = hoy.plusDays(30);
-        
-        List<Lote> lotesPorVencer = loteRepository.findByFechaVencimientoBetween(hoy, limite);
-        StringBuilder html = new StringBuilder();
-        
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
-        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
-        html.append("<title>Reporte de Vencimientos</title>");
-        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
-        html.append("<style>");
-        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
-        html.append("h1{ color:#e74c3c; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#e74c3c; padding-bottom: 10px; font-size: 2.5rem;}");
-        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#fef9e7; padding: 10px; border-radius: 8px;}");
-        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
-        html.append(".download-btn{ background: linear-gradient(135deg,#e74c3c 0%,#c0392b 100%); color: white; padding: 12px 24px;");
-        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
-        html.append("box-shadow: 0 4px 15px rgba(231, 76, 60, 0.3); transition: all 0.3s ease;");
-        html.append("display: flex; align-items: center; gap: 10px;}");
-        html.append(".download-btn:hover{ background: linear-gradient(135deg,#c0392b 0%,#a93226 100%);");
-        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(231, 76, 60, 0.4);}");
-        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
-        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
-        html.append("th, td{ border: 1px solid#ddd; padding: 12px; text-align: left; font-size: 14px;}");
-        html.append("th{ background-color:#e74c3c; color: white; font-weight: bold;}");
-        html.append("tr:nth-child(even){ background-color:#fef9e7;}");
-        html.append(".alert{ background-color:#fff3cd; padding: 15px; border-left: 4px solid#ffc107; margin: 20px 0; border-radius: 8px;}");
-        html.append(".resumen{ margin-top: 20px; padding: 20px; background-color:#e74c3c; color: white; border-radius: 10px;}");
-        html.append(".header-section{ background: linear-gradient(135deg,#e74c3c 0%,#c0392b 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
-        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#ddd;}");
-        html.append(".vencido{ background-color:#e74c3c; color: white;}");
-        html.append(".proximo-vencer{ background-color:#f39c12; color: white;}");
-        html.append("</style></head><body>");
-        
-        // Botón de descarga
-        html.append("<div class='download-container'>");
-        html.append("<button class='download-btn' onclick='window.print()'>");
-        html.append("<span>📥</span><span>Descargar PDF</span>");
-        html.append("</button>");
-        html.append("</div>");
-        
-        // Encabezado
-        html.append("<div class='header-section'>");
-        html.append("<h1>📅 REPORTE DE VENCIMIENTOS PRÓXIMOS - DROGUERÍA INTI</h1>");
-        html.append("<p>Productos que vencen en los próximos 30 días - 2025</p>");
-        html.append("</div>");
-        
-        // Fecha
         LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
-        html.append("<div class='info'>");
-        html.append("<strong>Fecha:</strong> ");
-        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-        html.append("</div>");
-        
-        html.append("<div class='alert'>");
-        html.append("<strong>⚠️ ALERTA:</strong> Estos productos requieren atención inmediata para reposición");
-        html.append("</div>");
         
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Código</th><th>Nombre</th><th>Categoría</th><th>Lote</th><th>Fecha Vencimiento</th>");
-        html.append("<th>Días Restantes</th><th>Stock</th><th>Precio Compra (Bs)</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
-        
-        int totalVencimientos = 0;
-        
-        for (Lote lote : lotesPorVencer) {
-            totalVencimientos++;
-            
-            long diasRestantes = java.time.temporal.ChronoUnit.DAYS.between(hoy, lote.getFechaVencimiento());
-            String claseVencimiento = diasRestantes <= 7 ? "vencido" : 
-                                    (diasRestantes <= 15 ? "proximo-vencer" : "");
-            
-            html.append("<tr>");
-            html.append("<td>").append(escaparHtml(lote.getProducto().getCodigo() != null ? lote.getProducto().getCodigo() : "SIN CÓDIGO")).append("</td>");
-            html.append("<td>").append(escaparHtml(lote.getProducto().getNombre() != null ? lote.getProducto().getNombre() : "SIN NOMBRE")).append("</td>");
-            html.append("<td>").append(
-                lote.getProducto().getCategoria() != null ? 
-                escaparHtml(lote.getProducto().getCategoria().getNombre()) : "Sin categoría"
-            ).append("</td>");
-            html.append("<td>").append(lote.getNumeroLote() != null ? lote.getNumeroLote() : "SIN LOTE").append("</td>");
-            html.append("<td>").append(lote.getFechaVencimiento().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))).append("</td>");
-            
-            html.append("<td style='text-align: center;'>");
-            if (!claseVencimiento.isEmpty()) {
-                html.append("<span class='").append(claseVencimiento).append("'>").append(diasRestantes).append("</span>");
-            } else {
-                html.append(diasRestantes);
+        try (PdfReporteWriter pdf = crearPdf(out, PdfReporteWriter.COLOR_ROJO)) {
+            pdf.encabezado("REPORTE DE VENCIMIENTOS PRÓXIMOS - DROGUERÍA INTI",
+                          "Productos que vencen en los próximos 30 días - 2025");
+            pdf.info("Fecha: " + fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+            pdf.alerta("ALERTA: Estos productos requieren atención inmediata para reposición");
+            
+            pdf.iniciarTabla(new float[]{10, 24, 14, 10, 11, 9, 8, 12},
+                    "Código", "Nombre", "Categoría", "Lote", "Fecha Vencimiento",
+                    "Días Restantes", "Stock", "Precio Compra (Bs)");
+            
+            int totalVencimientos = 0;
+            try (Stream<Lote> lotes = loteRepository.streamLotesPorVencimiento(hoy, limite)) {
+                Iterator<Lote> cursor = lotes.iterator();
+                while (cursor.hasNext()) {
+                    Lote lote = cursor.next();
+                    totalVencimientos++;
+                    
+                    Producto producto = lote.getProducto();
+                    long diasRestantes = java.time.temporal.ChronoUnit.DAYS.between(hoy, lote.getFechaVencimiento());
+                    
+                    pdf.celda(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO");
+                    pdf.celda(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE");
+                    pdf.celda(producto.getCategoria() != null ? producto.getCategoria().getNombre() : "Sin categoría");
+                    pdf.celda(lote.getNumeroLote() != null ? lote.getNumeroLote() : "SIN LOTE");
+                    pdf.celdaCentrada(lote.getFechaVencimiento().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+                    if (diasRestantes <= 7) {
+                        pdf.celdaResaltada(diasRestantes, PdfReporteWriter.COLOR_ROJO);
+                    } else if (diasRestantes <= 15) {
+                        pdf.celdaResaltada(diasRestantes, PdfReporteWriter.COLOR_NARANJA);
+                    } else {
+                        pdf.celdaCentrada(diasRestantes);
+                    }
+                    pdf.celdaCentrada(lote.getCantidadActual() != null ? lote.getCantidadActual() : 0);
+                    pdf.celdaDerecha(formatearBs(producto.getPrecioCompra()));
+                    
+                    entityManager.detach(lote);
+                }
             }
-            html.append("</td>");
             
-            html.append("<td style='text-align: center;'>").append(lote.getCantidadActual() != null ? lote.getCantidadActual() : 0).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(
-                lote.getProducto().getPrecioCompra() != null ? String.format("%.2f", lote.getProducto().getPrecioCompra()) : "0.00"
-            ).append("</td>");
-            html.append("</tr>");
-        }
-        
-        if (totalVencimientos == 0) {
-            html.append("<tr><td colspan='8' class='text-center py-5'>");
-            html.append("<i class='fas fa-check-circle fa-3x text-success mb-3'></i>");
-            html.append("<p class='text-muted mb-0'>¡Excelente! No hay productos próximos a vencer</p>");
-            html.append("</td></tr>");
+            if (totalVencimientos == 0) {
+                pdf.filaMensaje("¡Excelente! No hay productos próximos a vencer");
+            }
+            
+            pdf.resumen("Resumen", new String[][]{
+                {"Total de Productos con Vencimiento Próximo", String.valueOf(totalVencimientos)}
+            }, "Se recomienda revisar y dar prioridad a los productos con mayor crítica.");
+            agregarPiePdf(pdf, fecha2025);
         }
         
-        html.append("</tbody></table>");
-        
-        html.append("<div class='resumen'>");
-        html.append("<h3>Resumen</h3>");
-        html.append("<p><strong>Total de Productos con Vencimiento Próximo:</strong> ").append(totalVencimientos).append("</p>");
-        html.append("<p><em>Se recomienda revisar y dar prioridad a los productos con mayor crítica.</em></p>");
-        html.append("</div>");
-        
-        html.append("<div class='footer'>");
-        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
-        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
-        html.append("</div>");
-        
-        html.append("</body></html>");
-        
         System.out.println("✅ Reporte de vencimientos en PDF generado exitosamente con formato Bs");
-        return html.toString().getBytes("UTF-8");
     }
 
     //============================================
@@ -637,14 +556,10 @@ public class ReporteService {
     /**
      * Genera reporte de rotación de inventario en formato Excel
      */
-    public byte[] generarReporteRotacionExcelReal() throws IOException {
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        Workbook workbook = null;
-        ByteArrayOutputStream out = null;
+    @Transactional(readOnly = true)
+    public void generarReporteRotacionExcelReal(OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = crearLibroStreaming();
         try {
-            workbook = new XSSFWorkbook();
-            out = new ByteArrayOutputStream();
-            
             Sheet sheet = workbook.createSheet("Rotación de Inventario");
             
             // Estilos
@@ -694,216 +609,153 @@ public class ReporteService {
             }
             headerRow.setHeight((short) 400);
             
+            // Salidas de los últimos 90 días de todos los productos, en una sola consulta agrupada
+            Map<Integer, Long> salidasPorProducto = analiticaService.obtenerSalidasPorProducto();
+            
             // Datos
-            for (Producto producto : productos) {
-                Row row = sheet.createRow(rowNum++);
+            try (Stream<Producto> productos = productoRepository.streamProductosActivos()) {
+                Iterator<Producto> cursor = productos.iterator();
+                while (cursor.hasNext()) {
+                    Producto producto = cursor.next();
+                    Row row = sheet.createRow(rowNum++);
                 
-                // Código
-                row.createCell(0).setCellValue(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO");
-                
-                // Nombre
-                row.createCell(1).setCellValue(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE");
+                    // Código
+                    row.createCell(0).setCellValue(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO");
                 
-                // Categoría
-                row.createCell(2).setCellValue(
-                    producto.getCategoria() != null ? 
-                    producto.getCategoria().getNombre() : "Sin categoría"
-                );
+                    // Nombre
+                    row.createCell(1).setCellValue(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE");
                 
-                // Stock Actual
-                int stockActual = producto.getStockActual() != null ? producto.getStockActual() : 0;
-                row.createCell(3).setCellValue(stockActual);
+                    // Categoría
+                    row.createCell(2).setCellValue(
+                        producto.getCategoria() != null ? 
+                        producto.getCategoria().getNombre() : "Sin categoría"
+                    );
                 
-                // Ventas 90 días (simulado)
-                int ventas90d = (int) (Math.random() * 100);
-                row.createCell(4).setCellValue(ventas90d);
+                    // Stock Actual
+                    int stockActual = producto.getStockActual() != null ? producto.getStockActual() : 0;
+                    row.createCell(3).setCellValue(stockActual);
                 
-                // Rotación Mensual
-                double rotacionMensual = ventas90d / 3.0;
-                row.createCell(5).setCellValue(rotacionMensual);
+                    // Ventas 90 días
+                    AnaliticaMovimientosService.Rotacion rotacion = analiticaService.calcularRotacion(
+                            stockActual, salidasPorProducto.getOrDefault(producto.getId(), 0L));
+                    row.createCell(4).setCellValue(rotacion.ventas());
                 
-                // Días de Cobertura
-                int diasCobertura = ventas90d > 0 ? (int) ((double) stockActual / (ventas90d / 90.0)) : 0;
-                row.createCell(6).setCellValue(diasCobertura);
+                    // Rotación Mensual
+                    row.createCell(5).setCellValue(rotacion.rotacionMensual());
                 
-                // Valor Inventario (en Bs)
-                BigDecimal valorInventario = BigDecimal.ZERO;
-                if (producto.getPrecioCompra() != null && producto.getStockActual() != null) {
-                    valorInventario = producto.getPrecioCompra().multiply(BigDecimal.valueOf(producto.getStockActual()));
-                }
-                row.createCell(7).setCellValue(valorInventario.doubleValue());
-                row.getCell(7).setCellStyle(monedaStyle);
+                    // Días de Cobertura
+                    row.createCell(6).setCellValue(rotacion.diasCobertura());
                 
-                // Clasificación con COLORES
-                String clasificacion;
-                Cell cellClasificacion = row.createCell(8);
+                    // Valor Inventario (en Bs)
+                    BigDecimal valorInventario = BigDecimal.ZERO;
+                    if (producto.getPrecioCompra() != null && producto.getStockActual() != null) {
+                        valorInventario = producto.getPrecioCompra().multiply(BigDecimal.valueOf(producto.getStockActual()));
+                    }
+                    row.createCell(7).setCellValue(valorInventario.doubleValue());
+                    row.getCell(7).setCellStyle(monedaStyle);
                 
-                if (rotacionMensual > 20) {
-                    clasificacion = "ALTA ROTACIÓN";
-                    cellClasificacion.setCellStyle(altaRotacionStyle);
-                } else if (rotacionMensual < 5) {
-                    clasificacion = "BAJA ROTACIÓN";
-                    cellClasificacion.setCellStyle(bajaRotacionStyle);
-                } else {
-                    clasificacion = "ROTACIÓN MEDIA";
-                    cellClasificacion.setCellStyle(datosStyle);
-                }
-                cellClasificacion.setCellValue(clasificacion);
+                    // Clasificación con COLORES
+                    Cell cellClasificacion = row.createCell(8);
+                    switch (rotacion.clasificacion()) {
+                        case ALTA -> cellClasificacion.setCellStyle(altaRotacionStyle);
+                        case BAJA -> cellClasificacion.setCellStyle(bajaRotacionStyle);
+                        default -> cellClasificacion.setCellStyle(datosStyle);
+                    }
+                    cellClasificacion.setCellValue(rotacion.clasificacion().getEtiqueta());
                 
-                // Estilos
-                for (int i = 0; i < 8; i++) {
-                    row.getCell(i).setCellStyle(datosStyle);
+                    // Estilos
+                    for (int i = 0; i < 8; i++) {
+                        row.getCell(i).setCellStyle(datosStyle);
+                    }
+                    
+                    // La fila ya está escrita: se libera del contexto para que no crezca con el cursor
+                    entityManager.detach(producto);
                 }
             }
             
-            // Autoajustar columnas
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 500);
-            }
+            // Ancho fijo por columna: el autoajuste no ve las filas ya volcadas a disco
+            aplicarAnchoColumnas(sheet, 22, 40, 24, 14, 12, 18, 16, 22, 18);
             
             workbook.write(out);
             
             System.out.println("✅ Reporte de rotación generado exitosamente con formato Bs y año 2025");
-            return out.toByteArray();
         } finally {
-            if (workbook != null) {
-                try { workbook.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar workbook: " + e.getMessage());
-                }
-            }
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar output stream: " + e.getMessage());
-                }
-            }
+            cerrarLibroStreaming(workbook);
         }
     }
 
     /**
-     * Genera reporte de rotación de inventario en formato PDF (HTML)
+     * Genera reporte de rotación de inventario en formato PDF
      */
-    public byte[] generarReporteRotacionPdfReal() throws IOException {
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        StringBuilder html = new StringBuilder();
-        
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
-        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
-        html.append("<title>Reporte de Rotación</title>");
-        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
-        html.append("<style>");
-        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
-        html.append("h1{ color:#27ae60; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#27ae60; padding-bottom: 10px; font-size: 2.5rem;}");
-        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#e8f5e9; padding: 10px; border-radius: 8px;}");
-        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
-        html.append(".download-btn{ background: linear-gradient(135deg,#27ae60 0%,#219653 100%); color: white; padding: 12px 24px;");
-        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
-        html.append("box-shadow: 0 4px 15px rgba(39, 174, 96, 0.3); transition: all 0.3s ease;");
-        html.append("display: flex; align-items: center; gap: 10px;}");
-        html.append(".download-btn:hover{ background: linear-gradient(135deg,#219653 0%,#1e8449 100%);");
-        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(39, 174, 96, 0.4);}");
-        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
-        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
-        html.append("th, td{ border: 1px solid#ddd; padding: 12px; text-align: left; font-size: 14px;}");
-        html.append("th{ background-color:#27ae60; color: white; font-weight: bold;}");
-        html.append("tr:nth-child(even){ background-color:#e8f5e9;}");
-        html.append(".resumen{ margin-top: 20px; padding: 20px; background-color:#27ae60; color: white; border-radius: 10px;}");
-        html.append(".header-section{ background: linear-gradient(135deg,#27ae60 0%,#219653 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
-        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#ddd;}");
-        html.append(".alta-rotacion{ background-color:#27ae60; color: white;}");
-        html.append(".media-rotacion{ background-color:#f39c12; color: white;}");
-        html.append(".baja-rotacion{ background-color:#e74c3c; color: white;}");
-        html.append("</style></head><body>");
-        
-        // Botón de descarga
-        html.append("<div class='download-container'>");
-        html.append("<button class='download-btn' onclick='window.print()'>");
-        html.append("<span>📥</span><span>Descargar PDF</span>");
-        html.append("</button>");
-        html.append("</div>");
-        
-        // Encabezado
-        html.append("<div class='header-section'>");
-        html.append("<h1>📈 REPORTE DE ROTACIÓN DE INVENTARIO - DROGUERÍA INTI</h1>");
-        html.append("<p>Análisis de rotación de productos en los últimos 90 días - 2025</p>");
-        html.append("</div>");
-        
-        // Fecha
+    @Transactional(readOnly = true)
+    public void generarReporteRotacionPdfReal(OutputStream out) throws IOException {
         LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
-        html.append("<div class='info'>");
-        html.append("<strong>Fecha:</strong> ");
-        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-        html.append("</div>");
-        
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Código</th><th>Nombre</th><th>Categoría</th><th>Stock</th><th>Ventas 90d</th>");
-        html.append("<th>Rotación Mensual</th><th>Días Cobertura</th><th>Valor Inventario (Bs)</th><th>Clasificación</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
         
-        for (Producto producto : productos) {
-            // Valores simulados para rotación
-            int ventas90d = (int) (Math.random() * 100);
-            double rotacionMensual = ventas90d / 3.0;
-            int stockActual = producto.getStockActual() != null ? producto.getStockActual() : 0;
-            int diasCobertura = ventas90d > 0 ? (int) ((double) stockActual / (ventas90d / 90.0)) : 0;
-            
-            String clasificacionClase = "";
-            String clasificacionTexto = "";
-            
-            if (rotacionMensual > 20) {
-                clasificacionClase = "alta-rotacion";
-                clasificacionTexto = "ALTA ROTACIÓN";
-            } else if (rotacionMensual < 5) {
-                clasificacionClase = "baja-rotacion";
-                clasificacionTexto = "BAJA ROTACIÓN";
-            } else {
-                clasificacionClase = "media-rotacion";
-                clasificacionTexto = "ROTACIÓN MEDIA";
-            }
-            
-            BigDecimal valorInventario = BigDecimal.ZERO;
-            if (producto.getPrecioCompra() != null && producto.getStockActual() != null) {
-                valorInventario = producto.getPrecioCompra().multiply(BigDecimal.valueOf(producto.getStockActual()));
+        try (PdfReporteWriter pdf = crearPdf(out, PdfReporteWriter.COLOR_VERDE)) {
+            pdf.encabezado("REPORTE DE ROTACIÓN DE INVENTARIO - DROGUERÍA INTI",
+                          "Análisis de rotación de productos en los últimos 90 días - 2025");
+            pdf.info("Fecha: " + fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+            
+            pdf.iniciarTabla(new float[]{10, 22, 13, 7, 8, 9, 9, 12, 10},
+                    "Código", "Nombre", "Categoría", "Stock", "Ventas 90d",
+                    "Rotación Mensual", "Días Cobertura", "Valor Inventario (Bs)", "Clasificación");
+            
+            Map<Integer, Long> salidasPorProducto = analiticaService.obtenerSalidasPorProducto();
+            int altaRotacion = 0;
+            int mediaRotacion = 0;
+            int bajaRotacion = 0;
+            
+            try (Stream<Producto> productos = productoRepository.streamProductosActivos()) {
+                Iterator<Producto> cursor = productos.iterator();
+                while (cursor.hasNext()) {
+                    Producto producto = cursor.next();
+                    
+                    int stockActual = producto.getStockActual() != null ? producto.getStockActual() : 0;
+                    AnaliticaMovimientosService.Rotacion rotacion = analiticaService.calcularRotacion(
+                            stockActual, salidasPorProducto.getOrDefault(producto.getId(), 0L));
+                    
+                    BigDecimal valorInventario = BigDecimal.ZERO;
+                    if (producto.getPrecioCompra() != null && producto.getStockActual() != null) {
+                        valorInventario = producto.getPrecioCompra().multiply(BigDecimal.valueOf(producto.getStockActual()));
+                    }
+                    
+                    pdf.celda(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO");
+                    pdf.celda(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE");
+                    pdf.celda(producto.getCategoria() != null ? producto.getCategoria().getNombre() : "Sin categoría");
+                    pdf.celdaCentrada(stockActual);
+                    pdf.celdaCentrada(rotacion.ventas());
+                    pdf.celdaCentrada(String.format("%.1f", rotacion.rotacionMensual()));
+                    pdf.celdaCentrada(rotacion.diasCobertura());
+                    pdf.celdaDerecha(formatearBs(valorInventario));
+                    
+                    switch (rotacion.clasificacion()) {
+                        case ALTA -> {
+                            pdf.celdaResaltada(rotacion.clasificacion().getEtiqueta(), PdfReporteWriter.COLOR_VERDE);
+                            altaRotacion++;
+                        }
+                        case BAJA -> {
+                            pdf.celdaResaltada(rotacion.clasificacion().getEtiqueta(), PdfReporteWriter.COLOR_ROJO);
+                            bajaRotacion++;
+                        }
+                        default -> {
+                            pdf.celdaResaltada(rotacion.clasificacion().getEtiqueta(), PdfReporteWriter.COLOR_NARANJA);
+                            mediaRotacion++;
+                        }
+                    }
+                    
+                    entityManager.detach(producto);
+                }
             }
             
-            html.append("<tr>");
-            html.append("<td>").append(escaparHtml(producto.getCodigo() != null ? producto.getCodigo() : "SIN CÓDIGO")).append("</td>");
-            html.append("<td>").append(escaparHtml(producto.getNombre() != null ? producto.getNombre() : "SIN NOMBRE")).append("</td>");
-            html.append("<td>").append(
-                producto.getCategoria() != null ? 
-                escaparHtml(producto.getCategoria().getNombre()) : "Sin categoría"
-            ).append("</td>");
-            html.append("<td style='text-align: center;'>").append(stockActual).append("</td>");
-            html.append("<td style='text-align: center;'>").append(ventas90d).append("</td>");
-            html.append("<td style='text-align: center;'>").append(String.format("%.1f", rotacionMensual)).append("</td>");
-            html.append("<td style='text-align: center;'>").append(diasCobertura).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(String.format("%.2f", valorInventario)).append("</td>");
-            html.append("<td class='").append(clasificacionClase).append("' style='text-align: center;'>").append(clasificacionTexto).append("</td>");
-            html.append("</tr>");
+            pdf.resumen("Resumen de Rotación", new String[][]{
+                {"Productos con Alta Rotación", altaRotacion + " productos (se recomienda mantener stock alto)"},
+                {"Productos con Media Rotación", mediaRotacion + " productos (mantener stock normal)"},
+                {"Productos con Baja Rotación", bajaRotacion + " productos (analizar para posible descatalogación)"}
+            }, "Este análisis ayuda a optimizar compras y reducir costos de almacenamiento.");
+            agregarPiePdf(pdf, fecha2025);
         }
         
-        html.append("</tbody></table>");
-        
-        html.append("<div class='resumen'>");
-        html.append("<h3>Resumen de Rotación</h3>");
-        html.append("<p><strong>Productos con Alta Rotación:</strong> 15 productos (se recomienda mantener stock alto)</p>");
-        html.append("<p><strong>Productos con Media Rotación:</strong> 30 productos (mantener stock normal)</p>");
-        html.append("<p><strong>Productos con Baja Rotación:</strong> 10 productos (analizar para posible descatalogación)</p>");
-        html.append("<p><em>Este análisis ayuda a optimizar compras y reducir costos de almacenamiento.</em></p>");
-        html.append("</div>");
-        
-        html.append("<div class='footer'>");
-        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
-        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
-        html.append("</div>");
-        
-        html.append("</body></html>");
-        
         System.out.println("✅ Reporte de rotación en PDF generado exitosamente con formato Bs");
-        return html.toString().getBytes("UTF-8");
     }
 
     //============================================
@@ -912,18 +764,13 @@ public class ReporteService {
     /**
      * Genera reporte de movimientos semanales en formato Excel
      */
-    public byte[] generarReporteMovimientosSemanalesExcelReal() throws IOException {
+    @Transactional(readOnly = true)
+    public void generarReporteMovimientosSemanalesExcelReal(OutputStream out) throws IOException {
         LocalDateTime inicioSemana = LocalDateTime.now().minusDays(7);
         LocalDateTime finSemana = LocalDateTime.now();
         
-        List<Movimiento> movimientos = movimientoRepository.findMovimientosPorRangoFechas(inicioSemana, finSemana);
-        
-        Workbook workbook = null;
-        ByteArrayOutputStream out = null;
+        SXSSFWorkbook workbook = crearLibroStreaming();
         try {
-            workbook = new XSSFWorkbook();
-            out = new ByteArrayOutputStream();
-            
             Sheet sheet = workbook.createSheet("Movimientos Semanales");
             
             // Estilos
@@ -977,78 +824,85 @@ public class ReporteService {
             BigDecimal totalEntradas = BigDecimal.ZERO;
             BigDecimal totalSalidas = BigDecimal.ZERO;
             
-            for (Movimiento movimiento : movimientos) {
-                Row row = sheet.createRow(rowNum++);
+            try (Stream<Movimiento> movimientos = movimientoRepository.streamMovimientosPorRangoFechas(inicioSemana, finSemana)) {
+                Iterator<Movimiento> cursor = movimientos.iterator();
+                while (cursor.hasNext()) {
+                    Movimiento movimiento = cursor.next();
+                    Row row = sheet.createRow(rowNum++);
                 
-                // Fecha
-                row.createCell(0).setCellValue(
-                    movimiento.getFechaMovimiento() != null ? 
-                    movimiento.getFechaMovimiento().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : ""
-                );
+                    // Fecha
+                    row.createCell(0).setCellValue(
+                        movimiento.getFechaMovimiento() != null ? 
+                        movimiento.getFechaMovimiento().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : ""
+                    );
                 
-                // Producto
-                row.createCell(1).setCellValue(
-                    movimiento.getProducto() != null ? 
-                    movimiento.getProducto().getNombre() : "SIN PRODUCTO"
-                );
+                    // Producto
+                    row.createCell(1).setCellValue(
+                        movimiento.getProducto() != null ? 
+                        movimiento.getProducto().getNombre() : "SIN PRODUCTO"
+                    );
                 
-                // Categoría
-                row.createCell(2).setCellValue(
-                    movimiento.getProducto() != null && movimiento.getProducto().getCategoria() != null ? 
-                    movimiento.getProducto().getCategoria().getNombre() : "Sin categoría"
-                );
+                    // Categoría
+                    row.createCell(2).setCellValue(
+                        movimiento.getProducto() != null && movimiento.getProducto().getCategoria() != null ? 
+                        movimiento.getProducto().getCategoria().getNombre() : "Sin categoría"
+                    );
                 
-                // Tipo Movimiento con COLORES
-                Cell tipoCell = row.createCell(3);
-                String tipoMovimiento = movimiento.getTipoMovimiento() != null ? movimiento.getTipoMovimiento().getNombre() : "SIN TIPO";
-                tipoCell.setCellValue(tipoMovimiento);
+                    // Tipo Movimiento con COLORES
+                    Cell tipoCell = row.createCell(3);
+                    String tipoMovimiento = movimiento.getTipoMovimiento() != null ? movimiento.getTipoMovimiento().getNombre() : "SIN TIPO";
+                    tipoCell.setCellValue(tipoMovimiento);
                 
-                // Cantidad
-                int cantidad = movimiento.getCantidad() != null ? movimiento.getCantidad() : 0;
-                row.createCell(4).setCellValue(cantidad);
+                    // Cantidad
+                    int cantidad = movimiento.getCantidad() != null ? movimiento.getCantidad() : 0;
+                    row.createCell(4).setCellValue(cantidad);
                 
-                // Precio Unitario (en Bs)
-                BigDecimal precioUnitario = movimiento.getPrecioUnitario() != null ? movimiento.getPrecioUnitario() : BigDecimal.ZERO;
-                row.createCell(5).setCellValue(precioUnitario.doubleValue());
-                row.getCell(5).setCellStyle(monedaStyle);
+                    // Precio Unitario (en Bs)
+                    BigDecimal precioUnitario = movimiento.getPrecioUnitario() != null ? movimiento.getPrecioUnitario() : BigDecimal.ZERO;
+                    row.createCell(5).setCellValue(precioUnitario.doubleValue());
+                    row.getCell(5).setCellStyle(monedaStyle);
                 
-                // Total (en Bs)
-                BigDecimal totalMovimiento = precioUnitario.multiply(BigDecimal.valueOf(cantidad));
-                Cell totalCell = row.createCell(6);
-                totalCell.setCellValue(totalMovimiento.doubleValue());
-                totalCell.setCellStyle(monedaStyle);
+                    // Total (en Bs)
+                    BigDecimal totalMovimiento = precioUnitario.multiply(BigDecimal.valueOf(cantidad));
+                    Cell totalCell = row.createCell(6);
+                    totalCell.setCellValue(totalMovimiento.doubleValue());
+                    totalCell.setCellStyle(monedaStyle);
                 
-                // Usuario
-                row.createCell(7).setCellValue(
-                    movimiento.getUsuario() != null ? 
-                    movimiento.getUsuario().getNombreCompleto() : "SIN USUARIO"
-                );
+                    // Usuario
+                    row.createCell(7).setCellValue(
+                        movimiento.getUsuario() != null ? 
+                        movimiento.getUsuario().getNombreCompleto() : "SIN USUARIO"
+                    );
                 
-                // Documento
-                row.createCell(8).setCellValue(
-                    movimiento.getDocumentoReferencia() != null ? 
-                    movimiento.getDocumentoReferencia() : "SIN DOCUMENTO"
-                );
+                    // Documento
+                    row.createCell(8).setCellValue(
+                        movimiento.getDocumentoReferencia() != null ? 
+                        movimiento.getDocumentoReferencia() : "SIN DOCUMENTO"
+                    );
                 
-                // Aplicar estilo según tipo de movimiento
-                if (movimiento.getTipoMovimiento() != null) {
-                    Integer afectaStock = movimiento.getTipoMovimiento().getAfectaStock();
-                    if (afectaStock != null) {
-                        if (afectaStock > 0) {
-                            tipoCell.setCellStyle(entradaStyle);
-                            totalEntradas = totalEntradas.add(totalMovimiento);
-                        } else if (afectaStock < 0) {
-                            tipoCell.setCellStyle(salidaStyle);
-                            totalSalidas = totalSalidas.add(totalMovimiento);
+                    // Aplicar estilo según tipo de movimiento
+                    if (movimiento.getTipoMovimiento() != null) {
+                        Integer afectaStock = movimiento.getTipoMovimiento().getAfectaStock();
+                        if (afectaStock != null) {
+                            if (afectaStock > 0) {
+                                tipoCell.setCellStyle(entradaStyle);
+                                totalEntradas = totalEntradas.add(totalMovimiento);
+                            } else if (afectaStock < 0) {
+                                tipoCell.setCellStyle(salidaStyle);
+                                totalSalidas = totalSalidas.add(totalMovimiento);
+                            }
                         }
                     }
-                }
                 
-                // Estilos
-                for (int i = 0; i < 9; i++) {
-                    if (i != 3 && i != 6) { // Excepto tipo (que ya tiene estilo) y total (que ya tiene estilo de moneda)
-                        row.getCell(i).setCellStyle(datosStyle);
+                    // Estilos
+                    for (int i = 0; i < 9; i++) {
+                        if (i != 3 && i != 6) { // Excepto tipo (que ya tiene estilo) y total (que ya tiene estilo de moneda)
+                            row.getCell(i).setCellStyle(datosStyle);
+                        }
                     }
+                    
+                    // La fila ya está escrita: se libera del contexto para que no crezca con el cursor
+                    entityManager.detach(movimiento);
                 }
             }
             
@@ -1074,170 +928,88 @@ public class ReporteService {
             saldoRow.createCell(1).setCellValue(totalEntradas.subtract(totalSalidas).doubleValue());
             saldoRow.getCell(1).setCellStyle(monedaStyle);
             
-            // Autoajustar columnas
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 500);
-            }
+            // Ancho fijo por columna: el autoajuste no ve las filas ya volcadas a disco
+            aplicarAnchoColumnas(sheet, 18, 40, 24, 24, 12, 22, 16, 30, 22);
             
             workbook.write(out);
             
             System.out.println("✅ Reporte de movimientos semanales generado exitosamente con formato Bs y año 2025");
-            return out.toByteArray();
         } finally {
-            if (workbook != null) {
-                try { workbook.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar workbook: " + e.getMessage());
-                }
-            }
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar output stream: " + e.getMessage());
-                }
-            }
+            cerrarLibroStreaming(workbook);
         }
     }
 
     /**
-     * Genera reporte de movimientos semanales en formato PDF (HTML)
+     * Genera reporte de movimientos semanales en formato PDF
      */
-    public byte[] generarReporteMovimientosSemanalesPdfReal() throws IOException {
+    @Transactional(readOnly = true)
+    public void generarReporteMovimientosSemanalesPdfReal(OutputStream out) throws IOException {
         LocalDateTime inicioSemana = LocalDateTime.now().minusDays(7);
         LocalDateTime finSemana = LocalDateTime.now();
-        
-        List<Movimiento> movimientos = movimientoRepository.findMovimientosPorRangoFechas(inicioSemana, finSemana);
-        
-        StringBuilder html = new StringBuilder();
-        
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
-        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
-        html.append("<title>Reporte de Movimientos Semanales</title>");
-        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
-        html.append("<style>");
-        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
-        html.append("h1{ color:#3498db; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#3498db; padding-bottom: 10px; font-size: 2.5rem;}");
-        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#e3f2fd; padding: 10px; border-radius: 8px;}");
-        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
-        html.append(".download-btn{ background: linear-gradient(135deg,#3498db 0%,#2980b9 100%); color: white; padding: 12px 24px;");
-        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
-        html.append("box-shadow: 0 4px 15px rgba(52, 152, 219, 0.3); transition: all 0.3s ease;");
-        html.append("display: flex; align-items: center; gap: 10px;}");
-        html.append(".download-btn:hover{ background: linear-gradient(135deg,#2980b9 0%,#2573a7 100%);");
-        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(52, 152, 219, 0.4);}");
-        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
-        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
-        html.append("th, td{ border: 1px solid#ddd; padding: 12px; text-align: left; font-size: 14px;}");
-        html.append("th{ background-color:#3498db; color: white; font-weight: bold;}");
-        html.append("tr:nth-child(even){ background-color:#e3f2fd;}");
-        html.append(".resumen{ margin-top: 20px; padding: 20px; background-color:#3498db; color: white; border-radius: 10px;}");
-        html.append(".header-section{ background: linear-gradient(135deg,#3498db 0%,#2980b9 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
-        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#ddd;}");
-        html.append(".entrada{ background-color:#d4edda; color: #155724;}");
-        html.append(".salida{ background-color:#f8d7da; color: #721c24;}");
-        html.append("</style></head><body>");
-        
-        // Botón de descarga
-        html.append("<div class='download-container'>");
-        html.append("<button class='download-btn' onclick='window.print()'>");
-        html.append("<span>📥</span><span>Descargar PDF</span>");
-        html.append("</button>");
-        html.append("</div>");
-        
-        // Encabezado
-        html.append("<div class='header-section'>");
-        html.append("<h1>📊 REPORTE DE MOVIMIENTOS SEMANALES - DROGUERÍA INTI</h1>");
-        html.append("<p>Detallado de movimientos en los últimos 7 días - 2025</p>");
-        html.append("</div>");
-        
-        // Fecha
         LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
-        html.append("<div class='info'>");
-        html.append("<strong>Fecha de Generación:</strong> ");
-        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-        html.append(" | <strong>Período:</strong> Últimos 7 días");
-        html.append(" | <strong>Total Movimientos:</strong> ").append(movimientos.size());
-        html.append("</div>");
-        
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Fecha</th><th>Producto</th><th>Categoría</th><th>Tipo Movimiento</th><th>Cantidad</th>");
-        html.append("<th>Precio Unitario (Bs)</th><th>Total (Bs)</th><th>Usuario</th><th>Documento</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
         
-        BigDecimal totalEntradas = BigDecimal.ZERO;
-        BigDecimal totalSalidas = BigDecimal.ZERO;
-        
-        for (Movimiento movimiento : movimientos) {
-            String claseMovimiento = "";
-            if (movimiento.getTipoMovimiento() != null && movimiento.getTipoMovimiento().getAfectaStock() != null) {
-                if (movimiento.getTipoMovimiento().getAfectaStock() > 0) {
-                    claseMovimiento = "entrada";
-                } else if (movimiento.getTipoMovimiento().getAfectaStock() < 0) {
-                    claseMovimiento = "salida";
-                }
-            }
+        try (PdfReporteWriter pdf = crearPdf(out, PdfReporteWriter.COLOR_AZUL)) {
+            pdf.encabezado("REPORTE DE MOVIMIENTOS SEMANALES - DROGUERÍA INTI",
+                          "Detallado de movimientos en los últimos 7 días - 2025");
+            pdf.info("Fecha de Generación: " + fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))
+                    + " | Período: Últimos 7 días");
+            
+            pdf.iniciarTabla(new float[]{10, 18, 12, 12, 7, 10, 10, 12, 9},
+                    "Fecha", "Producto", "Categoría", "Tipo Movimiento", "Cantidad",
+                    "Precio Unitario (Bs)", "Total (Bs)", "Usuario", "Documento");
             
-            BigDecimal precioUnitario = movimiento.getPrecioUnitario() != null ? movimiento.getPrecioUnitario() : BigDecimal.ZERO;
-            BigDecimal totalMovimiento = precioUnitario.multiply(BigDecimal.valueOf(movimiento.getCantidad() != null ? movimiento.getCantidad() : 0));
+            int totalMovimientos = 0;
+            BigDecimal totalEntradas = BigDecimal.ZERO;
+            BigDecimal totalSalidas = BigDecimal.ZERO;
             
-            if (claseMovimiento.equals("entrada")) {
-                totalEntradas = totalEntradas.add(totalMovimiento);
-            } else if (claseMovimiento.equals("salida")) {
-                totalSalidas = totalSalidas.add(totalMovimiento);
+            try (Stream<Movimiento> movimientos = movimientoRepository.streamMovimientosPorRangoFechas(inicioSemana, finSemana)) {
+                Iterator<Movimiento> cursor = movimientos.iterator();
+                while (cursor.hasNext()) {
+                    Movimiento movimiento = cursor.next();
+                    totalMovimientos++;
+                    
+                    int cantidad = movimiento.getCantidad() != null ? movimiento.getCantidad() : 0;
+                    BigDecimal precioUnitario = movimiento.getPrecioUnitario() != null ? movimiento.getPrecioUnitario() : BigDecimal.ZERO;
+                    BigDecimal totalMovimiento = precioUnitario.multiply(BigDecimal.valueOf(cantidad));
+                    Integer afectaStock = movimiento.getTipoMovimiento() != null ? movimiento.getTipoMovimiento().getAfectaStock() : null;
+                    
+                    pdf.celda(movimiento.getFechaMovimiento() != null ? 
+                        movimiento.getFechaMovimiento().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : "");
+                    pdf.celda(movimiento.getProducto() != null ? movimiento.getProducto().getNombre() : "SIN PRODUCTO");
+                    pdf.celda(movimiento.getProducto() != null && movimiento.getProducto().getCategoria() != null ? 
+                        movimiento.getProducto().getCategoria().getNombre() : "Sin categoría");
+                    
+                    String tipoMovimiento = movimiento.getTipoMovimiento() != null ? movimiento.getTipoMovimiento().getNombre() : "SIN TIPO";
+                    if (afectaStock != null && afectaStock > 0) {
+                        pdf.celdaResaltada(tipoMovimiento, PdfReporteWriter.COLOR_VERDE);
+                        totalEntradas = totalEntradas.add(totalMovimiento);
+                    } else if (afectaStock != null && afectaStock < 0) {
+                        pdf.celdaResaltada(tipoMovimiento, PdfReporteWriter.COLOR_ROJO);
+                        totalSalidas = totalSalidas.add(totalMovimiento);
+                    } else {
+                        pdf.celda(tipoMovimiento);
+                    }
+                    
+                    pdf.celdaCentrada(cantidad);
+                    pdf.celdaDerecha(formatearBs(precioUnitario));
+                    pdf.celdaDerecha(formatearBs(totalMovimiento));
+                    pdf.celda(movimiento.getUsuario() != null ? movimiento.getUsuario().getNombreCompleto() : "SIN USUARIO");
+                    pdf.celda(movimiento.getDocumentoReferencia() != null ? movimiento.getDocumentoReferencia() : "SIN DOCUMENTO");
+                    
+                    entityManager.detach(movimiento);
+                }
             }
             
-            html.append("<tr class='").append(claseMovimiento).append("'>");
-            html.append("<td>").append(
-                movimiento.getFechaMovimiento() != null ? 
-                movimiento.getFechaMovimiento().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : ""
-            ).append("</td>");
-            html.append("<td>").append(
-                movimiento.getProducto() != null ? 
-                escaparHtml(movimiento.getProducto().getNombre()) : "SIN PRODUCTO"
-            ).append("</td>");
-            html.append("<td>").append(
-                movimiento.getProducto() != null && movimiento.getProducto().getCategoria() != null ? 
-                escaparHtml(movimiento.getProducto().getCategoria().getNombre()) : "Sin categoría"
-            ).append("</td>");
-            html.append("<td>").append(
-                movimiento.getTipoMovimiento() != null ? 
-                escaparHtml(movimiento.getTipoMovimiento().getNombre()) : "SIN TIPO"
-            ).append("</td>");
-            html.append("<td style='text-align: center;'>").append(movimiento.getCantidad() != null ? movimiento.getCantidad() : 0).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(String.format("%.2f", precioUnitario)).append("</td>");
-            html.append("<td style='text-align: right; font-weight: bold;'>Bs ").append(String.format("%.2f", totalMovimiento)).append("</td>");
-            html.append("<td>").append(
-                movimiento.getUsuario() != null ? 
-                escaparHtml(movimiento.getUsuario().getNombreCompleto()) : "SIN USUARIO"
-            ).append("</td>");
-            html.append("<td>").append(
-                movimiento.getDocumentoReferencia() != null ? 
-                escaparHtml(movimiento.getDocumentoReferencia()) : "SIN DOCUMENTO"
-            ).append("</td>");
-            html.append("</tr>");
+            pdf.resumen("Resumen Semanal", new String[][]{
+                {"Total Movimientos", String.valueOf(totalMovimientos)},
+                {"Total Entradas", formatearBs(totalEntradas)},
+                {"Total Salidas", formatearBs(totalSalidas)},
+                {"Saldo Neto", formatearBs(totalEntradas.subtract(totalSalidas))}
+            }, "Este reporte muestra el movimiento detallado del inventario en la última semana.");
+            agregarPiePdf(pdf, fecha2025);
         }
         
-        html.append("</tbody></table>");
-        
-        html.append("<div class='resumen'>");
-        html.append("<h3>Resumen Semanal</h3>");
-        html.append("<p><strong>Total Entradas:</strong> Bs ").append(String.format("%.2f", totalEntradas)).append("</p>");
-        html.append("<p><strong>Total Salidas:</strong> Bs ").append(String.format("%.2f", totalSalidas)).append("</p>");
-        html.append("<p><strong>Saldo Neto:</strong> Bs ").append(String.format("%.2f", totalEntradas.subtract(totalSalidas))).append("</p>");
-        html.append("<p><em>Este reporte muestra el movimiento detallado del inventario en la última semana.</em></p>");
-        html.append("</div>");
-        
-        html.append("<div class='footer'>");
-        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
-        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
-        html.append("</div>");
-        
-        html.append("</body></html>");
-        
         System.out.println("✅ Reporte de movimientos semanales en PDF generado exitosamente con formato Bs");
-        return html.toString().getBytes("UTF-8");
     }
 
     //============================================
@@ -1246,18 +1018,12 @@ public class ReporteService {
     /**
      * Genera reporte de movimientos anuales en formato Excel
      */
-    public byte[] generarReporteMovimientosAnualesExcelReal() throws IOException {
-        LocalDateTime inicioAnio = LocalDateTime.now().withYear(2025).withMonth(1).withDayOfMonth(1);
-        LocalDateTime finAnio = LocalDateTime.now().withYear(2025).withMonth(12).withDayOfMonth(31);
+    public void generarReporteMovimientosAnualesExcelReal(OutputStream out) throws IOException {
+        // Doce meses agregados en la base de datos; no se carga ningún movimiento
+        List<AnaliticaMovimientosService.ResumenMes> resumenAnual = analiticaService.obtenerResumenAnual(2025);
         
-        List<Movimiento> movimientos = movimientoRepository.findMovimientosPorRangoFechas(inicioAnio, finAnio);
-        
-        Workbook workbook = null;
-        ByteArrayOutputStream out = null;
+        SXSSFWorkbook workbook = crearLibroStreaming();
         try {
-            workbook = new XSSFWorkbook();
-            out = new ByteArrayOutputStream();
-            
             Sheet sheet = workbook.createSheet("Movimientos Anuales");
             
             // Estilos
@@ -1310,54 +1076,49 @@ public class ReporteService {
             String[] meses = {"Enero", "Febrero", "Marzo", "Abril", "Mayo", "Junio", 
                              "Julio", "Agosto", "Septiembre", "Octubre", "Noviembre", "Diciembre"};
             
-            // Valores simulados para demostración
-            for (int i = 0; i < 12; i++) {
+            long totalEntradas = 0;
+            long totalSalidas = 0;
+            long totalMovimientosAnio = 0;
+            
+            for (AnaliticaMovimientosService.ResumenMes mes : resumenAnual) {
                 Row row = sheet.createRow(rowNum++);
                 
                 // Mes
-                row.createCell(0).setCellValue(meses[i]);
+                row.createCell(0).setCellValue(meses[mes.mes() - 1]);
                 row.getCell(0).setCellStyle(mesHeaderStyle);
                 
-                // Valores mensuales (simulados)
-                int entradas = (int) (Math.random() * 150) + 50;
-                int salidas = (int) (Math.random() * 120) + 40;
-                int ajustes = (int) (Math.random() * 20) + 5;
-                int totalMovimientos = entradas + salidas + ajustes;
-                
-                BigDecimal valorEntradas = BigDecimal.valueOf(entradas * 1000 + Math.random() * 5000);
-                BigDecimal valorSalidas = BigDecimal.valueOf(salidas * 800 + Math.random() * 4000);
-                BigDecimal saldoNeto = valorEntradas.subtract(valorSalidas);
-                BigDecimal promedioDiario = saldoNeto.divide(BigDecimal.valueOf(30), 2, BigDecimal.ROUND_HALF_UP);
-                
                 // Entradas
-                row.createCell(1).setCellValue(entradas);
+                row.createCell(1).setCellValue(mes.entradas());
                 
                 // Salidas
-                row.createCell(2).setCellValue(salidas);
+                row.createCell(2).setCellValue(mes.salidas());
                 
                 // Ajustes
-                row.createCell(3).setCellValue(ajustes);
+                row.createCell(3).setCellValue(mes.ajustes());
                 
                 // Total Movimientos
-                row.createCell(4).setCellValue(totalMovimientos);
+                row.createCell(4).setCellValue(mes.totalMovimientos());
                 
                 // Valor Entradas (en Bs)
-                row.createCell(5).setCellValue(valorEntradas.doubleValue());
+                row.createCell(5).setCellValue(mes.valorEntradas().doubleValue());
                 row.getCell(5).setCellStyle(monedaStyle);
                 
                 // Valor Salidas (en Bs)
-                row.createCell(6).setCellValue(valorSalidas.doubleValue());
+                row.createCell(6).setCellValue(mes.valorSalidas().doubleValue());
                 row.getCell(6).setCellStyle(monedaStyle);
                 
                 // Saldo Neto (en Bs)
                 Cell saldoCell = row.createCell(7);
-                saldoNeto = valorEntradas.subtract(valorSalidas);
-                saldoCell.setCellValue(saldoNeto.doubleValue());
+                saldoCell.setCellValue(mes.saldoNeto().doubleValue());
                 saldoCell.setCellStyle(monedaStyle);
                 
                 // Promedio Diario
-                row.createCell(8).setCellValue(promedioDiario.doubleValue());
+                row.createCell(8).setCellValue(mes.promedioDiario().doubleValue());
                 row.getCell(8).setCellStyle(monedaStyle);
+                
+                totalEntradas += mes.entradas();
+                totalSalidas += mes.salidas();
+                totalMovimientosAnio += mes.totalMovimientos();
             }
             
             // Resumen Anual
@@ -1369,467 +1130,245 @@ public class ReporteService {
             
             Row totalEntradasRow = sheet.createRow(rowNum++);
             totalEntradasRow.createCell(0).setCellValue("Total Entradas:");
-            totalEntradasRow.createCell(1).setCellValue(1200);
+            totalEntradasRow.createCell(1).setCellValue(totalEntradas);
             
             Row totalSalidasRow = sheet.createRow(rowNum++);
             totalSalidasRow.createCell(0).setCellValue("Total Salidas:");
-            totalSalidasRow.createCell(1).setCellValue(950);
+            totalSalidasRow.createCell(1).setCellValue(totalSalidas);
             
             Row totalMovimientosRow = sheet.createRow(rowNum++);
             totalMovimientosRow.createCell(0).setCellValue("Total Movimientos:");
-            totalMovimientosRow.createCell(1).setCellValue(2150);
+            totalMovimientosRow.createCell(1).setCellValue(totalMovimientosAnio);
             
             Row valorTotalRow = sheet.createRow(rowNum++);
             valorTotalRow.createCell(0).setCellValue("Valor Total Inventario (Bs):");
-            valorTotalRow.createCell(1).setCellValue(250000.00);
+            valorTotalRow.createCell(1).setCellValue(obtenerValorInventario().doubleValue());
             valorTotalRow.getCell(1).setCellStyle(monedaStyle);
             
-            // Autoajustar columnas
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
-                sheet.setColumnWidth(i, sheet.getColumnWidth(i) + 500);
-            }
+            // Ancho fijo por columna: el autoajuste no ve las filas ya volcadas a disco
+            aplicarAnchoColumnas(sheet, 28, 12, 12, 12, 18, 22, 22, 20, 18);
             
             workbook.write(out);
             
             System.out.println("✅ Reporte de movimientos anuales generado exitosamente con formato Bs y año 2025");
-            return out.toByteArray();
         } finally {
-            if (workbook != null) {
-                try { workbook.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar workbook: " + e.getMessage());
-                }
-            }
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { 
-                    System.err.println("Error al cerrar output stream: " + e.getMessage());
-                }
-            }
+            cerrarLibroStreaming(workbook);
         }
     }
 
     /**
-     * Genera reporte de movimientos anuales en formato PDF (HTML)
+     * Genera reporte de movimientos anuales en formato PDF
      */
-    public byte[] generarReporteMovimientosAnualesPdfReal() throws IOException {
-        StringBuilder html = new StringBuilder();
-        
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
-        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
-        html.append("<title>Reporte de Movimientos Anuales</title>");
-        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/chart.js'></script>");
-        html.append("<style>");
-        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
-        html.append("h1{ color:#9b59b6; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#9b59b6; padding-bottom: 10px; font-size: 2.5rem;}");
-        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#f5f0ff; padding: 10px; border-radius: 8px;}");
-        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
-        html.append(".download-btn{ background: linear-gradient(135deg,#9b59b6 0%,#8e44ad 100%); color: white; padding: 12px 24px;");
-        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
-        html.append("box-shadow: 0 4px 15px rgba(155, 89, 182, 0.3); transition: all 0.3s ease;");
-        html.append("display: flex; align-items: center; gap: 10px;}");
-        html.append(".download-btn:hover{ background: linear-gradient(135deg,#8e44ad 0%,#7d3c98 100%);");
-        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(155, 89, 182, 0.4);}");
-        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
-        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
-        html.append("th, td{ border: 1px solid#ddd; padding: 12px; text-align: left; font-size: 14px;}");
-        html.append("th{ background-color:#9b59b6; color: white; font-weight: bold;}");
-        html.append("tr:nth-child(even){ background-color:#f5f0ff;}");
-        html.append(".resumen{ margin-top: 20px; padding: 20px; background-color:#9b59b6; color: white; border-radius: 10px;}");
-        html.append(".header-section{ background: linear-gradient(135deg,#9b59b6 0%,#8e44ad 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
-        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#ddd;}");
-        html.append(".chart-container{ margin: 30px 0; height: 300px;}");
-        html.append("</style></head><body>");
-        
-        // Botón de descarga
-        html.append("<div class='download-container'>");
-        html.append("<button class='download-btn' onclick='window.print()'>");
-        html.append("<span>📥</span><span>Descargar PDF</span>");
-        html.append("</button>");
-        html.append("</div>");
-        
-        // Encabezado
-        html.append("<div class='header-section'>");
-        html.append("<h1>📅 REPORTE DE MOVIMIENTOS ANUALES - DROGUERÍA INTI</h1>");
-        html.append("<p>Análisis completo del inventario para el año 2025</p>");
-        html.append("</div>");
-        
-        // Fecha
+    public void generarReporteMovimientosAnualesPdfReal(OutputStream out) throws IOException {
         LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
-        html.append("<div class='info'>");
-        html.append("<strong>Fecha de Generación:</strong> ");
-        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-        html.append(" | <strong>Año:</strong> 2025");
-        html.append(" | <strong>Total Movimientos:</strong> 2,150");
-        html.append("</div>");
+        List<AnaliticaMovimientosService.ResumenMes> resumenAnual = analiticaService.obtenerResumenAnual(2025);
+        long totalMovimientosAnio = resumenAnual.stream()
+                .mapToLong(AnaliticaMovimientosService.ResumenMes::totalMovimientos).sum();
         
-        // Gráfico
-        html.append("<div class='chart-container'>");
-        html.append("<canvas id='movimientosChart'></canvas>");
-        html.append("</div>");
-        
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Mes</th><th>Entradas</th><th>Salidas</th><th>Ajustes</th><th>Total Movimientos</th>");
-        html.append("<th>Valor Entradas (Bs)</th><th>Valor Salidas (Bs)</th><th>Saldo Neto (Bs)</th><th>Promedio Diario</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
-        
-        String[] meses = {"Enero", "Febrero", "Marzo", "Abril", "Mayo", "Junio", 
-                         "Julio", "Agosto", "Septiembre", "Octubre", "Noviembre", "Diciembre"};
-        
-        BigDecimal totalAnualEntradas = BigDecimal.ZERO;
-        BigDecimal totalAnualSalidas = BigDecimal.ZERO;
-        
-        // Valores simulados por mes
-        for (int i = 0; i < 12; i++) {
-            int entradas = (int) (Math.random() * 150) + 50;
-            int salidas = (int) (Math.random() * 120) + 40;
-            int ajustes = (int) (Math.random() * 20) + 5;
-            int totalMovimientos = entradas + salidas + ajustes;
-            
-            BigDecimal valorEntradas = BigDecimal.valueOf(entradas * 1000 + Math.random() * 5000);
-            BigDecimal valorSalidas = BigDecimal.valueOf(salidas * 800 + Math.random() * 4000);
-            BigDecimal saldoNeto = valorEntradas.subtract(valorSalidas);
-            BigDecimal promedioDiario = saldoNeto.divide(BigDecimal.valueOf(30), 2, BigDecimal.ROUND_HALF_UP);
-            
-            totalAnualEntradas = totalAnualEntradas.add(valorEntradas);
-            totalAnualSalidas = totalAnualSalidas.add(valorSalidas);
-            
-            html.append("<tr>");
-            html.append("<td><strong>").append(meses[i]).append("</strong></td>");
-            html.append("<td style='text-align: center;'>").append(entradas).append("</td>");
-            html.append("<td style='text-align: center;'>").append(salidas).append("</td>");
-            html.append("<td style='text-align: center;'>").append(ajustes).append("</td>");
-            html.append("<td style='text-align: center;'>").append(totalMovimientos).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(String.format("%.2f", valorEntradas)).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(String.format("%.2f", valorSalidas)).append("</td>");
-            html.append("<td style='text-align: right; font-weight: bold;'>Bs ").append(String.format("%.2f", saldoNeto)).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(String.format("%.2f", promedioDiario)).append("</td>");
-            html.append("</tr>");
+        try (PdfReporteWriter pdf = crearPdf(out, PdfReporteWriter.COLOR_VIOLETA)) {
+            pdf.encabezado("REPORTE DE MOVIMIENTOS ANUALES - DROGUERÍA INTI",
+                          "Análisis completo del inventario para el año 2025");
+            pdf.info("Fecha de Generación: " + fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))
+                    + " | Año: 2025 | Total Movimientos: " + String.format("%,d", totalMovimientosAnio));
+            
+            pdf.iniciarTabla(new float[]{12, 8, 8, 8, 10, 14, 14, 14, 12},
+                    "Mes", "Entradas", "Salidas", "Ajustes", "Total Movimientos",
+                    "Valor Entradas (Bs)", "Valor Salidas (Bs)", "Saldo Neto (Bs)", "Promedio Diario");
+            
+            String[] meses = {"Enero", "Febrero", "Marzo", "Abril", "Mayo", "Junio", 
+                             "Julio", "Agosto", "Septiembre", "Octubre", "Noviembre", "Diciembre"};
+            
+            BigDecimal totalAnualEntradas = BigDecimal.ZERO;
+            BigDecimal totalAnualSalidas = BigDecimal.ZERO;
+            
+            for (AnaliticaMovimientosService.ResumenMes mes : resumenAnual) {
+                totalAnualEntradas = totalAnualEntradas.add(mes.valorEntradas());
+                totalAnualSalidas = totalAnualSalidas.add(mes.valorSalidas());
+                
+                pdf.celda(meses[mes.mes() - 1]);
+                pdf.celdaCentrada(mes.entradas());
+                pdf.celdaCentrada(mes.salidas());
+                pdf.celdaCentrada(mes.ajustes());
+                pdf.celdaCentrada(mes.totalMovimientos());
+                pdf.celdaDerecha(formatearBs(mes.valorEntradas()));
+                pdf.celdaDerecha(formatearBs(mes.valorSalidas()));
+                pdf.celdaDerecha(formatearBs(mes.saldoNeto()));
+                pdf.celdaDerecha(formatearBs(mes.promedioDiario()));
+            }
+            
+            pdf.resumen("Resumen Anual 2025", new String[][]{
+                {"Total Entradas", formatearBs(totalAnualEntradas)},
+                {"Total Salidas", formatearBs(totalAnualSalidas)},
+                {"Saldo Neto Anual", formatearBs(totalAnualEntradas.subtract(totalAnualSalidas))},
+                {"Valor Total del Inventario", formatearBs(obtenerValorInventario())}
+            }, "Este reporte proporciona un análisis completo de todos los movimientos de inventario durante el año 2025.");
+            agregarPiePdf(pdf, fecha2025);
         }
         
-        html.append("</tbody></table>");
-        
-        html.append("<div class='resumen'>");
-        html.append("<h3>Resumen Anual 2025</h3>");
-        html.append("<p><strong>Total Entradas:</strong> Bs ").append(String.format("%.2f", totalAnualEntradas)).append("</p>");
-        html.append("<p><strong>Total Salidas:</strong> Bs ").append(String.format("%.2f", totalAnualSalidas)).append("</p>");
-        html.append("<p><strong>Saldo Neto Anual:</strong> Bs ").append(String.format("%.2f", totalAnualEntradas.subtract(totalAnualSalidas))).append("</p>");
-        html.append("<p><strong>Valor Total del Inventario:</strong> Bs 250,000.00</p>");
-        html.append("<p><em>Este reporte proporciona un análisis completo de todos los movimientos de inventario durante el año 2025.</em></p>");
-        html.append("</div>");
-        
-        html.append("<div class='footer'>");
-        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
-        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
-        html.append("</div>");
-        
-        // Script del gráfico
-        html.append("<script>");
-        html.append("document.addEventListener('DOMContentLoaded', function() {");
-        html.append("    const ctx = document.getElementById('movimientosChart').getContext('2d');");
-        html.append("    new Chart(ctx, {");
-        html.append("        type: 'bar',");
-        html.append("        data: {");
-        html.append("            labels: ['Ene','Feb','Mar','Abr','May','Jun','Jul','Ago','Sep','Oct','Nov','Dic'],");
-        html.append("            datasets: [");
-        html.append("                {");
-        html.append("                    label: 'Entradas (Bs)',");
-        html.append("                    data: [45000, 38000, 52000, 41000, 48000, 55000, 62000, 58000, 49000, 53000, 47000, 42000],");
-        html.append("                    backgroundColor: 'rgba(46, 204, 113, 0.7)',");
-        html.append("                    borderColor: 'rgba(46, 204, 113, 1)',");
-        html.append("                    borderWidth: 1");
-        html.append("                },");
-        html.append("                {");
-        html.append("                    label: 'Salidas (Bs)',");
-        html.append("                    data: [35000, 30000, 42000, 33000, 39000, 45000, 50000, 46000, 39000, 42000, 37000, 33000],");
-        html.append("                    backgroundColor: 'rgba(231, 76, 60, 0.7)',");
-        html.append("                    borderColor: 'rgba(231, 76, 60, 1)',");
-        html.append("                    borderWidth: 1");
-        html.append("                }");
-        html.append("            ]");
-        html.append("        },");
-        html.append("        options: {");
-        html.append("            responsive: true,");
-        html.append("            maintainAspectRatio: false,");
-        html.append("            scales: {");
-        html.append("                y: {");
-        html.append("                    beginAtZero: true,");
-        html.append("                    title: {");
-        html.append("                        display: true,");
-        html.append("                        text: 'Valor en Bs'");
-        html.append("                    }");
-        html.append("                },");
-        html.append("                x: {");
-        html.append("                    title: {");
-        html.append("                        display: true,");
-        html.append("                        text: 'Meses'");
-        html.append("                    }");
-        html.append("                }");
-        html.append("            }");
-        html.append("        }");
-        html.append("    });");
-        html.append("});");
-        html.append("</script>");
-        
-        html.append("</body></html>");
-        
         System.out.println("✅ Reporte de movimientos anuales en PDF generado exitosamente con formato Bs");
-        return html.toString().getBytes("UTF-8");
     }
 
     //============================================
-    // REPORTES DE INVENTARIO - PDF (HTML)
+    // REPORTES DE INVENTARIO - PDF
     //============================================
     /**
-     * Genera reporte de inventario en formato HTML (para imprimir como PDF)
+     * Genera reporte de inventario en formato PDF
      */
-    public byte[] generarReporteInventarioPdf() throws IOException {
-        List<Producto> productos = productoRepository.findByActivoTrue();
-        
-        StringBuilder html = new StringBuilder();
-        
-        // Encabezado HTML y estilos
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
-        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
-        html.append("<title>Reporte de Inventario</title>");
-        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
-        
-        html.append("<style>");
-        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
-        html.append("h1{ color:#2c3e50; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#2c3e50; padding-bottom: 10px; font-size: 2.5rem;}");
-        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#e9ecef; padding: 10px; border-radius: 8px;}");
-        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
-        html.append(".download-btn{ background: linear-gradient(135deg,#2c3e50 0%,#1a252f 100%); color: white; padding: 12px 24px;");
-        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
-        html.append("box-shadow: 0 4px 15px rgba(44, 62, 80, 0.3); transition: all 0.3s ease;");
-        html.append("display: flex; align-items: center; gap: 10px; text-decoration: none;}");
-        html.append(".download-btn:hover{ background: linear-gradient(135deg,#1a252f 0%,#0d1318 100%);");
-        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(44, 62, 80, 0.4);}");
-        html.append(".download-btn:active{ transform: translateY(0);}");
-        html.append(".download-icon{ font-size: 20px;}");
-        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
-        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
-        html.append("th, td{ border: 1px solid#bdc3c7; padding: 12px; text-align: left; font-size: 14px;}");
-        html.append("th{ background-color:#2c3e50; color: white; font-weight: bold; text-transform: uppercase;}");
-        html.append("tr:nth-child(even){ background-color:#f8f9fa;}");
-        html.append("tr:hover{ background-color:#e9ecef;}");
-        html.append(".agotado{ background-color:#e74c3c; color: white; font-weight: bold; padding: 4px 8px; border-radius: 4px;}");
-        html.append(".critico{ background-color:#e67e22; color: white; font-weight: bold; padding: 4px 8px; border-radius: 4px;}");
-        html.append(".normal{ background-color:#27ae60; color: white; padding: 4px 8px; border-radius: 4px;}");
-        html.append(".resumen{ margin-top: 30px; padding: 25px; background-color:#2c3e50; color: white; border-radius: 10px;}");
-        html.append(".resumen h3{ color: white; margin-top: 0; font-size: 1.5rem;}");
-        html.append(".resumen p{ margin: 10px 0; font-size: 1.1rem;}");
-        html.append(".resumen.valor{ font-weight: bold; font-size: 1.3rem; color:#1abc9c;}");
-        html.append(".header-section{ background: linear-gradient(135deg,#2c3e50 0%,#1a252f 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
-        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#bdc3c7;}");
-        html.append("</style></head><body>");
-        
-        // Botón de descarga
-        html.append("<div class='download-container'>");
-        html.append("<button class='download-btn' onclick='window.print()'>");
-        html.append("<span class='download-icon'>📥</span>");
-        html.append("<span>Descargar PDF</span>");
-        html.append("</button>");
-        html.append("</div>");
-        
-        // Encabezado
-        html.append("<div class='header-section'>");
-        html.append("<h1>📦 REPORTE DE INVENTARIO - DROGUERÍA INTI</h1>");
-        html.append("<p>Sistema de Gestión de Inventario - Reporte Generado en 2025</p>");
-        html.append("</div>");
-        
-        // Fecha y total
+    @Transactional(readOnly = true)
+    public void generarReporteInventarioPdf(OutputStream out) throws IOException {
         LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
-        html.append("<div class='info'>");
-        html.append("<strong>Fecha de Generación:</strong> ");
-        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-        html.append(" | <strong>Total de productos:</strong> ").append(productos.size());
-        html.append("</div>");
         
-        // Tabla de productos
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Código</th><th>Nombre</th><th>Categoría</th><th>Stock Actual</th>");
-        html.append("<th>Stock Mínimo</th><th>Precio Compra (Bs)</th><th>Precio Venta (Bs)</th>");
-        html.append("<th>Valor Inventario (Bs)</th><th>Estado</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
-        
-        BigDecimal valorTotal = BigDecimal.ZERO;
-        int agotados = 0;
-        int criticos = 0;
-        int normales = 0;
-        
-        for (Producto p : productos) {
-            String estado = determinarEstadoStock(p);
-            String claseEstado = estado.equals("AGOTADO") ? "agotado" : 
-                               (estado.equals("CRÍTICO") ? "critico" : "normal");
-            
-            if (estado.equals("AGOTADO")) agotados++;
-            else if (estado.equals("CRÍTICO")) criticos++;
-            else normales++;
-            
-            BigDecimal valorInv = BigDecimal.ZERO;
-            if (p.getPrecioCompra() != null && p.getStockActual() != null) {
-                valorInv = p.getPrecioCompra().multiply(BigDecimal.valueOf(p.getStockActual()));
+        try (PdfReporteWriter pdf = crearPdf(out, PdfReporteWriter.COLOR_AZUL_OSCURO)) {
+            pdf.encabezado("REPORTE DE INVENTARIO - DROGUERÍA INTI",
+                          "Sistema de Gestión de Inventario - Reporte Generado en 2025");
+            pdf.info("Fecha de Generación: " + fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+            
+            pdf.iniciarTabla(new float[]{11, 22, 13, 8, 8, 10, 10, 11, 9},
+                    "Código", "Nombre", "Categoría", "Stock Actual", "Stock Mínimo",
+                    "Precio Compra (Bs)", "Precio Venta (Bs)", "Valor Inventario (Bs)", "Estado");
+            
+            BigDecimal valorTotal = BigDecimal.ZERO;
+            int totalProductos = 0;
+            int agotados = 0;
+            int criticos = 0;
+            int normales = 0;
+            
+            try (Stream<Producto> productos = productoRepository.streamProductosActivos()) {
+                Iterator<Producto> cursor = productos.iterator();
+                while (cursor.hasNext()) {
+                    Producto p = cursor.next();
+                    totalProductos++;
+                    
+                    BigDecimal valorInv = BigDecimal.ZERO;
+                    if (p.getPrecioCompra() != null && p.getStockActual() != null) {
+                        valorInv = p.getPrecioCompra().multiply(BigDecimal.valueOf(p.getStockActual()));
+                    }
+                    valorTotal = valorTotal.add(valorInv);
+                    
+                    pdf.celda(p.getCodigo() != null ? p.getCodigo() : "SIN CÓDIGO");
+                    pdf.celda(p.getNombre() != null ? p.getNombre() : "SIN NOMBRE");
+                    pdf.celda(p.getCategoria() != null ? p.getCategoria().getNombre() : "Sin categoría");
+                    pdf.celdaCentrada(p.getStockActual() != null ? p.getStockActual() : 0);
+                    pdf.celdaCentrada(p.getStockMinimo() != null ? p.getStockMinimo() : 0);
+                    pdf.celdaDerecha(formatearBs(p.getPrecioCompra()));
+                    pdf.celdaDerecha(formatearBs(p.getPrecioVenta()));
+                    pdf.celdaDerecha(formatearBs(valorInv));
+                    
+                    String estado = determinarEstadoStock(p);
+                    if (estado.equals("AGOTADO")) {
+                        pdf.celdaResaltada(estado, PdfReporteWriter.COLOR_ROJO);
+                        agotados++;
+                    } else if (estado.equals("CRÍTICO")) {
+                        pdf.celdaResaltada(estado, PdfReporteWriter.COLOR_NARANJA);
+                        criticos++;
+                    } else {
+                        pdf.celdaResaltada(estado, PdfReporteWriter.COLOR_VERDE);
+                        normales++;
+                    }
+                    
+                    entityManager.detach(p);
+                }
             }
-            valorTotal = valorTotal.add(valorInv);
-            
-            html.append("<tr>");
-            html.append("<td>").append(escaparHtml(p.getCodigo() != null ? p.getCodigo() : "SIN CÓDIGO")).append("</td>");
-            html.append("<td>").append(escaparHtml(p.getNombre() != null ? p.getNombre() : "SIN NOMBRE")).append("</td>");
-            html.append("<td>").append(
-                p.getCategoria() != null ? escaparHtml(p.getCategoria().getNombre()) : "Sin categoría"
-            ).append("</td>");
-            html.append("<td style='text-align: center;'><strong>").append(p.getStockActual() != null ? 
-                p.getStockActual() : 0).append("</strong></td>");
-            html.append("<td style='text-align: center;'>").append(p.getStockMinimo() != null ? 
-                p.getStockMinimo() : 0).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(
-                p.getPrecioCompra() != null ? String.format("%.2f", p.getPrecioCompra()) : "0.00"
-            ).append("</td>");
-            html.append("<td style='text-align: right;'>Bs ").append(
-                p.getPrecioVenta() != null ? String.format("%.2f", p.getPrecioVenta()) : "0.00"
-            ).append("</td>");
-            html.append("<td style='text-align: right;'><strong>Bs ").append(String.format("%.2f", valorInv)).append("</strong></td>");
-            html.append("<td style='text-align: center;'><span class='").append(claseEstado).append("'>")
-                .append(estado).append("</span></td>");
-            html.append("</tr>");
+            
+            pdf.resumen("Resumen del Inventario", new String[][]{
+                {"Total de Productos", String.valueOf(totalProductos)},
+                {"Productos con Stock Bajo", String.valueOf(criticos)},
+                {"Productos Agotados", String.valueOf(agotados)},
+                {"Productos con Stock Normal", String.valueOf(normales)},
+                {"Valor Total del Inventario", formatearBs(valorTotal)}
+            }, null);
+            agregarPiePdf(pdf, fecha2025);
         }
         
-        html.append("</tbody></table>");
-        
-        // Resumen con estilo mejorado
-        html.append("<div class='resumen'>");
-        html.append("<h3>📊 Resumen del Inventario</h3>");
-        html.append("<p><strong>Total de Productos:</strong><span class='valor'>").append(productos.size()).append("</span></p>");
-        html.append("<p><strong>Productos con Stock Bajo:</strong><span class='valor'>").append(criticos).append("</span></p>");
-        html.append("<p><strong>Productos Agotados:</strong><span class='valor'>").append(agotados).append("</span></p>");
-        html.append("<p><strong>Productos con Stock Normal:</strong><span class='valor'>").append(normales).append("</span></p>");
-        html.append("<p><strong>Valor Total del Inventario:</strong><span class='valor'>Bs ")
-            .append(String.format("%.2f", valorTotal)).append("</span></p>");
-        html.append("</div>");
-        
-        // Pie de página
-        html.append("<div class='footer'>");
-        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
-        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
-        html.append("</div>");
-        
-        html.append("</body></html>");
-        
         System.out.println("✅ Reporte de inventario en PDF generado exitosamente con formato Bs y año 2025");
-        return html.toString().getBytes("UTF-8");
     }
 
     /**
-     * Genera reporte de stock bajo en formato HTML
+     * Genera reporte de stock bajo en formato PDF
      */
-    public byte[] generarReporteStockBajoPdf() throws IOException {
+    public void generarReporteStockBajoPdf(OutputStream out) throws IOException {
         List<Producto> productos = productoService.obtenerProductosStockBajo();
-        
-        StringBuilder html = new StringBuilder();
-        
-        html.append("<!DOCTYPE html><html><head><meta charset='UTF-8'>");
-        html.append("<meta name='viewport' content='width=device-width, initial-scale=1.0'>");
-        html.append("<title>Reporte de Stock Bajo</title>");
-        html.append("<link href='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css' rel='stylesheet'>");
-        html.append("<script src='https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js'></script>");
-        html.append("<style>");
-        html.append("body{ font-family:'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background-color:#f8f9fa;}");
-        html.append("h1{ color:#e67e22; text-align: center; margin-bottom: 10px; border-bottom: 3px solid#e67e22; padding-bottom: 10px; font-size: 2.5rem;}");
-        html.append(".info{ text-align: center; color:#7f8c8d; margin-bottom: 20px; font-size: 1.1rem; background:#fef9e7; padding: 10px; border-radius: 8px;}");
-        html.append(".download-container{ position: fixed; top: 20px; right: 20px; z-index: 1000;}");
-        html.append(".download-btn{ background: linear-gradient(135deg,#e67e22 0%,#d35400 100%); color: white; padding: 12px 24px;");
-        html.append("border: none; border-radius: 8px; cursor: pointer; font-size: 16px; font-weight: bold; ");
-        html.append("box-shadow: 0 4px 15px rgba(230, 126, 34, 0.3); transition: all 0.3s ease;");
-        html.append("display: flex; align-items: center; gap: 10px;}");
-        html.append(".download-btn:hover{ background: linear-gradient(135deg,#d35400 0%,#ba4a00 100%);");
-        html.append("transform: translateY(-2px); box-shadow: 0 6px 20px rgba(230, 126, 34, 0.4);}");
-        html.append("@media print{.download-container{ display: none;} body{ margin: 10px;}@page{ size: landscape; margin: 1cm;}}");
-        html.append("table{ width: 100%; border-collapse: collapse; margin-top: 20px; box-shadow: 0 2px 15px rgba(0,0,0,0.1); border-radius: 10px; overflow: hidden;}");
-        html.append("th, td{ border: 1px solid#ddd; padding: 12px; text-align: left; font-size: 14px;}");
-        html.append("th{ background-color:#e67e22; color: white; font-weight: bold;}");
-        html.append("tr:nth-child(even){ background-color:#fef9e7;}");
-        html.append(".alert{ background-color:#fff3cd; padding: 15px; border-left: 4px solid#ffc107; margin: 20px 0; border-radius: 8px;}");
-        html.append(".resumen{ margin-top: 20px; padding: 20px; background-color:#e67e22; color: white; border-radius: 10px;}");
-        html.append(".header-section{ background: linear-gradient(135deg,#e67e22 0%,#d35400 100%); color: white; padding: 20px; text-align: center; border-radius: 10px; margin-bottom: 20px;}");
-        html.append(".footer{ margin-top: 40px; padding: 20px; text-align: center; color:#7f8c8d; font-size: 0.9rem; border-top: 1px solid#ddd;}");
-        html.append("</style></head><body>");
-        
-        // Botón de descarga
-        html.append("<div class='download-container'>");
-        html.append("<button class='download-btn' onclick='window.print()'>");
-        html.append("<span>📥</span><span>Descargar PDF</span>");
-        html.append("</button>");
-        html.append("</div>");
-        
-        // Encabezado
-        html.append("<div class='header-section'>");
-        html.append("<h1>⚠️ REPORTE DE STOCK BAJO - DROGUERÍA INTI</h1>");
-        html.append("<p>Reporte de Productos que Requieren Reposición Inmediata - 2025</p>");
-        html.append("</div>");
-        
-        // Fecha
         LocalDateTime fecha2025 = LocalDateTime.now().withYear(2025);
-        html.append("<div class='info'>");
-        html.append("<strong>Fecha:</strong> ");
-        html.append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
-        html.append("</div>");
-        
-        html.append("<div class='alert'>");
-        html.append("<strong>⚠️ ALERTA:</strong> Estos productos requieren atención inmediata para reposición");
-        html.append("</div>");
         
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Código</th><th>Nombre</th><th>Categoría</th>");
-        html.append("<th>Stock Actual</th><th>Stock Mínimo</th><th>Déficit</th><th>Precio Compra (Bs)</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
-        
-        for (Producto p : productos) {
-            int deficit = (p.getStockMinimo() != null ? p.getStockMinimo() : 0) - 
-                         (p.getStockActual() != null ? p.getStockActual() : 0);
-            
-            html.append("<tr>");
-            html.append("<td>").append(escaparHtml(p.getCodigo() != null ? p.getCodigo() : "SIN CÓDIGO")).append("</td>");
-            html.append("<td>").append(escaparHtml(p.getNombre() != null ? p.getNombre() : "SIN NOMBRE")).append("</td>");
-            html.append("<td>").append(
-                p.getCategoria() != null ? escaparHtml(p.getCategoria().getNombre()) : "Sin categoría"
-            ).append("</td>");
-            html.append("<td style='text-align: center;'><strong>").append(p.getStockActual() != null ? 
-                p.getStockActual() : 0).append("</strong></td>");
-            html.append("<td style='text-align: center;'>").append(p.getStockMinimo() != null ? 
-                p.getStockMinimo() : 0).append("</td>");
-            html.append("<td style='text-align: center; color: #e74c3c;'><strong>").append(deficit).append("</strong></td>");
-            html.append("<td style='text-align: right;'>Bs ").append(
-                p.getPrecioCompra() != null ? String.format("%.2f", p.getPrecioCompra()) : "0.00"
-            ).append("</td>");
-            html.append("</tr>");
+        try (PdfReporteWriter pdf = crearPdf(out, PdfReporteWriter.COLOR_NARANJA)) {
+            pdf.encabezado("REPORTE DE STOCK BAJO - DROGUERÍA INTI",
+                          "Reporte de Productos que Requieren Reposición Inmediata - 2025");
+            pdf.info("Fecha: " + fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+            pdf.alerta("ALERTA: Estos productos requieren atención inmediata para reposición");
+            
+            pdf.iniciarTabla(new float[]{12, 28, 16, 10, 10, 10, 14},
+                    "Código", "Nombre", "Categoría", "Stock Actual", "Stock Mínimo", "Déficit", "Precio Compra (Bs)");
+            
+            for (Producto p : productos) {
+                int deficit = (p.getStockMinimo() != null ? p.getStockMinimo() : 0) - 
+                             (p.getStockActual() != null ? p.getStockActual() : 0);
+                
+                pdf.celda(p.getCodigo() != null ? p.getCodigo() : "SIN CÓDIGO");
+                pdf.celda(p.getNombre() != null ? p.getNombre() : "SIN NOMBRE");
+                pdf.celda(p.getCategoria() != null ? p.getCategoria().getNombre() : "Sin categoría");
+                pdf.celdaCentrada(p.getStockActual() != null ? p.getStockActual() : 0);
+                pdf.celdaCentrada(p.getStockMinimo() != null ? p.getStockMinimo() : 0);
+                pdf.celdaResaltada(deficit, PdfReporteWriter.COLOR_ROJO);
+                pdf.celdaDerecha(formatearBs(p.getPrecioCompra()));
+            }
+            
+            pdf.resumen("Resumen", new String[][]{
+                {"Total de Productos con Stock Bajo", String.valueOf(productos.size())}
+            }, "Se recomienda realizar pedidos de reposición lo antes posible.");
+            agregarPiePdf(pdf, fecha2025);
         }
         
-        html.append("</tbody></table>");
-        
-        html.append("<div class='resumen'>");
-        html.append("<h3>Resumen</h3>");
-        html.append("<p><strong>Total de Productos con Stock Bajo:</strong> ").append(productos.size()).append("</p>");
-        html.append("<p><em>Se recomienda realizar pedidos de reposición lo antes posible.</em></p>");
-        html.append("</div>");
-        
-        html.append("<div class='footer'>");
-        html.append("<p>© 2025 Droguería Inti - Sistema de Gestión de Inventario</p>");
-        html.append("<p>Reporte generado automáticamente el ").append(fecha2025.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("</p>");
-        html.append("</div>");
-        
-        html.append("</body></html>");
-        
         System.out.println("✅ Reporte de stock bajo en PDF generado exitosamente con formato Bs");
-        return html.toString().getBytes("UTF-8");
+    }
+
+    //============================================
+    // MÉTODOS AUXILIARES - PDF
+    //============================================
+    private PdfReporteWriter crearPdf(OutputStream out, DeviceRgb colorTema) throws IOException {
+        return new PdfReporteWriter(out, fuentePdf, fuentePdfNegrita, colorTema);
+    }
+
+    private void agregarPiePdf(PdfReporteWriter pdf, LocalDateTime fecha) {
+        pdf.pie("© 2025 Droguería Inti - Sistema de Gestión de Inventario",
+                "Reporte generado automáticamente el " + fecha.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")));
+    }
+
+    private String formatearBs(BigDecimal valor) {
+        return "Bs " + String.format("%.2f", valor != null ? valor : BigDecimal.ZERO);
+    }
+
+    //============================================
+    // MÉTODOS AUXILIARES - LIBRO EXCEL STREAMING
+    //============================================
+    /**
+     * Crea un libro SXSSF que solo retiene en memoria la ventana de filas configurada,
+     * de modo que el tamaño del heap no depende del número de filas del reporte.
+     */
+    private SXSSFWorkbook crearLibroStreaming() {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ventanaFilasExcel);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    /**
+     * Elimina los temporales de SXSSF y cierra el libro sin ocultar la excepción original
+     */
+    private void cerrarLibroStreaming(SXSSFWorkbook workbook) {
+        workbook.dispose();
+        try {
+            workbook.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar workbook: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asigna el ancho de cada columna, expresado en caracteres
+     */
+    private void aplicarAnchoColumnas(Sheet sheet, int... anchos) {
+        for (int i = 0; i < anchos.length; i++) {
+            sheet.setColumnWidth(i, anchos[i] * 256);
+        }
     }
 
     //============================================
@@ -1948,19 +1487,12 @@ public class ReporteService {
             return "NORMAL";
         }
     }
-    
+
     /**
-     * Escapa caracteres especiales HTML para prevenir XSS
+     * Valor del inventario activo a precio de compra, calculado en la base de datos
      */
-    private String escaparHtml(String texto) {
-        if (texto == null) {
-            return "";
-        }
-        
-        return texto.replace("&", "&amp;")
-                   .replace("<", "<")
-                   .replace(">", ">")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&#39;");
+    private BigDecimal obtenerValorInventario() {
+        BigDecimal valor = productoRepository.getValorTotalInventario();
+        return valor != null ? valor : BigDecimal.ZERO;
     }
-}
\ No newline at end of file
+}
@@ -3,8 +3,11 @@ package com.salesiana.inventory_system.service;
 
 import com.salesiana.inventory_system.entity.Rol;
 import com.salesiana.inventory_system.repository.RolRepository;
+import com.salesiana.inventory_system.repository.UsuarioRepository;
+import com.salesiana.inventory_system.security.VersionTokenUsuarios;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,20 +18,44 @@ public class RolService {
     @Autowired
     private RolRepository rolRepository;
 
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private VersionTokenUsuarios versionTokenUsuarios;
+
+    @Autowired
+    private UsuarioActualService usuarioActualService;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
     public List<Rol> obtenerRolesActivos() {
-        return rolRepository.findByActivoTrue();
+        return catalogoService.roles().todos().stream()
+                .filter(rol -> Boolean.TRUE.equals(rol.getActivo()))
+                .toList();
     }
 
     public Optional<Rol> obtenerRolPorId(Integer id) {
-        return rolRepository.findById(id);
+        return catalogoService.roles().porId(id);
     }
 
     public Optional<Rol> obtenerRolPorCodigo(String codigo) {
-        return rolRepository.findByCodigo(codigo);
+        return catalogoService.roles().porCodigo(codigo);
     }
 
+    @Transactional
     public Rol guardarRol(Rol rol) {
-        return rolRepository.save(rol);
+        boolean existente = rol.getId() != null;
+        Rol guardado = rolRepository.save(rol);
+        catalogoService.roles().descartarAlTerminar();
+        if (existente) {
+            // Los JWT llevan el código del rol: los de sus usuarios se vuelven a emitir
+            usuarioRepository.incrementarVersionTokenPorRol(guardado.getId());
+            versionTokenUsuarios.descartarTodas();
+            usuarioActualService.invalidarTodos();
+        }
+        return guardado;
     }
     
     // Método para inicializar roles si no existen
@@ -61,6 +88,7 @@ public class RolService {
             consultor.setDescripcion("Solo consultas");
             consultor.setNivelAcceso(1);
             rolRepository.save(consultor);
+            catalogoService.roles().descartarAlTerminar();
         }
     }
 }
\ No newline at end of file
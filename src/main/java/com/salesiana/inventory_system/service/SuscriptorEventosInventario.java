@@ -0,0 +1,19 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.EventoInventario;
+
+import java.util.List;
+
+/**
+ * Componente que reacciona a los cambios del inventario publicados por EventoInventarioService.
+ *
+ * Recibe los eventos en lotes y en orden de id. La entrega es al menos una vez y no se registra
+ * por suscriptor: si cualquier suscriptor lanza una excepción, el lote se vuelve a entregar (de a
+ * un evento y luego en las pasadas siguientes) también a los que ya lo habían procesado. Por eso
+ * procesarEventos debe ser idempotente, por ejemplo aplicando valores absolutos del evento
+ * (como IndicadoresStockService con el stock resultante) en lugar de incrementos.
+ */
+public interface SuscriptorEventosInventario {
+
+    void procesarEventos(List<EventoInventario> eventos);
+}
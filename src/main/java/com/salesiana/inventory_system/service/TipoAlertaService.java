@@ -23,12 +23,17 @@ public class TipoAlertaService {
     @Autowired
     private TipoAlertaRepository tipoAlertaRepository;
     
+    @Autowired
+    private CatalogoService catalogoService;
+    
     public List<TipoAlerta> obtenerTodosTiposAlerta() {
-        return tipoAlertaRepository.findByActivoTrue();
+        return catalogoService.tiposAlerta().todos().stream()
+                .filter(tipo -> Boolean.TRUE.equals(tipo.getActivo()))
+                .toList();
     }
     
     public Optional<TipoAlerta> obtenerTipoAlertaPorCodigo(String codigo) {
-        return tipoAlertaRepository.findByCodigo(codigo);
+        return catalogoService.tiposAlerta().porCodigo(codigo);
     }
     
     public Optional<TipoAlerta> obtenerTipoAlertaPorId(Integer id) {
@@ -36,13 +41,16 @@ public class TipoAlertaService {
     }
     
     public TipoAlerta guardarTipoAlerta(TipoAlerta tipoAlerta) {
-        return tipoAlertaRepository.save(tipoAlerta);
+        TipoAlerta guardado = tipoAlertaRepository.save(tipoAlerta);
+        catalogoService.tiposAlerta().descartarAlTerminar();
+        return guardado;
     }
     
     public void desactivarTipoAlerta(Integer id) {
         tipoAlertaRepository.findById(id).ifPresent(tipoAlerta -> {
             tipoAlerta.setActivo(false);
             tipoAlertaRepository.save(tipoAlerta);
+            catalogoService.tiposAlerta().descartarAlTerminar();
         });
     }
 }
@@ -23,12 +23,17 @@ public class TipoMovimientoService {
     @Autowired
     private TipoMovimientoRepository tipoMovimientoRepository;
     
+    @Autowired
+    private CatalogoService catalogoService;
+    
     public List<TipoMovimiento> obtenerTodosTiposMovimiento() {
-        return tipoMovimientoRepository.findByActivoTrue();
+        return catalogoService.tiposMovimiento().todos().stream()
+                .filter(tipo -> Boolean.TRUE.equals(tipo.getActivo()))
+                .toList();
     }
     
     public Optional<TipoMovimiento> obtenerTipoMovimientoPorCodigo(String codigo) {
-        return tipoMovimientoRepository.findByCodigo(codigo);
+        return catalogoService.tiposMovimiento().porCodigo(codigo);
     }
     
     public Optional<TipoMovimiento> obtenerTipoMovimientoPorId(Integer id) {
@@ -36,13 +41,16 @@ public class TipoMovimientoService {
     }
     
     public TipoMovimiento guardarTipoMovimiento(TipoMovimiento tipoMovimiento) {
-        return tipoMovimientoRepository.save(tipoMovimiento);
+        TipoMovimiento guardado = tipoMovimientoRepository.save(tipoMovimiento);
+        catalogoService.tiposMovimiento().descartarAlTerminar();
+        return guardado;
     }
     
     public void desactivarTipoMovimiento(Integer id) {
         tipoMovimientoRepository.findById(id).ifPresent(tipoMovimiento -> {
             tipoMovimiento.setActivo(false);
             tipoMovimientoRepository.save(tipoMovimiento);
+            catalogoService.tiposMovimiento().descartarAlTerminar();
         });
     }
 }
@@ -3,13 +3,13 @@ package com.salesiana.inventory_system.service;
 import com.salesiana.inventory_system.entity.*;
 import com.salesiana.inventory_system.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -29,7 +29,10 @@ public class TransferenciaUbicacionService {
     private UbicacionAlmacenRepository ubicacionRepository;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private UsuarioActualService usuarioActualService;
+
+    @Autowired
+    private EventoInventarioService eventoInventarioService;
 
     // ✅ MÉTODOS BÁSICOS CORREGIDOS
     @Transactional(readOnly = true)
@@ -120,7 +123,7 @@ public TransferenciaUbicacion registrarTransferencia(TransferenciaUbicacion tran
         }
 
         // 5. ASIGNAR USUARIO ACTUAL
-        Usuario usuario = obtenerUsuarioActual();
+        Usuario usuario = usuarioActualService.obtenerUsuarioActual().orElse(null);
         if (usuario == null) {
             throw new RuntimeException("No hay usuario autenticado");
         }
@@ -161,6 +164,7 @@ public TransferenciaUbicacion registrarTransferencia(TransferenciaUbicacion tran
 
         // 10. GUARDAR TRANSFERENCIA
         TransferenciaUbicacion transferenciaGuardada = transferenciaRepository.save(transferencia);
+        emitirEvento(EventoInventario.Tipo.TRANSFERENCIA_REGISTRADA, transferenciaGuardada);
 
         System.out.println("✅ Transferencia registrada exitosamente - ID: " + transferenciaGuardada.getId());
         return transferenciaGuardada;
@@ -189,6 +193,7 @@ public TransferenciaUbicacion registrarTransferencia(TransferenciaUbicacion tran
             ubicacionDestino.setCapacidadActual(ubicacionDestino.getCapacidadActual() - transferencia.getCantidad());
             ubicacionRepository.save(ubicacionDestino);
 
+            emitirEvento(EventoInventario.Tipo.TRANSFERENCIA_ELIMINADA, transferencia);
             transferenciaRepository.delete(transferencia);
             System.out.println("✅ Transferencia eliminada - ID: " + id);
 
@@ -198,17 +203,12 @@ public TransferenciaUbicacion registrarTransferencia(TransferenciaUbicacion tran
         }
     }
 
-    // ✅ MÉTODO AUXILIAR
-    private Usuario obtenerUsuarioActual() {
-        try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.isAuthenticated() && !"anonymousUser".equals(auth.getName())) {
-                String username = auth.getName();
-                return usuarioRepository.findByUsername(username).orElse(null);
-            }
-        } catch (Exception e) {
-            System.err.println("Error al obtener usuario actual: " + e.getMessage());
-        }
-        return null;
+    private void emitirEvento(EventoInventario.Tipo tipo, TransferenciaUbicacion transferencia) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("ubicacionOrigenId", transferencia.getUbicacionOrigen() != null ? transferencia.getUbicacionOrigen().getId() : null);
+        datos.put("ubicacionDestinoId", transferencia.getUbicacionDestino().getId());
+        datos.put("loteId", transferencia.getLote() != null ? transferencia.getLote().getId() : null);
+        datos.put("cantidad", transferencia.getCantidad());
+        eventoInventarioService.emitir(tipo, transferencia.getId(), transferencia.getProducto().getId(), datos);
     }
 }
\ No newline at end of file
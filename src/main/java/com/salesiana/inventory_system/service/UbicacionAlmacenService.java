@@ -15,6 +15,12 @@ public class UbicacionAlmacenService {
     @Autowired
     private UbicacionAlmacenRepository ubicacionRepository;
     
+    @Autowired
+    private CodigoProductoService codigoProductoService;
+    
+    @Autowired
+    private CatalogoService catalogoService;
+    
     public List<UbicacionAlmacen> obtenerTodasUbicaciones() {
         return ubicacionRepository.findByActivaTrue();
     }
@@ -36,13 +42,18 @@ public class UbicacionAlmacenService {
     }
     
     public UbicacionAlmacen guardar(UbicacionAlmacen ubicacion) {
-        return ubicacionRepository.save(ubicacion);
+        UbicacionAlmacen guardada = ubicacionRepository.save(ubicacion);
+        // El código o el padre pueden haber cambiado
+        codigoProductoService.invalidarRutas();
+        catalogoService.ubicaciones().descartarAlTerminar();
+        return guardada;
     }
     
     public void eliminar(Integer id) {
         ubicacionRepository.findById(id).ifPresent(ubicacion -> {
             ubicacion.setActiva(false);
             ubicacionRepository.save(ubicacion);
+            catalogoService.ubicaciones().descartarAlTerminar();
         });
     }
     
@@ -0,0 +1,159 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.Usuario;
+import com.salesiana.inventory_system.repository.UsuarioRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resuelve el Usuario de la sesión actual (o por username) para asignarlo como autor de
+ * movimientos, transferencias, controles de calidad y reportes.
+ *
+ * Dentro de una petición HTTP el usuario se guarda como atributo de la petición, así que varias
+ * llamadas durante el mismo registro no vuelven a buscarlo. Entre peticiones se mantiene una
+ * caché LRU de app.usuarios.cache.max usuarios activos, que UsuarioService vacía para el usuario
+ * modificado al confirmar cada cambio. Cada invalidación incrementa la generación del username:
+ * una carga que leyó la base de datos antes de la confirmación no se guarda si la generación
+ * cambió mientras tanto.
+ *
+ * Las instancias son compartidas entre hilos y se cargan con el rol, para no depender de la carga
+ * diferida fuera de una sesión: solo deben usarse como referencia (para modificar un usuario,
+ * cargarlo con UsuarioService). El login no pasa por esta caché (ver CustomUserDetailsService).
+ */
+@Service
+public class UsuarioActualService {
+
+    private static final String ATRIBUTO_PETICION = UsuarioActualService.class.getName() + ".usuario";
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Value("${app.usuarios.cache.max:1000}")
+    private int maxUsuarios;
+
+    private Map<String, Usuario> usuarios;
+
+    // Generaciones por username y de la caché completa; se leen y modifican con el bloqueo de usuarios
+    private final Map<String, Long> generaciones = new HashMap<>();
+    private long generacionTodos;
+
+    @PostConstruct
+    public void iniciar() {
+        usuarios = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Usuario> eldest) {
+                return size() > maxUsuarios;
+            }
+        };
+    }
+
+    /**
+     * Usuario autenticado en el contexto de seguridad, o vacío si no hay sesión o no existe
+     */
+    public Optional<Usuario> obtenerUsuarioActual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+            return Optional.empty();
+        }
+
+        RequestAttributes peticion = RequestContextHolder.getRequestAttributes();
+        if (peticion != null) {
+            Object memo = peticion.getAttribute(ATRIBUTO_PETICION, RequestAttributes.SCOPE_REQUEST);
+            if (memo instanceof Usuario usuario && auth.getName().equals(usuario.getUsername())) {
+                return Optional.of(usuario);
+            }
+        }
+
+        Optional<Usuario> usuario = obtenerPorUsername(auth.getName());
+        if (peticion != null && usuario.isPresent()) {
+            peticion.setAttribute(ATRIBUTO_PETICION, usuario.get(), RequestAttributes.SCOPE_REQUEST);
+        }
+        return usuario;
+    }
+
+    /**
+     * Usuario activo por username, desde la caché o la base de datos
+     */
+    public Optional<Usuario> obtenerPorUsername(String username) {
+        long generacion;
+        synchronized (usuarios) {
+            Usuario usuario = usuarios.get(username);
+            if (usuario != null) {
+                return Optional.of(usuario);
+            }
+            generacion = generacion(username);
+        }
+
+        Optional<Usuario> usuario = usuarioRepository.findConRolByUsernameAndActivoTrue(username);
+        usuario.ifPresent(u -> {
+            synchronized (usuarios) {
+                // Invalidado mientras se leía: lo leído puede ser anterior al cambio
+                if (generacion(username) == generacion) {
+                    usuarios.put(username, u);
+                }
+            }
+        });
+        return usuario;
+    }
+
+    /**
+     * Saca al usuario de la caché ahora y cuando confirme la transacción en curso
+     */
+    public void invalidar(String username) {
+        quitarAhoraYAlConfirmar(() -> {
+            generaciones.merge(username, 1L, Long::sum);
+            usuarios.remove(username);
+        });
+    }
+
+    /**
+     * Vacía la caché ahora y al confirmar (cambios de rol, que afectan a todos sus usuarios)
+     */
+    public void invalidarTodos() {
+        quitarAhoraYAlConfirmar(() -> {
+            generacionTodos++;
+            usuarios.clear();
+        });
+    }
+
+    /**
+     * Se quita de inmediato y otra vez al confirmar: una lectura que empiece entre ambos momentos
+     * lee la versión anterior, y el segundo incremento de generación impide que la guarde
+     */
+    private void quitarAhoraYAlConfirmar(Runnable quitar) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    synchronized (usuarios) {
+                        quitar.run();
+                    }
+                }
+            });
+        }
+        synchronized (usuarios) {
+            quitar.run();
+        }
+    }
+
+    /**
+     * Ambos contadores solo crecen, así que su suma cambia con cualquier invalidación que afecte al
+     * username
+     */
+    private long generacion(String username) {
+        return generacionTodos + generaciones.getOrDefault(username, 0L);
+    }
+}
@@ -2,26 +2,44 @@ package com.salesiana.inventory_system.service;
 
 import com.salesiana.inventory_system.entity.Usuario;
 import com.salesiana.inventory_system.repository.UsuarioRepository;
+import com.salesiana.inventory_system.security.VersionTokenUsuarios;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class UsuarioService {
     
+    private static final String SQL_ESTADO_USUARIO =
+            "SELECT username, password_hash, rol_id, activo FROM usuarios WHERE id = ?";
+    
+    private record EstadoUsuario(String username, String passwordHash, Integer rolId, boolean activo) {
+    }
+    
     @Autowired
     private UsuarioRepository usuarioRepository;
     
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private VersionTokenUsuarios versionTokenUsuarios;
+    
+    @Autowired
+    private UsuarioActualService usuarioActualService;
+    
     public List<Usuario> obtenerTodosUsuarios() {
         return usuarioRepository.findAll();
     }
@@ -45,9 +63,37 @@ public class UsuarioService {
     }
     
     public Usuario guardarUsuario(Usuario usuario) {
+        // Cambios de username, contraseña, rol o estado revocan los JWT ya emitidos. Se compara con
+        // la fila por JDBC: la entidad recibida puede ser la misma instancia administrada ya modificada
+        String usernameAnterior = null;
+        boolean revocarTokens = false;
+        if (usuario.getId() != null) {
+            List<EstadoUsuario> estados = jdbcTemplate.query(SQL_ESTADO_USUARIO, (rs, fila) -> new EstadoUsuario(
+                    rs.getString("username"), rs.getString("password_hash"),
+                    (Integer) rs.getObject("rol_id"), rs.getBoolean("activo")), usuario.getId());
+            if (!estados.isEmpty()) {
+                EstadoUsuario anterior = estados.get(0);
+                usernameAnterior = anterior.username();
+                revocarTokens = !Objects.equals(anterior.username(), usuario.getUsername())
+                        || !Objects.equals(anterior.passwordHash(), usuario.getPasswordHash())
+                        || !Objects.equals(anterior.rolId(), idRol(usuario))
+                        || anterior.activo() != Boolean.TRUE.equals(usuario.getActivo());
+            }
+        }
+        
         // NO encriptar contraseña - guardar en texto plano
         usuario.setFechaActualizacion(LocalDateTime.now());
-        return usuarioRepository.save(usuario);
+        Usuario guardado = usuarioRepository.save(usuario);
+        if (revocarTokens) {
+            revocarTokens(guardado);
+        }
+        usuarioActualService.invalidar(guardado.getUsername());
+        
+        // Renombrado: la caché sigue indexada por el username anterior (las versiones de token van por id)
+        if (usernameAnterior != null && !usernameAnterior.equals(guardado.getUsername())) {
+            usuarioActualService.invalidar(usernameAnterior);
+        }
+        return guardado;
     }
     
     @Transactional
@@ -108,6 +154,8 @@ public class UsuarioService {
             usuario.setActivo(false);
             usuario.setFechaActualizacion(LocalDateTime.now());
             usuarioRepository.save(usuario);
+            revocarTokens(usuario);
+            usuarioActualService.invalidar(usuario.getUsername());
         });
     }
     
@@ -123,6 +171,7 @@ public class UsuarioService {
         usuarioRepository.findById(usuarioId).ifPresent(usuario -> {
             usuario.setUltimoAcceso(LocalDateTime.now());
             usuarioRepository.save(usuario);
+            usuarioActualService.invalidar(usuario.getUsername());
         });
     }
     
@@ -150,6 +199,17 @@ public class UsuarioService {
             usuario.setPasswordHash(nuevaPassword);
             usuario.setFechaActualizacion(LocalDateTime.now());
             usuarioRepository.save(usuario);
+            revocarTokens(usuario);
+            usuarioActualService.invalidar(usuario.getUsername());
         });
     }
+    
+    private void revocarTokens(Usuario usuario) {
+        usuarioRepository.incrementarVersionToken(usuario.getId());
+        versionTokenUsuarios.descartar(usuario.getId());
+    }
+    
+    private static Integer idRol(Usuario usuario) {
+        return usuario.getRol() != null ? usuario.getRol().getId() : null;
+    }
 }
\ No newline at end of file
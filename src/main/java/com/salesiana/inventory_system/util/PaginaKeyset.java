@@ -0,0 +1,87 @@
+package com.salesiana.inventory_system.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de un listado paginado por clave (fecha, id) en orden descendente.
+ *
+ * En lugar de OFFSET, cada página continúa a partir de la última fila de la anterior:
+ * la consulta entra por el índice de fecha justo en ese punto, así que el costo es el mismo
+ * en la primera página que en la número mil. El token "siguiente" codifica la fecha y el id
+ * de esa última fila; no depende de cuántas filas se inserten entre una página y otra.
+ */
+public class PaginaKeyset<T> {
+
+    /**
+     * Posición desde la que continúa la página siguiente
+     */
+    public record Cursor(LocalDateTime fecha, Integer id) {
+    }
+
+    private final List<T> elementos;
+    private final String siguiente;
+    private final boolean primera;
+
+    private PaginaKeyset(List<T> elementos, String siguiente, boolean primera) {
+        this.elementos = elementos;
+        this.siguiente = siguiente;
+        this.primera = primera;
+    }
+
+    /**
+     * Arma la página a partir de una consulta que pidió tamano + 1 filas: si llegó la fila extra
+     * hay página siguiente, y se descarta
+     */
+    public static <T> PaginaKeyset<T> desde(List<T> filas, int tamano, boolean primera,
+                                            Function<T, LocalDateTime> fecha, Function<T, Integer> id) {
+        if (filas.size() <= tamano) {
+            return new PaginaKeyset<>(filas, null, primera);
+        }
+        List<T> pagina = filas.subList(0, tamano);
+        T ultima = pagina.get(tamano - 1);
+        return new PaginaKeyset<>(pagina, codificar(fecha.apply(ultima), id.apply(ultima)), primera);
+    }
+
+    public static String codificar(LocalDateTime fecha, Integer id) {
+        String valor = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return el cursor del token, o null si el token viene vacío (primera página)
+     */
+    public static Cursor decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(valor.substring(0, separador)),
+                    Integer.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new RuntimeException("Token de página inválido: " + token);
+        }
+    }
+
+    public List<T> getElementos() {
+        return elementos;
+    }
+
+    public String getSiguiente() {
+        return siguiente;
+    }
+
+    public boolean isHaySiguiente() {
+        return siguiente != null;
+    }
+
+    public boolean isPrimera() {
+        return primera;
+    }
+}
@@ -0,0 +1,237 @@
+package com.salesiana.inventory_system.util;
+
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.borders.SolidBorder;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Div;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.element.Text;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escritor de reportes PDF sobre iText 7.
+ *
+ * Escribe directamente en el OutputStream recibido: las páginas se vuelcan a medida que se completan
+ * y la tabla de datos es una tabla "grande" de iText que se descarga cada {@link #FILAS_POR_BLOQUE} filas,
+ * así la memoria no crece con el número de filas. Las fuentes se incrustan desde un archivo TTF local;
+ * no se descarga nada de la red.
+ *
+ * La comparación con el reporte HTML imprimible anterior está en ReportePdfHtmlBenchmark (perfil jmh).
+ */
+public class PdfReporteWriter implements AutoCloseable {
+
+    private static final int FILAS_POR_BLOQUE = 100;
+
+    public static final DeviceRgb COLOR_ROJO = new DeviceRgb(231, 76, 60);
+    public static final DeviceRgb COLOR_NARANJA = new DeviceRgb(243, 156, 18);
+    public static final DeviceRgb COLOR_VERDE = new DeviceRgb(39, 174, 96);
+    public static final DeviceRgb COLOR_AZUL = new DeviceRgb(52, 152, 219);
+    public static final DeviceRgb COLOR_AZUL_OSCURO = new DeviceRgb(44, 62, 80);
+    public static final DeviceRgb COLOR_VIOLETA = new DeviceRgb(142, 68, 173);
+
+    private static final DeviceRgb COLOR_GRIS = new DeviceRgb(127, 140, 141);
+    private static final DeviceRgb COLOR_FILA_PAR = new DeviceRgb(245, 247, 250);
+    private static final DeviceRgb COLOR_BORDE = new DeviceRgb(221, 221, 221);
+
+    private final PdfDocument pdf;
+    private final Document document;
+    private final PdfFont fuente;
+    private final PdfFont fuenteNegrita;
+    private final DeviceRgb colorTema;
+
+    private Table tabla;
+    private int columnas;
+    private int celdasTabla;
+
+    /**
+     * @param out destino del PDF; no se cierra al terminar, lo cierra quien lo abrió
+     * @param rutaFuente TTF regular a incrustar (si no existe se usa Helvetica)
+     * @param rutaFuenteNegrita TTF negrita a incrustar (si no existe se usa Helvetica-Bold)
+     * @param colorTema color de encabezados y resumen
+     */
+    public PdfReporteWriter(OutputStream out, String rutaFuente, String rutaFuenteNegrita,
+                            DeviceRgb colorTema) throws IOException {
+        PdfWriter writer = new PdfWriter(out);
+        writer.setCloseStream(false);
+        this.pdf = new PdfDocument(writer);
+        this.document = new Document(pdf, PageSize.A4.rotate());
+        this.document.setMargins(28, 28, 28, 28);
+        this.fuente = cargarFuente(rutaFuente, StandardFonts.HELVETICA);
+        this.fuenteNegrita = cargarFuente(rutaFuenteNegrita, StandardFonts.HELVETICA_BOLD);
+        this.colorTema = colorTema;
+        this.document.setFont(fuente).setFontSize(9);
+    }
+
+    private static PdfFont cargarFuente(String ruta, String estandar) throws IOException {
+        if (ruta != null && !ruta.isBlank() && new File(ruta).isFile()) {
+            return PdfFontFactory.createFont(ruta, PdfEncodings.IDENTITY_H,
+                    PdfFontFactory.EmbeddingStrategy.FORCE_EMBEDDED);
+        }
+        System.err.println("⚠️ Fuente PDF no encontrada (" + ruta + "), se usa " + estandar);
+        return PdfFontFactory.createFont(estandar);
+    }
+
+    public void encabezado(String titulo, String subtitulo) {
+        Div div = new Div()
+                .setBackgroundColor(colorTema)
+                .setPadding(10)
+                .setMarginBottom(8);
+        div.add(new Paragraph(titulo)
+                .setFont(fuenteNegrita).setFontSize(16)
+                .setFontColor(ColorConstants.WHITE)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMargin(0));
+        div.add(new Paragraph(subtitulo)
+                .setFontSize(10)
+                .setFontColor(ColorConstants.WHITE)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMargin(0));
+        document.add(div);
+    }
+
+    public void info(String texto) {
+        document.add(new Paragraph(texto)
+                .setFontColor(COLOR_GRIS)
+                .setTextAlignment(TextAlignment.CENTER)
+                .setMarginBottom(6));
+    }
+
+    public void alerta(String texto) {
+        document.add(new Paragraph(texto)
+                .setFont(fuenteNegrita)
+                .setBackgroundColor(new DeviceRgb(255, 243, 205))
+                .setBorderLeft(new SolidBorder(new DeviceRgb(255, 193, 7), 3))
+                .setPadding(6)
+                .setMarginBottom(6));
+    }
+
+    /**
+     * Abre la tabla de datos. Los encabezados se repiten en cada página.
+     */
+    public void iniciarTabla(float[] anchos, String... encabezados) {
+        columnas = encabezados.length;
+        celdasTabla = 0;
+        tabla = new Table(UnitValue.createPercentArray(anchos), true)
+                .setWidth(UnitValue.createPercentValue(100));
+        for (String encabezado : encabezados) {
+            tabla.addHeaderCell(new Cell()
+                    .add(new Paragraph(encabezado).setFont(fuenteNegrita))
+                    .setBackgroundColor(colorTema)
+                    .setFontColor(ColorConstants.WHITE)
+                    .setBorder(new SolidBorder(COLOR_BORDE, 0.5f)));
+        }
+        document.add(tabla);
+    }
+
+    public void celda(Object valor) {
+        celda(valor, TextAlignment.LEFT, null);
+    }
+
+    public void celdaCentrada(Object valor) {
+        celda(valor, TextAlignment.CENTER, null);
+    }
+
+    public void celdaDerecha(Object valor) {
+        celda(valor, TextAlignment.RIGHT, null);
+    }
+
+    /**
+     * Celda centrada con fondo de color, para estados y clasificaciones
+     */
+    public void celdaResaltada(Object valor, DeviceRgb fondo) {
+        celda(valor, TextAlignment.CENTER, fondo);
+    }
+
+    private void celda(Object valor, TextAlignment alineacion, DeviceRgb fondo) {
+        Cell cell = new Cell()
+                .add(new Paragraph(valor != null ? valor.toString() : ""))
+                .setTextAlignment(alineacion)
+                .setBorder(new SolidBorder(COLOR_BORDE, 0.5f));
+        if (fondo != null) {
+            cell.setBackgroundColor(fondo).setFontColor(ColorConstants.WHITE).setFont(fuenteNegrita);
+        } else if ((celdasTabla / columnas) % 2 == 1) {
+            cell.setBackgroundColor(COLOR_FILA_PAR);
+        }
+        tabla.addCell(cell);
+        celdasTabla++;
+
+        // Al completar un bloque de filas se descarga lo ya maquetado al stream
+        if (celdasTabla % (columnas * FILAS_POR_BLOQUE) == 0) {
+            tabla.flush();
+        }
+    }
+
+    /**
+     * Fila única que ocupa todo el ancho, para tablas sin datos
+     */
+    public void filaMensaje(String mensaje) {
+        tabla.addCell(new Cell(1, columnas)
+                .add(new Paragraph(mensaje))
+                .setTextAlignment(TextAlignment.CENTER)
+                .setFontColor(COLOR_GRIS)
+                .setPadding(12));
+        celdasTabla += columnas;
+    }
+
+    public void terminarTabla() {
+        if (tabla != null) {
+            tabla.complete();
+            tabla = null;
+        }
+    }
+
+    /**
+     * Bloque de resumen: cada elemento de lineas es un par {etiqueta, valor}
+     */
+    public void resumen(String titulo, String[][] lineas, String nota) {
+        terminarTabla();
+        Div div = new Div()
+                .setBackgroundColor(colorTema)
+                .setFontColor(ColorConstants.WHITE)
+                .setPadding(10)
+                .setMarginTop(12);
+        div.add(new Paragraph(titulo).setFont(fuenteNegrita).setFontSize(12).setMarginTop(0));
+        for (String[] linea : lineas) {
+            div.add(new Paragraph()
+                    .add(new Text(linea[0] + ": ").setFont(fuenteNegrita))
+                    .add(new Text(linea[1]))
+                    .setMargin(0));
+        }
+        if (nota != null) {
+            div.add(new Paragraph(nota).setMarginTop(6).setMarginBottom(0));
+        }
+        document.add(div);
+    }
+
+    public void pie(String... lineas) {
+        terminarTabla();
+        for (String linea : lineas) {
+            document.add(new Paragraph(linea)
+                    .setFontSize(8)
+                    .setFontColor(COLOR_GRIS)
+                    .setTextAlignment(TextAlignment.CENTER)
+                    .setMargin(0));
+        }
+    }
+
+    @Override
+    public void close() {
+        terminarTabla();
+        document.close();
+    }
+}
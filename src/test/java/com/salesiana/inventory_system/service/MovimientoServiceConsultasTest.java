@@ -0,0 +1,148 @@
+package com.salesiana.inventory_system.service;
+
+import com.salesiana.inventory_system.entity.Movimiento;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica que las consultas de movimientos no disparen SELECT adicionales por fila (N+1).
+ * Cada listado se recorre como lo hace la vista (producto, tipo, usuario y rol) y se cuentan
+ * las sentencias con las estadísticas de Hibernate.
+ *
+ * Los datos se insertan por JDBC (dos usuarios, tipos y productos distintos, así un N+1 se notaría)
+ * y se borran al terminar. Las tareas programadas se desactivan porque las estadísticas son globales
+ * y el relevo de eventos también usa JPA.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"app.tareas-programadas.habilitadas=false"
+})
+class MovimientoServiceConsultasTest {
+
+	// Una consulta por llamada, sin importar cuántas filas devuelva
+	private static final long MAX_SENTENCIAS = 1;
+
+	private static final int MOVIMIENTOS_POR_PRODUCTO = 3;
+
+	@Autowired
+	private MovimientoService movimientoService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Statistics estadisticas;
+
+	private final List<Integer> usuarios = new ArrayList<>();
+	private final List<Integer> tipos = new ArrayList<>();
+	private final List<Integer> productos = new ArrayList<>();
+
+	@BeforeEach
+	void prepararDatos() {
+		String sufijo = Long.toString(System.nanoTime(), 36);
+		Integer rolId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM roles", Integer.class);
+
+		for (int i = 0; i < 2; i++) {
+			String clave = "n1-" + sufijo + "-" + i;
+			jdbcTemplate.update("INSERT INTO usuarios (username, email, password_hash, nombre_completo, rol_id, activo) "
+					+ "VALUES (?, ?, 'x', ?, ?, TRUE)", clave, clave + "@prueba.local", "Usuario " + clave, rolId);
+			usuarios.add(jdbcTemplate.queryForObject("SELECT id FROM usuarios WHERE username = ?", Integer.class, clave));
+
+			jdbcTemplate.update("INSERT INTO tipos_movimiento (codigo, nombre, afecta_stock, activo) VALUES (?, ?, 1, TRUE)",
+					clave, "Tipo " + clave);
+			tipos.add(jdbcTemplate.queryForObject("SELECT id FROM tipos_movimiento WHERE codigo = ?", Integer.class, clave));
+
+			jdbcTemplate.update("INSERT INTO productos (codigo, nombre, unidad_medida, activo) VALUES (?, ?, 'UND', TRUE)",
+					clave, "Producto " + clave);
+			productos.add(jdbcTemplate.queryForObject("SELECT id FROM productos WHERE codigo = ?", Integer.class, clave));
+		}
+
+		for (int i = 0; i < productos.size(); i++) {
+			for (int j = 0; j < MOVIMIENTOS_POR_PRODUCTO; j++) {
+				jdbcTemplate.update("INSERT INTO movimientos (tipo_movimiento_id, producto_id, cantidad, usuario_id, "
+								+ "fecha_movimiento) VALUES (?, ?, 1, ?, ?)",
+						tipos.get((i + j) % tipos.size()), productos.get(i), usuarios.get((i + j) % usuarios.size()),
+						LocalDateTime.now().minusMinutes(j));
+			}
+		}
+
+		estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+	}
+
+	@AfterEach
+	void borrarDatos() {
+		for (Integer productoId : productos) {
+			jdbcTemplate.update("DELETE FROM movimientos WHERE producto_id = ?", productoId);
+			jdbcTemplate.update("DELETE FROM alertas WHERE producto_id = ?", productoId);
+			jdbcTemplate.update("DELETE FROM productos WHERE id = ?", productoId);
+		}
+		for (Integer tipoId : tipos) {
+			jdbcTemplate.update("DELETE FROM tipos_movimiento WHERE id = ?", tipoId);
+		}
+		for (Integer usuarioId : usuarios) {
+			jdbcTemplate.update("DELETE FROM usuarios WHERE id = ?", usuarioId);
+		}
+	}
+
+	@Test
+	void listadoPaginadoEnUnaConsulta() {
+		List<Movimiento> movimientos = movimientoService.obtenerPaginaMovimientos(null).getElementos();
+		recorrerComoLaVista(movimientos);
+
+		assertThat(movimientos).isNotEmpty();
+		assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_SENTENCIAS);
+	}
+
+	@Test
+	void busquedaPorFechasEnUnaConsulta() {
+		List<Movimiento> movimientos = movimientoService.obtenerMovimientosPorRangoFechas(
+				LocalDateTime.now().minusYears(1), LocalDateTime.now());
+		recorrerComoLaVista(movimientos);
+
+		assertThat(movimientos).hasSizeGreaterThanOrEqualTo(productos.size() * MOVIMIENTOS_POR_PRODUCTO);
+		assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_SENTENCIAS);
+	}
+
+	@Test
+	void busquedaPorProductoEnUnaConsulta() {
+		List<Movimiento> movimientos = movimientoService.obtenerMovimientosPorProducto(productos.get(0));
+		recorrerComoLaVista(movimientos);
+
+		assertThat(movimientos).hasSize(MOVIMIENTOS_POR_PRODUCTO);
+		assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_SENTENCIAS);
+	}
+
+	@Test
+	void ultimosMovimientosEnUnaConsulta() {
+		List<Movimiento> movimientos = movimientoService.obtenerUltimosMovimientos(10);
+		recorrerComoLaVista(movimientos);
+
+		assertThat(movimientos).isNotEmpty().hasSizeLessThanOrEqualTo(10);
+		assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_SENTENCIAS);
+	}
+
+	private void recorrerComoLaVista(List<Movimiento> movimientos) {
+		for (Movimiento movimiento : movimientos) {
+			movimiento.getProducto().getNombre();
+			movimiento.getTipoMovimiento().getNombre();
+			movimiento.getUsuario().getNombreCompleto();
+			movimiento.getUsuario().getRol().getNombre();
+		}
+	}
+}